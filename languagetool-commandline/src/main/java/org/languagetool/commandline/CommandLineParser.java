@@ -234,7 +234,7 @@ class CommandLineParser {
             + "                           final_embeddings.txt and dictionary.txt; activates neural network based rules\n"
             + "  --neuralnetworkmodel DIR a base directory for various saved neural network models (deprecated)\n"
             + "  --fasttextmodel FILE     fasttext language detection model (optional), see https://fasttext.cc/docs/en/language-identification.html\n"
-            + "  --fasttextbinary FILE    fasttext executable (optional), see https://fasttext.cc/docs/en/support.html\n"
+            + "  --fasttextbinary FILE    fasttext executable (optional, deprecated: without it, the model is loaded into the JVM)\n"
             + "  --xmlfilter              remove XML/HTML elements from input before checking (deprecated)\n"
             + "  --line-by-line           work on file line by line (for development, e.g. inside an IDE)"
             + "  --enable-temp-off        enable all temp_off rules (for testing and development)"
@@ -32,6 +32,7 @@ import org.languagetool.rules.patterns.FalseFriendRuleLoader;
 import org.languagetool.rules.patterns.PatternRule;
 import org.languagetool.rules.patterns.PatternRuleLoader;
 import org.languagetool.rules.spelling.SpellingCheckRule;
+import org.languagetool.tagging.Tagger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -47,6 +48,7 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.function.Function;
 import java.util.jar.Manifest;
@@ -190,6 +192,7 @@ public class JLanguageTool {
   private final List<RuleMatchFilter> matchFilters = new LinkedList<>();
 
   private CheckCancelledCallback checkCancelledCallback;
+  private CheckStageListener checkStageListener;
 
   private PrintStream printStream;
   private boolean listUnknownWords;
@@ -449,6 +452,15 @@ public class JLanguageTool {
     this.checkCancelledCallback = callback;
   }
 
+  /**
+   * Listener that gets the time spent in each stage of {@link #check(String)}, e.g. for monitoring.
+   * Set it to {@code null} to stop reporting.
+   * @since 5.1
+   */
+  public void setCheckStageListener(@Nullable CheckStageListener listener) {
+    this.checkStageListener = listener;
+  }
+
   /**
    * Gets the ResourceBundle (i18n strings) for the default language of the user's system.
    */
@@ -874,6 +886,7 @@ public class JLanguageTool {
    */
   public List<RuleMatch> check(AnnotatedText annotatedText, boolean tokenizeText, ParagraphHandling paraMode, RuleMatchListener listener,
                                Mode mode, Level level, @Nullable ExecutorService remoteRulesThreadPool) throws IOException {
+    long stageStart = System.nanoTime();
     List<String> sentences;
     if (tokenizeText) {
       sentences = sentenceTokenize(annotatedText.getPlainText());
@@ -888,6 +901,7 @@ public class JLanguageTool {
 
     unknownWords = new HashSet<>();
     List<AnalyzedSentence> analyzedSentences = analyzeSentences(sentences);
+    stageStart = stageFinished(CheckStage.SENTENCE_ANALYSIS, stageStart);
 
     if (mode != Mode.TEXTLEVEL_ONLY && level == Level.DEFAULT) {
       allRules = allRules.stream().filter(rule -> !rule.hasTag(Tags.picky)).collect(Collectors.toList());
@@ -903,12 +917,19 @@ public class JLanguageTool {
       remoteRuleTasks = new LinkedList<>();
       checkRemoteRules(remoteRulesThreadPool, allRules, analyzedSentences, mode, level,
         remoteRuleTasks, remoteRules, cachedResults, matchOffset);
+      stageFinished(CheckStage.REMOTE_RULES, stageStart);
     }
 
+    // LOCAL_RULES and TEXT_LEVEL_RULES are reported by TextCheckCallable:
     List<RuleMatch> ruleMatches = performCheck(analyzedSentences, sentences, allRules,
       paraMode, annotatedText, listener, mode, level, remoteRulesThreadPool == null);
 
+    // only the time spent waiting for the remote rules after the local check counts here:
+    stageStart = System.nanoTime();
     fetchRemoteRuleResults(mode, level, remoteMatches, remoteRuleTasks, remoteRules, cachedResults, matchOffset, annotatedText);
+    if (remoteRuleTasks != null) {
+      stageStart = stageFinished(CheckStage.REMOTE_RULES, stageStart);
+    }
 
     ruleMatches.addAll(remoteMatches);
     ruleMatches = new SameRuleGroupFilter().filter(ruleMatches);
@@ -919,10 +940,24 @@ public class JLanguageTool {
     ruleMatches = new LanguageDependentFilter(language, this.enabledRules, this.disabledRuleCategories).filter(ruleMatches);
 
     ruleMatches = applyCustomFilters(ruleMatches, annotatedText);
+    stageFinished(CheckStage.FILTERING, stageStart);
 
     return ruleMatches;
   }
 
+  /**
+   * Report the time since {@code stageStart} to the {@link CheckStageListener}, if any.
+   * @return the current time, i.e. the start of the next stage
+   */
+  private long stageFinished(CheckStage stage, long stageStart) {
+    long now = System.nanoTime();
+    CheckStageListener stageListener = checkStageListener;
+    if (stageListener != null) {
+      stageListener.stageFinished(stage, now - stageStart);
+    }
+    return now;
+  }
+
   protected void fetchRemoteRuleResults(Mode mode, Level level, List<RuleMatch> remoteMatches,
                                         List<FutureTask<RemoteRuleResult>> remoteRuleTasks, List<RemoteRule> remoteRules,
                                         Map<AnalyzedSentence, List<RuleMatch>> cachedResults,
@@ -1202,8 +1237,7 @@ public class JLanguageTool {
     int endPos = match.getPatternToPos() + charCount;
     thisMatch.setPatternPosition(startPos, endPos);
 
-    List<SuggestedReplacement> replacements = match.getSuggestedReplacementObjects();
-    thisMatch.setSuggestedReplacementObjects(extendSuggestions(replacements));
+    setExtendedSuggestions(thisMatch, match);
 
     String sentencePartToError = sentence.substring(0, match.getFromPos());
     String sentencePartToEndOfError = sentence.substring(0, match.getToPos());
@@ -1231,6 +1265,14 @@ public class JLanguageTool {
 
   }
 
+  private void setExtendedSuggestions(RuleMatch target, RuleMatch source) {
+    if (source.hasPendingSuggestions()) {
+      target.setLazySuggestedReplacements(() -> extendSuggestions(source.getSuggestedReplacementObjects()));
+    } else {
+      target.setSuggestedReplacementObjects(extendSuggestions(source.getSuggestedReplacementObjects()));
+    }
+  }
+
   private List<SuggestedReplacement> extendSuggestions(List<SuggestedReplacement> replacements) {
     List<SuggestedReplacement> extended = new ArrayList<>();
     for (SuggestedReplacement replacement : replacements) {
@@ -1297,17 +1339,96 @@ public class JLanguageTool {
     if (cachedSentence != null) {
       return cachedSentence;
     } else {
-      AnalyzedSentence raw = getRawAnalyzedSentence(sentence);
-      AnalyzedSentence disambig = language.getDisambiguator().disambiguate(raw);
-      AnalyzedSentence analyzedSentence = new AnalyzedSentence(disambig.getTokens(), raw.getTokens());
-      if (language.getPostDisambiguationChunker() != null) {
-        language.getPostDisambiguationChunker().addChunkTags(Arrays.asList(analyzedSentence.getTokens()));
+      return disambiguate(cacheKey, getRawAnalyzedSentence(sentence));
+    }
+  }
+
+  /**
+   * Like calling {@link #getAnalyzedSentence(String)} for each sentence, but the tokens of all
+   * sentences that are not in the cache get tagged in one batch with {@link Tagger#tagSentences(List, ExecutorService)},
+   * so taggers can analyze each distinct token of the text only once. For taggers that don't
+   * {@link Tagger#supportsBatchTagging() support this}, each sentence is analyzed on its own, in parallel
+   * if an executor is given.
+   * @param executor used for tokenization, tagging, chunking, and disambiguation in parallel, can be {@code null}
+   * @since 5.1
+   */
+  protected List<AnalyzedSentence> getAnalyzedSentences(List<String> sentences, @Nullable ExecutorService executor) throws IOException {
+    if (!language.getTagger().supportsBatchTagging()) {
+      List<Callable<AnalyzedSentence>> callables = new ArrayList<>();
+      for (String sentence : sentences) {
+        callables.add(() -> getAnalyzedSentence(sentence));
+      }
+      return invokeAll(callables, executor);
+    }
+    AnalyzedSentence[] result = new AnalyzedSentence[sentences.size()];
+    List<Integer> uncachedIndices = new ArrayList<>();
+    List<Callable<List<String>>> tokenizeCallables = new ArrayList<>();
+    for (int i = 0; i < sentences.size(); i++) {
+      SimpleInputSentence cacheKey = new SimpleInputSentence(sentences.get(i), language);
+      AnalyzedSentence cachedSentence = cache != null ? cache.getIfPresent(cacheKey) : null;
+      if (cachedSentence != null) {
+        result[i] = cachedSentence;
+      } else {
+        String sentence = sentences.get(i);
+        tokenizeCallables.add(() -> language.getWordTokenizer().tokenize(sentence));
+        uncachedIndices.add(i);
       }
-      if (cache != null) {
-        cache.put(cacheKey, analyzedSentence);
+    }
+    List<List<String>> uncachedTokens = invokeAll(tokenizeCallables, executor);
+    List<Map<Integer, String>> uncachedSoftHyphenTokens = new ArrayList<>();
+    for (List<String> tokens : uncachedTokens) {
+      uncachedSoftHyphenTokens.add(replaceSoftHyphens(tokens));
+    }
+    List<List<AnalyzedTokenReadings>> uncachedReadings = language.getTagger().tagSentences(uncachedTokens, executor);
+    List<Callable<AnalyzedSentence>> callables = new ArrayList<>();
+    for (int j = 0; j < uncachedIndices.size(); j++) {
+      SimpleInputSentence cacheKey = new SimpleInputSentence(sentences.get(uncachedIndices.get(j)), language);
+      List<AnalyzedTokenReadings> aTokens = uncachedReadings.get(j);
+      Map<Integer, String> softHyphenTokens = uncachedSoftHyphenTokens.get(j);
+      callables.add(() -> disambiguate(cacheKey, createRawAnalyzedSentence(aTokens, softHyphenTokens)));
+    }
+    List<AnalyzedSentence> analyzed = invokeAll(callables, executor);
+    for (int j = 0; j < uncachedIndices.size(); j++) {
+      result[uncachedIndices.get(j)] = analyzed.get(j);
+    }
+    return Arrays.asList(result);
+  }
+
+  /**
+   * Run the callables on the executor, or one after the other on this thread if there's no executor.
+   */
+  private static <T> List<T> invokeAll(List<Callable<T>> callables, @Nullable ExecutorService executor) throws IOException {
+    List<T> results = new ArrayList<>(callables.size());
+    try {
+      if (executor == null) {
+        for (Callable<T> callable : callables) {
+          results.add(callable.call());
+        }
+      } else {
+        for (Future<T> future : executor.invokeAll(callables)) {
+          results.add(future.get());
+        }
       }
-      return analyzedSentence;
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+    return results;
+  }
+
+  private AnalyzedSentence disambiguate(SimpleInputSentence cacheKey, AnalyzedSentence raw) throws IOException {
+    AnalyzedSentence disambig = language.getDisambiguator().disambiguate(raw);
+    AnalyzedSentence analyzedSentence = new AnalyzedSentence(disambig.getTokens(), raw.getTokens());
+    if (language.getPostDisambiguationChunker() != null) {
+      language.getPostDisambiguationChunker().addChunkTags(Arrays.asList(analyzedSentence.getTokens()));
+    }
+    if (cache != null) {
+      cache.put(cacheKey, analyzedSentence);
     }
+    return analyzedSentence;
   }
 
   /**
@@ -1321,13 +1442,16 @@ public class JLanguageTool {
   public AnalyzedSentence getRawAnalyzedSentence(String sentence) throws IOException {
     List<String> tokens = language.getWordTokenizer().tokenize(sentence);
     Map<Integer, String> softHyphenTokens = replaceSoftHyphens(tokens);
-
     List<AnalyzedTokenReadings> aTokens = language.getTagger().tag(tokens);
+    return createRawAnalyzedSentence(aTokens, softHyphenTokens);
+  }
+
+  private AnalyzedSentence createRawAnalyzedSentence(List<AnalyzedTokenReadings> aTokens, Map<Integer, String> softHyphenTokens) {
     if (language.getChunker() != null) {
       language.getChunker().addChunkTags(aTokens);
     }
 
-    AnalyzedTokenReadings[] tokenArray = new AnalyzedTokenReadings[tokens.size() + 1];
+    AnalyzedTokenReadings[] tokenArray = new AnalyzedTokenReadings[aTokens.size() + 1];
     AnalyzedToken[] startTokenArray = new AnalyzedToken[1];
     int toArrayCount = 0;
     AnalyzedToken sentenceStartToken = new AnalyzedToken("", SENTENCE_START_TAGNAME, null);
@@ -1561,6 +1685,36 @@ public class JLanguageTool {
     boolean checkCancelled();
   }
 
+  /**
+   * The stages of a check as reported to a {@link CheckStageListener}.
+   * @since 5.1
+   */
+  public enum CheckStage {
+    /** Splitting the text into sentences, tokenizing, tagging and disambiguation. */
+    SENTENCE_ANALYSIS,
+    /** Sentence-level rules, including the lookup of cached results. */
+    LOCAL_RULES,
+    /** Rules that work on the whole text, see {@link TextLevelRule}. */
+    TEXT_LEVEL_RULES,
+    /** Starting the remote rules and waiting for their results after the local rules are done. */
+    REMOTE_RULES,
+    /** Removing duplicate, overlapping and disabled matches. */
+    FILTERING
+  }
+
+  /**
+   * Listener for the time spent in the stages of {@link #check(String)}. A stage can be reported
+   * more than once per check, e.g. the rules of {@link MultiThreadedJLanguageTool} are checked
+   * by several threads, and the listener will then be called from all these threads.
+   * @since 5.1
+   */
+  public interface CheckStageListener {
+    /**
+     * @param nanos the time spent in the stage, in nanoseconds
+     */
+    void stageFinished(CheckStage stage, long nanos);
+  }
+
   class TextCheckCallable implements Callable<List<RuleMatch>> {
 
     private final List<Rule> rules;
@@ -1600,13 +1754,18 @@ public class JLanguageTool {
     @Override
     public List<RuleMatch> call() throws Exception {
       List<RuleMatch> ruleMatches = new ArrayList<>();
+      long stageStart = System.nanoTime();
       if (mode == Mode.ALL) {
         ruleMatches.addAll(getTextLevelRuleMatches());
+        stageStart = stageFinished(CheckStage.TEXT_LEVEL_RULES, stageStart);
         ruleMatches.addAll(getOtherRuleMatches());
+        stageFinished(CheckStage.LOCAL_RULES, stageStart);
       } else if (mode == Mode.ALL_BUT_TEXTLEVEL_ONLY) {
         ruleMatches.addAll(getOtherRuleMatches());
+        stageFinished(CheckStage.LOCAL_RULES, stageStart);
       } else if (mode == Mode.TEXTLEVEL_ONLY) {
         ruleMatches.addAll(getTextLevelRuleMatches());
+        stageFinished(CheckStage.TEXT_LEVEL_RULES, stageStart);
       } else {
         throw new IllegalArgumentException("Unknown mode: " + mode);
       }
@@ -1638,7 +1797,7 @@ public class JLanguageTool {
               newMatch.setColumn(range.from.column);
             }
             newMatch.setEndColumn(range.to.column);
-            newMatch.setSuggestedReplacementObjects(extendSuggestions(match.getSuggestedReplacementObjects()));
+            setExtendedSuggestions(newMatch, match);
             adaptedMatches.add(newMatch);
           }
           ruleMatches.addAll(adaptedMatches);
@@ -1678,7 +1837,9 @@ public class JLanguageTool {
           if (sentenceMatches == null) {
             sentenceMatches = checkAnalyzedSentence(paraMode, rules, analyzedSentence, checkRemoteRules);
           }
-          if (cache != null) {
+          if (cache != null && sentenceMatches.stream().noneMatch(RuleMatch::hasPendingSuggestions)) {
+            // matches with suggestions not computed yet are not cached, as the cache is shared by
+            // all instances and the rules that compute the suggestions are not thread-safe
             cache.put(cacheKey, sentenceMatches);
           }
           List<RuleMatch> adaptedMatches = new ArrayList<>();
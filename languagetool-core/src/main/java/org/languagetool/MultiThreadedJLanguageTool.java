@@ -122,33 +122,22 @@ public class MultiThreadedJLanguageTool extends JLanguageTool {
   @Override
   protected List<AnalyzedSentence> analyzeSentences(List<String> sentences) throws IOException {
     List<AnalyzedSentence> analyzedSentences = new ArrayList<>();
-    
-    ExecutorService executorService = getExecutorService();
-
+    // tag the whole text at once so that each distinct token is analyzed only once, or
+    // analyze the sentences in parallel if the tagger doesn't support that:
+    List<AnalyzedSentence> batchAnalyzedSentences = getAnalyzedSentences(sentences, getExecutorService());
     int j = 0;
-    
-    List<Callable<AnalyzedSentence>> callables = new ArrayList<>();
-    for (String sentence : sentences) {
-      AnalyzeSentenceCallable analyzeSentenceCallable = 
-          ++j < sentences.size() 
-            ? new AnalyzeSentenceCallable(sentence)
-            : new ParagraphEndAnalyzeSentenceCallable(sentence);
-      callables.add(analyzeSentenceCallable);
-    }
-    
-    try {
-      List<Future<AnalyzedSentence>> futures = executorService.invokeAll(callables);
-      for (Future<AnalyzedSentence> future : futures) {
-        AnalyzedSentence analyzedSentence = future.get();
-        rememberUnknownWords(analyzedSentence);
-        printSentenceInfo(analyzedSentence);
-        analyzedSentences.add(analyzedSentence);
+    for (AnalyzedSentence analyzedSentence : batchAnalyzedSentences) {
+      if (++j == sentences.size()) {
+        AnalyzedTokenReadings[] anTokens = analyzedSentence.getTokens();
+        anTokens[anTokens.length - 1].setParagraphEnd();
+        AnalyzedTokenReadings[] preDisambigAnTokens = analyzedSentence.getPreDisambigTokens();
+        preDisambigAnTokens[anTokens.length - 1].setParagraphEnd();
+        analyzedSentence = new AnalyzedSentence(anTokens, preDisambigAnTokens);  ///TODO: why???
       }
-      
-    } catch (InterruptedException | ExecutionException e) {
-      throw new RuntimeException(e);
+      rememberUnknownWords(analyzedSentence);
+      printSentenceInfo(analyzedSentence);
+      analyzedSentences.add(analyzedSentence);
     }
-    
     return analyzedSentences;
   }
   
@@ -193,33 +182,4 @@ public class MultiThreadedJLanguageTool extends JLanguageTool {
     return callables;
   }
 
-  private class AnalyzeSentenceCallable implements Callable<AnalyzedSentence> {
-    private final String sentence;
-
-    private AnalyzeSentenceCallable(String sentence) {
-      this.sentence = sentence;
-    }
-
-    @Override
-    public AnalyzedSentence call() throws Exception {
-      return getAnalyzedSentence(sentence);
-    }
-  }
-  
-  private final class ParagraphEndAnalyzeSentenceCallable extends AnalyzeSentenceCallable {
-    private ParagraphEndAnalyzeSentenceCallable(String sentence) {
-      super(sentence);
-    }
-
-    @Override
-    public AnalyzedSentence call() throws Exception {
-      AnalyzedSentence analyzedSentence = super.call();
-      AnalyzedTokenReadings[] anTokens = analyzedSentence.getTokens();
-      anTokens[anTokens.length - 1].setParagraphEnd();
-      AnalyzedTokenReadings[] preDisambigAnTokens = analyzedSentence.getPreDisambigTokens();
-      preDisambigAnTokens[anTokens.length - 1].setParagraphEnd();
-      analyzedSentence = new AnalyzedSentence(anTokens, preDisambigAnTokens);  ///TODO: why???
-      return analyzedSentence;
-    }
-  }
 }
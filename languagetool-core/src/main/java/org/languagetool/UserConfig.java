@@ -43,6 +43,19 @@ public class UserConfig {
     return abTestEnabled;
   }
 
+  /**
+   * How spell checking rules create suggestions for their matches.
+   * @since 5.1
+   */
+  public enum SuggestionsMode {
+    /** Compute suggestions when the match is created (default). */
+    ALL,
+    /** Don't compute suggestions, e.g. for clients that only need the error positions. */
+    NONE,
+    /** Compute suggestions only when they are first needed, see {@link org.languagetool.rules.RuleMatch#setLazySuggestedReplacements}. */
+    DEFERRED
+  }
+
   private final List<String> userSpecificSpellerWords;
   private final int maxSpellingSuggestions;
   private final String userDictName;
@@ -50,6 +63,8 @@ public class UserConfig {
   private final LinguServices linguServices;
   // needs to be in UserConfig so it is considered both in ResultCache and in PipelinePool
   private final boolean filterDictionaryMatches;
+  private final SuggestionsMode suggestionsMode;
+  private final int maxSuggestionsPerMatch;
 
   // partially indifferent for comparing UserConfigs (e.g. in PipelinePool)
   // provided to rules only for A/B tests
@@ -97,6 +112,19 @@ public class UserConfig {
                     int maxSpellingSuggestions, String userDictName,
                     LinguServices linguServices, boolean filterDictionaryMatches,
                     @Nullable String abTest, @Nullable Long textSessionId) {
+    this(userSpecificSpellerWords, ruleValues, maxSpellingSuggestions, userDictName, linguServices,
+      filterDictionaryMatches, abTest, textSessionId, SuggestionsMode.ALL, 0);
+  }
+
+  /**
+   * @param maxSuggestionsPerMatch the maximum number of suggestions spell checking rules compute per match (0 = no limit)
+   * @since 5.1
+   */
+  public UserConfig(List<String> userSpecificSpellerWords, Map<String, Integer> ruleValues,
+                    int maxSpellingSuggestions, String userDictName,
+                    LinguServices linguServices, boolean filterDictionaryMatches,
+                    @Nullable String abTest, @Nullable Long textSessionId,
+                    SuggestionsMode suggestionsMode, int maxSuggestionsPerMatch) {
     this.userSpecificSpellerWords = Objects.requireNonNull(userSpecificSpellerWords);
     for (Map.Entry<String, Integer> entry : ruleValues.entrySet()) {
       this.configurableRuleValues.put(entry.getKey(), entry.getValue());
@@ -107,6 +135,8 @@ public class UserConfig {
     this.filterDictionaryMatches = filterDictionaryMatches;
     this.abTest = abTest;
     this.textSessionId = textSessionId;
+    this.suggestionsMode = Objects.requireNonNull(suggestionsMode);
+    this.maxSuggestionsPerMatch = maxSuggestionsPerMatch;
   }
 
   public List<String> getAcceptedWords() {
@@ -117,6 +147,22 @@ public class UserConfig {
     return maxSpellingSuggestions;
   }
 
+  /**
+   * @since 5.1
+   */
+  public SuggestionsMode getSuggestionsMode() {
+    return suggestionsMode;
+  }
+
+  /**
+   * The maximum number of suggestions spell checking rules compute per match, 0 for no limit.
+   * Not to be confused with {@link #getMaxSpellingSuggestions()}.
+   * @since 5.1
+   */
+  public int getMaxSuggestionsPerMatch() {
+    return maxSuggestionsPerMatch;
+  }
+
   public Map<String, Integer> getConfigValues() {
     return configurableRuleValues;
   }
@@ -162,6 +208,8 @@ public class UserConfig {
       .append(userDictName, other.userDictName)
       .append(userSpecificSpellerWords, other.userSpecificSpellerWords)
       .append(filterDictionaryMatches, other.filterDictionaryMatches)
+      .append(suggestionsMode, other.suggestionsMode)
+      .append(maxSuggestionsPerMatch, other.maxSuggestionsPerMatch)
       // omitting these distorts A/B tests, as UserConfig is cached by the pipeline pool
       // -> (cached) textSessionId on server may say group A, but ID on client (relevant for saved correction) says B
       // only group must match; keeps hit rate of pipeline cache up
@@ -178,6 +226,8 @@ public class UserConfig {
       .append(configurableRuleValues)
       .append(abTest)
       .append(filterDictionaryMatches)
+      .append(suggestionsMode)
+      .append(maxSuggestionsPerMatch)
       .toHashCode();
   }
 
@@ -190,6 +240,8 @@ public class UserConfig {
       ", configurableRuleValues=" + configurableRuleValues +
       ", linguServices=" + linguServices +
       ", filterDictionaryMatches=" + filterDictionaryMatches +
+      ", suggestionsMode=" + suggestionsMode +
+      ", maxSuggestionsPerMatch=" + maxSuggestionsPerMatch +
       ", textSessionId=" + textSessionId +
       ", abTest='" + abTest + '\'' +
       '}';
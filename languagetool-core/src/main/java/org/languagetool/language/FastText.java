@@ -18,6 +18,7 @@
  */
 package org.languagetool.language;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +29,8 @@ import java.util.*;
 import static org.languagetool.language.LanguageIdentifier.canLanguageBeDetected;
 
 /**
+ * Language identification with a fastText model, either loaded into this JVM (see {@link FastTextModel})
+ * or run by the fastText executable in a separate process.
  * @since 5.0
  */
 class FastText {
@@ -35,17 +38,63 @@ class FastText {
   private static final Logger logger = LoggerFactory.getLogger(FastText.class);
   private static final int K_HIGHEST_SCORES = 5;
 
+  // null if the fasttext executable is used:
+  private final FastTextModel model;
+  private final String[] langCodes;
+
+  // null if the model is loaded into this JVM:
   private final Process fasttextProcess;
   private final BufferedReader fasttextIn;
   private final BufferedWriter fasttextOut;
 
-  FastText(File modelPath, File binaryPath) throws IOException {
-    fasttextProcess = new ProcessBuilder(binaryPath.getPath(), "predict-prob", modelPath.getPath(), "-", "" + K_HIGHEST_SCORES).start();
-    fasttextIn = new BufferedReader(new InputStreamReader(fasttextProcess.getInputStream(), StandardCharsets.UTF_8));
-    fasttextOut = new BufferedWriter(new OutputStreamWriter(fasttextProcess.getOutputStream(), StandardCharsets.UTF_8));
+  /**
+   * Load the model into this JVM.
+   */
+  FastText(File modelPath) throws IOException {
+    this(modelPath, null);
+  }
+
+  /**
+   * @param binaryPath the fasttext executable, or {@code null} to load the model into this JVM
+   */
+  FastText(File modelPath, @Nullable File binaryPath) throws IOException {
+    if (binaryPath != null) {
+      model = null;
+      langCodes = null;
+      fasttextProcess = new ProcessBuilder(binaryPath.getPath(), "predict-prob", modelPath.getPath(), "-", "" + K_HIGHEST_SCORES).start();
+      fasttextIn = new BufferedReader(new InputStreamReader(fasttextProcess.getInputStream(), StandardCharsets.UTF_8));
+      fasttextOut = new BufferedWriter(new OutputStreamWriter(fasttextProcess.getOutputStream(), StandardCharsets.UTF_8));
+    } else {
+      model = new FastTextModel(modelPath);
+      langCodes = new String[model.getLabelCount()];
+      for (int i = 0; i < langCodes.length; i++) {
+        String label = model.getLabel(i);
+        langCodes[i] = label.substring(label.lastIndexOf("__") + 2);
+      }
+      fasttextProcess = null;
+      fasttextIn = null;
+      fasttextOut = null;
+    }
   }
 
   Map<String, Double> runFasttext(String text, List<String> additionalLanguageCodes) throws IOException {
+    if (model == null) {
+      return runFasttextProcess(text, additionalLanguageCodes);
+    }
+    Map<String, Double> probabilities = new HashMap<>();
+    int[] labelIds = new int[K_HIGHEST_SCORES];
+    float[] values = new float[K_HIGHEST_SCORES];
+    int count = model.predict(text.replace('\n', ' '), K_HIGHEST_SCORES, labelIds, values);
+    for (int i = 0; i < count; i++) {
+      String langCode = langCodes[labelIds[i]];
+      if (canLanguageBeDetected(langCode, additionalLanguageCodes)) {
+        probabilities.put(langCode, (double) values[i]);
+      }
+    }
+    return probabilities;
+  }
+
+  private Map<String, Double> runFasttextProcess(String text, List<String> additionalLanguageCodes) throws IOException {
     Map<String, Double> probabilities = new HashMap<>();
     String joined = text.replace("\n", " ");
     String buffer;
@@ -86,7 +135,9 @@ class FastText {
   }
 
   void destroy() {
-    fasttextProcess.destroy();
+    if (fasttextProcess != null) {
+      fasttextProcess.destroy();
+    }
   }
 
 }
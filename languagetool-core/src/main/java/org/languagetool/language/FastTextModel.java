@@ -0,0 +1,688 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.language;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Prediction with a supervised fastText model, like the language identification model
+ * {@code lid.176.bin}. Reads the {@code .bin} and the quantized {@code .ftz} format
+ * of fastText 0.9 and gives the same results as {@code fasttext predict-prob}, without
+ * an external process. The model is not modified after loading and each thread uses
+ * its own buffers, so {@link #predict} can be called by several threads at the same time.
+ * @since 5.1
+ */
+class FastTextModel {
+
+  private static final int MAGIC = 793712314;
+  private static final int MAX_VERSION = 12;
+  private static final int LOSS_HS = 1;
+  private static final int LOSS_NS = 2;
+  private static final int LOSS_SOFTMAX = 3;
+  private static final int LOSS_OVA = 4;
+  private static final int MODEL_SUPERVISED = 3;
+  private static final byte TYPE_LABEL = 1;
+  private static final byte[] EOS = "</s>".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LABEL_PREFIX = "__label__".getBytes(StandardCharsets.UTF_8);
+  // predictions with a lower probability are ignored, like with fastText's default threshold of 0:
+  private static final float MIN_SCORE = stdLog(0);
+  private static final int SIGMOID_TABLE_SIZE = 512;
+  private static final int MAX_SIGMOID = 8;
+  private static final float[] SIGMOID_TABLE = new float[SIGMOID_TABLE_SIZE + 1];
+
+  static {
+    for (int i = 0; i < SIGMOID_TABLE.length; i++) {
+      float x = (float) (i * 2 * MAX_SIGMOID) / SIGMOID_TABLE_SIZE - MAX_SIGMOID;
+      SIGMOID_TABLE[i] = (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+  }
+
+  private final int dim;
+  private final int wordNgrams;
+  private final int loss;
+  private final int bucket;
+  private final int minn;
+  private final int maxn;
+  private final int nwords;
+  private final int nlabels;
+  private final byte[][] words;
+  private final byte[] types;
+  private final int[] wordTable;  // open addressing by hash, -1 for empty slots
+  private final long pruneIndexSize;
+  private final int[] pruneKeys;  // sorted
+  private final int[] pruneValues;
+  private final Matrix input;
+  private final Matrix output;
+  private final int[] treeLeft;   // hierarchical softmax only
+  private final int[] treeRight;  // hierarchical softmax only
+  private final String[] labels;
+  private final ThreadLocal<State> states;
+
+  FastTextModel(File file) throws IOException {
+    ByteBuffer buf;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buf.order(ByteOrder.LITTLE_ENDIAN);
+    if (buf.getInt() != MAGIC) {
+      throw new IOException("Not a fastText model file: " + file);
+    }
+    int version = buf.getInt();
+    if (version > MAX_VERSION) {
+      throw new IOException("Unsupported fastText model version " + version + ": " + file);
+    }
+    dim = buf.getInt();
+    buf.getInt();  // ws
+    buf.getInt();  // epoch
+    buf.getInt();  // minCount
+    buf.getInt();  // neg
+    wordNgrams = buf.getInt();
+    loss = buf.getInt();
+    int model = buf.getInt();
+    bucket = buf.getInt();
+    minn = buf.getInt();
+    int maxnInFile = buf.getInt();
+    // old supervised models don't use character n-grams:
+    maxn = version == 11 && model == MODEL_SUPERVISED ? 0 : maxnInFile;
+    buf.getInt();  // lrUpdateRate
+    buf.getDouble();  // t
+    if (model != MODEL_SUPERVISED) {
+      throw new IOException("Not a supervised fastText model: " + file);
+    }
+
+    int size = buf.getInt();
+    nwords = buf.getInt();
+    nlabels = buf.getInt();
+    buf.getLong();  // ntokens
+    pruneIndexSize = buf.getLong();
+    words = new byte[size][];
+    types = new byte[size];
+    long[] labelCounts = new long[nlabels];
+    for (int i = 0; i < size; i++) {
+      int start = buf.position();
+      while (buf.get() != 0) {
+        // find the end of the word
+      }
+      words[i] = new byte[buf.position() - start - 1];
+      buf.position(start);
+      buf.get(words[i]);
+      buf.get();  // the terminating zero
+      long count = buf.getLong();
+      types[i] = buf.get();
+      if (i >= nwords) {
+        labelCounts[i - nwords] = count;
+      }
+    }
+    int pruned = (int) Math.max(pruneIndexSize, 0);
+    long[] pruneEntries = new long[pruned];
+    for (int i = 0; i < pruned; i++) {
+      pruneEntries[i] = (long) buf.getInt() << 32 | (buf.getInt() & 0xFFFFFFFFL);
+    }
+    Arrays.sort(pruneEntries);
+    pruneKeys = new int[pruned];
+    pruneValues = new int[pruned];
+    for (int i = 0; i < pruned; i++) {
+      pruneKeys[i] = (int) (pruneEntries[i] >> 32);
+      pruneValues[i] = (int) pruneEntries[i];
+    }
+    wordTable = new int[(int) Math.ceil(size / 0.7)];
+    Arrays.fill(wordTable, -1);
+    for (int i = 0; i < size; i++) {
+      wordTable[findSlot(words[i], 0, words[i].length, hash(words[i], 0, words[i].length))] = i;
+    }
+
+    boolean quantizedInput = buf.get() != 0;
+    input = quantizedInput ? new QuantMatrix(buf) : new DenseMatrix(buf);
+    boolean quantizedOutput = buf.get() != 0;
+    output = quantizedInput && quantizedOutput ? new QuantMatrix(buf) : new DenseMatrix(buf);
+    if (input.cols() != dim || output.cols() != dim) {
+      throw new IOException("Invalid fastText model file, matrix dimensions don't match: " + file);
+    }
+
+    if (loss == LOSS_HS) {
+      treeLeft = new int[2 * nlabels - 1];
+      treeRight = new int[2 * nlabels - 1];
+      buildTree(labelCounts);
+    } else if (loss == LOSS_NS || loss == LOSS_SOFTMAX || loss == LOSS_OVA) {
+      treeLeft = null;
+      treeRight = null;
+    } else {
+      throw new IOException("Unsupported loss " + loss + " in fastText model: " + file);
+    }
+    labels = new String[nlabels];
+    for (int i = 0; i < nlabels; i++) {
+      labels[i] = new String(words[nwords + i], StandardCharsets.UTF_8);
+    }
+    states = ThreadLocal.withInitial(() -> new State(dim, nlabels));
+  }
+
+  int getLabelCount() {
+    return nlabels;
+  }
+
+  /**
+   * @param id a label id as returned by {@link #predict}
+   * @return the label, e.g. {@code __label__en}
+   */
+  String getLabel(int id) {
+    return labels[id];
+  }
+
+  /**
+   * Predicts the {@code k} most probable labels of a text. Apart from the result arrays,
+   * which can be re-used by the caller, this doesn't allocate memory once the thread's
+   * buffers are large enough for the text.
+   * @param labelIds receives the ids of the predicted labels, most probable first, needs a length of at least {@code k}
+   * @param probabilities receives the probabilities of the predicted labels, needs a length of at least {@code k}
+   * @return the number of predicted labels, at most {@code k}
+   */
+  int predict(CharSequence text, int k, int[] labelIds, float[] probabilities) {
+    if (k < 1 || labelIds.length < k || probabilities.length < k) {
+      throw new IllegalArgumentException("k must be >= 1 and the arrays must have a length of at least k: " + k);
+    }
+    k = Math.min(k, nlabels);
+    State state = states.get();
+    int length = state.encode(text);
+    computeHidden(state, length);
+    if (state.rows == 0) {
+      return 0;
+    }
+    state.resultCount = 0;
+    if (loss == LOSS_HS) {
+      dfs(state, k, 2 * nlabels - 2, 0f);
+    } else {
+      computeOutput(state);
+      for (int i = 0; i < nlabels; i++) {
+        float score = stdLog(state.output[i]);
+        if (score >= MIN_SCORE && (state.resultCount < k || score >= state.scores[state.resultCount - 1])) {
+          addResult(state, k, score, i);
+        }
+      }
+    }
+    for (int i = 0; i < state.resultCount; i++) {
+      labelIds[i] = state.ids[i];
+      probabilities[i] = (float) Math.exp(state.scores[i]);
+    }
+    return state.resultCount;
+  }
+
+  /**
+   * Splits the text into tokens like fastText does and sets the average of the vectors of
+   * all their words, character n-grams, and word n-grams as the hidden vector.
+   */
+  private void computeHidden(State state, int length) {
+    byte[] bytes = state.bytes;
+    Arrays.fill(state.hidden, 0f);
+    state.rows = 0;
+    state.wordHashCount = 0;
+    int start = 0;
+    for (int i = 0; i <= length; i++) {
+      // the encoded text ends with '\n', which fastText replaces by the end-of-sentence token:
+      byte b = bytes[i];
+      if (b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == 0x0B || b == '\f' || b == 0) {
+        if (i > start) {
+          addToken(state, bytes, start, i - start);
+        }
+        start = i + 1;
+        if (b == '\n') {
+          break;
+        }
+      }
+    }
+    addToken(state, EOS, 0, EOS.length);
+    int[] hashes = state.wordHashes;
+    for (int i = 0; i < state.wordHashCount; i++) {
+      long h = hashes[i];
+      for (int j = i + 1; j < state.wordHashCount && j < i + wordNgrams; j++) {
+        h = h * 116049371 + hashes[j];
+        addHash(state, (int) Long.remainderUnsigned(h, bucket));
+      }
+    }
+    if (state.rows > 0) {
+      float scale = (float) (1.0 / state.rows);
+      for (int i = 0; i < dim; i++) {
+        state.hidden[i] *= scale;
+      }
+    }
+  }
+
+  private void addToken(State state, byte[] bytes, int start, int len) {
+    int h = hash(bytes, start, len);
+    int wid = wordTable[findSlot(bytes, start, len, h)];
+    boolean label = wid < 0 ? startsWith(bytes, start, len, LABEL_PREFIX) : types[wid] == TYPE_LABEL;
+    if (label) {
+      return;
+    }
+    boolean eos = equals(bytes, start, len, EOS, 0, EOS.length);
+    if (wid >= 0) {
+      addRow(state, wid);
+    }
+    if (!eos && (wid < 0 || maxn > 0)) {
+      addSubwords(state, bytes, start, len);
+    }
+    state.addWordHash(h);
+  }
+
+  /**
+   * Adds the character n-grams of the token, surrounded by '&lt;' and '&gt;'.
+   */
+  private void addSubwords(State state, byte[] bytes, int start, int len) {
+    byte[] word = state.word(len + 2);
+    word[0] = '<';
+    System.arraycopy(bytes, start, word, 1, len);
+    word[len + 1] = '>';
+    int wordLength = len + 2;
+    for (int i = 0; i < wordLength; i++) {
+      if ((word[i] & 0xC0) == 0x80) {
+        continue;  // not the start of a UTF-8 character
+      }
+      int h = (int) 2166136261L;
+      for (int j = i, n = 1; j < wordLength && n <= maxn; n++) {
+        h = (h ^ word[j++]) * 16777619;
+        while (j < wordLength && (word[j] & 0xC0) == 0x80) {
+          h = (h ^ word[j++]) * 16777619;
+        }
+        if (n >= minn && !(n == 1 && (i == 0 || j == wordLength))) {
+          addHash(state, Integer.remainderUnsigned(h, bucket));
+        }
+      }
+    }
+  }
+
+  private void addHash(State state, int id) {
+    if (pruneIndexSize == 0 || id < 0) {
+      return;
+    }
+    if (pruneIndexSize > 0) {
+      int idx = Arrays.binarySearch(pruneKeys, id);
+      if (idx < 0) {
+        return;
+      }
+      id = pruneValues[idx];
+    }
+    addRow(state, nwords + id);
+  }
+
+  private void addRow(State state, int row) {
+    input.addRowToVector(state.hidden, row);
+    state.rows++;
+  }
+
+  private void computeOutput(State state) {
+    float[] out = state.output;
+    for (int i = 0; i < nlabels; i++) {
+      out[i] = output.dotRow(state.hidden, i);
+    }
+    if (loss == LOSS_SOFTMAX) {
+      float max = out[0];
+      for (int i = 1; i < nlabels; i++) {
+        max = Math.max(out[i], max);
+      }
+      float z = 0f;
+      for (int i = 0; i < nlabels; i++) {
+        out[i] = (float) Math.exp(out[i] - max);
+        z += out[i];
+      }
+      for (int i = 0; i < nlabels; i++) {
+        out[i] /= z;
+      }
+    } else {
+      for (int i = 0; i < nlabels; i++) {
+        out[i] = sigmoid(out[i]);
+      }
+    }
+  }
+
+  private void dfs(State state, int k, int node, float score) {
+    if (score < MIN_SCORE) {
+      return;
+    }
+    if (state.resultCount == k && score < state.scores[k - 1]) {
+      return;
+    }
+    if (treeLeft[node] == -1 && treeRight[node] == -1) {
+      addResult(state, k, score, node);
+      return;
+    }
+    float f = output.dotRow(state.hidden, node - nlabels);
+    f = (float) (1.0 / (1 + Math.exp(-f)));
+    dfs(state, k, treeLeft[node], score + stdLog(1.0f - f));
+    dfs(state, k, treeRight[node], score + stdLog(f));
+  }
+
+  private static void addResult(State state, int k, float score, int id) {
+    int pos = Math.min(state.resultCount, k - 1);
+    while (pos > 0 && state.scores[pos - 1] < score) {
+      state.scores[pos] = state.scores[pos - 1];
+      state.ids[pos] = state.ids[pos - 1];
+      pos--;
+    }
+    state.scores[pos] = score;
+    state.ids[pos] = id;
+    state.resultCount = Math.min(state.resultCount + 1, k);
+  }
+
+  /**
+   * Builds the Huffman tree of the labels for hierarchical softmax, as fastText does. The
+   * labels are sorted by descending count in the model's dictionary.
+   */
+  private void buildTree(long[] counts) {
+    int osz = nlabels;
+    long[] treeCounts = new long[2 * osz - 1];
+    Arrays.fill(treeCounts, (long) 1e15);
+    Arrays.fill(treeLeft, -1);
+    Arrays.fill(treeRight, -1);
+    System.arraycopy(counts, 0, treeCounts, 0, osz);
+    int leaf = osz - 1;
+    int node = osz;
+    for (int i = osz; i < 2 * osz - 1; i++) {
+      int[] mini = new int[2];
+      for (int j = 0; j < 2; j++) {
+        if (leaf >= 0 && treeCounts[leaf] < treeCounts[node]) {
+          mini[j] = leaf--;
+        } else {
+          mini[j] = node++;
+        }
+      }
+      treeLeft[i] = mini[0];
+      treeRight[i] = mini[1];
+      treeCounts[i] = treeCounts[mini[0]] + treeCounts[mini[1]];
+    }
+  }
+
+  private int findSlot(byte[] bytes, int start, int len, int h) {
+    int slot = Integer.remainderUnsigned(h, wordTable.length);
+    while (wordTable[slot] != -1) {
+      byte[] word = words[wordTable[slot]];
+      if (equals(word, 0, word.length, bytes, start, len)) {
+        break;
+      }
+      slot = (slot + 1) % wordTable.length;
+    }
+    return slot;
+  }
+
+  // FNV-1a, with the bytes sign-extended like fastText does:
+  static int hash(byte[] bytes, int start, int len) {
+    int h = (int) 2166136261L;
+    for (int i = start; i < start + len; i++) {
+      h = (h ^ bytes[i]) * 16777619;
+    }
+    return h;
+  }
+
+  private static boolean equals(byte[] a, int aStart, int aLen, byte[] b, int bStart, int bLen) {
+    if (aLen != bLen) {
+      return false;
+    }
+    for (int i = 0; i < aLen; i++) {
+      if (a[aStart + i] != b[bStart + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean startsWith(byte[] bytes, int start, int len, byte[] prefix) {
+    return len >= prefix.length && equals(bytes, start, prefix.length, prefix, 0, prefix.length);
+  }
+
+  private static float stdLog(float x) {
+    return (float) Math.log(x + 1e-5);
+  }
+
+  private static float sigmoid(float x) {
+    if (x < -MAX_SIGMOID) {
+      return 0f;
+    } else if (x > MAX_SIGMOID) {
+      return 1f;
+    }
+    return SIGMOID_TABLE[(int) ((x + MAX_SIGMOID) * SIGMOID_TABLE_SIZE / MAX_SIGMOID / 2)];
+  }
+
+  /**
+   * The buffers of one thread.
+   */
+  private static class State {
+    private final float[] hidden;
+    private final float[] output;
+    private final float[] scores;
+    private final int[] ids;
+    private byte[] bytes = new byte[1024];
+    private byte[] word = new byte[64];
+    private int[] wordHashes = new int[128];
+    private int wordHashCount;
+    private int rows;
+    private int resultCount;
+
+    State(int dim, int nlabels) {
+      hidden = new float[dim];
+      output = new float[nlabels];
+      scores = new float[nlabels];
+      ids = new int[nlabels];
+    }
+
+    /**
+     * Encodes the text as UTF-8 into {@link #bytes}, followed by '\n'.
+     * @return the number of bytes, without the '\n'
+     */
+    int encode(CharSequence text) {
+      int maxLength = text.length() * 3 + 1;
+      if (bytes.length < maxLength) {
+        bytes = new byte[maxLength];
+      }
+      int pos = 0;
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (c < 0x80) {
+          bytes[pos++] = (byte) c;
+        } else if (c < 0x800) {
+          bytes[pos++] = (byte) (0xC0 | c >> 6);
+          bytes[pos++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, text.charAt(++i));
+          bytes[pos++] = (byte) (0xF0 | cp >> 18);
+          bytes[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+          bytes[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+          bytes[pos++] = (byte) (0x80 | cp & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+          bytes[pos++] = '?';  // unpaired surrogate, like String.getBytes()
+        } else {
+          bytes[pos++] = (byte) (0xE0 | c >> 12);
+          bytes[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+          bytes[pos++] = (byte) (0x80 | c & 0x3F);
+        }
+      }
+      bytes[pos] = '\n';
+      return pos;
+    }
+
+    byte[] word(int length) {
+      if (word.length < length) {
+        word = new byte[length * 2];
+      }
+      return word;
+    }
+
+    void addWordHash(int h) {
+      if (wordHashCount == wordHashes.length) {
+        wordHashes = Arrays.copyOf(wordHashes, wordHashes.length * 2);
+      }
+      wordHashes[wordHashCount++] = h;
+    }
+  }
+
+  private interface Matrix {
+    long cols();
+    void addRowToVector(float[] x, int row);
+    float dotRow(float[] x, int row);
+  }
+
+  private static class DenseMatrix implements Matrix {
+    private final int cols;
+    private final float[] data;
+
+    DenseMatrix(ByteBuffer buf) throws IOException {
+      long m = buf.getLong();
+      long n = buf.getLong();
+      if (m * n > Integer.MAX_VALUE - 8) {
+        throw new IOException("fastText matrix too large: " + m + "x" + n);
+      }
+      cols = (int) n;
+      data = new float[(int) (m * n)];
+      buf.asFloatBuffer().get(data);
+      buf.position(buf.position() + data.length * 4);
+    }
+
+    @Override
+    public long cols() {
+      return cols;
+    }
+
+    @Override
+    public void addRowToVector(float[] x, int row) {
+      int offset = row * cols;
+      for (int j = 0; j < cols; j++) {
+        x[j] += data[offset + j];
+      }
+    }
+
+    @Override
+    public float dotRow(float[] x, int row) {
+      int offset = row * cols;
+      float d = 0f;
+      for (int j = 0; j < cols; j++) {
+        d += data[offset + j] * x[j];
+      }
+      if (Float.isNaN(d)) {
+        throw new IllegalStateException("Encountered NaN in fastText model");
+      }
+      return d;
+    }
+  }
+
+  private static class QuantMatrix implements Matrix {
+    private final boolean qnorm;
+    private final long cols;
+    private final byte[] codes;
+    private final ProductQuantizer pq;
+    private final byte[] normCodes;
+    private final ProductQuantizer npq;
+
+    QuantMatrix(ByteBuffer buf) {
+      qnorm = buf.get() != 0;
+      long m = buf.getLong();
+      cols = buf.getLong();
+      codes = new byte[buf.getInt()];
+      buf.get(codes);
+      pq = new ProductQuantizer(buf);
+      if (qnorm) {
+        normCodes = new byte[(int) m];
+        buf.get(normCodes);
+        npq = new ProductQuantizer(buf);
+      } else {
+        normCodes = null;
+        npq = null;
+      }
+    }
+
+    @Override
+    public long cols() {
+      return cols;
+    }
+
+    @Override
+    public void addRowToVector(float[] x, int row) {
+      pq.addCode(x, codes, row, norm(row));
+    }
+
+    @Override
+    public float dotRow(float[] x, int row) {
+      return pq.mulCode(x, codes, row, norm(row));
+    }
+
+    private float norm(int row) {
+      return qnorm ? npq.centroids[npq.centroidOffset(0, normCodes[row] & 0xFF)] : 1f;
+    }
+  }
+
+  private static class ProductQuantizer {
+    private static final int KSUB = 256;
+
+    private final int nsubq;
+    private final int dsub;
+    private final int lastdsub;
+    private final float[] centroids;
+
+    ProductQuantizer(ByteBuffer buf) {
+      int dim = buf.getInt();
+      nsubq = buf.getInt();
+      dsub = buf.getInt();
+      lastdsub = buf.getInt();
+      centroids = new float[dim * KSUB];
+      buf.asFloatBuffer().get(centroids);
+      buf.position(buf.position() + centroids.length * 4);
+    }
+
+    int centroidOffset(int m, int i) {
+      if (m == nsubq - 1) {
+        return m * KSUB * dsub + i * lastdsub;
+      }
+      return (m * KSUB + i) * dsub;
+    }
+
+    void addCode(float[] x, byte[] codes, int t, float alpha) {
+      int d = dsub;
+      int code = nsubq * t;
+      for (int m = 0; m < nsubq; m++) {
+        int c = centroidOffset(m, codes[code + m] & 0xFF);
+        if (m == nsubq - 1) {
+          d = lastdsub;
+        }
+        for (int n = 0; n < d; n++) {
+          x[m * dsub + n] += alpha * centroids[c + n];
+        }
+      }
+    }
+
+    float mulCode(float[] x, byte[] codes, int t, float alpha) {
+      float res = 0f;
+      int d = dsub;
+      int code = nsubq * t;
+      for (int m = 0; m < nsubq; m++) {
+        int c = centroidOffset(m, codes[code + m] & 0xFF);
+        if (m == nsubq - 1) {
+          d = lastdsub;
+        }
+        for (int n = 0; n < d; n++) {
+          res += x[m * dsub + n] * centroids[c + n];
+        }
+      }
+      return res * alpha;
+    }
+  }
+
+}
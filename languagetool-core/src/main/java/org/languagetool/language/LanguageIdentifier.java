@@ -18,6 +18,11 @@
  */
 package org.languagetool.language;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.optimaize.langdetect.LanguageDetector;
 import com.optimaize.langdetect.LanguageDetectorBuilder;
 import com.optimaize.langdetect.ngram.NgramExtractors;
@@ -38,7 +43,9 @@ import java.util.stream.Collectors;
  * Identify the language of a text. Note that some languages might never be
  * detected because they are close to another language. Language variants like
  * en-US or en-GB are not detected, the result will be {@code en} for those.
- * By default, only the first 1000 characters of a text are considered.
+ * By default, only 1000 characters of a text are considered: for longer texts,
+ * these are taken from several windows spread over the text, and if the first window
+ * alone is enough for a confident result, the other windows are not looked at.
  * Email signatures that use {@code \n-- \n} as a delimiter are ignored.
  *
  * @since 2.9
@@ -63,6 +70,8 @@ public class LanguageIdentifier {
   //private static final float THRESHOLD = 0.95f;   // 7.39
   //private static final float THRESHOLD = 0.975f;  // 7.228 
   //private static final float THRESHOLD = 1.0f;    // 7.0
+  // number of windows that the maxLength characters of a long text are taken from:
+  private static final int SAMPLE_WINDOWS = 4;
 
   private final LanguageDetector languageDetector;
   private final TextObjectFactory textObjectFactory;
@@ -70,6 +79,7 @@ public class LanguageIdentifier {
   private final UnicodeBasedLangIdentifier unicodeIdentifier = new UnicodeBasedLangIdentifier();
 
   private FastText fastText;
+  private Cache<HashCode, Optional<DetectedLanguage>> cache;  // null: no caching
 
   public LanguageIdentifier() {
     this(1000);
@@ -107,10 +117,20 @@ public class LanguageIdentifier {
     }
   }
 
+  /**
+   * Use fasttext for language identification, running the given fasttext executable in a separate
+   * process. If {@code fasttextBinary} is {@code null}, the model is loaded into this JVM.
+   * @deprecated the fasttext binary isn't needed anymore, use {@link #enableFasttext(File)} instead (deprecated since 5.1)
+   */
+  @Deprecated
   public void enableFasttext(File fasttextBinary, File fasttextModel) {
-    if (fasttextBinary != null && fasttextModel != null) {
+    if (fasttextBinary == null) {
+      enableFasttext(fasttextModel);
+    } else if (fasttextModel != null) {
+      logger.warn("Running fasttext as an external process is deprecated and will be removed, remove the fasttext binary " +
+        "from the configuration to load the model into this JVM instead: " + fasttextBinary);
       try {
-        fastText = new FastText(fasttextModel, fasttextBinary);
+        setFastText(new FastText(fasttextModel, fasttextBinary));
         logger.info("Started fasttext process for language identification: Binary " + fasttextBinary + " with model @ " + fasttextModel);
       } catch (IOException e) {
         logger.error("Error while starting fasttext (binary: " + fasttextBinary + ", model: " + fasttextModel + ")", e);
@@ -119,6 +139,59 @@ public class LanguageIdentifier {
     }
   }
 
+  /**
+   * Use fasttext for language identification. The model is loaded into this JVM, no
+   * external process is needed.
+   * @param fasttextModel a supervised fasttext model like {@code lid.176.bin}, or {@code null} to not use fasttext
+   * @since 5.1
+   */
+  public void enableFasttext(File fasttextModel) {
+    if (fasttextModel != null) {
+      try {
+        setFastText(new FastText(fasttextModel));
+        logger.info("Loaded fasttext model for language identification @ " + fasttextModel);
+      } catch (IOException e) {
+        logger.error("Error while loading fasttext model " + fasttextModel, e);
+        throw new RuntimeException("Could not load fasttext model for language identification @ " + fasttextModel, e);
+      }
+    }
+  }
+
+  private void setFastText(FastText fastText) {
+    if (this.fastText != null) {
+      this.fastText.destroy();
+    }
+    this.fastText = fastText;
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  /**
+   * Cache detection results, so that repeated detection of the same text (e.g. when a user
+   * edits a long document and it gets checked again and again) doesn't need to run the
+   * detection again. The cache key is a hash of the characters the detection actually
+   * considers, so texts that only differ beyond those characters share an entry.
+   * @param maxSize the maximum number of results to cache, {@code 0} disables the cache
+   * @since 5.1
+   */
+  public void enableCache(int maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Cache size must be >= 0: " + maxSize);
+    }
+    cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build() : null;
+  }
+
+  /**
+   * The cache of detection results, e.g. to monitor its hit rate.
+   * @return the cache or {@code null} if caching is disabled
+   * @since 5.1
+   */
+  @Nullable
+  public Cache<HashCode, Optional<DetectedLanguage>> getCache() {
+    return cache;
+  }
+
   private static List<String> getLanguageCodes() {
     List<String> langCodes = new ArrayList<>();
     for (Language lang : Languages.get()) {
@@ -189,29 +262,159 @@ public class LanguageIdentifier {
       throw new IllegalArgumentException("preferredLanguages may only contain language codes without variants (e.g. 'en', but not 'en-US'): " +
         preferredLangs + ". Use 'preferredVariants' to specify variants.");
     }
-    String shortText = text.length() > maxLength ? text.substring(0, maxLength) : text;
-    shortText = shortText.replaceAll("\uFEFF+", " ");  // used by the browser add-on to filter HTML etc. (_ignoreText() in validator.js)
+    List<String> windows = getSampleWindows(text, maxLength).stream()
+      .map(k -> k.replaceAll("\uFEFF+", " "))  // used by the browser add-on to filter HTML etc. (_ignoreText() in validator.js)
+      .collect(Collectors.toList());
+    String sample = windows.size() == 1 ? windows.get(0) : String.join(" ", windows);
+    if (cache == null) {
+      return detectLanguage(text.length(), windows, sample, additionalLangs, preferredLangs);
+    }
+    HashCode key = getCacheKey(text.length(), sample, noopLangsTmp, preferredLangsTmp);
+    Optional<DetectedLanguage> detected = cache.getIfPresent(key);
+    if (detected == null) {
+      detected = Optional.ofNullable(detectLanguage(text.length(), windows, sample, additionalLangs, preferredLangs));
+      cache.put(key, detected);
+    }
+    return detected.orElse(null);
+  }
+
+  private HashCode getCacheKey(int textLength, String sample, List<String> noopLangs, List<String> preferredLangs) {
+    Hasher hasher = Hashing.murmur3_128().newHasher();
+    // the length matters for short texts only, see CONSIDER_ONLY_PREFERRED_THRESHOLD and the confidence calculation:
+    hasher.putInt(Math.min(textLength, CONSIDER_ONLY_PREFERRED_THRESHOLD));
+    hasher.putInt(sample.length()).putUnencodedChars(sample);
+    hasher.putInt(noopLangs.size());
+    noopLangs.forEach(hasher::putUnencodedChars);
+    hasher.putInt(preferredLangs.size());
+    preferredLangs.forEach(hasher::putUnencodedChars);
+    return hasher.hash();
+  }
+
+  /**
+   * The part of the text to be used for detection: the text itself if it's not longer than
+   * {@code maxLength}, otherwise {@link #SAMPLE_WINDOWS} windows spread evenly over the text
+   * (without its email signature), with a total length of about {@code maxLength}.
+   * Windows start and end at whitespace where possible.
+   */
+  static List<String> getSampleWindows(String text, int maxLength) {
+    if (text.length() <= maxLength) {
+      return Collections.singletonList(text);
+    }
+    int signaturePos = text.indexOf("\n-- \n");
+    int textEnd = signaturePos != -1 ? signaturePos : text.length();
+    if (textEnd <= maxLength) {
+      return Collections.singletonList(text.substring(0, textEnd));
+    }
+    int windowLength = maxLength / SAMPLE_WINDOWS;
+    List<String> windows = new ArrayList<>(SAMPLE_WINDOWS);
+    for (int i = 0; i < SAMPLE_WINDOWS; i++) {
+      int start = (int) ((long) (textEnd - windowLength) * i / (SAMPLE_WINDOWS - 1));
+      int end = start + windowLength;
+      if (i > 0) {
+        int wordStart = indexOfWhitespace(text, start, start + windowLength / 4);
+        start = wordStart != -1 ? wordStart + 1 : start;
+      }
+      if (end < textEnd) {
+        int wordEnd = lastIndexOfWhitespace(text, end, end - windowLength / 4);
+        end = wordEnd != -1 ? wordEnd : end;
+      }
+      if (Character.isLowSurrogate(text.charAt(start))) {
+        start++;
+      }
+      if (Character.isHighSurrogate(text.charAt(end - 1))) {
+        end--;
+      }
+      windows.add(text.substring(start, end));
+    }
+    return windows;
+  }
+
+  private static int indexOfWhitespace(String text, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (Character.isWhitespace(text.charAt(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOfWhitespace(String text, int from, int to) {
+    for (int i = from; i > to; i--) {
+      if (Character.isWhitespace(text.charAt(i))) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Nullable
+  private DetectedLanguage detectLanguage(int textLength, List<String> windows, String sample, List<String> additionalLangs, List<String> preferredLangs) {
     if (!preferredLangs.contains("ru") && !preferredLangs.contains("uk") && !preferredLangs.contains("be") && !preferredLangs.contains("zh") &&
         !preferredLangs.contains("hi") && !preferredLangs.contains("mr")) {
       // Cyrillic and Chinese are so different from Latin characters that we try to detect it even with preferredLangs not properly set:
-      preferredLangs.addAll(unicodeIdentifier.getAdditionalLangCodes(text));
-      additionalLangs.addAll(unicodeIdentifier.getAdditionalLangCodes(text));
+      List<String> unicodeLangs = unicodeIdentifier.getAdditionalLangCodes(sample);
+      preferredLangs.addAll(unicodeLangs);
+      additionalLangs.addAll(unicodeLangs);
     }
     Map.Entry<String,Double> result = null;
+    if (windows.size() > 1) {
+      // fast path for long texts - if the first window is enough for a confident result, use it:
+      Map.Entry<String,Double> firstWindowResult = detectLanguageCodeOfWindow(windows.get(0), additionalLangs);
+      if (firstWindowResult != null && firstWindowResult.getValue() >= THRESHOLD) {
+        result = firstWindowResult;
+      }
+    }
+    if (result == null) {
+      result = detectLanguageCode(sample, textLength, additionalLangs, preferredLangs);
+    }
+    if (result != null && fastText != null) {
+      // Calculate a trivial confidence value because fasttext's confidence is often
+      // wrong for short text (e.g. 0.99 for a test that's misclassified). Don't
+      // use 1.0 because we can never be totally sure...
+      double newScore = 0.99 / (30.0 / Math.min(textLength, 30));
+      result = new AbstractMap.SimpleImmutableEntry<>(result.getKey(), newScore);
+    }
+    if (result != null && result.getKey() != null && canLanguageBeDetected(result.getKey(), additionalLangs)) {
+      return new DetectedLanguage(null,
+        Languages.getLanguageForShortCode(result.getKey(), additionalLangs),
+        result.getValue().floatValue());
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @return language code and fasttext's or optimaize's probability for a part of a long text,
+   *   or {@code null} if language could not be identified
+   */
+  @Nullable
+  private Map.Entry<String,Double> detectLanguageCodeOfWindow(String window, List<String> additionalLangs) {
     if (fastText != null) {
       try {
-        // do *not* use TextObjectFactory because of https://github.com/languagetool-org/languagetool/issues/1278
-        // (using it for optimaize is okay, assuming the same strong normalization was applied during training):
-        shortText = UrlTextFilter.getInstance().filter(shortText);
-        shortText = new RemoveEMailSignatureFilter().filter(shortText);
-        shortText = new RemoveNonBreakingSpaces().filter(shortText);
-        shortText = shortText.replaceAll("\uFEFF+", " ");  // used by the browser add-on to filter HTML etc. (_ignoreText() in validator.js)
-        Map<String, Double> scores = fastText.runFasttext(shortText, additionalLangs);
+        return getHighestScoringResult(fastText.runFasttext(filterForFasttext(window), additionalLangs));
+      } catch (Exception e) {
+        fastText.destroy();
+        fastText = null;
+        logger.error("Fasttext disabled", e);
+      }
+    }
+    return detectLanguageCode(textObjectFactory.forText(window).toString());
+  }
+
+  /**
+   * @return language code and score or {@code null} if language could not be identified
+   */
+  @Nullable
+  private Map.Entry<String,Double> detectLanguageCode(String shortText, int textLength, List<String> additionalLangs, List<String> preferredLangs) {
+    Map.Entry<String,Double> result = null;
+    if (fastText != null) {
+      try {
+        Map<String, Double> scores = fastText.runFasttext(filterForFasttext(shortText), additionalLangs);
         result = getHighestScoringResult(scores);
         if (result.getValue().floatValue() < THRESHOLD) {
           //System.out.println(text + " ->" + result.getValue().floatValue() + " " + result.getKey());
           CommonWords commonWords = new CommonWords();
-          Map<Language, Integer> lang2Count = commonWords.getKnownWordsPerLanguage(text);
+          Map<Language, Integer> lang2Count = commonWords.getKnownWordsPerLanguage(shortText);
           //System.out.println("-> "+ lang2Count);
           for (Map.Entry<Language, Integer> entry : lang2Count.entrySet()) {
             String langCode = entry.getKey().getShortCode();
@@ -224,39 +427,32 @@ public class LanguageIdentifier {
           }
           result = getHighestScoringResult(scores);
         }
-        if (text.length() < CONSIDER_ONLY_PREFERRED_THRESHOLD && preferredLangs.size() > 0) {
+        if (textLength < CONSIDER_ONLY_PREFERRED_THRESHOLD && preferredLangs.size() > 0) {
           //System.out.println("remove? " + preferredLangs + " <-> " + scores);
           scores.keySet().removeIf(k -> !preferredLangs.contains(k));
           //System.out.println("-> " + b + " ==> " + scores);
           result = getHighestScoringResult(scores);
         }
-        // Calculate a trivial confidence value because fasttext's confidence is often
-        // wrong for short text (e.g. 0.99 for a test that's misclassified). Don't
-        // use 1.0 because we can never be totally sure...
-        double newScore = 0.99 / (30.0 / Math.min(text.length(), 30));
-        //System.out.println("fasttext  : " + result);
-        //System.out.println("newScore  : " + newScore);
-        result = new AbstractMap.SimpleImmutableEntry<>(result.getKey(), newScore);
+        return result;
       } catch (Exception e) {
         fastText.destroy();
         fastText = null;
         logger.error("Fasttext disabled", e);
       }
     }
-    if (fastText == null) { // no else, value can change in if clause
-      shortText = textObjectFactory.forText(shortText).toString();
-      result = detectLanguageCode(shortText);
-      if (additionalLangs.size() > 0) {
-        logger.warn("Cannot consider noopLanguages because not in fastText mode: " + additionalLangs);
-      }
-    }
-    if (result != null && result.getKey() != null && canLanguageBeDetected(result.getKey(), additionalLangs)) {
-      return new DetectedLanguage(null,
-        Languages.getLanguageForShortCode(result.getKey(), additionalLangs),
-        result.getValue().floatValue());
-    } else {
-      return null;
+    if (additionalLangs.size() > 0) {
+      logger.warn("Cannot consider noopLanguages because not in fastText mode: " + additionalLangs);
     }
+    return detectLanguageCode(textObjectFactory.forText(shortText).toString());
+  }
+
+  private String filterForFasttext(String text) {
+    // do *not* use TextObjectFactory because of https://github.com/languagetool-org/languagetool/issues/1278
+    // (using it for optimaize is okay, assuming the same strong normalization was applied during training):
+    String filtered = UrlTextFilter.getInstance().filter(text);
+    filtered = new RemoveEMailSignatureFilter().filter(filtered);
+    filtered = new RemoveNonBreakingSpaces().filter(filtered);
+    return filtered.replaceAll("\uFEFF+", " ");  // used by the browser add-on to filter HTML etc. (_ignoreText() in validator.js)
   }
   
   static boolean canLanguageBeDetected(String langCode, List<String> additionalLanguageCodes) {
@@ -22,6 +22,8 @@ package org.languagetool.languagemodel.bert;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.ManagedChannel;
 import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.shaded.io.grpc.netty.NegotiationType;
@@ -29,20 +31,34 @@ import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
 import org.jetbrains.annotations.Nullable;
 import org.languagetool.languagemodel.bert.grpc.BertLmGrpc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLException;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static org.languagetool.languagemodel.bert.grpc.BertLmProto.*;
 
 public class RemoteLanguageModel {
 
+  private static final Logger logger = LoggerFactory.getLogger(RemoteLanguageModel.class);
+
+  // requests per BatchScoreRequest; a long text with many errors is split into several calls that are sent in parallel:
+  static final int CHUNK_SIZE = 16;
+  // characters of context that are sent on each side of the masked text:
+  static final int CONTEXT_CHARS = 150;
+
   private final BertLmGrpc.BertLmBlockingStub model;
+  private final BertLmGrpc.BertLmFutureStub asyncModel;
   private final ManagedChannel channel;
-  private final Cache<Request, List<Double>> cache = CacheBuilder.newBuilder()
-    .maximumSize(1000)
+  // scores per context window and candidate, so that requests with overlapping or reordered candidates can use them:
+  private final Cache<CandidateKey, Double> cache = CacheBuilder.newBuilder()
+    .maximumSize(10000)
     .build();
 
   public static class Request {
@@ -67,6 +83,24 @@ public class RemoteLanguageModel {
       return ScoreRequest.newBuilder().setText(text).addAllMask(masks).build();
     }
 
+    /**
+     * @return the same request, but with only up to {@code contextChars} characters of text on each side
+     *   of the mask, without cutting words
+     */
+    Request getContextWindow(int contextChars) {
+      int windowStart = Math.max(0, start - contextChars);
+      int windowEnd = Math.min(text.length(), end + contextChars);
+      if (windowStart > 0) {
+        int space = text.indexOf(' ', windowStart - 1);
+        windowStart = space != -1 && space < start ? space + 1 : start;
+      }
+      if (windowEnd < text.length()) {
+        int space = text.lastIndexOf(' ', windowEnd);
+        windowEnd = space >= end ? space : end;
+      }
+      return new Request(text.substring(windowStart, windowEnd), start - windowStart, end - windowStart, candidates);
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
@@ -85,15 +119,53 @@ public class RemoteLanguageModel {
 
   }
 
+  private static class CandidateKey {
+    private final String text;
+    private final int start;
+    private final int end;
+    private final String candidate;
+
+    private CandidateKey(Request request, String candidate) {
+      this.text = request.text;
+      this.start = request.start;
+      this.end = request.end;
+      this.candidate = candidate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      CandidateKey other = (CandidateKey) o;
+      return start == other.start &&
+        end == other.end &&
+        text.equals(other.text) &&
+        candidate.equals(other.candidate);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(text, start, end, candidate);
+    }
+  }
+
   public RemoteLanguageModel(String host, int port, boolean useSSL,
                              @Nullable String clientPrivateKey, @Nullable  String clientCertificate,
                              @Nullable String rootCertificate) throws SSLException {
     // TODO configure deadline/retries/... here?
-    channel = getChannel(host, port, useSSL, clientPrivateKey, clientCertificate, rootCertificate);
+    this(getChannel(host, port, useSSL, clientPrivateKey, clientCertificate, rootCertificate));
+  }
+
+  /**
+   * Use the given channel, e.g. to an in-process server for tests.
+   */
+  RemoteLanguageModel(ManagedChannel channel) {
+    this.channel = channel;
     model = BertLmGrpc.newBlockingStub(channel);
+    asyncModel = BertLmGrpc.newFutureStub(channel);
   }
 
-  private ManagedChannel getChannel(String host, int port, boolean useSSL,
+  private static ManagedChannel getChannel(String host, int port, boolean useSSL,
                     @Nullable String clientPrivateKey, @Nullable  String clientCertificate,
                     @Nullable String rootCertificate) throws SSLException {
     NettyChannelBuilder channelBuilder = NettyChannelBuilder.forAddress(host, port);
@@ -119,51 +191,125 @@ public class RemoteLanguageModel {
   }
 
   public List<List<Double>> batchScore(List<Request> requests) {
-    Map<Request, List<Double>> cachedRequests = new HashMap<>();
-    List<Request> uncachedRequests = new ArrayList<>();
-    for (Request request : requests) {
-      List<Double> result = cache.getIfPresent(request);
-      if (result == null) {
-        uncachedRequests.add(request);
-      } else {
-        cachedRequests.put(request, result);
+    return batchScore(requests, 0);
+  }
+
+  /**
+   * Score the candidates of all requests. Only a window of the text around each mask is sent, and
+   * only the candidates whose scores aren't cached yet. These are sent in chunks of {@link #CHUNK_SIZE}
+   * requests in parallel, so that the results of the chunks that answer in time can be used even
+   * if others don't.
+   * @param timeoutMillis how long to wait for the results (also used as the deadline of the calls),
+   *   &lt;= 0 to wait without limit
+   * @return the candidates' scores for each request, or {@code null} for requests whose chunk failed, didn't
+   *   answer in time, or didn't answer with a score for each candidate
+   * @throws RuntimeException if no chunk answered in time
+   * @since 5.1
+   */
+  public List<List<Double>> batchScore(List<Request> requests, long timeoutMillis) {
+    long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+    List<Request> windows = requests.stream().map(request -> request.getContextWindow(CONTEXT_CHARS)).collect(Collectors.toList());
+    Map<CandidateKey, Double> scores = new HashMap<>();
+    Set<Request> uncachedRequests = new LinkedHashSet<>();  // a text may have the same error more than once
+    for (Request window : windows) {
+      List<String> uncachedCandidates = new ArrayList<>();
+      for (String candidate : new LinkedHashSet<>(window.candidates)) {
+        CandidateKey key = new CandidateKey(window, candidate);
+        Double score = cache.getIfPresent(key);
+        if (score != null) {
+          scores.put(key, score);
+        } else {
+          uncachedCandidates.add(candidate);
+        }
+      }
+      if (!uncachedCandidates.isEmpty()) {
+        uncachedRequests.add(new Request(window.text, window.start, window.end, uncachedCandidates));
       }
     }
-    BatchScoreRequest batch = BatchScoreRequest.newBuilder().addAllRequests(
-      uncachedRequests.stream().map(Request::convert).collect(Collectors.toList())
-    ).build();
-    // TODO multiple masks
-    List<List<Double>> nonCacheResult = model.batchScore(batch).getResponsesList().stream().map(r ->
-      r.getScoresList().get(0).getScoreList()).collect(Collectors.toList());
-    //
-    List<List<Double>> allResults = new ArrayList<>();
-    int i = 0;
-    for (Request request : requests) {
-      List<Double> result = cachedRequests.get(request);
-      if (result != null) {
-        //System.out.println("Adding result from cache");
-        allResults.add(result);
-      } else {
-        //System.out.println("Adding result from remote");
-        allResults.add(nonCacheResult.get(i++));
+
+    List<List<Request>> chunks = Lists.partition(new ArrayList<>(uncachedRequests), CHUNK_SIZE);
+    BertLmGrpc.BertLmFutureStub stub = timeoutMillis > 0 ? asyncModel.withDeadlineAfter(timeoutMillis, TimeUnit.MILLISECONDS) : asyncModel;
+    List<ListenableFuture<BatchBertLmResponse>> futures = new ArrayList<>();
+    for (List<Request> chunk : chunks) {
+      futures.add(stub.batchScore(BatchScoreRequest.newBuilder().addAllRequests(
+        chunk.stream().map(Request::convert).collect(Collectors.toList())).build()));
+    }
+    Exception lastError = null;
+    int failedChunks = 0;
+    try {
+      for (int i = 0; i < chunks.size(); i++) {
+        try {
+          BatchBertLmResponse response = futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+          List<Request> chunk = chunks.get(i);
+          checkResponse(chunk, response);
+          for (int j = 0; j < chunk.size(); j++) {
+            Request request = chunk.get(j);
+            // TODO multiple masks
+            List<Double> candidateScores = response.getResponses(j).getScoresList().get(0).getScoreList();
+            for (int k = 0; k < request.candidates.size(); k++) {
+              CandidateKey key = new CandidateKey(request, request.candidates.get(k));
+              scores.put(key, candidateScores.get(k));
+              // a CacheLoader doesn't work with batching, so add manually:
+              cache.put(key, candidateScores.get(k));
+            }
+          }
+        } catch (ExecutionException | TimeoutException | IllegalStateException e) {
+          lastError = e;
+          failedChunks++;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for scores", e);
+    } finally {
+      for (ListenableFuture<BatchBertLmResponse> future : futures) {
+        future.cancel(true);  // no effect on finished calls
       }
     }
+    if (failedChunks > 0) {
+      if (failedChunks == chunks.size()) {
+        throw new RuntimeException("Getting scores for " + uncachedRequests.size() + " requests failed", lastError);
+      }
+      logger.warn("Using partial results, " + failedChunks + " of " + chunks.size() + " chunks failed or timed out", lastError);
+    }
 
-    int j = 0;
-    for (List<Double> re : nonCacheResult) {
-      // a CacheLoader doesn't work with batching, so add manually:
-      //System.out.println("Adding request to cache");
-      cache.put(uncachedRequests.get(j), re);
-      j++;
+    List<List<Double>> allResults = new ArrayList<>();
+    for (Request window : windows) {
+      List<Double> result = new ArrayList<>();
+      for (String candidate : window.candidates) {
+        Double score = scores.get(new CandidateKey(window, candidate));
+        if (score == null) {
+          result = null;
+          break;
+        }
+        result.add(score);
+      }
+      allResults.add(result);
     }
     return allResults;
   }
 
+  /**
+   * @throws IllegalStateException if the response doesn't contain a score for each candidate of the chunk
+   */
+  private static void checkResponse(List<Request> chunk, BatchBertLmResponse response) {
+    if (response.getResponsesCount() != chunk.size()) {
+      throw new IllegalStateException("Got " + response.getResponsesCount() + " responses for " + chunk.size() + " requests");
+    }
+    for (int j = 0; j < chunk.size(); j++) {
+      BertLmResponse requestResponse = response.getResponses(j);
+      int scores = requestResponse.getScoresCount() > 0 ? requestResponse.getScores(0).getScoreCount() : 0;
+      int candidates = chunk.get(j).candidates.size();
+      if (scores != candidates) {
+        throw new IllegalStateException("Got " + scores + " scores for " + candidates + " candidates");
+      }
+    }
+  }
+
   public List<Double> score(Request req) {
-    // TODO deal with max seq length, extract windows
     // TODO mask multiple tokens in a sentence
     // TODO multiple masks
-    return model.score(req.convert()).getScoresList().get(0).getScoreList();
+    return model.score(req.getContextWindow(CONTEXT_CHARS).convert()).getScoresList().get(0).getScoreList();
   }
 
 }
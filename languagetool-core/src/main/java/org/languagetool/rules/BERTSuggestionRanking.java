@@ -47,6 +47,9 @@ public class BERTSuggestionRanking extends RemoteRule {
 
   public static final String RULE_ID = "BERT_SUGGESTION_RANKING";
 
+  // share of the rule's timeout to wait for scores, so that partial results can still be used before it's over:
+  private static final double SCORING_TIMEOUT_SHARE = 0.9;
+
   private static final Logger logger = LoggerFactory.getLogger(BERTSuggestionRanking.class);
 
   private static final LoadingCache<RemoteRuleConfig, RemoteLanguageModel> models =
@@ -93,9 +96,11 @@ public class BERTSuggestionRanking extends RemoteRule {
   class MatchesForReordering extends RemoteRequest {
     final List<RuleMatch> matches;
     final List<RemoteLanguageModel.Request> requests;
-    MatchesForReordering(List<RuleMatch> matches, List<RemoteLanguageModel.Request> requests) {
+    final long timeoutMillis;
+    MatchesForReordering(List<RuleMatch> matches, List<RemoteLanguageModel.Request> requests, long timeoutMillis) {
       this.matches = matches;
       this.requests = requests;
+      this.timeoutMillis = timeoutMillis;
     }
   }
 
@@ -126,13 +131,18 @@ public class BERTSuggestionRanking extends RemoteRule {
         }
         Collections.addAll(matches, sentenceMatches);
       }
-      return new MatchesForReordering(matches, requests);
+      return new MatchesForReordering(matches, requests, getScoringTimeout(sentences));
     } catch (IOException e) {
       logger.error("Error while executing rule " + wrappedRule.getId(), e);
-      return new MatchesForReordering(Collections.emptyList(), Collections.emptyList());
+      return new MatchesForReordering(Collections.emptyList(), Collections.emptyList(), 0);
     }
   }
 
+  private long getScoringTimeout(List<AnalyzedSentence> sentences) {
+    long characters = sentences.stream().mapToInt(sentence -> sentence.getText().length()).sum();
+    return Math.round(getTimeoutMilliseconds(characters) * SCORING_TIMEOUT_SHARE);
+  }
+
   @Override
   protected RemoteRuleResult fallbackResults(RemoteRequest request) {
     return new RemoteRuleResult(false, false, ((MatchesForReordering) request).matches);
@@ -155,7 +165,8 @@ public class BERTSuggestionRanking extends RemoteRule {
       if (requests.isEmpty()) {
         return new RemoteRuleResult(false, true, matches);
       } else {
-        List<List<Double>> results = model.batchScore(requests);
+        // null for requests that couldn't be scored in time, these keep their original order:
+        List<List<Double>> results = model.batchScore(requests, data.timeoutMillis);
         // put curated at the top, then compare probabilities
         Comparator<Pair<SuggestedReplacement, Double>> suggestionOrdering = (a, b) -> {
           if (a.getKey().getType() != b.getKey().getType()) {
@@ -174,6 +185,9 @@ public class BERTSuggestionRanking extends RemoteRule {
 
         for (int i = 0; i < indices.size(); i++) {
           List<Double> scores = results.get(i);
+          if (scores == null) {
+            continue;
+          }
           RemoteLanguageModel.Request req = requests.get(i);
           RuleMatch match = matches.get(indices.get(i).intValue());
           String error = req.text.substring(req.start, req.end);
@@ -111,9 +111,12 @@ public abstract class GRPCRule extends RemoteRule {
 
   }
 
-  static class Connection {
+  private static class Connection {
     final ManagedChannel channel;
     final MLServerGrpc.MLServerBlockingStub stub;
+    // null if the requests of concurrent checks are sent on their own:
+    @Nullable
+    final GRPCRuleBatcher batcher;
 
     private ManagedChannel getChannel(String host, int port, boolean useSSL,
                                       @Nullable String clientPrivateKey, @Nullable  String clientCertificate,
@@ -143,10 +146,26 @@ public abstract class GRPCRule extends RemoteRule {
       String ca = serviceConfiguration.getOptions().get("rootCertificate");
       this.channel = getChannel(host, port, ssl, key, cert, ca);
       this.stub = MLServerGrpc.newBlockingStub(channel);
+      this.batcher = createBatcher(channel, serviceConfiguration);
+    }
+
+    private Connection(ManagedChannel channel, RemoteRuleConfig serviceConfiguration) {
+      this.channel = channel;
+      this.stub = MLServerGrpc.newBlockingStub(channel);
+      this.batcher = createBatcher(channel, serviceConfiguration);
+    }
 
+    @Nullable
+    private static GRPCRuleBatcher createBatcher(ManagedChannel channel, RemoteRuleConfig serviceConfiguration) {
+      int batchSize = Integer.parseInt(serviceConfiguration.getOptions().getOrDefault("batchSize", "0"));
+      long batchDelay = Long.parseLong(serviceConfiguration.getOptions().getOrDefault("batchDelayMilliseconds", "5"));
+      return batchSize > 0 ? new GRPCRuleBatcher(MLServerGrpc.newFutureStub(channel), batchSize, batchDelay) : null;
     }
 
     private void shutdown() {
+      if (batcher != null) {
+        batcher.shutdown();
+      }
       if (channel != null) {
         channel.shutdownNow();
       }
@@ -169,6 +188,26 @@ public abstract class GRPCRule extends RemoteRule {
     shutdownRoutines.add(() -> servers.asMap().values().forEach(Connection::shutdown));
   }
 
+  /**
+   * Use the given channel for rules with this configuration instead of connecting to the configured
+   * server, e.g. a channel to an in-process server in tests. Must be called before the rule is created.
+   * @see #removeConnection(RemoteRuleConfig)
+   */
+  static void setChannel(RemoteRuleConfig serviceConfiguration, ManagedChannel channel) {
+    servers.put(serviceConfiguration, new Connection(channel, serviceConfiguration));
+  }
+
+  /**
+   * Shut down and forget the connection for this configuration, if any.
+   */
+  static void removeConnection(RemoteRuleConfig serviceConfiguration) {
+    Connection conn = servers.getIfPresent(serviceConfiguration);
+    servers.invalidate(serviceConfiguration);
+    if (conn != null) {
+      conn.shutdown();
+    }
+  }
+
   private final Connection conn;
 
   public GRPCRule(ResourceBundle messages, RemoteRuleConfig config, boolean inputLogging) {
@@ -188,10 +227,12 @@ public abstract class GRPCRule extends RemoteRule {
   protected class MLRuleRequest extends RemoteRule.RemoteRequest {
     final MLServerProto.MatchRequest request;
     final List<AnalyzedSentence> sentences;
+    final long timeoutMillis;
 
     public MLRuleRequest(MLServerProto.MatchRequest request, List<AnalyzedSentence> sentences) {
       this.request = request;
       this.sentences = sentences;
+      this.timeoutMillis = getTimeoutMilliseconds(sentences.stream().mapToInt(sentence -> sentence.getText().length()).sum());
     }
   }
 
@@ -210,7 +251,8 @@ public abstract class GRPCRule extends RemoteRule {
     return () -> {
       MLRuleRequest req = (MLRuleRequest) request;
 
-      MLServerProto.MatchResponse response = conn.stub.match(req.request);
+      MLServerProto.MatchResponse response = conn.batcher != null ?
+        conn.batcher.match(req.request, req.timeoutMillis) : conn.stub.match(req.request);
       List<RuleMatch> matches = Streams.zip(response.getSentenceMatchesList().stream(), req.sentences.stream(), (matchList, sentence) ->
         matchList.getMatchesList().stream().map(match -> {
             GRPCSubRule subRule = new GRPCSubRule(match.getSubId(), match.getRuleDescription());
@@ -252,7 +294,9 @@ public abstract class GRPCRule extends RemoteRule {
    * Helper method to create instances of RemoteMLRule
    * @param messages for i18n; = JLanguageTool.getMessageBundle(lang)
    * @param config configuration for remote rule server;
-   *               options: secure, clientKey, clientCertificate, rootCertificate
+   *               options: secure, clientKey, clientCertificate, rootCertificate,
+   *               batchSize (combine the sentences of concurrent checks into requests of up to this many sentences,
+   *               default: 0 = off), batchDelayMilliseconds (maximum time to wait for other checks, default: 5)
                    use RemoteRuleConfig.getRelevantConfig(id, configs)
                    to load this in Language::getRelevantRemoteRules
    * @param id ID of rule
@@ -280,7 +324,9 @@ public abstract class GRPCRule extends RemoteRule {
   /**
    * Helper method to create instances of RemoteMLRule
    * @param config configuration for remote rule server;
-   *               options: secure, clientKey, clientCertificate, rootCertificate
+   *               options: secure, clientKey, clientCertificate, rootCertificate,
+   *               batchSize (combine the sentences of concurrent checks into requests of up to this many sentences,
+   *               default: 0 = off), batchDelayMilliseconds (maximum time to wait for other checks, default: 5)
                    use RemoteRuleConfig.getRelevantConfig(id, configs)
                    to load this in Language::getRelevantRemoteRules
    * @param id ID of rule
@@ -0,0 +1,201 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.rules;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.languagetool.rules.ml.MLServerGrpc;
+import org.languagetool.rules.ml.MLServerProto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Combines the requests of concurrent checks to a remote rule's server into one request, so that
+ * the server gets fewer, larger batches. A batch is sent when it has {@code maxSentences} sentences
+ * or when its first request has waited for {@code maxDelayMillis}, whichever comes first.
+ * Timeouts, retries and the circuit breaker are still handled per check by {@link RemoteRule}.
+ * Batches are sent asynchronously with the deadline of the check that may wait longest, and
+ * cancelled once all checks waiting for them have timed out, so a hung server doesn't tie up threads.
+ * @since 5.1
+ */
+class GRPCRuleBatcher {
+
+  private static final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+    .setNameFormat("remote-rule-batcher-%d").setDaemon(true).build();
+
+  private final MLServerGrpc.MLServerFutureStub stub;
+  private final int maxSentences;
+  private final long maxDelayMillis;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+  private Batch pending;  // guarded by this
+
+  GRPCRuleBatcher(MLServerGrpc.MLServerFutureStub stub, int maxSentences, long maxDelayMillis) {
+    if (maxSentences <= 0) {
+      throw new IllegalArgumentException("maxSentences must be > 0: " + maxSentences);
+    }
+    this.stub = stub;
+    this.maxSentences = maxSentences;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * Send the request's sentences as part of a batch and wait for their results.
+   * @param timeoutMillis how long the caller will wait for the result, &lt;= 0 for no limit
+   * @return the response for the sentences of {@code request}, as if it had been sent on its own
+   */
+  MLServerProto.MatchResponse match(MLServerProto.MatchRequest request, long timeoutMillis) throws InterruptedException, ExecutionException {
+    CompletableFuture<MLServerProto.MatchResponse> future = add(request, timeoutMillis);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      // the check timed out, its sentences are skipped if the batch hasn't been sent yet,
+      // and the batch is cancelled if no other check waits for it:
+      future.cancel(true);
+      throw e;
+    }
+  }
+
+  private CompletableFuture<MLServerProto.MatchResponse> add(MLServerProto.MatchRequest request, long timeoutMillis) {
+    Part part = new Part(request, timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE);
+    Batch batchToSend = null;
+    synchronized (this) {
+      if (pending == null) {
+        Batch batch = new Batch();
+        pending = batch;
+        if (maxDelayMillis > 0) {
+          scheduler.schedule(() -> send(batch), maxDelayMillis, TimeUnit.MILLISECONDS);
+        } else {
+          batchToSend = batch;
+        }
+      }
+      pending.parts.add(part);
+      pending.sentenceCount += request.getSentencesCount();
+      if (pending.sentenceCount >= maxSentences) {
+        batchToSend = pending;
+      }
+    }
+    if (batchToSend != null) {
+      send(batchToSend);  // only starts the call, doesn't wait for it
+    }
+    return part.future;
+  }
+
+  private void send(Batch batch) {
+    synchronized (this) {
+      if (batch.sent) {
+        return;  // sent because it was full before the delay was over
+      }
+      batch.sent = true;
+      if (pending == batch) {
+        pending = null;
+      }
+    }
+    List<Part> parts = new ArrayList<>();
+    MLServerProto.MatchRequest.Builder request = MLServerProto.MatchRequest.newBuilder();
+    boolean inputLogging = true;
+    long deadline = 0;
+    for (Part part : batch.parts) {
+      if (!part.future.isDone()) {  // i.e. not cancelled because of a timeout
+        parts.add(part);
+        request.addAllSentences(part.request.getSentencesList());
+        // only log the input if all checks allow it:
+        inputLogging &= part.request.getInputLogging();
+        deadline = Math.max(deadline, part.deadline);
+      }
+    }
+    if (parts.isEmpty()) {
+      return;
+    }
+    request.setInputLogging(inputLogging);
+    MLServerGrpc.MLServerFutureStub batchStub = deadline == Long.MAX_VALUE ? stub :
+      stub.withDeadlineAfter(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    MLServerProto.MatchRequest batchRequest = request.build();
+    ListenableFuture<MLServerProto.MatchResponse> call;
+    try {
+      call = batchStub.match(batchRequest);
+    } catch (RuntimeException e) {
+      for (Part part : parts) {
+        part.future.completeExceptionally(e);
+      }
+      return;
+    }
+    call.addListener(() -> complete(parts, batchRequest, call), MoreExecutors.directExecutor());
+    for (Part part : parts) {
+      part.future.whenComplete((response, t) -> {
+        if (parts.stream().allMatch(p -> p.future.isDone())) {
+          call.cancel(true);  // no check waits for the result anymore, no effect if the call is done
+        }
+      });
+    }
+  }
+
+  private static void complete(List<Part> parts, MLServerProto.MatchRequest request,
+                               ListenableFuture<MLServerProto.MatchResponse> call) {
+    try {
+      MLServerProto.MatchResponse response = call.get();
+      if (response.getSentenceMatchesCount() != request.getSentencesCount()) {
+        throw new IllegalStateException("Got results for " + response.getSentenceMatchesCount() +
+          " sentences, expected " + request.getSentencesCount());
+      }
+      int offset = 0;
+      for (Part part : parts) {
+        int count = part.request.getSentencesCount();
+        part.future.complete(MLServerProto.MatchResponse.newBuilder()
+          .addAllSentenceMatches(response.getSentenceMatchesList().subList(offset, offset + count))
+          .build());
+        offset += count;
+      }
+    } catch (ExecutionException e) {
+      for (Part part : parts) {
+        part.future.completeExceptionally(e.getCause());
+      }
+    } catch (Exception e) {  // incl. cancellation
+      for (Part part : parts) {
+        part.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private static class Batch {
+    private final List<Part> parts = new ArrayList<>();
+    private int sentenceCount;
+    private boolean sent;
+  }
+
+  private static class Part {
+    private final MLServerProto.MatchRequest request;
+    // System.nanoTime() until which the check waits for the result:
+    private final long deadline;
+    private final CompletableFuture<MLServerProto.MatchResponse> future = new CompletableFuture<>();
+
+    private Part(MLServerProto.MatchRequest request, long deadline) {
+      this.request = request;
+      this.deadline = deadline;
+    }
+  }
+
+}
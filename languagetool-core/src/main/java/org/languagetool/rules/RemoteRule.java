@@ -30,9 +30,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Base class for rules that use a remote service. Besides the timeouts, retries and the circuit breaker
+ * configured in {@link RemoteRuleConfig}, these options are supported: {@code maxConcurrentRequests}
+ * (requests to the rule's service that may run at the same time, further requests get the fallback
+ * results immediately; default: 0 = unlimited) and {@code hedging} (send a duplicate request if a request
+ * takes longer than 95% of the recent requests and use the result that arrives first; default: false).
  * @since 4.9
  */
 public abstract class RemoteRule extends Rule {
@@ -50,6 +56,13 @@ public abstract class RemoteRule extends Rule {
 
   // needed to run callables with timeout
   private static final ConcurrentMap<String, ExecutorService> executors = new ConcurrentHashMap<>();
+  // limit the number of concurrent requests per rule, so that a slow remote service can't take up all threads:
+  private static final ConcurrentMap<String, Semaphore> bulkheads = new ConcurrentHashMap<>();
+  // durations of recent requests per rule (including the ones that were cancelled because they took too long),
+  // to decide when to hedge a request:
+  private static final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+  private static final double HEDGING_PERCENTILE = 0.95;
 
   protected final RemoteRuleConfig serviceConfiguration;
   protected final boolean inputLogging;
@@ -62,8 +75,12 @@ public abstract class RemoteRule extends Rule {
     String ruleId = getId();
     lastFailure.putIfAbsent(ruleId, 0L);
     consecutiveFailures.putIfAbsent(ruleId, new AtomicInteger());
-    // TODO maybe use fixed pool, take number of concurrent requests from configuration?
     executors.putIfAbsent(ruleId, Executors.newCachedThreadPool(threadFactory));
+    int maxConcurrentRequests = Integer.parseInt(config.getOptions().getOrDefault("maxConcurrentRequests", "0"));
+    if (maxConcurrentRequests > 0) {
+      bulkheads.putIfAbsent(ruleId, new Semaphore(maxConcurrentRequests));
+    }
+    latencies.putIfAbsent(ruleId, new LatencyWindow());
   }
 
   public static void shutdown() {
@@ -95,17 +112,9 @@ public abstract class RemoteRule extends Rule {
       RemoteRuleMetrics.up(ruleId, true);
 
       for (int i = 0; i <= serviceConfiguration.getMaxRetries(); i++) {
-        Callable<RemoteRuleResult> task = executeRequest(req);
-        long timeout = serviceConfiguration.getBaseTimeoutMilliseconds() +
-          Math.round(characters * serviceConfiguration.getTimeoutPerCharacterMilliseconds());
+        long timeout = getTimeoutMilliseconds(characters);
         try {
-          Future<RemoteRuleResult> future = executors.get(ruleId).submit(task);
-          if (timeout <= 0)  { // for debugging, disable timeout
-            result = future.get();
-          } else {
-            result = future.get(timeout, TimeUnit.MILLISECONDS);
-          }
-          future.cancel(true);
+          result = getResult(ruleId, req, timeout);
 
           if (result.isRemote()) { // don't reset failures if no remote call took place
             consecutiveFailures.get(ruleId).set(0);
@@ -117,6 +126,11 @@ public abstract class RemoteRule extends Rule {
           RemoteRuleMetrics.request(ruleId, i, System.nanoTime() - startTime, characters, requestResult);
 
           return result;
+        } catch (RejectedExecutionException e) {
+          // not a failure of the remote service, so neither retried nor counted for the circuit breaker:
+          logger.warn("Skipped remote rule " + ruleId + ": " + e.getMessage());
+          RemoteRuleMetrics.request(ruleId, i, System.nanoTime() - startTime, characters, RemoteRuleMetrics.RequestResult.REJECTED);
+          return fallbackResults(req);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
           logger.warn("Error while fetching results for remote rule " + ruleId + ", tried " + (i + 1) + " times, timeout: " + timeout + "ms" , e);
 
@@ -143,6 +157,195 @@ public abstract class RemoteRule extends Rule {
     });
   }
 
+  /**
+   * @return the timeout for a request with a text of the given length, &lt;= 0 for no timeout
+   * @since 5.1
+   */
+  protected long getTimeoutMilliseconds(long characters) {
+    return serviceConfiguration.getBaseTimeoutMilliseconds() +
+      Math.round(characters * serviceConfiguration.getTimeoutPerCharacterMilliseconds());
+  }
+
+  /**
+   * Send the request and wait for its result. If hedging is enabled in the configuration and the request
+   * takes longer than {@link #HEDGING_PERCENTILE} of the recent requests, a duplicate request is sent and
+   * the result that arrives first is used.
+   * @param timeout in milliseconds, &lt;= 0 to wait without timeout
+   * @throws RejectedExecutionException if too many requests to this rule are running already
+   */
+  private RemoteRuleResult getResult(String ruleId, RemoteRequest req, long timeout)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    long startTime = System.nanoTime();
+    long deadline = timeout > 0 ? startTime + TimeUnit.MILLISECONDS.toNanos(timeout) : Long.MAX_VALUE;
+    long hedgeDelay = getHedgeDelayMillis(ruleId);
+    long hedgeTime = hedgeDelay >= 0 ? startTime + TimeUnit.MILLISECONDS.toNanos(hedgeDelay) : Long.MAX_VALUE;
+    BlockingQueue<Future<RemoteRuleResult>> completed = new LinkedBlockingQueue<>();
+    List<Future<RemoteRuleResult>> futures = new ArrayList<>();
+    try {
+      futures.add(submit(ruleId, completed, executeRequest(req)));
+      Future<RemoteRuleResult> hedge = null;
+      int pending = 1;
+      while (true) {
+        long now = System.nanoTime();
+        boolean canHedge = hedge == null && hedgeTime < deadline;
+        Future<RemoteRuleResult> done = completed.poll(Math.max(0, (canHedge ? hedgeTime : deadline) - now), TimeUnit.NANOSECONDS);
+        if (done == null) {
+          if (!canHedge) {
+            throw new TimeoutException("No result after " + timeout + "ms");
+          }
+          try {
+            hedge = submit(ruleId, completed, executeRequest(req));
+            futures.add(hedge);
+            pending++;
+          } catch (RejectedExecutionException e) {
+            hedgeTime = Long.MAX_VALUE;  // no capacity left, keep waiting for the first request
+          }
+          continue;
+        }
+        pending--;
+        try {
+          RemoteRuleResult result = done.get();
+          if (hedge != null) {
+            RemoteRuleMetrics.hedgedRequest(ruleId, done == hedge);
+          }
+          return result;
+        } catch (ExecutionException e) {
+          if (pending == 0) {
+            if (hedge != null) {
+              RemoteRuleMetrics.hedgedRequest(ruleId, false);
+            }
+            throw e;
+          }
+        }
+      }
+    } finally {
+      for (Future<RemoteRuleResult> future : futures) {
+        future.cancel(true);  // no effect on finished requests, interrupts the others
+      }
+    }
+  }
+
+  /**
+   * @return the time after which a duplicate request is sent, or -1 if requests aren't hedged
+   */
+  private long getHedgeDelayMillis(String ruleId) {
+    if (!Boolean.parseBoolean(serviceConfiguration.getOptions().getOrDefault("hedging", "false"))) {
+      return -1;
+    }
+    return latencies.get(ruleId).getPercentileMillis(HEDGING_PERCENTILE);
+  }
+
+  private Future<RemoteRuleResult> submit(String ruleId, BlockingQueue<Future<RemoteRuleResult>> completed,
+                                          Callable<RemoteRuleResult> task) {
+    Semaphore bulkhead = bulkheads.get(ruleId);
+    if (bulkhead != null && !bulkhead.tryAcquire()) {
+      throw new RejectedExecutionException("too many concurrent requests to remote rule " + ruleId);
+    }
+    RequestTask requestTask = new RequestTask(task, bulkhead, latencies.get(ruleId), completed);
+    try {
+      executors.get(ruleId).execute(requestTask);
+    } catch (RejectedExecutionException e) {
+      requestTask.cancel(false);  // releases the permit
+      throw e;
+    }
+    requestTask.submitted = true;
+    return requestTask;
+  }
+
+  /**
+   * A request to the remote service. The bulkhead permit is released when the worker thread leaves the
+   * request (cancelling a running task only interrupts it, and the call might not react to that), or
+   * when the task is cancelled before it has even started.
+   */
+  private static class RequestTask extends FutureTask<RemoteRuleResult> {
+
+    private final Semaphore bulkhead;
+    private final LatencyWindow latencies;
+    private final BlockingQueue<Future<RemoteRuleResult>> completed;
+    private final long startTime = System.nanoTime();
+    private final AtomicBoolean permitReleased = new AtomicBoolean();
+    private volatile boolean submitted;
+    private volatile boolean running;
+
+    RequestTask(Callable<RemoteRuleResult> task, Semaphore bulkhead, LatencyWindow latencies,
+                BlockingQueue<Future<RemoteRuleResult>> completed) {
+      super(task);
+      this.bulkhead = bulkhead;
+      this.latencies = latencies;
+      this.completed = completed;
+    }
+
+    @Override
+    public void run() {
+      running = true;
+      try {
+        super.run();
+      } finally {
+        releasePermit();
+      }
+    }
+
+    @Override
+    protected void done() {
+      if (!running) {
+        releasePermit();
+      }
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+      if (isCancelled()) {
+        // lost against a hedged request or timed out, so it took at least this long:
+        if (submitted) {
+          latencies.add(millis);
+        }
+      } else {
+        try {
+          if (get().isRemote()) {
+            latencies.add(millis);
+          }
+        } catch (InterruptedException | ExecutionException ignored) {
+          // failed requests say nothing about the latency
+        }
+      }
+      completed.add(this);
+    }
+
+    private void releasePermit() {
+      if (bulkhead != null && permitReleased.compareAndSet(false, true)) {
+        bulkhead.release();
+      }
+    }
+  }
+
+  /**
+   * The durations of the most recent requests of a rule.
+   */
+  static class LatencyWindow {
+
+    private static final int SIZE = 100;
+    // don't hedge based on too few requests:
+    private static final int MIN_SIZE = 20;
+
+    private final long[] millis = new long[SIZE];
+    private int count;  // guarded by this
+
+    synchronized void add(long duration) {
+      millis[count % SIZE] = duration;
+      count++;
+    }
+
+    /**
+     * @return the percentile (0..1) of the recent durations, or -1 if there have been too few requests
+     */
+    synchronized long getPercentileMillis(double percentile) {
+      int size = Math.min(count, SIZE);
+      if (size < MIN_SIZE) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(millis, size);
+      Arrays.sort(sorted);
+      return sorted[(int) Math.min(size - 1, Math.floor(percentile * size))];
+    }
+  }
+
   @Override
   public String getId() {
     return serviceConfiguration.getRuleId();
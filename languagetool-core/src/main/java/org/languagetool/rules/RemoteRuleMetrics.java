@@ -37,7 +37,9 @@ public final class RemoteRuleMetrics {
     TIMEOUT,
     INTERRUPTED,
     DOWN,
-    ERROR
+    ERROR,
+    /** too many requests to the remote rule were running already, see {@code maxConcurrentRequests} */
+    REJECTED
   }
 
   // TODO: provide configuration as info?
@@ -79,6 +81,10 @@ public final class RemoteRuleMetrics {
     .buckets(SIZE_BUCKETS)
     .register();
 
+  private static final Counter hedgedRequests = Counter.build("languagetool_remote_rule_hedged_requests_total",
+    "Duplicate requests sent because the first request was slow, and how many of them answered first")
+    .labelNames("rule_id", "result").register();
+
   private static final Gauge failures = Gauge.build("languagetool_remote_rule_consecutive_failures",
     "Amount of consecutive failures").labelNames("rule_id").register();
 
@@ -91,6 +97,14 @@ public final class RemoteRuleMetrics {
     retries.labels(rule).inc(numRetries);
   }
 
+  /**
+   * @param won whether the duplicate request answered before the original request
+   * @since 5.1
+   */
+  public static void hedgedRequest(String rule, boolean won) {
+    hedgedRequests.labels(rule, won ? "won" : "lost").inc();
+  }
+
   public static void failures(String rule, int count) {
     failures.labels(rule).set(count);
   }
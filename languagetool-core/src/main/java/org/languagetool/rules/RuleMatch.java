@@ -28,6 +28,7 @@ import org.languagetool.tools.StringTools;
 
 import java.net.URL;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -48,7 +49,11 @@ public class RuleMatch implements Comparable<RuleMatch> {
   private OffsetPosition offsetPosition;
   private LinePosition linePosition = new LinePosition(-1, -1);
   private ColumnPosition columnPosition = new ColumnPosition(-1, -1);
-  private List<SuggestedReplacement> suggestedReplacements = new ArrayList<>();
+  // not modified once set (unless set by the constructor or by addSuggestedReplacements()), as deferred
+  // suggestions may be computed by another thread, see setLazySuggestedReplacements():
+  private volatile List<SuggestedReplacement> suggestedReplacements = new ArrayList<>();
+  private Supplier<List<SuggestedReplacement>> pendingSuggestedReplacements;  // null if there's nothing to compute
+  private volatile boolean incompleteSuggestions = false;
   private URL url;
   private Type type = Type.Other;
   private SortedMap<String, Float> features = Collections.emptySortedMap();
@@ -172,7 +177,13 @@ public class RuleMatch implements Comparable<RuleMatch> {
   public RuleMatch(RuleMatch clone) {
     this(clone.getRule(), clone.getSentence(), clone.getFromPos(), clone.getToPos(), clone.getMessage(), clone.getShortMessage());
     this.setPatternPosition(clone.getPatternFromPos(), clone.getPatternToPos());
-    this.setSuggestedReplacementObjects(clone.getSuggestedReplacementObjects());
+    if (clone.hasPendingSuggestions()) {
+      // don't compute the suggestions yet, but only once for both matches:
+      this.setLazySuggestedReplacements(clone::getSuggestedReplacementObjects);
+    } else {
+      this.setSuggestedReplacementObjects(clone.getSuggestedReplacementObjects());
+    }
+    this.setIncompleteSuggestions(clone.hasIncompleteSuggestions());
     this.setAutoCorrect(clone.isAutoCorrect());
     this.setFeatures(clone.getFeatures());
     this.setUrl(clone.getUrl());
@@ -352,8 +363,9 @@ public class RuleMatch implements Comparable<RuleMatch> {
     setSuggestedReplacements(replacements);
   }
   
-  public void addSuggestedReplacement(String replacement) {
+  public synchronized void addSuggestedReplacement(String replacement) {
     Objects.requireNonNull(replacement, "replacement may be empty but not null");
+    computePendingSuggestions();
     List<String> l = new ArrayList<>();
     for (SuggestedReplacement repl : suggestedReplacements) {
       l.add(repl.getReplacement());
@@ -362,11 +374,14 @@ public class RuleMatch implements Comparable<RuleMatch> {
     setSuggestedReplacements(l);
   }
 
-  public void addSuggestedReplacements(List<String> replacements) {
+  public synchronized void addSuggestedReplacements(List<String> replacements) {
     Objects.requireNonNull(replacements, "replacements may be empty but not null");
+    computePendingSuggestions();
+    List<SuggestedReplacement> newReplacements = new ArrayList<>(suggestedReplacements);
     for (String replacement : replacements) {
-      this.suggestedReplacements.add(new SuggestedReplacement(replacement));
+      newReplacements.add(new SuggestedReplacement(replacement));
     }
+    this.suggestedReplacements = newReplacements;
   }
   /**
    * The text fragments which might be an appropriate fix for the problem. One
@@ -375,6 +390,7 @@ public class RuleMatch implements Comparable<RuleMatch> {
    * @return unmodifiable list of String objects or an empty List
    */
   public List<String> getSuggestedReplacements() {
+    computePendingSuggestions();
     List<String> l = new ArrayList<>();
     for (SuggestedReplacement repl : suggestedReplacements) {
       l.add(repl.getReplacement());
@@ -385,23 +401,78 @@ public class RuleMatch implements Comparable<RuleMatch> {
   /**
    * @see #getSuggestedReplacements()
    */
-  public void setSuggestedReplacements(List<String> replacements) {
+  public synchronized void setSuggestedReplacements(List<String> replacements) {
     Objects.requireNonNull(replacements, "replacements may be empty but not null");
-    this.suggestedReplacements.clear();
+    discardPendingSuggestions();
+    List<SuggestedReplacement> newReplacements = new ArrayList<>();
     for (String replacement : replacements) {
-      this.suggestedReplacements.add(new SuggestedReplacement(replacement));
+      newReplacements.add(new SuggestedReplacement(replacement));
     }
+    this.suggestedReplacements = newReplacements;
   }
 
   public List<SuggestedReplacement> getSuggestedReplacementObjects() {
+    computePendingSuggestions();
     return Collections.unmodifiableList(suggestedReplacements);
   }
 
   /**
    * @see #getSuggestedReplacements()
    */
-  public void setSuggestedReplacementObjects(List<SuggestedReplacement> replacements) {
-    this.suggestedReplacements = Objects.requireNonNull(replacements, "replacements may be empty but not null");
+  public synchronized void setSuggestedReplacementObjects(List<SuggestedReplacement> replacements) {
+    Objects.requireNonNull(replacements, "replacements may be empty but not null");
+    discardPendingSuggestions();
+    this.suggestedReplacements = replacements;
+  }
+
+  /**
+   * Set a function that computes the suggestions only when they are first needed, i.e. when
+   * {@link #getSuggestedReplacements()} or a similar method is called. This is useful
+   * for expensive suggestions (e.g. for spelling errors) that the caller might not need at all.
+   * The function replaces any suggestions set so far and is called at most once. As it's
+   * called by the thread that first accesses the suggestions, it must not depend on objects
+   * that might be in use by another check at that time or that change after this call
+   * (e.g. the positions of this match), so copy what it needs.
+   * @since 5.1
+   */
+  public synchronized void setLazySuggestedReplacements(Supplier<List<SuggestedReplacement>> suggestions) {
+    this.pendingSuggestedReplacements = Objects.requireNonNull(suggestions);
+    this.suggestedReplacements = new ArrayList<>();
+  }
+
+  /**
+   * Whether the suggestions of this match haven't been computed yet.
+   * @see #setLazySuggestedReplacements(Supplier)
+   * @since 5.1
+   */
+  public synchronized boolean hasPendingSuggestions() {
+    return pendingSuggestedReplacements != null;
+  }
+
+  /**
+   * Whether suggestions were left out (e.g. because there was not enough time to compute them),
+   * so that {@link #getSuggestedReplacements()} might be empty or shorter than usual.
+   * @since 5.1
+   */
+  public boolean hasIncompleteSuggestions() {
+    return incompleteSuggestions;
+  }
+
+  /** @since 5.1 */
+  public void setIncompleteSuggestions(boolean incompleteSuggestions) {
+    this.incompleteSuggestions = incompleteSuggestions;
+  }
+
+  private synchronized void computePendingSuggestions() {
+    if (pendingSuggestedReplacements != null) {
+      Supplier<List<SuggestedReplacement>> suggestions = pendingSuggestedReplacements;
+      pendingSuggestedReplacements = null;
+      suggestedReplacements = new ArrayList<>(suggestions.get());
+    }
+  }
+
+  private synchronized void discardPendingSuggestions() {
+    pendingSuggestedReplacements = null;
   }
 
   /**
@@ -460,6 +531,9 @@ public class RuleMatch implements Comparable<RuleMatch> {
     return Integer.compare(getFromPos(), other.getFromPos());
   }
 
+  /**
+   * Compares the suggestions, too, so lazy suggestions get computed.
+   */
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -469,14 +543,14 @@ public class RuleMatch implements Comparable<RuleMatch> {
         && Objects.equals(patternPosition, other.patternPosition)
         && Objects.equals(offsetPosition, other.offsetPosition)
         && Objects.equals(message, other.message)
-        && Objects.equals(suggestedReplacements, other.suggestedReplacements)
+        && Objects.equals(getSuggestedReplacementObjects(), other.getSuggestedReplacementObjects())
         && Objects.equals(sentence, other.sentence)
         && Objects.equals(type, other.type);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(rule.getId(), offsetPosition, patternPosition, message, suggestedReplacements, sentence, type);
+    return Objects.hash(rule.getId(), offsetPosition, patternPosition, message, getSuggestedReplacementObjects(), sentence, type);
   }
 
   /**
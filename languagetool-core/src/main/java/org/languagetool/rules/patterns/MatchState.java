@@ -253,12 +253,9 @@ public class MatchState {
           }
           String targetPosTag = getTargetPosTag();
           if (!oneForm) {
-            for (int i = 0; i < readingCount; i++) {
-              String[] possibleWordForms = synthesizer.synthesize(
-                  formattedToken.getAnalyzedToken(i), targetPosTag, true);
-              if (possibleWordForms != null && possibleWordForms.length > 0) {
-                wordForms.addAll(Arrays.asList(possibleWordForms));
-              }
+            String[] possibleWordForms = synthesizer.synthesize(formattedToken.getReadings(), targetPosTag, true);
+            if (possibleWordForms != null && possibleWordForms.length > 0) {
+              wordForms.addAll(Arrays.asList(possibleWordForms));
             }
           }
           if (wordForms.isEmpty()) {
@@ -184,60 +184,25 @@ public class HunspellRule extends SpellingCheckRule {
             messages.getString("spelling"),
             messages.getString("desc_spelling_short"));
           ruleMatch.setType(RuleMatch.Type.UnknownWord);
-          if (userConfig == null || userConfig.getMaxSpellingSuggestions() == 0 || ruleMatches.size() <= userConfig.getMaxSpellingSuggestions()) {
-            List<SuggestedReplacement> suggestions = SuggestedReplacement.convert(getSuggestions(cleanWord));
-            if (word.endsWith(".")) {
-              int pos = 1;
-              for (String suggestion : getSuggestions(word)) {
-                if (!suggestions.contains(suggestion)) {
-                  suggestions.add(Math.min(pos, suggestions.size()), new SuggestedReplacement(suggestion.substring(0, suggestion.length()-1)));
-                  pos += 2;  // we mix the lists, as we don't know which one is the better one
+          UserConfig.SuggestionsMode suggestionsMode = userConfig != null ? userConfig.getSuggestionsMode() : UserConfig.SuggestionsMode.ALL;
+          int maxSuggestions = userConfig != null ? userConfig.getMaxSuggestionsPerMatch() : 0;
+          if (suggestionsMode == UserConfig.SuggestionsMode.NONE) {
+            // the caller doesn't need suggestions
+          } else if (userConfig == null || userConfig.getMaxSpellingSuggestions() == 0 || ruleMatches.size() <= userConfig.getMaxSpellingSuggestions()) {
+            if (suggestionsMode == UserConfig.SuggestionsMode.DEFERRED) {
+              int idx = i;
+              String cleanWordFinal = cleanWord;
+              ruleMatch.setLazySuggestedReplacements(() -> {
+                try {
+                  return getSuggestionsForMatch(word, cleanWordFinal, sentence, idx, maxSuggestions);
+                } catch (IOException e) {
+                  throw new RuntimeException(e);
                 }
-              }
-            }
-            List<SuggestedReplacement> additionalTopSuggestions = getAdditionalTopSuggestions(suggestions, cleanWord);
-            if (additionalTopSuggestions.isEmpty() && word.endsWith(".")) {
-              additionalTopSuggestions = getAdditionalTopSuggestions(suggestions, word).
-                stream()
-                .map(sugg -> {
-                  if (sugg.getReplacement().endsWith(".")) {
-                    return sugg;
-                  } else {
-                    SuggestedReplacement newSugg = new SuggestedReplacement(sugg);
-                    newSugg.setReplacement(sugg.getReplacement() + ".");
-                    return newSugg;
-                  }
-                }).collect(Collectors.toList());
-            }
-            Collections.reverse(additionalTopSuggestions);
-            for (SuggestedReplacement additionalTopSuggestion : additionalTopSuggestions) {
-              if (!cleanWord.equals(additionalTopSuggestion.getReplacement())) {
-                suggestions.add(0, additionalTopSuggestion);
-              }
-            }
-            List<SuggestedReplacement> additionalSuggestions = getAdditionalSuggestions(suggestions, cleanWord);
-            for (SuggestedReplacement additionalSuggestion : additionalSuggestions) {
-              if (!cleanWord.equals(additionalSuggestion.getReplacement())) {
-                suggestions.addAll(additionalSuggestions);
-              }
+              });
+            } else {
+              // TODO user suggestions
+              addSuggestionsToRuleMatch(cleanWord, Collections.emptyList(), getSuggestionsForMatch(word, cleanWord, sentence, i, maxSuggestions), null, ruleMatch);
             }
-            suggestions = filterDupes(filterSuggestions(suggestions, sentence, i));
-            // Find potentially missing compounds with privacy-friendly logging: we only log a single unknown word with no
-            // meta data and only if it's made up of two valid words, similar to the "UNKNOWN" logging in
-            // GermanSpellerRule:
-            /*if (language.getShortCode().equals("de")) {
-              String covered = sentence.getText().substring(len, len + cleanWord.length());
-              if (suggestions.stream().anyMatch(
-                    k -> k.getReplacement().contains(" ") &&
-                    StringTools.uppercaseFirstChar(k.getReplacement().replaceAll(" ", "").toLowerCase()).equals(covered) &&
-                    k.getReplacement().length() > 6 && k.getReplacement().length() < 25 &&
-                    k.getReplacement().matches("[a-zA-ZÖÄÜöäüß -]+")
-                  )) {
-                logger.info("COMPOUND: " + covered);
-              }
-            }*/
-            // TODO user suggestions
-            addSuggestionsToRuleMatch(cleanWord, Collections.emptyList(), suggestions, null, ruleMatch);
           } else {
             // limited to save CPU
             ruleMatch.setSuggestedReplacement(messages.getString("too_many_errors"));
@@ -255,6 +220,69 @@ public class HunspellRule extends SpellingCheckRule {
     return toRuleMatchArray(ruleMatches);
   }
 
+  /**
+   * @param maxSuggestions the maximum number of suggestions, 0 for no limit
+   */
+  private List<SuggestedReplacement> getSuggestionsForMatch(String word, String cleanWord, AnalyzedSentence sentence, int i,
+                                                            int maxSuggestions) throws IOException {
+    List<SuggestedReplacement> suggestions = SuggestedReplacement.convert(getSuggestions(cleanWord));
+    // asking hunspell again for the word with its dot is expensive, so skip it if we already have enough:
+    if (word.endsWith(".") && (maxSuggestions == 0 || suggestions.size() < maxSuggestions)) {
+      int pos = 1;
+      for (String suggestion : getSuggestions(word)) {
+        if (!suggestions.contains(suggestion)) {
+          suggestions.add(Math.min(pos, suggestions.size()), new SuggestedReplacement(suggestion.substring(0, suggestion.length()-1)));
+          pos += 2;  // we mix the lists, as we don't know which one is the better one
+        }
+      }
+    }
+    List<SuggestedReplacement> additionalTopSuggestions = getAdditionalTopSuggestions(suggestions, cleanWord);
+    if (additionalTopSuggestions.isEmpty() && word.endsWith(".")) {
+      additionalTopSuggestions = getAdditionalTopSuggestions(suggestions, word).
+        stream()
+        .map(sugg -> {
+          if (sugg.getReplacement().endsWith(".")) {
+            return sugg;
+          } else {
+            SuggestedReplacement newSugg = new SuggestedReplacement(sugg);
+            newSugg.setReplacement(sugg.getReplacement() + ".");
+            return newSugg;
+          }
+        }).collect(Collectors.toList());
+    }
+    Collections.reverse(additionalTopSuggestions);
+    for (SuggestedReplacement additionalTopSuggestion : additionalTopSuggestions) {
+      if (!cleanWord.equals(additionalTopSuggestion.getReplacement())) {
+        suggestions.add(0, additionalTopSuggestion);
+      }
+    }
+    List<SuggestedReplacement> additionalSuggestions = getAdditionalSuggestions(suggestions, cleanWord);
+    for (SuggestedReplacement additionalSuggestion : additionalSuggestions) {
+      if (!cleanWord.equals(additionalSuggestion.getReplacement())) {
+        suggestions.addAll(additionalSuggestions);
+      }
+    }
+    suggestions = filterDupes(filterSuggestions(suggestions, sentence, i));
+    // Find potentially missing compounds with privacy-friendly logging: we only log a single unknown word with no
+    // meta data and only if it's made up of two valid words, similar to the "UNKNOWN" logging in
+    // GermanSpellerRule:
+    /*if (language.getShortCode().equals("de")) {
+      String covered = sentence.getText().substring(len, len + cleanWord.length());
+      if (suggestions.stream().anyMatch(
+            k -> k.getReplacement().contains(" ") &&
+            StringTools.uppercaseFirstChar(k.getReplacement().replaceAll(" ", "").toLowerCase()).equals(covered) &&
+            k.getReplacement().length() > 6 && k.getReplacement().length() < 25 &&
+            k.getReplacement().matches("[a-zA-ZÖÄÜöäüß -]+")
+          )) {
+        logger.info("COMPOUND: " + covered);
+      }
+    }*/
+    if (maxSuggestions > 0 && suggestions.size() > maxSuggestions) {
+      suggestions = new ArrayList<>(suggestions.subList(0, maxSuggestions));
+    }
+    return suggestions;
+  }
+
   private String cutOffDot(String s) {
     return s.endsWith(".") ? s.substring(0, s.length()-1) : s;
   }
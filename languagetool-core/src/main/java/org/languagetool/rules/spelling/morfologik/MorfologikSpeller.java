@@ -22,6 +22,7 @@ import com.google.common.cache.*;
 import morfologik.speller.Speller;
 import morfologik.stemming.Dictionary;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.languagetool.JLanguageTool;
 import org.languagetool.broker.ResourceDataBroker;
 import org.languagetool.rules.spelling.SpellingCheckRule;
@@ -30,6 +31,7 @@ import org.languagetool.tools.StringTools;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -56,16 +58,30 @@ public class MorfologikSpeller {
         }
       });
 
+  // Suggestions and spelling results of the dictionaries loaded from the classpath or file system,
+  // shared by all rule instances (i.e. by all pipelines of the server). Keys are
+  // "<dictionary path>|<maxEditDistance>|<word>":
+  private static final Cache<String, List<WeightedSuggestion>> suggestionCache = CacheBuilder.newBuilder()
+      .maximumSize(10_000)
+      .expireAfterWrite(10, TimeUnit.MINUTES)
+      .build();
+  private static final Cache<String, Boolean> misspelledCache = CacheBuilder.newBuilder()
+      .maximumSize(50_000)
+      .expireAfterWrite(10, TimeUnit.MINUTES)
+      .build();
+
   private final Dictionary dictionary;
   private final Speller speller;
   private final int maxEditDistance;
+  @Nullable
+  private final String cacheKeyPrefix;  // null: dictionary built at runtime (e.g. user dictionary), don't cache
 
   /**
    * Creates a speller with the given maximum edit distance.
    * @param fileInClassPath path in classpath to morfologik dictionary
    */
   public MorfologikSpeller(String fileInClassPath, int maxEditDistance) {
-    this(dictCache.getUnchecked(fileInClassPath), maxEditDistance);
+    this(dictCache.getUnchecked(fileInClassPath), maxEditDistance, fileInClassPath + "|" + maxEditDistance + "|");
   }
 
   /**
@@ -78,19 +94,35 @@ public class MorfologikSpeller {
 
   /** @since 2.9 */
   MorfologikSpeller(Dictionary dictionary, int maxEditDistance) {
+    this(dictionary, maxEditDistance, null);
+  }
+
+  private MorfologikSpeller(Dictionary dictionary, int maxEditDistance, @Nullable String cacheKeyPrefix) {
     if (maxEditDistance <= 0) {
       throw new RuntimeException("maxEditDistance must be > 0: " + maxEditDistance);
     }
     this.dictionary = dictionary;
     this.maxEditDistance = maxEditDistance;
+    this.cacheKeyPrefix = cacheKeyPrefix;
     speller = new Speller(dictionary, maxEditDistance);
   }
 
   public boolean isMisspelled(String word) {
-    return word.length() > 0 
-            && !SpellingCheckRule.LANGUAGETOOL.equals(word)
-            && !SpellingCheckRule.LANGUAGETOOLER.equals(word)
-            && speller.isMisspelled(word);
+    if (word.length() == 0
+        || SpellingCheckRule.LANGUAGETOOL.equals(word)
+        || SpellingCheckRule.LANGUAGETOOLER.equals(word)) {
+      return false;
+    }
+    if (cacheKeyPrefix == null) {
+      return speller.isMisspelled(word);
+    }
+    String key = cacheKeyPrefix + word;
+    Boolean misspelled = misspelledCache.getIfPresent(key);
+    if (misspelled == null) {
+      misspelled = speller.isMisspelled(word);
+      misspelledCache.put(key, misspelled);
+    }
+    return misspelled;
   }
 
   public Speller getSpeller() {
@@ -98,9 +130,22 @@ public class MorfologikSpeller {
   }
 
   public List<WeightedSuggestion> getSuggestions(String word) {
+    if (cacheKeyPrefix == null) {
+      return getSuggestionsUncached(word);
+    }
+    String key = cacheKeyPrefix + word;
+    List<WeightedSuggestion> suggestions = suggestionCache.getIfPresent(key);
+    if (suggestions == null) {
+      suggestions = Collections.unmodifiableList(getSuggestionsUncached(word));
+      suggestionCache.put(key, suggestions);
+    }
+    return new ArrayList<>(suggestions);
+  }
+
+  private List<WeightedSuggestion> getSuggestionsUncached(String word) {
     List<WeightedSuggestion> suggestions = new ArrayList<>();
     // needs to be reset every time, possible bug: HMatrix for distance computation is not reset;
-    // output changes when reused
+    // output changes when reused (creating a Speller is cheap compared to finding the candidates)
     Speller speller = new Speller(dictionary, maxEditDistance);
     List<Speller.CandidateData> replacementCandidates;
     if (word.length() < 50) {   // slow for long words (the limit is arbitrary)
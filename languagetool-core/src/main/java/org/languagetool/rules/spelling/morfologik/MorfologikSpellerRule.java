@@ -432,50 +432,34 @@ public abstract class MorfologikSpellerRule extends SpellingCheckRule {
       (boolean) SuggestionsChanges.getInstance().getCurrentExperiment()
         .parameters.getOrDefault("fullSuggestionCandidates", Boolean.FALSE);
 
-    if (userConfig == null || userConfig.getMaxSpellingSuggestions() == 0 
+    UserConfig.SuggestionsMode suggestionsMode = userConfig != null ? userConfig.getSuggestionsMode() : UserConfig.SuggestionsMode.ALL;
+    int maxSuggestions = userConfig != null ? userConfig.getMaxSuggestionsPerMatch() : 0;
+    if (suggestionsMode == UserConfig.SuggestionsMode.NONE) {
+      // the caller doesn't need suggestions
+    } else if (userConfig == null || userConfig.getMaxSpellingSuggestions() == 0 
         || ruleMatchesSoFar.size() <= userConfig.getMaxSpellingSuggestions()) {
-      List<SuggestedReplacement> defaultSuggestions = SuggestedReplacement.convert(speller1.getSuggestionsFromDefaultDicts(word));
-      List<SuggestedReplacement> userSuggestions = SuggestedReplacement.convert(speller1.getSuggestionsFromUserDicts(word));
-      //System.out.println("speller1: " + suggestions);
-      boolean onlyCaseDiffers = false;
-      if (defaultSuggestions.size() > 0 && word.equalsIgnoreCase(defaultSuggestions.get(0).getReplacement())) {
-        // We have no good concept yet for showing both translations and standard suggestions, so
-        // use a hack to fix e.g. "muslims" not suggesting "Muslims" (https://github.com/languagetool-org/languagetool/issues/3333)
-        onlyCaseDiffers = true;
-      }
-      if (word.length() >= 3 && (onlyCaseDiffers || fullResults || defaultSuggestions.isEmpty())) {
-        // speller1 uses a maximum edit distance of 1, it won't find suggestion for "garentee", "greatful" etc.
-        //System.out.println("speller2: " + speller2.getSuggestions(word));
-        defaultSuggestions.addAll(SuggestedReplacement.convert(speller2.getSuggestionsFromDefaultDicts(word)));
-        userSuggestions.addAll(SuggestedReplacement.convert(speller2.getSuggestionsFromUserDicts(word)));
-        if (word.length() >= 5 && (fullResults || defaultSuggestions.isEmpty())) {
-          //System.out.println("speller3: " + speller3.getSuggestions(word));
-          defaultSuggestions.addAll(SuggestedReplacement.convert(speller3.getSuggestionsFromDefaultDicts(word)));
-          userSuggestions.addAll(SuggestedReplacement.convert(speller3.getSuggestionsFromUserDicts(word)));
-        }
-      }
-      //System.out.println("getAdditionalTopSuggestions(suggestions, word): " + getAdditionalTopSuggestions(suggestions, word));
-      List<SuggestedReplacement> topSuggestions = getAdditionalTopSuggestions(defaultSuggestions, word);
-      topSuggestions.forEach(s -> s.setType(SuggestedReplacement.SuggestionType.Curated));
-      defaultSuggestions.addAll(0, topSuggestions);
-      //System.out.println("getAdditionalSuggestions(suggestions, word): " + getAdditionalSuggestions(suggestions, word));
-      defaultSuggestions.addAll(getAdditionalSuggestions(defaultSuggestions, word));
-
-      if (!(defaultSuggestions.isEmpty() && userSuggestions.isEmpty()) && !preventFurtherSuggestions) {
-        defaultSuggestions = filterSuggestions(defaultSuggestions, sentence, idx);
-        userSuggestions = filterDupes(userSuggestions);
-        defaultSuggestions = orderSuggestions(defaultSuggestions, word);
-        
-        defaultSuggestions = joinBeforeAfterSuggestions(defaultSuggestions, beforeSuggestionStr, afterSuggestionStr);
-        userSuggestions = joinBeforeAfterSuggestions(userSuggestions, beforeSuggestionStr, afterSuggestionStr);
-        // use suggestionsOrderer only w/ A/B - Testing or manually enabled experiments
-        addSuggestionsToRuleMatch(word, userSuggestions, defaultSuggestions, null, ruleMatch);
-        if (translationSuggestionCount > 0 && ruleMatch.getSuggestedReplacements().size() > translationSuggestionCount) {
-          RuleMatch newRuleMatch = new RuleMatch(ruleMatch.getRule(), ruleMatch.getSentence(), ruleMatch.getFromPos(), ruleMatch.getToPos(),
-            messages.getString("spelling") + " Translations to English are also offered.");
-          newRuleMatch.setSuggestedReplacementObjects(ruleMatch.getSuggestedReplacementObjects());
-          ruleMatch = newRuleMatch;
-        }
+      if (suggestionsMode == UserConfig.SuggestionsMode.DEFERRED && translationSuggestionCount == 0) {
+        // copy what's needed now, the match may be modified (e.g. moved) before the suggestions are computed:
+        int fromPos = ruleMatch.getFromPos();
+        int toPos = ruleMatch.getToPos();
+        String message = ruleMatch.getMessage();
+        List<SuggestedReplacement> suggestionsSoFar = new ArrayList<>(ruleMatch.getSuggestedReplacementObjects());
+        String before = beforeSuggestionStr;
+        String after = afterSuggestionStr;
+        boolean preventFurther = preventFurtherSuggestions;
+        ruleMatch.setLazySuggestedReplacements(() -> {
+          RuleMatch tmpMatch = new RuleMatch(this, sentence, fromPos, toPos, message);
+          tmpMatch.setSuggestedReplacementObjects(suggestionsSoFar);
+          try {
+            return addSuggestions(tmpMatch, word, sentence, idx, before, after, preventFurther, 0, fullResults, maxSuggestions)
+              .getSuggestedReplacementObjects();
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        });
+      } else {
+        ruleMatch = addSuggestions(ruleMatch, word, sentence, idx, beforeSuggestionStr, afterSuggestionStr,
+          preventFurtherSuggestions, translationSuggestionCount, fullResults, maxSuggestions);
       }
     } else {
       // limited to save CPU
@@ -486,6 +470,62 @@ public abstract class MorfologikSpellerRule extends SpellingCheckRule {
     return ruleMatches;
   }
 
+  private RuleMatch addSuggestions(RuleMatch ruleMatch, String word, AnalyzedSentence sentence, int idx,
+                                   String beforeSuggestionStr, String afterSuggestionStr, boolean preventFurtherSuggestions,
+                                   int translationSuggestionCount, boolean fullResults, int maxSuggestions) throws IOException {
+    List<SuggestedReplacement> defaultSuggestions = SuggestedReplacement.convert(speller1.getSuggestionsFromDefaultDicts(word));
+    List<SuggestedReplacement> userSuggestions = SuggestedReplacement.convert(speller1.getSuggestionsFromUserDicts(word));
+    //System.out.println("speller1: " + suggestions);
+    boolean onlyCaseDiffers = false;
+    if (defaultSuggestions.size() > 0 && word.equalsIgnoreCase(defaultSuggestions.get(0).getReplacement())) {
+      // We have no good concept yet for showing both translations and standard suggestions, so
+      // use a hack to fix e.g. "muslims" not suggesting "Muslims" (https://github.com/languagetool-org/languagetool/issues/3333)
+      onlyCaseDiffers = true;
+    }
+    if (maxSuggestions > 0 && defaultSuggestions.size() >= maxSuggestions) {
+      fullResults = false;  // we already have enough candidates
+    }
+    if (word.length() >= 3 && (onlyCaseDiffers || fullResults || defaultSuggestions.isEmpty())) {
+      // speller1 uses a maximum edit distance of 1, it won't find suggestion for "garentee", "greatful" etc.
+      //System.out.println("speller2: " + speller2.getSuggestions(word));
+      defaultSuggestions.addAll(SuggestedReplacement.convert(speller2.getSuggestionsFromDefaultDicts(word)));
+      userSuggestions.addAll(SuggestedReplacement.convert(speller2.getSuggestionsFromUserDicts(word)));
+      if (word.length() >= 5 && (fullResults || defaultSuggestions.isEmpty())) {
+        //System.out.println("speller3: " + speller3.getSuggestions(word));
+        defaultSuggestions.addAll(SuggestedReplacement.convert(speller3.getSuggestionsFromDefaultDicts(word)));
+        userSuggestions.addAll(SuggestedReplacement.convert(speller3.getSuggestionsFromUserDicts(word)));
+      }
+    }
+    //System.out.println("getAdditionalTopSuggestions(suggestions, word): " + getAdditionalTopSuggestions(suggestions, word));
+    List<SuggestedReplacement> topSuggestions = getAdditionalTopSuggestions(defaultSuggestions, word);
+    topSuggestions.forEach(s -> s.setType(SuggestedReplacement.SuggestionType.Curated));
+    defaultSuggestions.addAll(0, topSuggestions);
+    //System.out.println("getAdditionalSuggestions(suggestions, word): " + getAdditionalSuggestions(suggestions, word));
+    defaultSuggestions.addAll(getAdditionalSuggestions(defaultSuggestions, word));
+
+    if (!(defaultSuggestions.isEmpty() && userSuggestions.isEmpty()) && !preventFurtherSuggestions) {
+      defaultSuggestions = filterSuggestions(defaultSuggestions, sentence, idx);
+      userSuggestions = filterDupes(userSuggestions);
+      defaultSuggestions = orderSuggestions(defaultSuggestions, word);
+      if (maxSuggestions > 0) {
+        defaultSuggestions = defaultSuggestions.subList(0, Math.min(maxSuggestions, defaultSuggestions.size()));
+        userSuggestions = userSuggestions.subList(0, Math.min(maxSuggestions, userSuggestions.size()));
+      }
+      
+      defaultSuggestions = joinBeforeAfterSuggestions(defaultSuggestions, beforeSuggestionStr, afterSuggestionStr);
+      userSuggestions = joinBeforeAfterSuggestions(userSuggestions, beforeSuggestionStr, afterSuggestionStr);
+      // use suggestionsOrderer only w/ A/B - Testing or manually enabled experiments
+      addSuggestionsToRuleMatch(word, userSuggestions, defaultSuggestions, null, ruleMatch);
+      if (translationSuggestionCount > 0 && ruleMatch.getSuggestedReplacements().size() > translationSuggestionCount) {
+        RuleMatch newRuleMatch = new RuleMatch(ruleMatch.getRule(), ruleMatch.getSentence(), ruleMatch.getFromPos(), ruleMatch.getToPos(),
+          messages.getString("spelling") + " Translations to English are also offered.");
+        newRuleMatch.setSuggestedReplacementObjects(ruleMatch.getSuggestedReplacementObjects());
+        ruleMatch = newRuleMatch;
+      }
+    }
+    return ruleMatch;
+  }
+
   @NotNull
   private List<SuggestedReplacement> mergeSuggestionsWithSameTranslation(List<SuggestedReplacement> l) {
     List<SuggestedReplacement> mergedRepl = new ArrayList<>();
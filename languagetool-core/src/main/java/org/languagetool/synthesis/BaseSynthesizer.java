@@ -18,6 +18,8 @@
  */
 package org.languagetool.synthesis;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import morfologik.stemming.Dictionary;
 import morfologik.stemming.DictionaryLookup;
 import morfologik.stemming.IStemmer;
@@ -31,15 +33,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
+import java.util.*;
 import java.util.regex.Pattern;
 
 public class BaseSynthesizer implements Synthesizer {
 
+  private static final int MATCHING_TAGS_CACHE_SIZE = 1000;
+  private static final int FORMS_CACHE_SIZE = 20_000;
+
   protected volatile List<String> possibleTags;
 
+  // POS tag regex -> tags of possibleTags that match it:
+  private final Cache<String, List<String>> matchingTagsCache = CacheBuilder.newBuilder()
+    .maximumSize(MATCHING_TAGS_CACHE_SIZE).build();
+  // lemma + "|" + POS tag -> forms:
+  private final Cache<String, List<String>> formsCache = CacheBuilder.newBuilder()
+    .maximumSize(FORMS_CACHE_SIZE).build();
+
   private final String tagFileName;
   private final String resourceFileName;
   private final IStemmer stemmer;
@@ -47,6 +57,8 @@ public class BaseSynthesizer implements Synthesizer {
   private final ManualSynthesizer removalSynthesizer;
   private final String sorosFileName;
   private final Soros numberSpeller;
+  // whether a subclass has its own synthesize(AnalyzedToken, String, boolean), which the batch synthesis then needs to use:
+  private final boolean regExpSynthesisOverridden;
   
   public final String SPELLNUMBER_TAG = "_spell_number_";
   
@@ -62,6 +74,12 @@ public class BaseSynthesizer implements Synthesizer {
     this.stemmer = createStemmer();
     this.sorosFileName = sorosFileName;
     this.numberSpeller = createNumberSpeller(lang.getShortCode());
+    try {
+      this.regExpSynthesisOverridden = getClass().getMethod("synthesize", AnalyzedToken.class, String.class, boolean.class)
+        .getDeclaringClass() != BaseSynthesizer.class;
+    } catch (NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
     try {
       String path = "/" + lang.getShortCode() + "/added.txt";
       if (JLanguageTool.getDataBroker().resourceExists(path)) {
@@ -145,6 +163,16 @@ public class BaseSynthesizer implements Synthesizer {
    * @param posTag the desired part-of-speech tag.
    */
   protected List<String> lookup(String lemma, String posTag) {
+    String key = lemma + "|" + posTag;
+    List<String> forms = formsCache.getIfPresent(key);
+    if (forms == null) {
+      forms = Collections.unmodifiableList(lookupUncached(lemma, posTag));
+      formsCache.put(key, forms);
+    }
+    return new ArrayList<>(forms);
+  }
+
+  private List<String> lookupUncached(String lemma, String posTag) {
     List<String> results = new ArrayList<>();
     synchronized (this) { // the stemmer is not thread-safe
       List<WordData> wordForms = stemmer.lookup(lemma + "|" + posTag);
@@ -167,6 +195,31 @@ public class BaseSynthesizer implements Synthesizer {
     return results;
   }
 
+  /**
+   * Get the tags from the tag file that fully match the given regular expression. The
+   * result is cached so the tags don't need to be matched again for the next call.
+   * @param posTagRegExp regular expression for the POS tag
+   * @return the matching tags, in the order of the tag file, must not be modified
+   * @throws java.util.regex.PatternSyntaxException if the regular expression is invalid
+   * @since 5.1
+   */
+  protected List<String> getMatchingTags(String posTagRegExp) throws IOException {
+    initPossibleTags();
+    List<String> tags = matchingTagsCache.getIfPresent(posTagRegExp);
+    if (tags == null) {
+      Pattern p = Pattern.compile(posTagRegExp);
+      List<String> matchingTags = new ArrayList<>();
+      for (String tag : possibleTags) {
+        if (p.matcher(tag).matches()) {
+          matchingTags.add(tag);
+        }
+      }
+      tags = Collections.unmodifiableList(matchingTags);
+      matchingTagsCache.put(posTagRegExp, tags);
+    }
+    return tags;
+  }
+
   /**
    * Get a form of a given AnalyzedToken, where the form is defined by a
    * part-of-speech tag.
@@ -186,20 +239,39 @@ public class BaseSynthesizer implements Synthesizer {
   @Override
   public String[] synthesize(AnalyzedToken token, String posTag, boolean posTagRegExp) throws IOException {
     if (posTagRegExp) {
-      initPossibleTags();
-      Pattern p = Pattern.compile(posTag);
       List<String> results = new ArrayList<>();
-      for (String tag : possibleTags) {
-        Matcher m = p.matcher(tag);
-        if (m.matches()) {
-          results.addAll(lookup(token.getLemma(), tag));
-        }
+      for (String tag : getMatchingTags(posTag)) {
+        results.addAll(lookup(token.getLemma(), tag));
       }
       return results.toArray(new String[0]);
     }
     return synthesize(token, posTag);
   }
 
+  /**
+   * Resolves the tags of a regular expression only once for all tokens, and looks up
+   * the forms of each lemma only once.
+   * @since 5.1
+   */
+  @Override
+  public String[] synthesize(List<AnalyzedToken> tokens, String posTag, boolean posTagRegExp) throws IOException {
+    if (!posTagRegExp || regExpSynthesisOverridden) {
+      return Synthesizer.super.synthesize(tokens, posTag, posTagRegExp);
+    }
+    Set<String> lemmas = new LinkedHashSet<>();
+    for (AnalyzedToken token : tokens) {
+      lemmas.add(token.getLemma());
+    }
+    List<String> tags = getMatchingTags(posTag);
+    Set<String> forms = new TreeSet<>();
+    for (String lemma : lemmas) {
+      for (String tag : tags) {
+        forms.addAll(lookup(lemma, tag));
+      }
+    }
+    return forms.toArray(new String[0]);
+  }
+
   @Override
   public String getPosTagCorrection(String posTag) {
     return posTag;
@@ -19,6 +19,11 @@
 package org.languagetool.synthesis;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.languagetool.AnalyzedToken;
 
@@ -45,6 +50,26 @@ public interface Synthesizer {
    * @param posTagRegExp Specifies whether the posTag string is a regular expression.
    */
   String[] synthesize(AnalyzedToken token, String posTag, boolean posTagRegExp) throws IOException;
+
+  /**
+   * Generates the forms with a given POS tag for several tokens at once, e.g. for all readings
+   * of a token. Identical tokens are only synthesized once.
+   * @param tokens the tokens to be used for synthesis
+   * @param posTag POS tag of the forms to be generated
+   * @param posTagRegExp Specifies whether the posTag string is a regular expression.
+   * @return the forms of all tokens, sorted and without duplicates
+   * @since 5.1
+   */
+  default String[] synthesize(List<AnalyzedToken> tokens, String posTag, boolean posTagRegExp) throws IOException {
+    Set<String> forms = new TreeSet<>();
+    for (AnalyzedToken token : new LinkedHashSet<>(tokens)) {
+      String[] tokenForms = synthesize(token, posTag, posTagRegExp);
+      if (tokenForms != null) {
+        forms.addAll(Arrays.asList(tokenForms));
+      }
+    }
+    return forms.toArray(new String[0]);
+  }
   
   /**
    * Gets a corrected version of the POS tag used for synthesis.
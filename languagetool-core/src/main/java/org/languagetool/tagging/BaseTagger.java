@@ -18,6 +18,8 @@
  */
 package org.languagetool.tagging;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import morfologik.stemming.Dictionary;
 import morfologik.stemming.WordData;
 import org.jetbrains.annotations.NotNull;
@@ -28,6 +30,10 @@ import org.languagetool.tools.StringTools;
 import java.io.*;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Base tagger using Morfologik binary dictionaries.
@@ -41,12 +47,45 @@ public abstract class BaseTagger implements Tagger {
   private static final String MANUAL_REMOVALS_FILE = "/removed.txt";
   private static final String CUSTOM_MANUAL_REMOVALS_FILE = "/removed_custom.txt";
 
+  private static final int DEFAULT_CACHE_SIZE = 10_000;
+  private static final int BATCH_CHUNK_SIZE = 1000;  // distinct words per task in tagSentences()
+
+  private static volatile int cacheSize = DEFAULT_CACHE_SIZE;
+
+  // whether a tagger class overrides tag(List), i.e. may use the context of a token:
+  private static final ClassValue<Boolean> overridesTag = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> type) {
+      try {
+        return type.getMethod("tag", List.class).getDeclaringClass() != BaseTagger.class;
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
   protected final WordTagger wordTagger;
   protected final Locale locale;
 
   private final boolean tagLowercaseWithUppercase;
   private final String dictionaryPath;
   private final Dictionary dictionary;
+  // word -> readings as returned by getAnalyzedTokens(), never handed out directly as AnalyzedToken is mutable:
+  private final Cache<String, List<AnalyzedToken>> cache;
+
+  /**
+   * Set the maximum number of words per tagger whose analysis is kept in memory, so
+   * frequent words don't need to be looked up again. This is a global setting that only affects
+   * taggers created after the call, so call it once at startup, before any language is used.
+   * @param size maximum number of cached words, {@code 0} disables the cache
+   * @since 5.1
+   */
+  public static void setCacheSize(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Tagger cache size must be >= 0: " + size);
+    }
+    cacheSize = size;
+  }
 
   /**
    * Get the filenames for manual additions, e.g., {@code /en/added.txt}.
@@ -91,6 +130,7 @@ public abstract class BaseTagger implements Tagger {
       throw new RuntimeException("Could not load dictionary from " + filename, e);
     }
     this.wordTagger = initWordTagger(internTags);
+    this.cache = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).recordStats().build() : null;
   }
 
   /**
@@ -168,19 +208,134 @@ public abstract class BaseTagger implements Tagger {
     return dictionary;
   }
 
+  /**
+   * The cache of word analyses used by {@link #tag(List)}, e.g. to monitor its hit rate.
+   * The cached tokens must not be modified.
+   * @return the cache or {@code null} if caching is disabled
+   * @since 5.1
+   */
+  @Nullable
+  public Cache<String, List<AnalyzedToken>> getCache() {
+    return cache;
+  }
+
   @Override
   public List<AnalyzedTokenReadings> tag(List<String> sentenceTokens)
       throws IOException {
     List<AnalyzedTokenReadings> tokenReadings = new ArrayList<>();
     int pos = 0;
     for (String word : sentenceTokens) {
-      List<AnalyzedToken> l = getAnalyzedTokens(word);
+      List<AnalyzedToken> l = getCachedAnalyzedTokens(word);
       tokenReadings.add(new AnalyzedTokenReadings(l, pos));
       pos += word.length();
     }
     return tokenReadings;
   }
 
+  /**
+   * Tags the distinct tokens of all sentences only once, in sorted order (which is faster for the
+   * dictionary lookup) and in parallel if an executor is given. Falls back to calling {@link #tag(List)}
+   * for each sentence if {@link #isContextFree()} returns {@code false}.
+   * @since 5.1
+   */
+  @Override
+  public List<List<AnalyzedTokenReadings>> tagSentences(List<List<String>> sentencesTokens, @Nullable ExecutorService executor) throws IOException {
+    if (!isContextFree()) {
+      return Tagger.super.tagSentences(sentencesTokens, executor);
+    }
+    Set<String> distinctWords = new TreeSet<>();
+    for (List<String> sentenceTokens : sentencesTokens) {
+      distinctWords.addAll(sentenceTokens);
+    }
+    Map<String, List<AnalyzedToken>> wordToReadings = analyzeWords(new ArrayList<>(distinctWords), executor);
+    List<List<AnalyzedTokenReadings>> result = new ArrayList<>(sentencesTokens.size());
+    for (List<String> sentenceTokens : sentencesTokens) {
+      List<AnalyzedTokenReadings> tokenReadings = new ArrayList<>(sentenceTokens.size());
+      int pos = 0;
+      for (String word : sentenceTokens) {
+        tokenReadings.add(new AnalyzedTokenReadings(copyOf(wordToReadings.get(word)), pos));
+        pos += word.length();
+      }
+      result.add(tokenReadings);
+    }
+    return result;
+  }
+
+  private Map<String, List<AnalyzedToken>> analyzeWords(List<String> sortedWords, @Nullable ExecutorService executor) {
+    Map<String, List<AnalyzedToken>> result = new HashMap<>();
+    if (executor == null || sortedWords.size() <= BATCH_CHUNK_SIZE) {
+      for (String word : sortedWords) {
+        result.put(word, getCachedAnalyzedTokens(word));
+      }
+      return result;
+    }
+    List<Callable<List<List<AnalyzedToken>>>> callables = new ArrayList<>();
+    for (int i = 0; i < sortedWords.size(); i += BATCH_CHUNK_SIZE) {
+      List<String> chunk = sortedWords.subList(i, Math.min(i + BATCH_CHUNK_SIZE, sortedWords.size()));
+      callables.add(() -> {
+        List<List<AnalyzedToken>> readings = new ArrayList<>(chunk.size());
+        for (String word : chunk) {
+          readings.add(getCachedAnalyzedTokens(word));
+        }
+        return readings;
+      });
+    }
+    try {
+      List<Future<List<List<AnalyzedToken>>>> futures = executor.invokeAll(callables);
+      int i = 0;
+      for (Future<List<List<AnalyzedToken>>> future : futures) {
+        for (List<AnalyzedToken> readings : future.get()) {
+          result.put(sortedWords.get(i++), readings);
+        }
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+    return result;
+  }
+
+  /**
+   * Whether {@link #tag(List)} analyzes each token independent of the other tokens of the
+   * sentence, by calling {@link #getAnalyzedTokens(String)}. Only then the analysis can be cached and
+   * shared between sentences in {@link #tagSentences(List, ExecutorService)}. By default, this is
+   * {@code false} for subclasses that override {@link #tag(List)}. Such subclasses can return {@code true}
+   * if their {@link #tag(List)} still only depends on each single token.
+   * @since 5.1
+   */
+  protected boolean isContextFree() {
+    return !overridesTag.get(getClass());
+  }
+
+  /**
+   * @return {@link #isContextFree()}, as only then the tokens of several sentences are tagged at once
+   * @since 5.1
+   */
+  @Override
+  public boolean supportsBatchTagging() {
+    return isContextFree();
+  }
+
+  private List<AnalyzedToken> getCachedAnalyzedTokens(String word) {
+    if (cache == null) {
+      return getAnalyzedTokens(word);
+    }
+    List<AnalyzedToken> cached = cache.getIfPresent(word);
+    if (cached == null) {
+      List<AnalyzedToken> readings = getAnalyzedTokens(word);
+      cache.put(word, copyOf(readings));
+      return readings;
+    }
+    return copyOf(cached);
+  }
+
+  private static List<AnalyzedToken> copyOf(List<AnalyzedToken> readings) {
+    List<AnalyzedToken> result = new ArrayList<>(readings.size());
+    for (AnalyzedToken reading : readings) {
+      result.add(new AnalyzedToken(reading.getToken(), reading.getPOSTag(), reading.getLemma()));
+    }
+    return result;
+  }
+
   protected List<AnalyzedToken> getAnalyzedTokens(String word) {
     List<AnalyzedToken> result = new ArrayList<>();
     String lowerWord = word.toLowerCase(locale);
@@ -19,8 +19,11 @@
 package org.languagetool.tagging;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import org.jetbrains.annotations.Nullable;
 import org.languagetool.AnalyzedToken;
 import org.languagetool.AnalyzedTokenReadings;
 
@@ -42,6 +45,33 @@ public interface Tagger {
    * @param sentenceTokens the text as returned by a WordTokenizer 
    */
   List<AnalyzedTokenReadings> tag(List<String> sentenceTokens) throws IOException;
+
+  /**
+   * Tag the tokens of several sentences, e.g. of a whole text. The default implementation
+   * calls {@link #tag(List)} for each sentence, implementations can override this to
+   * analyze each distinct token of the text only once.
+   *
+   * @param sentencesTokens the tokens of each sentence as returned by a WordTokenizer
+   * @param executor may be used to tag in parallel, can be {@code null}
+   * @return the readings of each sentence, in the order of {@code sentencesTokens}
+   * @since 5.1
+   */
+  default List<List<AnalyzedTokenReadings>> tagSentences(List<List<String>> sentencesTokens, @Nullable ExecutorService executor) throws IOException {
+    List<List<AnalyzedTokenReadings>> result = new ArrayList<>(sentencesTokens.size());
+    for (List<String> sentenceTokens : sentencesTokens) {
+      result.add(tag(sentenceTokens));
+    }
+    return result;
+  }
+
+  /**
+   * Whether {@link #tagSentences(List, ExecutorService)} does more than calling {@link #tag(List)}
+   * for each sentence. If not, callers can tag the sentences one by one in parallel instead.
+   * @since 5.1
+   */
+  default boolean supportsBatchTagging() {
+    return false;
+  }
   
   /** 
    * Create the AnalyzedToken used for whitespace and other non-words. Use <code>null</code>
@@ -18,6 +18,7 @@
  */
 package org.languagetool.tools;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import org.languagetool.DetectedLanguage;
@@ -29,9 +30,9 @@ import org.languagetool.rules.*;
 import org.languagetool.rules.patterns.AbstractPatternRule;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Write rule matches and some meta information as JSON.
@@ -47,6 +48,7 @@ public class RuleMatchesAsJsonSerializer {
   
   private final int compactMode;
   private final Language lang;
+  private final boolean ruleDictionary;
 
   public RuleMatchesAsJsonSerializer() {
     this(0, null);
@@ -63,8 +65,18 @@ public class RuleMatchesAsJsonSerializer {
    * @since 5.1
    */
   public RuleMatchesAsJsonSerializer(int compactMode, Language lang) {
+    this(compactMode, lang, false);
+  }
+
+  /**
+   * @param ruleDictionary if true, each rule is written only once to a {@code rules} list, and
+   *                       the {@code rule} of a match is its index in that list instead of an object
+   * @since 5.1
+   */
+  public RuleMatchesAsJsonSerializer(int compactMode, Language lang, boolean ruleDictionary) {
     this.compactMode = compactMode;
     this.lang = lang;
+    this.ruleDictionary = ruleDictionary;
   }
 
   public String ruleMatchesToJson(List<RuleMatch> matches, String text, int contextSize, DetectedLanguage detectedLang) {
@@ -88,23 +100,10 @@ public class RuleMatchesAsJsonSerializer {
    */
   public String ruleMatchesToJson(List<RuleMatch> matches, List<RuleMatch> hiddenMatches, AnnotatedText text, int contextSize,
                                   DetectedLanguage detectedLang, String incompleteResultsReason) {
-    ContextTools contextTools = new ContextTools();
-    contextTools.setEscapeHtml(false);
-    contextTools.setContextSize(contextSize);
-    contextTools.setErrorMarkerStart(START_MARKER);
-    contextTools.setErrorMarkerEnd("");
     StringWriter sw = new StringWriter();
     try {
       try (JsonGenerator g = factory.createGenerator(sw)) {
-        g.writeStartObject();
-        writeSoftwareSection(g);
-        writeWarningsSection(g, incompleteResultsReason);
-        writeLanguageSection(g, detectedLang);
-        writeMatchesSection("matches", g, matches, text, contextTools);
-        if (hiddenMatches != null && hiddenMatches.size() > 0) {
-          writeMatchesSection("hiddenMatches", g, hiddenMatches, text, contextTools);
-        }
-        g.writeEndObject();
+        writeJson(g, matches, hiddenMatches, text, contextSize, detectedLang, incompleteResultsReason);
       }
     } catch (IOException e) {
       throw new RuntimeException(e);
@@ -112,6 +111,48 @@ public class RuleMatchesAsJsonSerializer {
     return sw.toString();
   }
 
+  /**
+   * Like {@link #ruleMatchesToJson(List, List, AnnotatedText, int, DetectedLanguage, String)}, but writes
+   * the JSON as UTF-8 to {@code out} while it's being created, so large results don't need to be kept
+   * in memory as a string. {@code out} is flushed, but not closed.
+   * @since 5.1
+   */
+  public void ruleMatchesToJson(List<RuleMatch> matches, List<RuleMatch> hiddenMatches, AnnotatedText text, int contextSize,
+                                DetectedLanguage detectedLang, String incompleteResultsReason, OutputStream out) throws IOException {
+    try (JsonGenerator g = factory.createGenerator(out, JsonEncoding.UTF8)) {
+      g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      writeJson(g, matches, hiddenMatches, text, contextSize, detectedLang, incompleteResultsReason);
+    }
+  }
+
+  private void writeJson(JsonGenerator g, List<RuleMatch> matches, List<RuleMatch> hiddenMatches, AnnotatedText text, int contextSize,
+                         DetectedLanguage detectedLang, String incompleteResultsReason) throws IOException {
+    ContextTools contextTools = new ContextTools();
+    contextTools.setEscapeHtml(false);
+    contextTools.setContextSize(contextSize);
+    contextTools.setErrorMarkerStart(START_MARKER);
+    contextTools.setErrorMarkerEnd("");
+    g.writeStartObject();
+    writeSoftwareSection(g);
+    writeWarningsSection(g, incompleteResultsReason);
+    writeLanguageSection(g, detectedLang);
+    Map<List<Object>, Integer> ruleIndexes = null;
+    if (ruleDictionary) {
+      ruleIndexes = new HashMap<>();
+      g.writeArrayFieldStart("rules");
+      writeRules(g, matches, ruleIndexes);
+      if (hiddenMatches != null) {
+        writeRules(g, hiddenMatches, ruleIndexes);
+      }
+      g.writeEndArray();
+    }
+    writeMatchesSection("matches", g, matches, text, contextTools, ruleIndexes);
+    if (hiddenMatches != null && hiddenMatches.size() > 0) {
+      writeMatchesSection("hiddenMatches", g, hiddenMatches, text, contextTools, ruleIndexes);
+    }
+    g.writeEndObject();
+  }
+
   private void writeSoftwareSection(JsonGenerator g) throws IOException {
     if (compactMode == 1) {
       return;
@@ -161,7 +202,23 @@ public class RuleMatchesAsJsonSerializer {
     g.writeEndObject();
   }
 
-  private void writeMatchesSection(String sectionName, JsonGenerator g, List<RuleMatch> matches, AnnotatedText text, ContextTools contextTools) throws IOException {
+  private void writeRules(JsonGenerator g, List<RuleMatch> matches, Map<List<Object>, Integer> ruleIndexes) throws IOException {
+    for (RuleMatch match : matches) {
+      List<Object> key = getRuleKey(match);
+      if (!ruleIndexes.containsKey(key)) {
+        ruleIndexes.put(key, ruleIndexes.size());
+        writeRule(g, match);
+      }
+    }
+  }
+
+  // the rule object depends on the rule and the match's URL, which can overwrite the rule's URL:
+  private List<Object> getRuleKey(RuleMatch match) {
+    return Arrays.asList(match.getRule(), match.getUrl() != null ? match.getUrl().toString() : null);
+  }
+
+  private void writeMatchesSection(String sectionName, JsonGenerator g, List<RuleMatch> matches, AnnotatedText text, ContextTools contextTools,
+                                   Map<List<Object>, Integer> ruleIndexes) throws IOException {
     g.writeArrayFieldStart(sectionName);
     for (RuleMatch match : matches) {
       g.writeStartObject();
@@ -170,13 +227,21 @@ public class RuleMatchesAsJsonSerializer {
         g.writeStringField("shortMessage", cleanSuggestion(match.getShortMessage()));
       }
       writeReplacements(g, match);
+      if (match.hasIncompleteSuggestions()) {
+        g.writeBooleanField("incompleteSuggestions", true);
+      }
       g.writeNumberField("offset", match.getFromPos());
       g.writeNumberField("length", match.getToPos()-match.getFromPos());
       writeContext(g, match, text, contextTools);
       g.writeObjectFieldStart("type");
       g.writeStringField("typeName", match.getType().toString());
       g.writeEndObject();
-      writeRule(g, match);
+      if (ruleIndexes != null) {
+        g.writeNumberField("rule", ruleIndexes.get(getRuleKey(match)));
+      } else {
+        g.writeFieldName("rule");
+        writeRule(g, match);
+      }
       // 3 is a guess - key 'ignoreForIncompleteSentence' isn't official and can hopefully be removed in the future
       // now that we have 'contextForSureMatch':
       int contextEstimate = match.getRule().estimateContextForSureMatch();
@@ -244,7 +309,7 @@ public class RuleMatchesAsJsonSerializer {
   }
 
   private void writeRule(JsonGenerator g, RuleMatch match) throws IOException {
-    g.writeObjectFieldStart("rule");
+    g.writeStartObject();
     Rule rule = match.getRule();
     g.writeStringField("id", rule.getId());
     if (rule instanceof AbstractPatternRule) {
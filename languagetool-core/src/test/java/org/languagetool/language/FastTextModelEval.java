@@ -0,0 +1,102 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.language;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the predictions of {@link FastTextModel} with those of the fastText binary
+ * ({@code fasttext predict-prob}) for a file with one text per line, and their speed.
+ * Not a unit test, for interactive use only.
+ */
+final class FastTextModelEval {
+
+  private static final int K = 5;
+  private static final float MAX_PROBABILITY_DIFF = 0.001f;
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length != 3) {
+      System.out.println("Usage: " + FastTextModelEval.class.getSimpleName() + " <fasttextBinary> <model> <textFile>");
+      System.exit(1);
+    }
+    File model = new File(args[1]);
+    File textFile = new File(args[2]);
+    List<String> texts = Files.readAllLines(textFile.toPath(), StandardCharsets.UTF_8);
+
+    long startTime = System.currentTimeMillis();
+    Process process = new ProcessBuilder(args[0], "predict-prob", model.getPath(), textFile.getPath(), String.valueOf(K)).start();
+    List<String> expected = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        expected.add(line);
+      }
+    }
+    process.waitFor();
+    long binaryMillis = System.currentTimeMillis() - startTime;
+    if (expected.size() != texts.size()) {
+      throw new RuntimeException("Got " + expected.size() + " results from fasttext for " + texts.size() + " lines");
+    }
+
+    startTime = System.currentTimeMillis();
+    FastTextModel fastTextModel = new FastTextModel(model);
+    long loadMillis = System.currentTimeMillis() - startTime;
+    int[] labelIds = new int[K];
+    float[] probabilities = new float[K];
+    int sameTopLabel = 0;
+    int sameResult = 0;
+    startTime = System.currentTimeMillis();
+    for (int i = 0; i < texts.size(); i++) {
+      int count = fastTextModel.predict(texts.get(i), K, labelIds, probabilities);
+      String[] values = expected.get(i).isEmpty() ? new String[0] : expected.get(i).split(" ");
+      boolean same = values.length == count * 2;
+      for (int j = 0; j < count && same; j++) {
+        same = values[j * 2].equals(fastTextModel.getLabel(labelIds[j])) &&
+               Math.abs(Float.parseFloat(values[j * 2 + 1]) - probabilities[j]) <= MAX_PROBABILITY_DIFF;
+      }
+      if (count > 0 && values.length > 0 && values[0].equals(fastTextModel.getLabel(labelIds[0]))) {
+        sameTopLabel++;
+      }
+      if (same) {
+        sameResult++;
+      } else {
+        System.out.println("Different result for line " + (i + 1) + ": " + texts.get(i));
+        System.out.println("  fasttext: " + expected.get(i));
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < count; j++) {
+          sb.append(fastTextModel.getLabel(labelIds[j])).append(' ').append(probabilities[j]).append(' ');
+        }
+        System.out.println("  Java    : " + sb.toString().trim());
+      }
+    }
+    long javaMillis = System.currentTimeMillis() - startTime;
+    System.out.printf("%d texts: same top label: %d, same top %d (probabilities +/-%s): %d%n",
+      texts.size(), sameTopLabel, K, MAX_PROBABILITY_DIFF, sameResult);
+    System.out.printf("fasttext binary: %dms including model loading, Java: %dms model loading, %dms prediction%n",
+      binaryMillis, loadMillis, javaMillis);
+  }
+
+}
@@ -0,0 +1,134 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.language;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class FastTextModelTest {
+
+  private static final int LOSS_HS = 1;
+  private static final int LOSS_SOFTMAX = 3;
+  private static final int BUCKET = 10;
+  private static final String[] WORDS = {"</s>", "hello", "bonjour"};
+  private static final String[] LABELS = {"__label__en", "__label__fr"};
+
+  @Test
+  public void testSoftmax() throws IOException {
+    FastTextModel model = load(LOSS_SOFTMAX, 0);
+    // hidden vector: ("hello" (1, 0) + "</s>" (0, 0)) / 2 = (0.5, 0), outputs: en 1, fr 0
+    assertPrediction(model, "hello", "__label__en", 0.7311f, "__label__fr", 0.2689f);
+    assertPrediction(model, "bonjour", "__label__fr", 0.7311f, "__label__en", 0.2689f);
+    // unknown words and labels are ignored without character n-grams:
+    assertPrediction(model, "hello unknown __label__fr", "__label__en", 0.7311f, "__label__fr", 0.2689f);
+    // only "</s>" is left:
+    assertPrediction(model, "", "__label__en", 0.5f, "__label__fr", 0.5f);
+  }
+
+  @Test
+  public void testHierarchicalSoftmax() throws IOException {
+    FastTextModel model = load(LOSS_HS, 0);
+    // the tree has one inner node, its output is sigmoid(1) for "en" (the more frequent label):
+    assertPrediction(model, "hello", "__label__en", 0.7311f, "__label__fr", 0.2689f);
+    assertPrediction(model, "bonjour", "__label__fr", 0.7311f, "__label__en", 0.2689f);
+  }
+
+  @Test
+  public void testCharacterNgrams() throws IOException {
+    FastTextModel model = load(LOSS_SOFTMAX, 3);
+    // "<salut>" has 5 n-grams of length 3, all buckets have the vector (0, 1),
+    // so the hidden vector is (0, 5/6) and the outputs are en 0, fr 5/3:
+    assertPrediction(model, "salut", "__label__fr", 0.8411f, "__label__en", 0.1589f);
+  }
+
+  @Test
+  public void testTopK() throws IOException {
+    FastTextModel model = load(LOSS_SOFTMAX, 0);
+    int[] labelIds = new int[1];
+    float[] probabilities = new float[1];
+    assertThat(model.predict("bonjour", 1, labelIds, probabilities), is(1));
+    assertThat(model.getLabel(labelIds[0]), is("__label__fr"));
+  }
+
+  private void assertPrediction(FastTextModel model, String text, String label1, float prob1, String label2, float prob2) {
+    int[] labelIds = new int[5];
+    float[] probabilities = new float[5];
+    assertThat(model.predict(text, 5, labelIds, probabilities), is(2));
+    assertThat(model.getLabel(labelIds[0]), is(label1));
+    assertEquals(prob1, probabilities[0], 0.0001f);
+    assertThat(model.getLabel(labelIds[1]), is(label2));
+    assertEquals(prob2, probabilities[1], 0.0001f);
+  }
+
+  /**
+   * Writes and loads a tiny model in fastText's binary format, with 2 dimensions,
+   * "hello" at (1, 0), "bonjour" at (0, 1), and all character n-gram buckets at (0, 1).
+   */
+  private FastTextModel load(int loss, int maxn) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+    buf.putInt(793712314).putInt(12);
+    // dim, ws, epoch, minCount, neg, wordNgrams, loss, model, bucket, minn, maxn, lrUpdateRate, t:
+    buf.putInt(2).putInt(5).putInt(5).putInt(1).putInt(5).putInt(1).putInt(loss).putInt(3)
+      .putInt(BUCKET).putInt(maxn).putInt(maxn).putInt(100).putDouble(1e-4);
+    buf.putInt(WORDS.length + LABELS.length).putInt(WORDS.length).putInt(LABELS.length).putLong(100).putLong(-1);
+    for (String word : WORDS) {
+      buf.put(word.getBytes(StandardCharsets.UTF_8)).put((byte) 0).putLong(10).put((byte) 0);
+    }
+    long labelCount = 10;
+    for (String label : LABELS) {
+      buf.put(label.getBytes(StandardCharsets.UTF_8)).put((byte) 0).putLong(labelCount--).put((byte) 1);
+    }
+    buf.put((byte) 0);  // input not quantized
+    buf.putLong(WORDS.length + BUCKET).putLong(2);
+    buf.putFloat(0).putFloat(0);
+    buf.putFloat(1).putFloat(0);
+    buf.putFloat(0).putFloat(1);
+    for (int i = 0; i < BUCKET; i++) {
+      buf.putFloat(0).putFloat(1);
+    }
+    buf.put((byte) 0);  // output not quantized
+    if (loss == LOSS_HS) {
+      buf.putLong(1).putLong(2);  // one inner node, its right child is "en"
+      buf.putFloat(2).putFloat(-2);
+    } else {
+      buf.putLong(LABELS.length).putLong(2);
+      buf.putFloat(2).putFloat(0);
+      buf.putFloat(0).putFloat(2);
+    }
+    File file = File.createTempFile("fasttext", ".bin");
+    try {
+      Files.write(file.toPath(), Arrays.copyOf(buf.array(), buf.position()));
+      return new FastTextModel(file);
+    } finally {
+      file.delete();
+    }
+  }
+
+}
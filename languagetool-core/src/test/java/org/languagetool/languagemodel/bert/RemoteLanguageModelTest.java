@@ -0,0 +1,221 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.languagemodel.bert;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.languagetool.languagemodel.bert.grpc.BertLmGrpc;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.languagetool.languagemodel.bert.grpc.BertLmProto.*;
+
+/**
+ * Tests chunking, caching and context windows of {@link RemoteLanguageModel} against an
+ * in-process stub scorer.
+ */
+public class RemoteLanguageModelTest {
+
+  private final List<ScoreRequest> scoredRequests = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicInteger batches = new AtomicInteger();
+  private final List<Deadline> deadlines = Collections.synchronizedList(new ArrayList<>());
+  // text of requests the stub server only answers after a long delay:
+  private volatile String slowText = null;
+  // text of requests the stub server answers without a score for the last candidate:
+  private volatile String brokenText = null;
+  private Server server;
+  private ManagedChannel channel;
+  private RemoteLanguageModel model;
+
+  @Before
+  public void setUp() throws IOException {
+    String serverName = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(serverName).addService(new StubScorer()).build().start();
+    channel = InProcessChannelBuilder.forName(serverName).build();
+    model = new RemoteLanguageModel(channel);
+  }
+
+  @After
+  public void tearDown() {
+    model.shutdown();
+    server.shutdownNow();
+  }
+
+  @Test
+  public void testBatchesAreChunked() {
+    List<RemoteLanguageModel.Request> requests = new ArrayList<>();
+    for (int i = 0; i < RemoteLanguageModel.CHUNK_SIZE * 2 + 1; i++) {
+      requests.add(new RemoteLanguageModel.Request("This is test " + i + ".", 8, 12, Arrays.asList("a", "bb")));
+    }
+    List<List<Double>> scores = model.batchScore(requests, 5000);
+    assertEquals(3, batches.get());
+    assertEquals(requests.size(), scoredRequests.size());
+    assertEquals(requests.size(), scores.size());
+    for (List<Double> score : scores) {
+      assertEquals(Arrays.asList(1.0, 2.0), score);
+    }
+    // the timeout is also the deadline of the calls:
+    assertEquals(3, deadlines.size());
+    assertTrue(deadlines.stream().allMatch(deadline -> deadline != null && deadline.timeRemaining(TimeUnit.MILLISECONDS) <= 5000));
+  }
+
+  @Test
+  public void testCandidatesAreCachedIndividually() {
+    String text = "This is a tset.";
+    List<List<Double>> scores = model.batchScore(Collections.singletonList(
+      new RemoteLanguageModel.Request(text, 10, 14, Arrays.asList("test", "set"))));
+    assertEquals(Collections.singletonList(Arrays.asList(4.0, 3.0)), scores);
+    // reordered and overlapping candidates, only the new one is sent:
+    scores = model.batchScore(Collections.singletonList(
+      new RemoteLanguageModel.Request(text, 10, 14, Arrays.asList("set", "tests", "test"))));
+    assertEquals(Collections.singletonList(Arrays.asList(3.0, 5.0, 4.0)), scores);
+    assertEquals(2, scoredRequests.size());
+    assertEquals(Collections.singletonList("tests"), scoredRequests.get(1).getMask(0).getCandidatesList());
+    // nothing new:
+    model.batchScore(Collections.singletonList(
+      new RemoteLanguageModel.Request(text, 10, 14, Collections.singletonList("test"))));
+    assertEquals(2, scoredRequests.size());
+  }
+
+  @Test
+  public void testContextWindow() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      sb.append("word").append(i).append(' ');
+    }
+    int start = sb.length();
+    sb.append("tset");
+    int end = sb.length();
+    for (int i = 0; i < 100; i++) {
+      sb.append(' ').append("word").append(i);
+    }
+    sb.append('.');
+    String text = sb.toString();
+    model.batchScore(Collections.singletonList(
+      new RemoteLanguageModel.Request(text, start, end, Arrays.asList("test", "set"))));
+    ScoreRequest sent = scoredRequests.get(0);
+    assertTrue(sent.getText().length() <= end - start + 2 * RemoteLanguageModel.CONTEXT_CHARS);
+    assertTrue(text.contains(sent.getText()));
+    Mask mask = sent.getMask(0);
+    assertEquals("tset", sent.getText().substring(mask.getStart(), mask.getEnd()));
+    // no words are cut:
+    assertTrue(sent.getText().startsWith("word"));
+    assertTrue(text.contains(" " + sent.getText() + " "));
+
+    // texts that are shorter than the window are sent as they are:
+    RemoteLanguageModel.Request request = new RemoteLanguageModel.Request("A tset.", 2, 6, Arrays.asList("test", "set"));
+    assertEquals(request, request.getContextWindow(RemoteLanguageModel.CONTEXT_CHARS));
+  }
+
+  @Test
+  public void testPartialResults() {
+    slowText = "This is the slow test.";
+    List<RemoteLanguageModel.Request> requests = new ArrayList<>();
+    for (int i = 0; i < RemoteLanguageModel.CHUNK_SIZE; i++) {
+      requests.add(new RemoteLanguageModel.Request("This is test " + i + ".", 8, 12, Arrays.asList("a", "bb")));
+    }
+    requests.add(new RemoteLanguageModel.Request(slowText, 12, 16, Arrays.asList("a", "bb")));
+    long startTime = System.currentTimeMillis();
+    List<List<Double>> scores = model.batchScore(requests, 500);
+    assertTrue(System.currentTimeMillis() - startTime < 3000);
+    assertEquals(requests.size(), scores.size());
+    for (int i = 0; i < RemoteLanguageModel.CHUNK_SIZE; i++) {
+      assertEquals(Arrays.asList(1.0, 2.0), scores.get(i));
+    }
+    assertNull(scores.get(RemoteLanguageModel.CHUNK_SIZE));
+  }
+
+  @Test
+  public void testIncompleteResponseFailsItsChunk() {
+    brokenText = "This is the broken test.";
+    List<RemoteLanguageModel.Request> requests = new ArrayList<>();
+    for (int i = 0; i < RemoteLanguageModel.CHUNK_SIZE; i++) {
+      requests.add(new RemoteLanguageModel.Request("This is test " + i + ".", 8, 12, Arrays.asList("a", "bb")));
+    }
+    requests.add(new RemoteLanguageModel.Request(brokenText, 12, 18, Arrays.asList("a", "bb")));
+    List<List<Double>> scores = model.batchScore(requests, 5000);
+    assertEquals(requests.size(), scores.size());
+    for (int i = 0; i < RemoteLanguageModel.CHUNK_SIZE; i++) {
+      assertEquals(Arrays.asList(1.0, 2.0), scores.get(i));
+    }
+    assertNull(scores.get(RemoteLanguageModel.CHUNK_SIZE));
+    // nothing has been cached for the broken request:
+    requests = Collections.singletonList(new RemoteLanguageModel.Request(brokenText, 12, 18, Collections.singletonList("a")));
+    brokenText = null;
+    assertEquals(Collections.singletonList(Collections.singletonList(1.0)), model.batchScore(requests));
+    assertNull(deadlines.get(deadlines.size() - 1));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testFailsWithoutAnyResults() {
+    slowText = "This is the slow test.";
+    model.batchScore(Collections.singletonList(
+      new RemoteLanguageModel.Request(slowText, 12, 16, Arrays.asList("a", "bb"))), 100);
+  }
+
+  /**
+   * Scores each candidate with its length.
+   */
+  private class StubScorer extends BertLmGrpc.BertLmImplBase {
+    @Override
+    public void batchScore(BatchScoreRequest request, StreamObserver<BatchBertLmResponse> responseObserver) {
+      batches.incrementAndGet();
+      deadlines.add(Context.current().getDeadline());
+      scoredRequests.addAll(request.getRequestsList());
+      if (request.getRequestsList().stream().anyMatch(r -> r.getText().equals(slowText))) {
+        try {
+          Thread.sleep(5000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      BatchBertLmResponse.Builder response = BatchBertLmResponse.newBuilder();
+      for (ScoreRequest scoreRequest : request.getRequestsList()) {
+        BertLmResponse.Builder scores = BertLmResponse.newBuilder();
+        for (Mask mask : scoreRequest.getMaskList()) {
+          Prediction.Builder prediction = Prediction.newBuilder();
+          List<String> candidates = mask.getCandidatesList();
+          if (scoreRequest.getText().equals(brokenText)) {
+            candidates = candidates.subList(0, candidates.size() - 1);
+          }
+          for (String candidate : candidates) {
+            prediction.addScore(candidate.length());
+          }
+          scores.addScores(prediction);
+        }
+        response.addResponses(scores);
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+  }
+
+}
@@ -0,0 +1,122 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.rules;
+
+import org.junit.After;
+import org.junit.Test;
+import org.languagetool.AnalyzedSentence;
+import org.languagetool.JLanguageTool;
+import org.languagetool.TestTools;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests batching of {@link GRPCRule} requests against an in-process stub server.
+ */
+public class GRPCRuleBatcherTest {
+
+  private final JLanguageTool lt = new JLanguageTool(TestTools.getDemoLanguage());
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final InProcessMLServer server;
+
+  public GRPCRuleBatcherTest() throws IOException {
+    server = new InProcessMLServer();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    server.close();
+  }
+
+  @Test
+  public void testConcurrentChecksAreBatched() throws Exception {
+    GRPCRule rule = createRule("BATCHING_TEST_RULE", 100, 200, 5000);
+    int checks = 10;
+    List<Future<RemoteRuleResult>> results = new ArrayList<>();
+    List<AnalyzedSentence> sentences = new ArrayList<>();
+    for (int i = 0; i < checks; i++) {
+      AnalyzedSentence sentence = lt.getAnalyzedSentence("This is test number " + i + ".");
+      sentences.add(sentence);
+      FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(sentence));
+      executor.execute(task);
+      results.add(task);
+    }
+    for (int i = 0; i < checks; i++) {
+      RemoteRuleResult result = results.get(i).get(5, TimeUnit.SECONDS);
+      assertTrue(result.isSuccess());
+      assertEquals(1, result.getMatches().size());
+      RuleMatch match = result.getMatches().get(0);
+      // each check gets the results for its own sentence:
+      assertSame(sentences.get(i), match.getSentence());
+      assertEquals(Collections.singletonList(sentences.get(i).getText()), match.getSuggestedReplacements());
+    }
+    assertTrue("Expected fewer requests than checks: " + server.getRequestSizes(), server.getRequestSizes().size() < checks);
+    assertEquals(checks, server.getRequestSizes().stream().mapToInt(Integer::intValue).sum());
+  }
+
+  @Test
+  public void testFullBatchIsSentWithoutDelay() throws Exception {
+    GRPCRule rule = createRule("BATCHING_TEST_RULE_FULL", 2, 60_000, 5000);
+    FutureTask<RemoteRuleResult> task1 = rule.run(Collections.singletonList(lt.getAnalyzedSentence("First test.")));
+    FutureTask<RemoteRuleResult> task2 = rule.run(Collections.singletonList(lt.getAnalyzedSentence("Second test.")));
+    executor.execute(task1);
+    executor.execute(task2);
+    assertTrue(task1.get(5, TimeUnit.SECONDS).isSuccess());
+    assertTrue(task2.get(5, TimeUnit.SECONDS).isSuccess());
+    assertEquals(Collections.singletonList(2), server.getRequestSizes());
+  }
+
+  @Test
+  public void testTimeoutIsRespected() throws Exception {
+    GRPCRule rule = createRule("BATCHING_TEST_RULE_TIMEOUT", 100, 10, 100);
+    long serverDelayMillis = 1000;
+    server.setLatency(n -> serverDelayMillis);
+    FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A slow test.")));
+    long startTime = System.currentTimeMillis();
+    executor.execute(task);
+    RemoteRuleResult result = task.get(5, TimeUnit.SECONDS);
+    assertFalse(result.isSuccess());
+    assertTrue(result.getMatches().isEmpty());
+    assertTrue(System.currentTimeMillis() - startTime < serverDelayMillis);
+  }
+
+  @Test
+  public void testCallIsCancelledWhenAllChecksTimedOut() throws Exception {
+    GRPCRule rule = createRule("BATCHING_TEST_RULE_HANG", 100, 10, 100);
+    server.setHang(true);
+    FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A hanging test.")));
+    executor.execute(task);
+    assertFalse(task.get(5, TimeUnit.SECONDS).isSuccess());
+    // the server doesn't keep working on a batch nobody waits for:
+    assertTrue(server.getCancelledCalls().await(5, TimeUnit.SECONDS));
+  }
+
+  private GRPCRule createRule(String ruleId, int batchSize, long batchDelayMillis, long timeoutMillis) {
+    Map<String, String> options = new HashMap<>();
+    options.put("batchSize", String.valueOf(batchSize));
+    options.put("batchDelayMilliseconds", String.valueOf(batchDelayMillis));
+    return server.createRule(ruleId, timeoutMillis, options);
+  }
+
+}
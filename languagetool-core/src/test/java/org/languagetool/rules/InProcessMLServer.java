@@ -0,0 +1,135 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.rules;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.languagetool.AnalyzedSentence;
+import org.languagetool.JLanguageTool;
+import org.languagetool.rules.ml.MLServerGrpc;
+import org.languagetool.rules.ml.MLServerProto;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToLongFunction;
+
+/**
+ * An in-process ML server for testing {@link GRPCRule}s. Returns one match per sentence,
+ * with the sentence as its suggestion, after an injectable latency.
+ * Call {@link #close()} after each test to remove the rules' connections.
+ */
+class InProcessMLServer extends MLServerGrpc.MLServerImplBase implements AutoCloseable {
+
+  private final Server server;
+  private final ManagedChannel channel;
+  private final List<RemoteRuleConfig> configs = new ArrayList<>();
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final List<Integer> requestSizes = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch cancelledCalls = new CountDownLatch(1);
+
+  // the latency in milliseconds of the n-th request (starting with 0):
+  private volatile IntToLongFunction latency = n -> 0;
+  // never answer, until the call is cancelled:
+  private volatile boolean hang = false;
+
+  InProcessMLServer() throws IOException {
+    String serverName = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(serverName).addService(this).build().start();
+    channel = InProcessChannelBuilder.forName(serverName).build();
+  }
+
+  /**
+   * Create a rule that sends its requests to this server.
+   */
+  GRPCRule createRule(String ruleId, long timeoutMillis, Map<String, String> options) {
+    RemoteRuleConfig config = new RemoteRuleConfig(ruleId, "localhost", 50000,
+      0, timeoutMillis, 0.0f, 1, 0L, options);
+    GRPCRule.setChannel(config, channel);
+    configs.add(config);
+    return new GRPCRule(JLanguageTool.getMessageBundle(), config, false) {
+      @Override
+      protected String getMessage(MLServerProto.Match match, AnalyzedSentence sentence) {
+        return "Test message";
+      }
+      @Override
+      public String getDescription() {
+        return "Test rule";
+      }
+    };
+  }
+
+  void setLatency(IntToLongFunction latency) {
+    this.latency = latency;
+  }
+
+  void setHang(boolean hang) {
+    this.hang = hang;
+  }
+
+  int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * The number of sentences of each request.
+   */
+  List<Integer> getRequestSizes() {
+    return requestSizes;
+  }
+
+  CountDownLatch getCancelledCalls() {
+    return cancelledCalls;
+  }
+
+  @Override
+  public void match(MLServerProto.MatchRequest request, StreamObserver<MLServerProto.MatchResponse> responseObserver) {
+    requestSizes.add(request.getSentencesCount());
+    int n = requestCount.getAndIncrement();
+    if (hang) {
+      ((ServerCallStreamObserver<MLServerProto.MatchResponse>) responseObserver).setOnCancelHandler(cancelledCalls::countDown);
+      return;
+    }
+    try {
+      Thread.sleep(latency.applyAsLong(n));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    MLServerProto.MatchResponse.Builder response = MLServerProto.MatchResponse.newBuilder();
+    for (String sentence : request.getSentencesList()) {
+      response.addSentenceMatches(MLServerProto.MatchList.newBuilder().addMatches(
+        MLServerProto.Match.newBuilder().setOffset(0).setLength(1).setSubId("TEST").addSuggestions(sentence)));
+    }
+    responseObserver.onNext(response.build());
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void close() {
+    configs.forEach(GRPCRule::removeConnection);
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+}
@@ -0,0 +1,158 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.rules;
+
+import org.junit.After;
+import org.junit.Test;
+import org.languagetool.JLanguageTool;
+import org.languagetool.TestTools;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests bulkheads and hedging of {@link RemoteRule} against an in-process stub server
+ * with injected latencies.
+ */
+public class RemoteRuleTest {
+
+  private final JLanguageTool lt = new JLanguageTool(TestTools.getDemoLanguage());
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final InProcessMLServer server;
+
+  public RemoteRuleTest() throws IOException {
+    server = new InProcessMLServer();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    server.close();
+  }
+
+  @Test
+  public void testBulkheadRejectsRequestsWhenFull() throws Exception {
+    Map<String, String> options = new HashMap<>();
+    options.put("maxConcurrentRequests", "1");
+    GRPCRule rule = createRule("BULKHEAD_TEST_RULE", options);
+    server.setLatency(n -> n == 0 ? 1000 : 0);
+    FutureTask<RemoteRuleResult> slowTask = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A slow test.")));
+    executor.execute(slowTask);
+    while (server.getRequestCount() == 0) {
+      Thread.sleep(1);
+    }
+    // the only slot is taken, so this fails fast instead of waiting:
+    long startTime = System.currentTimeMillis();
+    FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A fast test.")));
+    task.run();
+    assertFalse(task.get().isRemote());
+    assertTrue(System.currentTimeMillis() - startTime < 500);
+    assertEquals(1, server.getRequestCount());
+    assertTrue(slowTask.get(5, TimeUnit.SECONDS).isSuccess());
+    // the slot is free again:
+    task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A fast test.")));
+    task.run();
+    assertTrue(task.get().isSuccess());
+  }
+
+  @Test
+  public void testBulkheadPermitIsReleasedOnTimeout() throws Exception {
+    Map<String, String> options = new HashMap<>();
+    options.put("maxConcurrentRequests", "1");
+    GRPCRule rule = createRule("BULKHEAD_TIMEOUT_TEST_RULE", options, 100);
+    server.setLatency(n -> n == 0 ? 3000 : 0);
+    FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A slow test.")));
+    task.run();
+    assertFalse(task.get().isSuccess());
+    // the request that timed out has been interrupted, so its slot is free again as soon as its thread
+    // has left the call, long before the server is done with it:
+    long startTime = System.currentTimeMillis();
+    task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A fast test.")));
+    task.run();
+    while (!task.get().isRemote() && System.currentTimeMillis() - startTime < 1000) {
+      Thread.sleep(10);
+      task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A fast test.")));
+      task.run();
+    }
+    assertTrue(task.get().isSuccess());
+  }
+
+  @Test
+  public void testLatencyWindow() {
+    RemoteRule.LatencyWindow window = new RemoteRule.LatencyWindow();
+    for (int i = 0; i < 19; i++) {
+      window.add(10);
+    }
+    assertEquals(-1, window.getPercentileMillis(0.95));
+    window.add(10);
+    assertEquals(10, window.getPercentileMillis(0.95));
+    for (int i = 0; i < 10; i++) {
+      window.add(1000);
+    }
+    assertEquals(1000, window.getPercentileMillis(0.95));
+  }
+
+  @Test
+  public void testHedging() throws Exception {
+    Map<String, String> options = new HashMap<>();
+    options.put("hedging", "true");
+    GRPCRule rule = createRule("HEDGING_TEST_RULE", options);
+    int warmUpRequests = 40;
+    // fast requests to learn the latency distribution, then a request that gets stuck:
+    server.setLatency(n -> n == warmUpRequests ? 3000 : 5);
+    for (int i = 0; i < warmUpRequests; i++) {
+      FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("Test " + i + ".")));
+      task.run();
+      assertTrue(task.get().isSuccess());
+    }
+    long startTime = System.currentTimeMillis();
+    FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A slow test.")));
+    task.run();
+    assertTrue(task.get().isSuccess());
+    // the duplicate request answered first:
+    assertTrue(System.currentTimeMillis() - startTime < 1000);
+    assertEquals(warmUpRequests + 2, server.getRequestCount());
+  }
+
+  @Test
+  public void testNoHedgingWithoutEnoughRequests() throws Exception {
+    Map<String, String> options = new HashMap<>();
+    options.put("hedging", "true");
+    GRPCRule rule = createRule("HEDGING_TEST_RULE_COLD", options);
+    server.setLatency(n -> 100);
+    FutureTask<RemoteRuleResult> task = rule.run(Collections.singletonList(lt.getAnalyzedSentence("A test.")));
+    task.run();
+    assertTrue(task.get().isSuccess());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  private GRPCRule createRule(String ruleId, Map<String, String> options) {
+    return createRule(ruleId, options, 5000);
+  }
+
+  private GRPCRule createRule(String ruleId, Map<String, String> options, long timeoutMillis) {
+    return server.createRule(ruleId, timeoutMillis, options);
+  }
+
+}
@@ -18,5 +18,88 @@
  */
 package org.languagetool.rules.spelling.morfologik;
 
+import org.junit.Test;
+import org.languagetool.FakeLanguage;
+import org.languagetool.JLanguageTool;
+import org.languagetool.TestTools;
+import org.languagetool.UserConfig;
+import org.languagetool.rules.RuleMatch;
+import org.languagetool.rules.SuggestedReplacement;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
 public class MorfologikSpellerRuleTest {
+
+  @Test
+  public void testSuggestionsMode() throws IOException {
+    JLanguageTool lt = new JLanguageTool(new FakeLanguage());
+
+    RuleMatch[] matches = getRule(UserConfig.SuggestionsMode.ALL).match(lt.getAnalyzedSentence("wordonex"));
+    assertEquals(1, matches.length);
+    assertFalse(matches[0].hasPendingSuggestions());
+    assertEquals("[wordone]", matches[0].getSuggestedReplacements().toString());
+
+    matches = getRule(UserConfig.SuggestionsMode.NONE).match(lt.getAnalyzedSentence("wordonex"));
+    assertEquals(1, matches.length);
+    assertFalse(matches[0].hasPendingSuggestions());
+    assertEquals("[]", matches[0].getSuggestedReplacements().toString());
+
+    matches = getRule(UserConfig.SuggestionsMode.DEFERRED).match(lt.getAnalyzedSentence("wordonex"));
+    assertEquals(1, matches.length);
+    assertTrue(matches[0].hasPendingSuggestions());
+    RuleMatch copy = new RuleMatch(matches[0]);
+    assertTrue(copy.hasPendingSuggestions());
+    assertEquals("[wordone]", copy.getSuggestedReplacements().toString());
+    assertFalse(copy.hasPendingSuggestions());
+    assertFalse(matches[0].hasPendingSuggestions());
+    assertEquals("[wordone]", matches[0].getSuggestedReplacements().toString());
+
+    matches = getRule(UserConfig.SuggestionsMode.DEFERRED).match(lt.getAnalyzedSentence("wordonex"));
+    matches[0].setSuggestedReplacements(Collections.emptyList());  // replaces the pending suggestions
+    assertFalse(matches[0].hasPendingSuggestions());
+    assertEquals("[]", matches[0].getSuggestedReplacements().toString());
+  }
+
+  @Test
+  public void testMaxSuggestionsPerMatch() throws IOException {
+    JLanguageTool lt = new JLanguageTool(new FakeLanguage());
+    RuleMatch[] matches = getRule(UserConfig.SuggestionsMode.ALL, 0, true).match(lt.getAnalyzedSentence("wordonex"));
+    assertEquals("[wordone, wordtwo]", matches[0].getSuggestedReplacements().toString());
+    matches = getRule(UserConfig.SuggestionsMode.ALL, 1, true).match(lt.getAnalyzedSentence("wordonex"));
+    assertEquals("[wordone]", matches[0].getSuggestedReplacements().toString());
+    matches = getRule(UserConfig.SuggestionsMode.DEFERRED, 1, true).match(lt.getAnalyzedSentence("wordonex"));
+    assertEquals("[wordone]", matches[0].getSuggestedReplacements().toString());
+  }
+
+  private MorfologikSpellerRule getRule(UserConfig.SuggestionsMode suggestionsMode) throws IOException {
+    return getRule(suggestionsMode, 0, false);
+  }
+
+  /**
+   * @param withAdditionalSuggestion whether to suggest "wordtwo" in addition to the speller's suggestions
+   */
+  private MorfologikSpellerRule getRule(UserConfig.SuggestionsMode suggestionsMode, int maxSuggestionsPerMatch,
+                                        boolean withAdditionalSuggestion) throws IOException {
+    UserConfig userConfig = new UserConfig(Collections.emptyList(), Collections.emptyMap(), 0, null, null, false,
+      null, null, suggestionsMode, maxSuggestionsPerMatch);
+    return new MorfologikSpellerRule(TestTools.getEnglishMessages(), new FakeLanguage(), userConfig) {
+      @Override
+      public String getFileName() {
+        return "/xx/spelling/test.dict";
+      }
+      @Override
+      public String getId() {
+        return "MORFOLOGIK_TEST_SPELLER_RULE";
+      }
+      @Override
+      protected List<SuggestedReplacement> getAdditionalSuggestions(List<SuggestedReplacement> suggestions, String word) {
+        return withAdditionalSuggestion && suggestions.stream().noneMatch(s -> s.getReplacement().equals("wordtwo"))
+          ? SuggestedReplacement.convert(Collections.singletonList("wordtwo")) : Collections.emptyList();
+      }
+    };
+  }
 }
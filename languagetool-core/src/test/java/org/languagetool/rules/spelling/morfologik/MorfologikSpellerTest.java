@@ -21,6 +21,7 @@ package org.languagetool.rules.spelling.morfologik;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
@@ -59,4 +60,19 @@ public class MorfologikSpellerTest {
 
     assertThat(spellerDist2.getSuggestions("wordoxix").toString(), is("[]"));
   }
+
+  @Test
+  public void testCachedResults() throws IOException {
+    MorfologikSpeller speller1 = new MorfologikSpeller("/xx/spelling/test.dict", 2);
+    MorfologikSpeller speller2 = new MorfologikSpeller("/xx/spelling/test.dict", 2);
+    assertTrue(speller1.isMisspelled("wordonix"));
+    assertTrue(speller2.isMisspelled("wordonix"));
+    assertFalse(speller2.isMisspelled("wordone"));
+    List<WeightedSuggestion> suggestions = speller1.getSuggestions("wordonix");
+    assertThat(suggestions.toString(), is("[wordone/77]"));
+    suggestions.clear();  // must not modify the cached result
+    assertThat(speller1.getSuggestions("wordonix").toString(), is("[wordone/77]"));
+    assertThat(speller2.getSuggestions("wordonix").toString(), is("[wordone/77]"));
+    assertThat(new MorfologikSpeller("/xx/spelling/test.dict", 1).getSuggestions("wordonix").toString(), is("[]"));
+  }
 }
@@ -23,12 +23,16 @@ import org.languagetool.AnalyzedSentence;
 import org.languagetool.DetectedLanguage;
 import org.languagetool.JLanguageTool;
 import org.languagetool.Languages;
+import org.languagetool.markup.AnnotatedText;
+import org.languagetool.markup.AnnotatedTextBuilder;
 import org.languagetool.rules.ITSIssueType;
 import org.languagetool.rules.Rule;
 import org.languagetool.rules.RuleMatch;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -88,6 +92,28 @@ public class RuleMatchesAsJsonSerializerTest {
     assertContains("\"tags\":[\"myTag\"]", json);
   }
 
+  @Test
+  public void testJsonToStream() throws IOException {
+    DetectedLanguage lang = new DetectedLanguage(Languages.getLanguageForShortCode("xx-XX"), Languages.getLanguageForShortCode("xx-XX")) ;
+    AnnotatedText text = new AnnotatedTextBuilder().addText("This is an text.").build();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.ruleMatchesToJson(matches, Collections.emptyList(), text, 5, lang, "timeout", out);
+    assertEquals(serializer.ruleMatchesToJson(matches, Collections.emptyList(), text, 5, lang, "timeout"), out.toString("UTF-8"));
+  }
+
+  @Test
+  public void testJsonWithRuleDictionary() {
+    DetectedLanguage lang = new DetectedLanguage(Languages.getLanguageForShortCode("xx-XX"), Languages.getLanguageForShortCode("xx-XX")) ;
+    RuleMatchesAsJsonSerializer serializer = new RuleMatchesAsJsonSerializer(0, null, true);
+    List<RuleMatch> twoMatches = Arrays.asList(matches.get(0), new RuleMatch(matches.get(0)), matches2.get(0));
+    String json = serializer.ruleMatchesToJson(twoMatches, Collections.emptyList(), "This is an text.", 5, lang, null);
+    assertEquals(2, json.split("\"FAKE_ID\"", -1).length - 1);  // two matches share a rule object
+    assertContains("\"rule\":0,", json);
+    assertContains("\"rule\":1,", json);
+    assertNotContains("\"rule\":2,", json);
+    assertNotContains("\"rule\":{", json);
+  }
+
   private void assertContains(String expectedSubstring, String json) {
     assertTrue("Did not find expected string '" + expectedSubstring + "' in JSON:\n" + json, json.contains(expectedSubstring));
   }
@@ -96,6 +122,16 @@ public class RuleMatchesAsJsonSerializerTest {
     assertFalse("Found unexpected string '" + unexpectedSubstring + "' in JSON:\n" + json, json.contains(unexpectedSubstring));
   }
 
+  @Test
+  public void testJsonWithIncompleteSuggestions() {
+    DetectedLanguage lang = new DetectedLanguage(Languages.getLanguageForShortCode("xx-XX"), Languages.getLanguageForShortCode("xx-XX")) ;
+    assertNotContains("incompleteSuggestions", serializer.ruleMatchesToJson(matches, "This is an text.", 5, lang));
+    RuleMatch match = new RuleMatch(matches.get(0));
+    match.setIncompleteSuggestions(true);
+    String json = serializer.ruleMatchesToJson(Arrays.asList(match), "This is an text.", 5, lang);
+    assertContains("\"incompleteSuggestions\":true", json);
+  }
+
   @Test
   public void testJsonWithUnixLinebreak() {
     DetectedLanguage lang = new DetectedLanguage(Languages.getLanguageForShortCode("xx-XX"), Languages.getLanguageForShortCode("xx-XX")) ;
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Check a text using a <a href="http://wiki.languagetool.org/http-server">remote LanguageTool server</a> via HTTP or HTTPS.
@@ -41,6 +42,7 @@ import java.util.Objects;
 public class RemoteLanguageTool {
 
   private static final String V2_CHECK = "/v2/check";
+  private static final String V2_CHECK_BATCH = "/v2/check/batch";
   private static final String V2_MAXTEXTLENGTH = "/v2/maxtextlength";
   private static final String V2_CONFIGINFO = "/v2/configinfo";
   
@@ -73,9 +75,65 @@ public class RemoteLanguageTool {
     return check(getUrlParams(text, config));
   }
 
+  /**
+   * Check several texts with the same configuration in one request, which is much faster
+   * than checking them one by one if the texts are short. The server limits the number of
+   * texts per request and their total length.
+   * @param texts the texts to be checked
+   * @return the results, in the same order as the texts
+   * @since 5.1
+   */
+  public List<RemoteResult> checkBatch(List<String> texts, CheckConfiguration config) {
+    String textsJson;
+    try {
+      textsJson = mapper.writeValueAsString(texts);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    StringBuilder params = new StringBuilder();
+    append(params, "texts", textsJson);
+    appendConfig(params, config);
+    byte[] postData = params.toString().getBytes(StandardCharsets.UTF_8);
+    URL checkUrl;
+    try {
+      checkUrl = new URL(serverBaseUrl + V2_CHECK_BATCH);
+    } catch (MalformedURLException e) {
+      throw new RuntimeException(e);
+    }
+    HttpURLConnection conn = getConnection(postData, checkUrl);
+    try {
+      if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
+        try (InputStream inputStream = getInputStream(conn)) {
+          List<Map> results = mapper.readValue(inputStream, List.class);
+          List<RemoteResult> remoteResults = new ArrayList<>();
+          for (Map result : results) {
+            remoteResults.add(getResult(result));
+          }
+          return remoteResults;
+        }
+      } else {
+        try (InputStream inputStream = conn.getErrorStream()) {
+          String error = readStream(inputStream, "utf-8");
+          throw new RuntimeException("Got error: " + error + " - HTTP response code " + conn.getResponseCode());
+        }
+      }
+    } catch (ConnectException e) {
+      throw new RuntimeException("Could not connect to server at " + serverBaseUrl, e);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    } finally {
+      conn.disconnect();
+    }
+  }
+
   private String getUrlParams(String text, CheckConfiguration config) {
     StringBuilder params = new StringBuilder();
     append(params, "text", text);
+    appendConfig(params, config);
+    return params.toString();
+  }
+
+  private void appendConfig(StringBuilder params, CheckConfiguration config) {
     if (config.getMotherTongueLangCode() != null) {
       append(params, "motherTongue", config.getMotherTongueLangCode());
     }
@@ -100,7 +158,6 @@ public class RemoteLanguageTool {
       append(params, "ruleValues", String.join(",", config.getRuleValues()));
     }
     append(params, "useragent", "java-http-client");
-    return params.toString();
   }
 
   private void append(StringBuilder params, String paramName, String paramValue) {
@@ -129,7 +186,7 @@ public class RemoteLanguageTool {
     HttpURLConnection conn = getConnection(postData, checkUrl);
     try {
       if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-        try (InputStream inputStream = conn.getInputStream()) {
+        try (InputStream inputStream = getInputStream(conn)) {
           return parseJson(inputStream);
         }
       } else {
@@ -161,7 +218,7 @@ public class RemoteLanguageTool {
     HttpURLConnection conn = getConnection(postData, checkUrl);
     try {
       if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-        try (InputStream inputStream = conn.getInputStream()) {
+        try (InputStream inputStream = getInputStream(conn)) {
           RemoteConfigurationInfo configInfo = new RemoteConfigurationInfo(mapper, inputStream);
           return configInfo;
         }
@@ -191,7 +248,7 @@ public class RemoteLanguageTool {
     HttpURLConnection conn = getConnection(postData, checkUrl);
     try {
       if (conn.getResponseCode() == HttpURLConnection.HTTP_OK) {
-        try (InputStream inputStream = conn.getInputStream()) {
+        try (InputStream inputStream = getInputStream(conn)) {
           StringBuilder sb = new StringBuilder();
           try (InputStreamReader isr = new InputStreamReader(inputStream, "utf-8");
                BufferedReader br = new BufferedReader(isr)) {
@@ -223,6 +280,9 @@ public class RemoteLanguageTool {
       conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
       conn.setRequestProperty("charset", "utf-8");
       conn.setRequestProperty("Content-Length", Integer.toString(postData.length));
+      // the compact format has each rule only once, not once per match:
+      conn.setRequestProperty("Accept", "application/vnd.languagetool.compact+json, application/json");
+      conn.setRequestProperty("Accept-Encoding", "gzip");
       try (DataOutputStream wr = new DataOutputStream(conn.getOutputStream())) {
         wr.write(postData);
       }
@@ -232,6 +292,13 @@ public class RemoteLanguageTool {
     }
   }
 
+  private InputStream getInputStream(HttpURLConnection conn) throws IOException {
+    if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+      return new GZIPInputStream(conn.getInputStream());
+    }
+    return conn.getInputStream();
+  }
+
   private String readStream(InputStream stream, String encoding) throws IOException {
     StringBuilder sb = new StringBuilder();
     try (InputStreamReader isr = new InputStreamReader(stream, encoding);
@@ -246,6 +313,10 @@ public class RemoteLanguageTool {
 
   private RemoteResult parseJson(InputStream inputStream) throws XMLStreamException, IOException {
     Map map = mapper.readValue(inputStream, Map.class);
+    return getResult(map);
+  }
+
+  private RemoteResult getResult(Map map) {
     Map<String, String> languageObj = (Map<String, String>) map.get("language");
     String language = languageObj.get("name");
     String languageCode = languageObj.get("code");
@@ -258,9 +329,15 @@ public class RemoteLanguageTool {
     Map<String, String> software = (Map<String, String>) map.get("software");
     RemoteServer remoteServer = new RemoteServer(software.get("name"), software.get("version"), software.get("buildDate"));
     List matches = (ArrayList) map.get("matches");
+    List rules = (List) map.get("rules");
     List<RemoteRuleMatch> result = new ArrayList<>();
     for (Object match : matches) {
-      RemoteRuleMatch remoteMatch = getMatch((Map<String, Object>)match);
+      Map<String, Object> matchMap = (Map<String, Object>) match;
+      if (rules != null && matchMap.get("rule") instanceof Integer) {
+        // compact format: the match only refers to its rule in the "rules" list
+        matchMap.put("rule", rules.get((Integer) matchMap.get("rule")));
+      }
+      RemoteRuleMatch remoteMatch = getMatch(matchMap);
       result.add(remoteMatch);
     }
     return new RemoteResult(language, languageCode, languageDetectedCode, languageDetectedName, result, remoteServer);
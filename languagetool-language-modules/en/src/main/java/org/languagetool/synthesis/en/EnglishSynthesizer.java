@@ -24,10 +24,7 @@ import org.languagetool.synthesis.BaseSynthesizer;
 import org.languagetool.tools.StringTools;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
 
 /**
  * English word form synthesizer.
@@ -91,26 +88,9 @@ public class EnglishSynthesizer extends BaseSynthesizer {
       boolean posTagRegExp) throws IOException {
 
     if (posTag != null && posTagRegExp) {
-      String myPosTag = posTag;
-      String det = "";
-      if (posTag.endsWith(ADD_IND_DETERMINER)) {
-        myPosTag = myPosTag.substring(0, myPosTag.indexOf(ADD_IND_DETERMINER) - "\\".length());
-        det = aVsAnRule.suggestAorAn(token.getLemma());
-        det = det.substring(0, det.indexOf(' ') + " ".length());
-      } else if (posTag.endsWith(ADD_DETERMINER)) {
-        myPosTag = myPosTag.substring(0, myPosTag.indexOf(ADD_DETERMINER) - "\\".length());
-        det = "the ";
-      }
-
-      initPossibleTags();
-      Pattern p = Pattern.compile(myPosTag);
       List<String> results = new ArrayList<>();
-
-      for (String tag : possibleTags) {
-        Matcher m = p.matcher(tag);
-        if (m.matches() && token.getLemma() != null) {
-          lookup(token.getLemma(), tag, results, det);
-        }
+      if (token.getLemma() != null) {
+        synthesizeRegExp(token.getLemma(), posTag, results);
       }
       return results.toArray(new String[0]);
     }
@@ -118,6 +98,44 @@ public class EnglishSynthesizer extends BaseSynthesizer {
     return synthesize(token, posTag);
   }
 
+  /**
+   * Like the single token variant, but looks up the forms of each lemma only once.
+   * @since 5.1
+   */
+  @Override
+  public String[] synthesize(List<AnalyzedToken> tokens, String posTag, boolean posTagRegExp) throws IOException {
+    if (posTag == null || !posTagRegExp) {
+      return super.synthesize(tokens, posTag, posTagRegExp);
+    }
+    Set<String> lemmas = new LinkedHashSet<>();
+    for (AnalyzedToken token : tokens) {
+      if (token.getLemma() != null) {
+        lemmas.add(token.getLemma());
+      }
+    }
+    List<String> results = new ArrayList<>();
+    for (String lemma : lemmas) {
+      synthesizeRegExp(lemma, posTag, results);
+    }
+    return new TreeSet<>(results).toArray(new String[0]);
+  }
+
+  private void synthesizeRegExp(String lemma, String posTag, List<String> results) throws IOException {
+    String myPosTag = posTag;
+    String det = "";
+    if (posTag.endsWith(ADD_IND_DETERMINER)) {
+      myPosTag = myPosTag.substring(0, myPosTag.indexOf(ADD_IND_DETERMINER) - "\\".length());
+      det = aVsAnRule.suggestAorAn(lemma);
+      det = det.substring(0, det.indexOf(' ') + " ".length());
+    } else if (posTag.endsWith(ADD_DETERMINER)) {
+      myPosTag = myPosTag.substring(0, myPosTag.indexOf(ADD_DETERMINER) - "\\".length());
+      det = "the ";
+    }
+    for (String tag : getMatchingTags(myPosTag)) {
+      lookup(lemma, tag, results, det);
+    }
+  }
+
   private void lookup(String lemma, String posTag, List<String> results, String determiner) {
     List<String> lookup = super.lookup(lemma, posTag);
     for (String result : lookup) {
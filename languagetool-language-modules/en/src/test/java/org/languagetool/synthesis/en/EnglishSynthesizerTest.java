@@ -25,6 +25,7 @@ import org.languagetool.language.English;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
 
@@ -66,4 +67,21 @@ public class EnglishSynthesizerTest {
     assertEquals("[]", Arrays.toString(synth.synthesize(dummyToken("Christmas"), "VBZ", false)));
   }
 
+  @Test
+  public void testSynthesizeReadings() throws IOException {
+    EnglishSynthesizer synth = new EnglishSynthesizer(new English());
+    assertEquals("[]", Arrays.toString(synth.synthesize(Collections.emptyList(), "VBD", true)));
+    assertEquals("[tested, testing]", Arrays.toString(synth.synthesize(
+      Arrays.asList(dummyToken("test"), dummyToken("test")), "VBD|VBG", true)));
+    assertEquals("[tested, was, were]", Arrays.toString(synth.synthesize(
+      Arrays.asList(dummyToken("test"), dummyToken("be")), "VBD", true)));
+    // same results again, now from the caches:
+    assertEquals("[tested, was, were]", Arrays.toString(synth.synthesize(
+      Arrays.asList(dummyToken("be"), dummyToken("test")), "VBD", true)));
+    assertEquals("[tested]", Arrays.toString(synth.synthesize(dummyToken("test"), "VBD", true)));
+    // the article depends on each lemma:
+    assertEquals("[a hexagon, an hour]", Arrays.toString(synth.synthesize(
+      Arrays.asList(dummyToken("hours", "hour"), dummyToken("hexagon")), "NN\\+INDT", true)));
+  }
+
 }
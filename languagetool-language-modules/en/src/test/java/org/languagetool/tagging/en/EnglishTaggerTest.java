@@ -27,9 +27,13 @@ import org.languagetool.tokenizers.WordTokenizer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class EnglishTaggerTest {
 
@@ -84,4 +88,63 @@ public class EnglishTaggerTest {
     assertEquals("work", aToken.get(1).getReadings().get(1).getLemma());
   }
 
+  @Test
+  public void testCache() throws IOException {
+    EnglishTagger tagger = new EnglishTagger();
+    List<AnalyzedTokenReadings> first = tagger.tag(Arrays.asList("house", " ", "house"));
+    assertEquals(1, tagger.getCache().stats().hitCount());
+    assertEquals(0, first.get(0).getStartPos());
+    assertEquals(6, first.get(2).getStartPos());
+    assertEquals(first.get(0).getReadings(), first.get(2).getReadings());
+    // readings are copied from the cache, so changing one token must not affect the others:
+    assertNotSame(first.get(0).getReadings().get(0), first.get(2).getReadings().get(0));
+    first.get(0).getReadings().get(0).setWhitespaceBefore(true);
+    List<AnalyzedTokenReadings> second = tagger.tag(Collections.singletonList("house"));
+    assertFalse(second.get(0).getReadings().get(0).isWhitespaceBefore());
+    assertEquals(3, second.get(0).getReadings().size());
+  }
+
+  @Test
+  public void testTagSentences() throws IOException {
+    // enough distinct words to be analyzed in several chunks in parallel:
+    StringBuilder longSentence = new StringBuilder("The house");
+    for (int i = 0; i < 2500; i++) {
+      longSentence.append(" house").append(i);
+    }
+    List<List<String>> sentences = Arrays.asList(
+      tokenizer.tokenize("This is a big house."),
+      tokenizer.tokenize("The house is big."),
+      tokenizer.tokenize(longSentence.append('.').toString()));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (ExecutorService exec : Arrays.asList(null, executor)) {
+        List<List<AnalyzedTokenReadings>> result = new EnglishTagger().tagSentences(sentences, exec);
+        assertEquals(3, result.size());
+        for (int i = 0; i < sentences.size(); i++) {
+          List<AnalyzedTokenReadings> expected = tagger.tag(sentences.get(i));
+          assertEquals(expected.size(), result.get(i).size());
+          for (int j = 0; j < expected.size(); j++) {
+            assertEquals(expected.get(j).getStartPos(), result.get(i).get(j).getStartPos());
+            assertEquals(expected.get(j).getReadings(), result.get(i).get(j).getReadings());
+          }
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSupportsBatchTagging() {
+    assertTrue(tagger.supportsBatchTagging());
+    // a tagger that overrides tag() might use the context of a token:
+    EnglishTagger contextTagger = new EnglishTagger() {
+      @Override
+      public List<AnalyzedTokenReadings> tag(List<String> sentenceTokens) throws IOException {
+        return super.tag(sentenceTokens);
+      }
+    };
+    assertFalse(contextTagger.supportsBatchTagging());
+  }
+
 }
@@ -19,25 +19,15 @@
 package org.languagetool.synthesis.pl;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
-import morfologik.stemming.DictionaryLookup;
-import morfologik.stemming.IStemmer;
-import morfologik.stemming.WordData;
-
 import org.languagetool.AnalyzedToken;
-import org.languagetool.JLanguageTool;
 import org.languagetool.Language;
 import org.languagetool.synthesis.BaseSynthesizer;
 import org.languagetool.synthesis.Synthesizer;
-import org.languagetool.synthesis.SynthesizerTools;
 
 /**
  * Polish word form synthesizer. Based on project Morfologik.
@@ -55,8 +45,6 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
   private static final String COMP_TAG = "com";
   private static final String SUP_TAG = "sup";
 
-  private List<String> possibleTags;
-
   public PolishSynthesizer(Language lang) {
     super(RESOURCE_FILENAME, TAGS_FILE_NAME, lang);
   }
@@ -66,7 +54,6 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
     if (posTag == null) {
       return null;
     }
-    IStemmer synthesizer = new DictionaryLookup(getDictionary());
     boolean isNegated = false;
     if (token.getPOSTag() != null) {
       isNegated = posTag.indexOf(NEGATION_TAG) > 0
@@ -76,7 +63,7 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
     if (posTag.indexOf('+') > 0) {
       return synthesize(token, posTag, true);
     }
-    List<String> forms = getWordForms(token, posTag, isNegated, synthesizer);
+    List<String> forms = getWordForms(token, posTag, isNegated);
     return forms.toArray(new String[0]);
   }
 
@@ -87,12 +74,6 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
     }
     String posTag = pos;
     if (posTagRegExp) {
-      if (possibleTags == null) {
-        try (InputStream stream = JLanguageTool.getDataBroker().getFromResourceDirAsStream(TAGS_FILE_NAME)) {
-          possibleTags = SynthesizerTools.loadWords(stream);
-        }
-      }
-      IStemmer synthesizer = new DictionaryLookup(getDictionary());
       List<String> results = new ArrayList<>();
 
       boolean isNegated = false;
@@ -108,15 +89,8 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
       }
 
       try {
-        Pattern p = Pattern.compile(posTag.replace('+', '|'));
-        for (String tag : possibleTags) {
-          Matcher m = p.matcher(tag);
-          if (m.matches()) {
-            List<String> wordForms = getWordForms(token, tag, isNegated, synthesizer);
-            if (wordForms != null) {
-              results.addAll(wordForms);
-            }
-          }
+        for (String tag : getMatchingTags(posTag.replace('+', '|'))) {
+          results.addAll(getWordForms(token, tag, isNegated));
         }
       } catch (PatternSyntaxException e) {
         // catch this rare error which I couldn't fix yet (https://github.com/languagetool-org/languagetool/issues/1651):
@@ -126,11 +100,7 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
         e.printStackTrace();
       }
       //remove duplicates
-      Set<String> hs = new HashSet<>(results);
-      results.clear();
-      results.addAll(hs);     
-      
-      return results.toArray(new String[0]);
+      return new LinkedHashSet<>(results).toArray(new String[0]);
     }
     return synthesize(token, posTag);
   }
@@ -160,27 +130,15 @@ public class PolishSynthesizer extends BaseSynthesizer implements Synthesizer {
     return posTag;
   }
 
-  private List<String> getWordForms(AnalyzedToken token, String posTag,
-      boolean isNegated, IStemmer synthesizer) {
-    List<String> forms = new ArrayList<>();
-    List<WordData> wordForms;
+  private List<String> getWordForms(AnalyzedToken token, String posTag, boolean isNegated) {
     if (isNegated) {
-      wordForms = synthesizer.lookup(token.getLemma() + "|"
-          + posTag.replaceFirst(NEGATION_TAG, POTENTIAL_NEGATION_TAG));
-      if (wordForms != null) {                      
-        for (WordData wd : wordForms) {
-          forms.add("nie" + wd.getStem());
-        }
+      List<String> forms = new ArrayList<>();
+      for (String form : lookup(token.getLemma(), posTag.replaceFirst(NEGATION_TAG, POTENTIAL_NEGATION_TAG))) {
+        forms.add("nie" + form);
       }
-    } else {
-      wordForms = synthesizer.lookup(token.getLemma() + "|" + posTag);
-      for (WordData wd : wordForms) {
-        if (wd.getStem() != null) {
-          forms.add(wd.getStem().toString());
-        }
-      }      
+      return forms;
     }
-    return forms;
+    return lookup(token.getLemma(), posTag);
   }
 
 }
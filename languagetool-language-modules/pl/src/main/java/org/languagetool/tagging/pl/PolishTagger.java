@@ -19,7 +19,6 @@
 package org.languagetool.tagging.pl;
 
 import org.languagetool.AnalyzedToken;
-import org.languagetool.AnalyzedTokenReadings;
 import org.languagetool.tagging.BaseTagger;
 import org.languagetool.tools.StringTools;
 
@@ -36,47 +35,36 @@ public class PolishTagger extends BaseTagger {
   }
 
   @Override
-  public final List<AnalyzedTokenReadings> tag(List<String> sentenceTokens) {
-    List<AnalyzedToken> taggerTokens;
-    List<AnalyzedToken> lowerTaggerTokens;
-    List<AnalyzedToken> upperTaggerTokens;    
-    List<AnalyzedTokenReadings> tokenReadings = new ArrayList<>();
-    int pos = 0;
+  protected List<AnalyzedToken> getAnalyzedTokens(String word) {
+    List<AnalyzedToken> l = new ArrayList<>();
+    String lowerWord = word.toLowerCase(locale);
+    List<AnalyzedToken> taggerTokens = asAnalyzedTokenListForTaggedWords(word, getWordTagger().tag(word));
+    List<AnalyzedToken> lowerTaggerTokens = asAnalyzedTokenListForTaggedWords(word, getWordTagger().tag(lowerWord));
+    boolean isLowercase = word.equals(lowerWord);
 
-    for (String word : sentenceTokens) {
-      List<AnalyzedToken> l = new ArrayList<>();
-      String lowerWord = word.toLowerCase(locale);
-      taggerTokens = asAnalyzedTokenListForTaggedWords(word, getWordTagger().tag(word));
-      lowerTaggerTokens = asAnalyzedTokenListForTaggedWords(word, getWordTagger().tag(lowerWord));
-      boolean isLowercase = word.equals(lowerWord);
+    //normal case
+    addTokens(taggerTokens, l);
 
-      //normal case
-      addTokens(taggerTokens, l);
-
-      if (!isLowercase) {
-        //lowercase
-        addTokens(lowerTaggerTokens, l);
-      }
+    if (!isLowercase) {
+      //lowercase
+      addTokens(lowerTaggerTokens, l);
+    }
 
-      //uppercase
-      if (lowerTaggerTokens.isEmpty() && taggerTokens.isEmpty()) {
-        if (isLowercase) {
-          upperTaggerTokens = asAnalyzedTokenListForTaggedWords(word,
-              getWordTagger().tag(StringTools.uppercaseFirstChar(word)));
-          if (!upperTaggerTokens.isEmpty()) {
-            addTokens(upperTaggerTokens, l);
-          } else {
-            l.add(new AnalyzedToken(word, null, null));
-          }
+    //uppercase
+    if (lowerTaggerTokens.isEmpty() && taggerTokens.isEmpty()) {
+      if (isLowercase) {
+        List<AnalyzedToken> upperTaggerTokens = asAnalyzedTokenListForTaggedWords(word,
+            getWordTagger().tag(StringTools.uppercaseFirstChar(word)));
+        if (!upperTaggerTokens.isEmpty()) {
+          addTokens(upperTaggerTokens, l);
         } else {
           l.add(new AnalyzedToken(word, null, null));
         }
+      } else {
+        l.add(new AnalyzedToken(word, null, null));
       }
-      tokenReadings.add(new AnalyzedTokenReadings(l, pos));
-      pos += word.length();
     }
-
-    return tokenReadings;
+    return l;
   }
 
   private void addTokens(List<AnalyzedToken> taggedTokens, List<AnalyzedToken> l) {
@@ -20,8 +20,13 @@ package org.languagetool.server;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.sun.net.httpserver.HttpExchange;
 import org.jetbrains.annotations.NotNull;
 import org.languagetool.JLanguageTool;
@@ -38,6 +43,8 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.HttpURLConnection;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import static org.languagetool.server.LanguageToolHttpHandler.API_DOC_URL;
 
@@ -54,6 +61,9 @@ class ApiV2 {
   private final TextChecker textChecker;
   private final String allowOriginUrl;
   private final JsonFactory factory = new JsonFactory();
+  private final ObjectMapper mapper = new ObjectMapper();
+  // responses that only change with a restart, built on first use:
+  private final Cache<String, CachedResponse> staticResponses = CacheBuilder.newBuilder().maximumSize(1000).build();
 
   ApiV2(TextChecker textChecker, String allowOriginUrl) {
     this.textChecker = textChecker;
@@ -71,6 +81,8 @@ class ApiV2 {
       handleSoftwareInfoRequest(httpExchange, parameters, config);
     } else if (path.equals("check")) {
       handleCheckRequest(httpExchange, parameters, errorRequestLimiter, remoteAddress);
+    } else if (path.equals("check/batch")) {
+      handleBatchCheckRequest(httpExchange, parameters, errorRequestLimiter, remoteAddress, config);
     } else if (path.equals("words")) {
       handleWordsRequest(httpExchange, parameters, config);
     } else if (path.equals("words/add")) {
@@ -88,12 +100,8 @@ class ApiV2 {
     }
   }
 
-  private void handleLanguagesRequest(HttpExchange httpExchange) throws IOException {
-    String response = getLanguages();
-    ServerTools.setCommonHeaders(httpExchange, JSON_CONTENT_TYPE, allowOriginUrl);
-    httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.getBytes(ENCODING).length);
-    httpExchange.getResponseBody().write(response.getBytes(ENCODING));
-    ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
+  private void handleLanguagesRequest(HttpExchange httpExchange) throws Exception {
+    getStaticResponse("languages", () -> getLanguages()).send(httpExchange, allowOriginUrl);
   }
 
   private void handleMaxTextLengthRequest(HttpExchange httpExchange, HTTPServerConfig config) throws IOException {
@@ -104,24 +112,32 @@ class ApiV2 {
     ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
   }
 
-  private void handleGetConfigurationInfoRequest(HttpExchange httpExchange, Map<String, String> parameters, HTTPServerConfig config) throws IOException {
+  private void handleGetConfigurationInfoRequest(HttpExchange httpExchange, Map<String, String> parameters, HTTPServerConfig config) throws Exception {
     if (parameters.get("language") == null) {
       throw new IllegalArgumentException("'language' parameter missing");
     }
     Language lang = Languages.getLanguageForShortCode(parameters.get("language"));
-    String response = getConfigurationInfo(lang, config);
-    ServerTools.setCommonHeaders(httpExchange, JSON_CONTENT_TYPE, allowOriginUrl);
-    httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.getBytes(ENCODING).length);
-    httpExchange.getResponseBody().write(response.getBytes(ENCODING));
-    ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
+    getStaticResponse("configinfo/" + lang.getShortCodeWithCountryAndVariant(), () -> getConfigurationInfo(lang, config))
+      .send(httpExchange, allowOriginUrl);
   }
 
-  private void handleSoftwareInfoRequest(HttpExchange httpExchange, Map<String, String> parameters, HTTPServerConfig config) throws IOException {
-    String response = getSoftwareInfo();
-    ServerTools.setCommonHeaders(httpExchange, JSON_CONTENT_TYPE, allowOriginUrl);
-    httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.getBytes(ENCODING).length);
-    httpExchange.getResponseBody().write(response.getBytes(ENCODING));
-    ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
+  private void handleSoftwareInfoRequest(HttpExchange httpExchange, Map<String, String> parameters, HTTPServerConfig config) throws Exception {
+    getStaticResponse("info", () -> getSoftwareInfo()).send(httpExchange, allowOriginUrl);
+  }
+
+  /**
+   * Get the cached response for {@code key}, call {@code jsonSupplier} to create it if there's none yet.
+   * Exceptions thrown by {@code jsonSupplier} are passed on unchanged, and nothing gets cached then.
+   */
+  private CachedResponse getStaticResponse(String key, Callable<String> jsonSupplier) throws Exception {
+    try {
+      return staticResponses.get(key, () -> new CachedResponse(jsonSupplier.call(), JSON_CONTENT_TYPE));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
   }
 
   private void handleCheckRequest(HttpExchange httpExchange, Map<String, String> parameters, ErrorRequestLimiter errorRequestLimiter, String remoteAddress) throws Exception {
@@ -131,16 +147,10 @@ class ApiV2 {
     } else if (parameters.containsKey("text")) {
       aText = new AnnotatedTextBuilder().addText(parameters.get("text")).build();
     } else if (parameters.containsKey("data")) {
-      ObjectMapper mapper = new ObjectMapper();
-      JsonNode data = mapper.readTree(parameters.get("data"));
-      if (data.get("text") != null && data.get("annotation") != null) {
-        throw new IllegalArgumentException("'data' key in JSON requires either 'text' or 'annotation' key, not both");
-      } else if (data.get("text") != null) {
-        aText = getAnnotatedTextFromString(data, data.get("text").asText());
-      } else if (data.get("annotation") != null) {
-        aText = getAnnotatedTextFromJson(data);
-      } else {
-        throw new IllegalArgumentException("'data' key in JSON requires 'text' or 'annotation' key");
+      try (JsonParser parser = mapper.getFactory().createParser(parameters.get("data"))) {
+        parser.nextToken();
+        aText = readData(parser, "'data' key in JSON requires either 'text' or 'annotation' key, not both",
+          "'data' key in JSON requires 'text' or 'annotation' key");
       }
     } else {
       throw new IllegalArgumentException("Missing 'text' or 'data' parameter");
@@ -148,6 +158,54 @@ class ApiV2 {
     textChecker.checkText(aText, httpExchange, parameters, errorRequestLimiter, remoteAddress);
   }
 
+  /**
+   * Checks several texts with the same settings. The texts are given as a JSON array or as
+   * newline-delimited JSON (NDJSON) in the {@code texts} parameter or, with content type
+   * {@code application/json} or {@code application/x-ndjson}, as the request body. Each
+   * element is either a string or an object like the one of the {@code data} parameter.
+   * The result for each text is the same as for {@code /v2/check}, they are returned in
+   * the same format and order as the texts.
+   * @since 5.1
+   */
+  private void handleBatchCheckRequest(HttpExchange httpExchange, Map<String, String> parameters, ErrorRequestLimiter errorRequestLimiter,
+                                       String remoteAddress, HTTPServerConfig config) throws Exception {
+    ensurePostMethod(httpExchange, "/check/batch");
+    if (parameters.containsKey("text") || parameters.containsKey("data")) {
+      throw new IllegalArgumentException("Use the 'texts' parameter for /check/batch, not 'text' or 'data'");
+    }
+    String texts = parameters.get("texts");
+    if (texts == null) {
+      throw new IllegalArgumentException("Missing 'texts' parameter");
+    }
+    boolean ndjson = !texts.trim().startsWith("[");
+    List<AnnotatedText> aTexts = new ArrayList<>();
+    try (JsonParser parser = mapper.getFactory().createParser(texts)) {
+      // NDJSON is a sequence of root-level values, which the parser reads one after the other:
+      JsonToken end = ndjson ? null : JsonToken.END_ARRAY;
+      if (!ndjson) {
+        parser.nextToken();
+      }
+      JsonToken token;
+      while ((token = parser.nextToken()) != end) {
+        if (aTexts.size() == config.getMaxBatchSize()) {
+          throw new IllegalArgumentException("Too many texts, this server's limit is " + config.getMaxBatchSize());
+        }
+        if (token == JsonToken.VALUE_STRING) {
+          aTexts.add(new AnnotatedTextBuilder().addText(parser.getText()).build());
+        } else if (token == JsonToken.START_OBJECT) {
+          aTexts.add(readData(parser, "Elements of 'texts' require either 'text' or 'annotation' key, not both",
+            "Elements of 'texts' must be strings or objects with 'text' or 'annotation' key"));
+        } else {
+          throw new IllegalArgumentException("Elements of 'texts' must be strings or objects with 'text' or 'annotation' key");
+        }
+      }
+    }
+    if (aTexts.isEmpty()) {
+      throw new IllegalArgumentException("'texts' must contain at least one text");
+    }
+    textChecker.checkTexts(aTexts, ndjson, httpExchange, parameters, errorRequestLimiter, remoteAddress);
+  }
+
   private void handleWordsRequest(HttpExchange httpExchange, Map<String, String> params, HTTPServerConfig config) throws Exception {
     ensureGetMethod(httpExchange, "/words");
     UserLimits limits = getUserLimits(params, config);
@@ -183,6 +241,12 @@ class ApiV2 {
       throw new IllegalArgumentException("'ruleId' parameter missing");
     }
     Language lang = Languages.getLanguageForShortCode(params.get("lang"));
+    String ruleId = params.get("ruleId");
+    getStaticResponse("rule/examples/" + lang.getShortCodeWithCountryAndVariant() + "/" + ruleId, () -> getRuleExamples(lang, ruleId))
+      .send(httpExchange, allowOriginUrl);
+  }
+
+  private String getRuleExamples(Language lang, String ruleId) throws IOException {
     JLanguageTool lt = new JLanguageTool(lang);
     if (textChecker.config.languageModelDir != null) {
       lt.activateLanguageModelRules(textChecker.config.languageModelDir);
@@ -190,12 +254,12 @@ class ApiV2 {
     List<Rule> rules = lt.getAllRules();
     List<Rule> foundRules = new ArrayList<>();
     for (Rule rule : rules) {
-      if (rule.getId().equals(params.get("ruleId"))) {
+      if (rule.getId().equals(ruleId)) {
         foundRules.add(rule);
       }
     }
     if (foundRules.isEmpty()) {
-      throw new PathNotFoundException("Rule '" + params.get("ruleId") + "' not found for language " + lang +
+      throw new PathNotFoundException("Rule '" + ruleId + "' not found for language " + lang +
               " (LanguageTool version/date: " + JLanguageTool.VERSION + "/" + JLanguageTool.BUILD_DATE + ", total rules of language: " + rules.size() + ")");
     }
     StringWriter sw = new StringWriter();
@@ -227,7 +291,7 @@ class ApiV2 {
       g.writeEndArray();
       g.writeEndObject();
     }
-    sendJson(httpExchange, sw);
+    return sw.toString();
   }
 
   private void ensureGetMethod(HttpExchange httpExchange, String url) {
@@ -296,27 +360,73 @@ class ApiV2 {
     ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
   }
 
-  private AnnotatedText getAnnotatedTextFromString(JsonNode data, String text) {
-    AnnotatedTextBuilder textBuilder = new AnnotatedTextBuilder().addText(text);
-    if (data.has("metaData")) {
-      JsonNode metaData = data.get("metaData");
-      Iterator<String> it = metaData.fieldNames();
-      while (it.hasNext()) {
-        String key = it.next();
-        String val = metaData.get(key).asText();
+  /**
+   * Reads an object like the one of the {@code data} parameter, starting at its {@code START_OBJECT}
+   * token. The text is added to the builder while it's read, without building a tree of the whole object.
+   */
+  private AnnotatedText readData(JsonParser parser, String bothKeysMessage, String noKeyMessage) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      throw new IllegalArgumentException(noKeyMessage);
+    }
+    AnnotatedTextBuilder atb = new AnnotatedTextBuilder();
+    String text = null;
+    boolean hasAnnotation = false;
+    Map<String, String> metaData = new LinkedHashMap<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (fieldName.equals("text")) {
+        text = readText(parser);
+      } else if (fieldName.equals("annotation")) {
+        hasAnnotation = true;
+        if (token == JsonToken.START_ARRAY) {
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            addAnnotation(atb, parser.readValueAsTree());
+          }
+        } else {
+          parser.skipChildren();
+        }
+      } else if (fieldName.equals("metaData") && token == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String key = parser.getCurrentName();
+          parser.nextToken();
+          metaData.put(key, readText(parser));
+        }
+      } else {
+        parser.skipChildren();
+      }
+      if (text != null && hasAnnotation) {
+        throw new IllegalArgumentException(bothKeysMessage);
+      }
+    }
+    if (text != null) {
+      atb.addText(text);
+      for (Map.Entry<String, String> entry : metaData.entrySet()) {
         try {
-          AnnotatedText.MetaDataKey metaDataKey = AnnotatedText.MetaDataKey.valueOf(key);
-          textBuilder.addGlobalMetaData(metaDataKey, val);
+          AnnotatedText.MetaDataKey metaDataKey = AnnotatedText.MetaDataKey.valueOf(entry.getKey());
+          atb.addGlobalMetaData(metaDataKey, entry.getValue());
         } catch (IllegalArgumentException e) {
-          textBuilder.addGlobalMetaData(key, val);
+          atb.addGlobalMetaData(entry.getKey(), entry.getValue());
         }
       }
+    } else if (!hasAnnotation) {
+      throw new IllegalArgumentException(noKeyMessage);
     }
-    return textBuilder.build();
+    return atb.build();
   }
 
-  private AnnotatedText getAnnotatedTextFromJson(JsonNode data) {
-    AnnotatedTextBuilder atb = new AnnotatedTextBuilder();
+  /**
+   * The text of a scalar value, or an empty string for an object or array (like {@link JsonNode#asText()}).
+   */
+  private String readText(JsonParser parser) throws IOException {
+    if (parser.currentToken().isScalarValue()) {
+      return parser.getText();
+    }
+    parser.skipChildren();
+    return "";
+  }
+
+  private void addAnnotation(AnnotatedTextBuilder atb, JsonNode node) {
     // Expected format:
     // annotation: [
     //   {text: 'text'},
@@ -325,24 +435,21 @@ class ApiV2 {
     //   {markup: '</b>'}
     // ]
     //
-    for (JsonNode node : data.get("annotation")) {
-      if (node.get("text") != null && node.get("markup") != null) {
-        throw new IllegalArgumentException("Only either 'text' or 'markup' are supported in an object in 'annotation' list, not both: " + node);
-      } else if (node.get("text") != null && node.get("interpretAs") != null) {
-        throw new IllegalArgumentException("'text' cannot be used with 'interpretAs' (only 'markup' can): " + node);
-      } else if (node.get("text") != null) {
-        atb.addText(node.get("text").asText());
-      } else if (node.get("markup") != null) {
-        if (node.get("interpretAs") != null) {
-          atb.addMarkup(node.get("markup").asText(), node.get("interpretAs").asText());
-        } else {
-          atb.addMarkup(node.get("markup").asText());
-        }
+    if (node.get("text") != null && node.get("markup") != null) {
+      throw new IllegalArgumentException("Only either 'text' or 'markup' are supported in an object in 'annotation' list, not both: " + node);
+    } else if (node.get("text") != null && node.get("interpretAs") != null) {
+      throw new IllegalArgumentException("'text' cannot be used with 'interpretAs' (only 'markup' can): " + node);
+    } else if (node.get("text") != null) {
+      atb.addText(node.get("text").asText());
+    } else if (node.get("markup") != null) {
+      if (node.get("interpretAs") != null) {
+        atb.addMarkup(node.get("markup").asText(), node.get("interpretAs").asText());
       } else {
-        throw new IllegalArgumentException("Only 'text' and 'markup' are supported in 'annotation' list: " + node);
+        atb.addMarkup(node.get("markup").asText());
       }
+    } else {
+      throw new IllegalArgumentException("Only 'text' and 'markup' are supported in 'annotation' list: " + node);
     }
-    return atb.build();
   }
 
   String getLanguages() throws IOException {
@@ -0,0 +1,87 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpExchange;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A response that doesn't change while the server is running (e.g. the list of languages).
+ * It's serialized only once and sent with a strong ETag, so clients that send it back
+ * in {@code If-None-Match} get a {@code 304 Not Modified} without a body.
+ * @since 5.1
+ */
+class CachedResponse {
+
+  private static final String CACHE_CONTROL = "public, max-age=3600";
+
+  private final byte[] body;
+  private final String contentType;
+  private final String etag;
+
+  CachedResponse(String body, String contentType) {
+    this.body = body.getBytes(StandardCharsets.UTF_8);
+    this.contentType = contentType;
+    this.etag = "\"" + Hashing.sha256().hashBytes(this.body) + "\"";
+  }
+
+  String getETag() {
+    return etag;
+  }
+
+  void send(HttpExchange httpExchange, String allowOriginUrl) throws IOException {
+    ServerTools.setCommonHeaders(httpExchange, contentType, allowOriginUrl);
+    httpExchange.getResponseHeaders().set("ETag", etag);
+    httpExchange.getResponseHeaders().set("Cache-Control", CACHE_CONTROL);
+    if (isNotModified(httpExchange.getRequestHeaders().get("If-None-Match"))) {
+      httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+      ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_NOT_MODIFIED);
+    } else {
+      httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+      httpExchange.getResponseBody().write(body);
+      ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
+    }
+  }
+
+  /**
+   * @param ifNoneMatch the values of the {@code If-None-Match} header, if any
+   */
+  boolean isNotModified(@Nullable List<String> ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String value : ifNoneMatch) {
+      for (String tag : value.split(",")) {
+        String trimmedTag = tag.trim();
+        // If-None-Match uses the weak comparison, so a weak version of our tag matches, too:
+        if (trimmedTag.equals("*") || trimmedTag.equals(etag) || trimmedTag.equals("W/" + etag)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,220 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.jetbrains.annotations.Nullable;
+import org.languagetool.RuleMatchListener;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Lets identical check requests that come in while the first of them is still being checked
+ * wait for and share that check's result, instead of running the same check again (e.g. for
+ * retries or duplicated browser tabs). Each request gets its own future, so it can time out
+ * and be cancelled on its own. The check itself is only cancelled once all requests waiting
+ * for it have been cancelled.
+ * @since 5.1
+ */
+class CheckCoalescer {
+
+  private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+  private final ExecutorService executorService;
+
+  CheckCoalescer(ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
+  /**
+   * @param key identifies the check, i.e. a hash of everything the result depends on, or {@code null}
+   *            to always run the check on its own
+   */
+  Check submit(@Nullable String key, CheckTask task) {
+    if (key == null) {
+      Flight flight = new Flight(false);
+      start(null, flight, task);
+      return flight.newCheck(false);
+    }
+    boolean[] isNew = {false};
+    Flight flight = inFlight.compute(key, (k, existing) -> {
+      if (existing != null && existing.join()) {
+        return existing;
+      }
+      isNew[0] = true;
+      return new Flight(true);
+    });
+    if (isNew[0]) {
+      start(key, flight, task);
+    }
+    ServerMetricsCollector.getInstance().logCheckCoalescing(!isNew[0]);
+    return flight.newCheck(!isNew[0]);
+  }
+
+  /**
+   * Number of different checks that are currently running, for tests.
+   */
+  int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private void start(@Nullable String key, Flight flight, CheckTask task) {
+    try {
+      flight.setTask(executorService.submit(() -> {
+        try {
+          List<RuleMatch> matches = task.check(flight.matchesSoFar::add);
+          remove(key, flight);
+          flight.result.complete(matches);
+        } catch (Throwable t) {
+          remove(key, flight);
+          flight.result.completeExceptionally(t);
+        }
+      }));
+    } catch (RejectedExecutionException e) {
+      remove(key, flight);
+      throw e;
+    }
+  }
+
+  private void remove(@Nullable String key, Flight flight) {
+    if (key != null) {
+      inFlight.remove(key, flight);
+    }
+  }
+
+  /**
+   * The check to run, reporting its matches to the listener as soon as they're found.
+   */
+  interface CheckTask {
+    List<RuleMatch> check(RuleMatchListener listener) throws Exception;
+  }
+
+  /**
+   * A request's view of a (possibly shared) check.
+   */
+  static class Check {
+
+    private final Future<List<RuleMatch>> future;
+    private final Flight flight;
+    private final boolean shared;
+
+    private Check(Future<List<RuleMatch>> future, Flight flight, boolean shared) {
+      this.future = future;
+      this.flight = flight;
+      this.shared = shared;
+    }
+
+    /**
+     * The matches of the check. If the check can be shared, these are copies, so the request
+     * may modify them in any case. Cancelling the future doesn't affect other requests waiting for the same check.
+     */
+    Future<List<RuleMatch>> getFuture() {
+      return future;
+    }
+
+    /**
+     * The matches found so far, to be used if the check doesn't finish in time. The check
+     * might still be running, so this is a snapshot.
+     */
+    List<RuleMatch> getMatchesSoFar() {
+      synchronized (flight.matchesSoFar) {
+        return flight.copy(flight.matchesSoFar);
+      }
+    }
+
+    /**
+     * Whether the request didn't start a check of its own, but waits for another request's check.
+     */
+    boolean isShared() {
+      return shared;
+    }
+  }
+
+  private static class Flight {
+
+    private final CompletableFuture<List<RuleMatch>> result = new CompletableFuture<>();
+    private final List<RuleMatch> matchesSoFar = Collections.synchronizedList(new ArrayList<>());
+    private final boolean copyMatches;
+    private int waiters = 1;  // guarded by this
+    private Future<?> task;   // guarded by this
+
+    private Flight(boolean copyMatches) {
+      this.copyMatches = copyMatches;
+    }
+
+    private synchronized void setTask(Future<?> task) {
+      this.task = task;
+      if (waiters == 0) {
+        task.cancel(true);
+      }
+    }
+
+    /**
+     * @return false if all requests waiting for this check are gone, so it's (being) cancelled
+     */
+    private synchronized boolean join() {
+      if (waiters == 0) {
+        return false;
+      }
+      waiters++;
+      return true;
+    }
+
+    private synchronized void leave() {
+      waiters--;
+      if (waiters == 0 && task != null) {
+        task.cancel(true);
+      }
+    }
+
+    private Check newCheck(boolean shared) {
+      CompletableFuture<List<RuleMatch>> future = new CompletableFuture<List<RuleMatch>>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+          boolean cancelled = super.cancel(mayInterruptIfRunning);
+          if (cancelled) {
+            leave();
+          }
+          return cancelled;
+        }
+      };
+      result.whenComplete((matches, t) -> {
+        if (t != null) {
+          future.completeExceptionally(t);
+        } else {
+          future.complete(copyMatches ? copy(matches) : matches);
+        }
+      });
+      return new Check(future, this, shared);
+    }
+
+    // requests modify their matches, e.g. to limit the number of suggestions, so they can't share them:
+    private List<RuleMatch> copy(List<RuleMatch> matches) {
+      if (copyMatches) {
+        return matches.stream().map(RuleMatch::new).collect(Collectors.toList());
+      }
+      return new ArrayList<>(matches);
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The time spent in the stages of a single check request. Stages that run more than once
+ * per request (e.g. for multilingual texts) or in several threads at once are summed up.
+ * @since 5.1
+ */
+class CheckTimings implements JLanguageTool.CheckStageListener {
+
+  enum Stage {
+    QUEUE,
+    LANGUAGE_DETECTION,
+    PIPELINE,
+    SENTENCE_ANALYSIS,
+    LOCAL_RULES,
+    TEXT_LEVEL_RULES,
+    REMOTE_RULES,
+    FILTERING,
+    SERIALIZATION
+  }
+
+  // filled in the constructor and never modified afterwards, so it can be read by several threads:
+  private final Map<Stage, LongAdder> nanos = new EnumMap<>(Stage.class);
+  private final Map<Stage, LongAdder> counts = new EnumMap<>(Stage.class);
+
+  CheckTimings() {
+    for (Stage stage : Stage.values()) {
+      nanos.put(stage, new LongAdder());
+      counts.put(stage, new LongAdder());
+    }
+  }
+
+  @Override
+  public void stageFinished(JLanguageTool.CheckStage stage, long nanos) {
+    add(Stage.valueOf(stage.name()), nanos);
+  }
+
+  void add(Stage stage, long stageNanos) {
+    nanos.get(stage).add(stageNanos);
+    counts.get(stage).increment();
+  }
+
+  boolean hasStage(Stage stage) {
+    return counts.get(stage).sum() > 0;
+  }
+
+  long getNanos(Stage stage) {
+    return nanos.get(stage).sum();
+  }
+
+  /**
+   * Report all stages that have been measured to the Prometheus histograms.
+   */
+  void log(Language language, JLanguageTool.Mode mode) {
+    for (Stage stage : Stage.values()) {
+      if (hasStage(stage)) {
+        ServerMetricsCollector.getInstance().logCheckStage(stage, language, mode, getNanos(stage));
+      }
+    }
+  }
+
+  /**
+   * @return the milliseconds per stage, e.g. {@code queue=0.1, language_detection=2.3, ...}
+   */
+  String toHeaderValue() {
+    StringJoiner joiner = new StringJoiner(", ");
+    for (Stage stage : Stage.values()) {
+      if (hasStage(stage)) {
+        joiner.add(stage.name().toLowerCase(Locale.ENGLISH) + "=" +
+          String.format(Locale.ENGLISH, "%.1f", getNanos(stage) / 1_000_000.0));
+      }
+    }
+    return joiner.toString();
+  }
+
+}
@@ -20,6 +20,11 @@ package org.languagetool.server;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.exceptions.PersistenceException;
@@ -29,6 +34,7 @@ import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +48,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.languagetool.server.ServerTools.print;
@@ -56,10 +64,17 @@ class DatabaseAccess {
   private static SqlSessionFactory sqlSessionFactory;
   private static final Logger logger = LoggerFactory.getLogger(DatabaseAccess.class);
 
-  private final Cache<Long, List<UserDictEntry>> userDictCache = CacheBuilder.newBuilder()
-          .maximumSize(1000)
-          .expireAfterWrite(24, TimeUnit.HOURS)
-          .build();
+  // rough size of a word in the cache in addition to its characters (String and array headers, list reference):
+  private static final int WORD_OVERHEAD_BYTES = 56;
+
+  // user dictionaries, weighed by their approximate size in bytes. They are invalidated when
+  // words are added or deleted via this class. Changes made by other servers that share the database are
+  // picked up by a background refresh; until it has finished, the old dictionary is used.
+  // The cache is split into 4 segments (Guava's default concurrency level) that each get a quarter of
+  // the maximum weight, so a dictionary larger than that (25MB by default) is never cached:
+  private final LoadingCache<Long, List<String>> userDictCache;
+  private final ExecutorService userDictRefreshExecutor = Executors.newSingleThreadExecutor(
+    new ThreadFactoryBuilder().setNameFormat("lt-user-dict-refresh-%d").setDaemon(true).build());
 
   private final Cache<String, Long> dbLoggingCache = CacheBuilder.newBuilder()
     .expireAfterAccess(1, TimeUnit.HOURS)
@@ -67,6 +82,19 @@ class DatabaseAccess {
     .build();
 
   private DatabaseAccess(HTTPServerConfig config) {
+    userDictCache = CacheBuilder.newBuilder()
+      .maximumWeight(config.getUserDictCacheMaxBytes())
+      .weigher((Long userId, List<String> words) -> getWeight(words))
+      .refreshAfterWrite(config.getUserDictCacheRefreshSeconds(), TimeUnit.SECONDS)
+      .expireAfterWrite(24, TimeUnit.HOURS)
+      .recordStats()
+      .build(CacheLoader.asyncReloading(new CacheLoader<Long, List<String>>() {
+        @Override
+        public List<String> load(Long userId) {
+          return loadUserDictWords(userId);
+        }
+      }, userDictRefreshExecutor));
+    ServerMetricsCollector.getInstance().monitorCache("languagetool_user_dict_cache", userDictCache);
     if (config.getDatabaseDriver() != null) {
       try {
         logger.info("Setting up database access, URL " + config.getDatabaseUrl() + ", driver: " + config.getDatabaseDriver() + ", user: " + config.getDatabaseUsername());
@@ -110,35 +138,56 @@ class DatabaseAccess {
   }
 
   List<String> getUserDictWords(Long userId) {
-    List<String> dictEntries = new ArrayList<>();
     if (sqlSessionFactory == null) {
-      return dictEntries;
+      return new ArrayList<>();
+    }
+    try {
+      return userDictCache.get(userId);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      // a failed background refresh keeps the cached version, so we only get here if there's no cached version:
+      logger.error("ERROR: Could not get words from database for user " + userId + ": " + e.getMessage() + " - also, could not use version from cache, user id not found in cache, will use empty dict. Full stack trace follows:" + ExceptionUtils.getStackTrace(e));
+      return new ArrayList<>();
     }
+  }
+
+  /**
+   * @return the user's dictionary if it's cached, {@code null} if it still needs to be loaded with
+   *   {@link #getUserDictWords(Long)}
+   * @since 5.1
+   */
+  @Nullable
+  List<String> getCachedUserDictWords(Long userId) {
+    if (sqlSessionFactory == null) {
+      return new ArrayList<>();
+    }
+    return userDictCache.getIfPresent(userId);
+  }
+
+  private List<String> loadUserDictWords(Long userId) {
     try (SqlSession session = sqlSessionFactory.openSession()) {
-      try {
-        List<UserDictEntry> dict = session.selectList("org.languagetool.server.UserDictMapper.selectWordList", userId);
-        for (UserDictEntry userDictEntry : dict) {
-          dictEntries.add(userDictEntry.getWord());
-        }
-        if (dict.size() <= 1000) {  // make sure users with huge dict don't blow up the cache
-          userDictCache.put(userId, dict);
-        } else {
-          logger.info("WARN: Large dict size " + dict.size() + " for user " + userId + " - will not put user's dict in cache");
-        }
-      } catch (Exception e) {
-        // try to be more robust when database is down, i.e. don't just crash but try to use cache:
-        List<UserDictEntry> cachedDictOrNull = userDictCache.getIfPresent(userId);
-        if (cachedDictOrNull != null) {
-          logger.error("ERROR: Could not get words from database for user " + userId + ": " + e.getMessage() + ", will use cached version (" + cachedDictOrNull.size() + " items). Full stack trace follows:" + ExceptionUtils.getStackTrace(e));
-          for (UserDictEntry userDictEntry : cachedDictOrNull) {
-            dictEntries.add(userDictEntry.getWord());
-          }
-        } else {
-          logger.error("ERROR: Could not get words from database for user " + userId + ": " + e.getMessage() + " - also, could not use version from cache, user id not found in cache, will use empty dict. Full stack trace follows:" + ExceptionUtils.getStackTrace(e));
-        }
+      List<UserDictEntry> dict = session.selectList("org.languagetool.server.UserDictMapper.selectWordList", userId);
+      ImmutableList.Builder<String> dictEntries = ImmutableList.builderWithExpectedSize(dict.size());
+      for (UserDictEntry userDictEntry : dict) {
+        dictEntries.add(userDictEntry.getWord());
       }
+      return dictEntries.build();
     }
-    return dictEntries;
+  }
+
+  private static int getWeight(List<String> words) {
+    long bytes = 0;
+    for (String word : words) {
+      bytes += WORD_OVERHEAD_BYTES + 2L * word.length();
+    }
+    return (int) Math.min(bytes, Integer.MAX_VALUE);
+  }
+
+  /**
+   * The cache of user dictionaries, to be used for monitoring and tests only.
+   * @since 5.1
+   */
+  Cache<Long, List<String>> getUserDictCache() {
+    return userDictCache;
   }
 
   List<UserDictEntry> getWords(Long userId, int offset, int limit) {
@@ -170,6 +219,7 @@ class DatabaseAccess {
         map.put("created_at", now);
         map.put("updated_at", now);
         int affectedRows = session.insert("org.languagetool.server.UserDictMapper.addWord", map);
+        userDictCache.invalidate(userId);
         logger.info("Added '" + word + "' for user " + userId + " to list of ignored words, affectedRows: " + affectedRows);
         return affectedRows == 1;
       }
@@ -223,6 +273,7 @@ class DatabaseAccess {
         return false;
       } else {
         int affectedRows = session.delete("org.languagetool.server.UserDictMapper.deleteWord", map);
+        userDictCache.invalidate(userId);
         logger.info("Deleted '" + word + "' for user " + userId + " from list of ignored words, affectedRows: " + affectedRows);
         return affectedRows >= 1;
       }
@@ -342,6 +393,7 @@ class DatabaseAccess {
       session.insert("org.languagetool.server.UserDictMapper.createTestUser1");
       session.insert("org.languagetool.server.UserDictMapper.createTestUser2");
     }
+    instance.userDictCache.invalidateAll();
   }
   
   /** For unit tests only! */
@@ -351,6 +403,7 @@ class DatabaseAccess {
       session.delete("org.languagetool.server.UserDictMapper.deleteUsersTable");
       session.delete("org.languagetool.server.UserDictMapper.deleteIgnoreWordsTable");
     }
+    instance.userDictCache.invalidateAll();
   }
 
   /** For unit tests only */
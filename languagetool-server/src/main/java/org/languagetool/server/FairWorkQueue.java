@@ -0,0 +1,434 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue of the server's thread pool that serves requests of different classes of
+ * clients (anonymous, with API key, premium) in weighted fair order instead of first-come,
+ * first-served: each class has its own queue and gets a share of the check threads
+ * proportional to its weight, with each request's cost estimated by its text size
+ * (text-level-only requests count a tenth, like in {@link RequestLimiter}). This is
+ * start-time fair queuing, so a class that has been idle doesn't build up credit.
+ * Only requests that have been read before they are queued (i.e. those of the {@link NioHttpServer})
+ * can be classified, all others are treated as anonymous requests of average cost.
+ * Requests are queued by the server's event loop thread, so classifying them must be cheap: only
+ * the few small parameters needed are extracted from the request body, and neither tokens nor
+ * API keys are validated here. Instead, a client only gets the weight of its class once the handler
+ * has validated its credentials (see {@link #clientValidated(Map, UserLimits)}), so that clients
+ * can't get a higher priority by sending made-up credentials.
+ * @since 5.1
+ */
+class FairWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+  enum RequestClass {
+    PREMIUM(4), API_KEY(2), ANONYMOUS(1);
+
+    private final int weight;
+
+    RequestClass(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  // overhead of a request independent of its size, in characters:
+  private static final long BASE_COST = 500;
+  // longer values of the parameters used for classification are ignored:
+  private static final int MAX_CREDENTIAL_LENGTH = 4096;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Map<RequestClass, Deque<Entry>> queues = new EnumMap<>(RequestClass.class);
+  private final Map<RequestClass, Long> lastFinishTags = new EnumMap<>(RequestClass.class);
+  // credentials (token or username and API key) validated by the handler -> class of the client:
+  private final Cache<String, RequestClass> validatedClients = CacheBuilder.newBuilder()
+    .maximumSize(50_000)
+    .expireAfterWrite(1, TimeUnit.HOURS)
+    .build();
+  private long virtualTime;
+  private int size;
+
+  FairWorkQueue() {
+    for (RequestClass requestClass : RequestClass.values()) {
+      queues.put(requestClass, new ArrayDeque<>());
+      lastFinishTags.put(requestClass, 0L);
+    }
+  }
+
+  @Override
+  public boolean offer(@NotNull Runnable task) {
+    RequestClass requestClass = RequestClass.ANONYMOUS;
+    long cost = BASE_COST;
+    NioHttpExchange exchange = getExchange(task);
+    if (exchange != null) {
+      Map<String, String> params = new HashMap<>();
+      long textLength = getParameters(exchange, params);
+      requestClass = classify(params);
+      cost = estimateCost(textLength, params.get("mode"));
+    }
+    lock.lock();
+    try {
+      long startTag = Math.max(virtualTime, lastFinishTags.get(requestClass));
+      lastFinishTags.put(requestClass, startTag + cost / requestClass.weight);
+      Deque<Entry> queue = queues.get(requestClass);
+      queue.add(new Entry(task, requestClass, startTag));
+      size++;
+      ServerMetricsCollector.getInstance().logQueueSize(requestClass.name(), queue.size());
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Nullable
+  private static NioHttpExchange getExchange(Runnable task) {
+    Runnable command = task instanceof Server.QueuedTask ? ((Server.QueuedTask) task).getCommand() : task;
+    if (command instanceof NioHttpServer.RequestTask) {
+      return ((NioHttpServer.RequestTask) command).getExchange();
+    }
+    return null;
+  }
+
+  /**
+   * Only looks at the parameters needed for scheduling, without copying or decoding the text.
+   * @param params filled with the parameters needed for classification
+   * @return the (encoded) length of the text
+   */
+  private static long getParameters(NioHttpExchange exchange, Map<String, String> params) {
+    String query = exchange.getRequestURI().getRawQuery();
+    long textLength = 0;
+    if (query != null) {
+      byte[] queryBytes = query.getBytes(StandardCharsets.ISO_8859_1);
+      textLength += addParameters(queryBytes, params);
+    }
+    byte[] body = exchange.getRequestBodyBytes();
+    String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+    if (contentType != null && (contentType.startsWith("application/json") || contentType.startsWith("application/x-ndjson"))) {
+      textLength += body.length;  // a batch check request, see ApiV2
+    } else {
+      textLength += addParameters(body, params);
+    }
+    return textLength;
+  }
+
+  /**
+   * @return the length of the 'text', 'data', and 'texts' values
+   */
+  private static long addParameters(byte[] form, Map<String, String> params) {
+    long textLength = 0;
+    int start = 0;
+    while (start < form.length) {
+      int end = indexOf(form, (byte) '&', start, form.length);
+      int delimPos = indexOf(form, (byte) '=', start, end);
+      if (delimPos != end) {
+        int valueLength = end - delimPos - 1;
+        if (keyEquals(form, start, delimPos, "text") || keyEquals(form, start, delimPos, "data") || keyEquals(form, start, delimPos, "texts")) {
+          // only the size is needed, approximated by the encoded size:
+          textLength += valueLength;
+        } else if (valueLength <= MAX_CREDENTIAL_LENGTH) {
+          for (String key : new String[]{"token", "username", "apiKey", "mode"}) {
+            if (keyEquals(form, start, delimPos, key)) {
+              try {
+                params.put(key, URLDecoder.decode(new String(form, delimPos + 1, valueLength, StandardCharsets.UTF_8), "utf-8"));
+              } catch (UnsupportedEncodingException | IllegalArgumentException ignored) {
+                // invalid request, will be rejected by the handler
+              }
+              break;
+            }
+          }
+        }
+      }
+      start = end + 1;
+    }
+    return textLength;
+  }
+
+  private static int indexOf(byte[] bytes, byte b, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (bytes[i] == b) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  private static boolean keyEquals(byte[] bytes, int from, int to, String key) {
+    if (to - from != key.length()) {
+      return false;
+    }
+    for (int i = 0; i < key.length(); i++) {
+      if (bytes[from + i] != key.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The class of a request, based on credentials that have been {@link #clientValidated(Map, UserLimits) validated}
+   * before. Unknown credentials get the anonymous class until the handler has validated them.
+   */
+  RequestClass classify(Map<String, String> params) {
+    String key = getCredentialsKey(params);
+    if (key == null) {
+      return RequestClass.ANONYMOUS;
+    }
+    RequestClass requestClass = validatedClients.getIfPresent(key);
+    return requestClass != null ? requestClass : RequestClass.ANONYMOUS;
+  }
+
+  /**
+   * Called by the handler when the credentials of a request have been validated, so that further
+   * requests with these credentials get the weight of the client's class.
+   */
+  void clientValidated(Map<String, String> params, UserLimits limits) {
+    String key = getCredentialsKey(params);
+    if (key != null) {
+      // like UserLimits, only tokens can carry the premium status:
+      boolean premium = params.get("token") != null && limits.getPremiumUid() != null;
+      validatedClients.put(key, premium ? RequestClass.PREMIUM : RequestClass.API_KEY);
+    }
+  }
+
+  @Nullable
+  private static String getCredentialsKey(Map<String, String> params) {
+    String token = params.get("token");
+    if (token != null) {
+      return "token:" + token;
+    }
+    String username = params.get("username");
+    String apiKey = params.get("apiKey");
+    if (username != null && apiKey != null) {
+      return "apiKey:" + username + "\n" + apiKey;
+    }
+    return null;
+  }
+
+  static long estimateCost(long textLength, @Nullable String mode) {
+    float modeFactor = "textLevelOnly".equals(mode) ? 0.1f : 1f;
+    return BASE_COST + (long) (textLength * modeFactor);
+  }
+
+  @Override
+  public Runnable poll() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @NotNull
+  @Override
+  public Runnable take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (size == 0) {
+        notEmpty.await();
+      }
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // must be called with lock held
+  @Nullable
+  private Runnable dequeue() {
+    Deque<Entry> next = null;
+    for (Deque<Entry> queue : queues.values()) {
+      if (!queue.isEmpty() && (next == null || queue.peek().startTag < next.peek().startTag)) {
+        next = queue;
+      }
+    }
+    if (next == null) {
+      return null;
+    }
+    Entry entry = next.poll();
+    size--;
+    virtualTime = entry.startTag;
+    String label = entry.requestClass.name();
+    ServerMetricsCollector.getInstance().logQueueSize(label, next.size());
+    ServerMetricsCollector.getInstance().logQueueWait(label, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.queuedAt));
+    return entry.task;
+  }
+
+  @Override
+  public Runnable peek() {
+    lock.lock();
+    try {
+      Entry next = null;
+      for (Deque<Entry> queue : queues.values()) {
+        if (!queue.isEmpty() && (next == null || queue.peek().startTag < next.startTag)) {
+          next = queue.peek();
+        }
+      }
+      return next != null ? next.task : null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(@NotNull Runnable task) {
+    offer(task);
+  }
+
+  @Override
+  public boolean offer(Runnable task, long timeout, @NotNull TimeUnit unit) {
+    return offer(task);
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return size;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    lock.lock();
+    try {
+      for (Deque<Entry> queue : queues.values()) {
+        Iterator<Entry> it = queue.iterator();
+        while (it.hasNext()) {
+          if (it.next().task.equals(o)) {
+            it.remove();
+            size--;
+            return true;
+          }
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo(@NotNull Collection<? super Runnable> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(@NotNull Collection<? super Runnable> c, int maxElements) {
+    lock.lock();
+    try {
+      int count = 0;
+      Runnable task;
+      while (count < maxElements && (task = dequeue()) != null) {
+        c.add(task);
+        count++;
+      }
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * A snapshot of the queued tasks.
+   */
+  @NotNull
+  @Override
+  public Iterator<Runnable> iterator() {
+    List<Runnable> tasks = new ArrayList<>();
+    lock.lock();
+    try {
+      for (Deque<Entry> queue : queues.values()) {
+        for (Entry entry : queue) {
+          tasks.add(entry.task);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    Iterator<Runnable> it = tasks.iterator();
+    return new Iterator<Runnable>() {
+      private Runnable current;
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+      @Override
+      public Runnable next() {
+        current = it.next();
+        return current;
+      }
+      @Override
+      public void remove() {
+        FairWorkQueue.this.remove(current);
+      }
+    };
+  }
+
+  private static class Entry {
+    private final Runnable task;
+    private final RequestClass requestClass;
+    private final long startTag;
+    private final long queuedAt = System.nanoTime();
+    Entry(Runnable task, RequestClass requestClass, long startTag) {
+      this.task = task;
+      this.requestClass = requestClass;
+      this.startTag = startTag;
+    }
+  }
+
+}
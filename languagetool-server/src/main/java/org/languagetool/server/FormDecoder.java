@@ -0,0 +1,169 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes {@code application/x-www-form-urlencoded} data (UTF-8) while it's read. Unlike
+ * reading the data into a string, splitting it, and calling {@link java.net.URLDecoder}
+ * for each part, each value is decoded directly into its own {@code StringBuilder}, so
+ * a large text doesn't get copied several times. The limits are enforced while reading,
+ * so a request that's too large is rejected before it has been read completely.
+ * Not thread-safe.
+ * @since 5.1
+ */
+class FormDecoder {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final long maxLength;
+  private final int maxTextLength;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+  private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+  private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+    .onMalformedInput(CodingErrorAction.REPLACE)
+    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  private final StringBuilder key = new StringBuilder();
+  private StringBuilder value;  // null while the key is read
+  private boolean isText;
+
+  /**
+   * @param maxLength the maximum number of bytes to read
+   * @param maxTextLength the maximum number of characters of the {@code text} parameter
+   */
+  FormDecoder(long maxLength, int maxTextLength) {
+    this.maxLength = maxLength;
+    this.maxTextLength = maxTextLength;
+  }
+
+  /**
+   * Reads and decodes the stream until its end. Parameters without {@code =} are ignored,
+   * if a parameter occurs more than once, the last value is used.
+   * @throws IllegalArgumentException if the data contains an invalid escape sequence
+   * @throws TextTooLongException if one of the limits is exceeded
+   */
+  Map<String, String> decode(InputStream in) throws IOException {
+    Map<String, String> params = new HashMap<>();
+    key.setLength(0);
+    value = null;
+    long length = 0;
+    int escapeState = 0;  // 0: no escape, 1: after '%', 2: after the first hex digit
+    int escapedByte = 0;
+    int len;
+    while ((len = in.read(buffer)) != -1) {
+      length += len;
+      if (length > maxLength) {
+        throw new TextTooLongException("Your text's length exceeds this server's hard limit of " + maxLength + " characters.");
+      }
+      for (int i = 0; i < len; i++) {
+        byte b = buffer[i];
+        if (escapeState > 0) {
+          int digit = Character.digit(b, 16);
+          if (digit == -1) {
+            throw new IllegalArgumentException("Illegal hex character in escape (%) pattern: " + (char) b);
+          }
+          escapedByte = escapedByte << 4 | digit;
+          if (escapeState == 2) {
+            put((byte) escapedByte);
+            escapeState = 0;
+          } else {
+            escapeState = 2;
+          }
+        } else if (b == '%') {
+          escapeState = 1;
+          escapedByte = 0;
+        } else if (b == '&') {
+          endParameter(params);
+        } else if (b == '=' && value == null) {
+          flush(key);
+          value = new StringBuilder();
+          isText = "text".contentEquals(key);
+        } else if (b == '+') {
+          put((byte) ' ');
+        } else {
+          put(b);
+        }
+      }
+    }
+    if (escapeState > 0) {
+      throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+    }
+    endParameter(params);
+    return params;
+  }
+
+  private void put(byte b) {
+    if (!bytes.hasRemaining()) {
+      decodeBytes(value != null ? value : key, false);
+    }
+    bytes.put(b);
+  }
+
+  private void endParameter(Map<String, String> params) {
+    if (value != null) {
+      flush(value);
+      params.put(key.toString(), value.toString());
+    }
+    bytes.clear();
+    decoder.reset();
+    key.setLength(0);
+    value = null;
+  }
+
+  private void flush(StringBuilder sb) {
+    decodeBytes(sb, true);
+    CoderResult result;
+    do {
+      result = decoder.flush(chars);
+      appendChars(sb);
+    } while (result.isOverflow());
+    decoder.reset();
+  }
+
+  private void decodeBytes(StringBuilder sb, boolean endOfInput) {
+    bytes.flip();
+    CoderResult result;
+    do {
+      result = decoder.decode(bytes, chars, endOfInput);
+      appendChars(sb);
+    } while (result.isOverflow());
+    bytes.compact();  // keeps the start of a multi-byte character for the next call
+    if (sb == value && isText && value.length() > maxTextLength) {
+      throw new TextTooLongException("Your text's length exceeds this server's hard limit of " + maxTextLength + " characters.");
+    }
+  }
+
+  private void appendChars(StringBuilder sb) {
+    chars.flip();
+    sb.append(chars.array(), chars.position(), chars.remaining());
+    chars.clear();
+  }
+
+}
@@ -135,6 +135,7 @@ public class HTTPSServer extends Server {
     }
     try {
       HTTPSServerConfig config = new HTTPSServerConfig(args);
+      configureTaggerCache(config);
       try {
         checkForNonRootUser();
         HTTPSServer server;
@@ -28,7 +28,7 @@ import java.net.InetSocketAddress;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import static org.languagetool.server.HTTPServerConfig.DEFAULT_HOST;
 
@@ -101,11 +101,15 @@ public class HTTPServer extends Server {
       }
       RequestLimiter limiter = getRequestLimiterOrNull(config);
       ErrorRequestLimiter errorLimiter = getErrorRequestLimiterOrNull(config);
-      LinkedBlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
+      BlockingQueue<Runnable> workQueue = createWorkQueue(config);
       httpHandler = new LanguageToolHttpHandler(config, allowedIps, runInternally, limiter, errorLimiter, workQueue, this);
 
       InetSocketAddress address = host != null ? new InetSocketAddress(host, port) : new InetSocketAddress(port);
-      server = HttpServer.create(address, 0);
+      if (config.isNioServer()) {
+        server = new NioHttpServer(address, getMaxRequestBodySize(config));
+      } else {
+        server = HttpServer.create(address, 0);
+      }
       server.createContext("/", httpHandler);
       executorService = getExecutorService(workQueue, config);
       server.setExecutor(executorService);
@@ -137,6 +141,7 @@ public class HTTPServer extends Server {
       System.exit(1);
     }
     HTTPServerConfig config = new HTTPServerConfig(args);
+    configureTaggerCache(config);
     DatabaseAccess.init(config);
     try {
       checkForNonRootUser();
@@ -79,10 +79,19 @@ public class HTTPServerConfig {
   protected int ipFingerprintFactor = 1;
   protected boolean trustXForwardForHeader;
   protected int maxWorkQueueSize;
+  protected boolean nioServer = false;
+  protected int maxQueueDelayMillis = 0;
+  protected int queueDelayTargetMillis = 0;
+  protected int queueDelayIntervalMillis = 1000;
+  protected boolean fairScheduling = false;
+  protected int maxBatchSize = 100;
+  protected int batchCheckThreads = 1;
   protected File rulesConfigFile = null;
   protected File remoteRulesConfigFile = null;
   protected int cacheSize = 0;
   protected long cacheTTLSeconds = 300;
+  protected int taggerCacheSize = -1;
+  protected int languageDetectionCacheSize = 0;
   protected float maxErrorsPerWordRate = 0;
   protected int maxSpellingSuggestions = 0;
   protected List<String> blockedReferrers = new ArrayList<>();
@@ -90,14 +99,19 @@ public class HTTPServerConfig {
   protected int hiddenMatchesServerTimeout;
   protected int hiddenMatchesServerFailTimeout;
   protected int hiddenMatchesServerFall;
+  protected int hiddenMatchesServerThreads = 10;
   protected List<Language> hiddenMatchesLanguages = new ArrayList<>();
   protected String dbDriver = null;
   protected String dbUrl = null;
   protected String dbUsername = null;
   protected String dbPassword = null;
   protected boolean dbLogging;
+  protected long userDictCacheMaxBytes = 100_000_000;
+  protected int userDictCacheRefreshSeconds = 10;
   protected boolean prometheusMonitoring = false;
   protected int prometheusPort = 9301;
+  protected boolean timingHeader = false;
+  protected boolean checkCoalescing = true;
   protected GlobalConfig globalConfig = new GlobalConfig();
   protected List<String> disabledRuleIds = new ArrayList<>();
   protected boolean stoppable = false;
@@ -112,15 +126,17 @@ public class HTTPServerConfig {
   protected int abTestRollout = 100; // percentage [0,100]
 
   private static final List<String> KNOWN_OPTION_KEYS = Arrays.asList("abTest", "abTestClients", "abTestRollout",
-    "beolingusFile", "blockedReferrers", "cacheSize", "cacheTTLSeconds",
-    "dbDriver", "dbPassword", "dbUrl", "dbUsername", "disabledRuleIds", "fasttextBinary", "fasttextModel", "grammalectePassword",
+    "batchCheckThreads", "beolingusFile", "blockedReferrers", "cacheSize", "cacheTTLSeconds", "checkCoalescing",
+    "dbDriver", "dbPassword", "dbUrl", "dbUsername", "disabledRuleIds", "fairScheduling", "fasttextBinary", "fasttextModel", "grammalectePassword",
     "grammalecteServer", "grammalecteUser", "hiddenMatchesLanguages", "hiddenMatchesServer", "hiddenMatchesServerFailTimeout",
-    "hiddenMatchesServerTimeout", "hiddenMatchesServerFall", "ipFingerprintFactor", "languageModel", "maxCheckThreads", "maxCheckTimeMillis",
-    "maxCheckTimeWithApiKeyMillis", "maxErrorsPerWordRate", "maxPipelinePoolSize", "maxSpellingSuggestions", "maxTextHardLength",
-    "maxTextLength", "maxTextLengthWithApiKey", "maxWorkQueueSize", "neuralNetworkModel", "pipelineCaching",
-    "pipelineExpireTimeInSeconds", "pipelinePrewarming", "prometheusMonitoring", "prometheusPort", "remoteRulesFile",
+    "hiddenMatchesServerTimeout", "hiddenMatchesServerFall", "hiddenMatchesServerThreads", "ipFingerprintFactor", "languageDetectionCacheSize", "languageModel", "maxCheckThreads", "maxCheckTimeMillis",
+    "maxCheckTimeWithApiKeyMillis", "maxBatchSize", "maxErrorsPerWordRate", "maxPipelinePoolSize", "maxSpellingSuggestions", "maxTextHardLength",
+    "maxTextLength", "maxTextLengthWithApiKey", "maxWorkQueueSize", "maxQueueDelayMillis", "neuralNetworkModel", "nioServer", "pipelineCaching",
+    "pipelineExpireTimeInSeconds", "pipelinePrewarming", "prometheusMonitoring", "prometheusPort", "queueDelayIntervalMillis",
+    "queueDelayTargetMillis", "remoteRulesFile",
     "requestLimit", "requestLimitInBytes", "requestLimitPeriodInSeconds", "rulesFile", "secretTokenKey", "serverURL",
-    "skipLoggingChecks", "skipLoggingRuleMatches", "timeoutRequestLimit", "trustXForwardForHeader", "warmUp", "word2vecModel",
+    "skipLoggingChecks", "skipLoggingRuleMatches", "taggerCacheSize", "timeoutRequestLimit", "timingHeader", "trustXForwardForHeader", "userDictCacheMaxBytes",
+    "userDictCacheRefreshSeconds", "warmUp", "word2vecModel",
     "keystore", "password", "maxTextLengthPremium", "maxTextLengthAnonymous", "maxTextLengthLoggedIn", "gracefulDatabaseFailure",
     "redisPassword", "redisHost", "dbLogging", "premiumOnly");
 
@@ -230,6 +246,28 @@ public class HTTPServerConfig {
         if (maxWorkQueueSize < 0) {
           throw new IllegalArgumentException("maxWorkQueueSize must be >= 0: " + maxWorkQueueSize);
         }
+        nioServer = Boolean.valueOf(getOptionalProperty(props, "nioServer", "false").trim());
+        maxQueueDelayMillis = Integer.parseInt(getOptionalProperty(props, "maxQueueDelayMillis", "0"));
+        if (maxQueueDelayMillis < 0) {
+          throw new IllegalArgumentException("maxQueueDelayMillis must be >= 0: " + maxQueueDelayMillis);
+        }
+        queueDelayTargetMillis = Integer.parseInt(getOptionalProperty(props, "queueDelayTargetMillis", "0"));
+        if (queueDelayTargetMillis < 0) {
+          throw new IllegalArgumentException("queueDelayTargetMillis must be >= 0: " + queueDelayTargetMillis);
+        }
+        fairScheduling = Boolean.valueOf(getOptionalProperty(props, "fairScheduling", "false").trim());
+        queueDelayIntervalMillis = Integer.parseInt(getOptionalProperty(props, "queueDelayIntervalMillis", "1000"));
+        if (queueDelayIntervalMillis <= 0) {
+          throw new IllegalArgumentException("queueDelayIntervalMillis must be > 0: " + queueDelayIntervalMillis);
+        }
+        maxBatchSize = Integer.parseInt(getOptionalProperty(props, "maxBatchSize", "100"));
+        if (maxBatchSize <= 0) {
+          throw new IllegalArgumentException("maxBatchSize must be > 0: " + maxBatchSize);
+        }
+        batchCheckThreads = Integer.parseInt(getOptionalProperty(props, "batchCheckThreads", "1"));
+        if (batchCheckThreads <= 0) {
+          throw new IllegalArgumentException("batchCheckThreads must be > 0: " + batchCheckThreads);
+        }
         String url = getOptionalProperty(props, "serverURL", null);
         setServerURL(url);
         String langModel = getOptionalProperty(props, "languageModel", null);
@@ -246,7 +284,7 @@ public class HTTPServerConfig {
         }
         String fasttextModel = getOptionalProperty(props, "fasttextModel", null);
         String fasttextBinary = getOptionalProperty(props, "fasttextBinary", null);
-        if (fasttextBinary != null && fasttextModel != null) {
+        if (fasttextModel != null) {
           setFasttextPaths(fasttextModel, fasttextBinary);
         }
         maxCheckThreads = Integer.parseInt(getOptionalProperty(props, "maxCheckThreads", "10"));
@@ -279,6 +317,11 @@ public class HTTPServerConfig {
           throw new IllegalArgumentException("Use of cacheTTLSeconds without also setting cacheSize has no effect.");
         }
         cacheTTLSeconds = Integer.parseInt(getOptionalProperty(props, "cacheTTLSeconds", "300"));
+        taggerCacheSize = Integer.parseInt(getOptionalProperty(props, "taggerCacheSize", "-1"));
+        languageDetectionCacheSize = Integer.parseInt(getOptionalProperty(props, "languageDetectionCacheSize", "0"));
+        if (languageDetectionCacheSize < 0) {
+          throw new IllegalArgumentException("Invalid value for languageDetectionCacheSize: " + languageDetectionCacheSize + ", use 0 to deactivate cache");
+        }
         if (props.containsKey("warmUp")) {
           System.err.println("Setting ignored: 'warmUp'. Look into using pipelineCaching and pipelinePrewarming instead.");
         }
@@ -289,6 +332,10 @@ public class HTTPServerConfig {
         hiddenMatchesServerTimeout = Integer.parseInt(getOptionalProperty(props, "hiddenMatchesServerTimeout", "1000"));
         hiddenMatchesServerFailTimeout = Integer.parseInt(getOptionalProperty(props, "hiddenMatchesServerFailTimeout", "10000"));
         hiddenMatchesServerFall = Integer.parseInt(getOptionalProperty(props, "hiddenMatchesServerFall", "1"));
+        hiddenMatchesServerThreads = Integer.parseInt(getOptionalProperty(props, "hiddenMatchesServerThreads", "10"));
+        if (hiddenMatchesServerThreads <= 0) {
+          throw new IllegalArgumentException("hiddenMatchesServerThreads must be > 0: " + hiddenMatchesServerThreads);
+        }
         String langCodes = getOptionalProperty(props, "hiddenMatchesLanguages", "");
         for (String code : langCodes.split(",\\s*")) {
           if (!code.isEmpty()) {
@@ -300,8 +347,18 @@ public class HTTPServerConfig {
         dbUsername = getOptionalProperty(props, "dbUsername", null);
         dbPassword = getOptionalProperty(props, "dbPassword", null);
         dbLogging = Boolean.valueOf(getOptionalProperty(props, "dbLogging", "false").trim());
+        userDictCacheMaxBytes = Long.parseLong(getOptionalProperty(props, "userDictCacheMaxBytes", "100000000"));
+        if (userDictCacheMaxBytes < 0) {
+          throw new IllegalArgumentException("userDictCacheMaxBytes must be >= 0: " + userDictCacheMaxBytes);
+        }
+        userDictCacheRefreshSeconds = Integer.parseInt(getOptionalProperty(props, "userDictCacheRefreshSeconds", "10"));
+        if (userDictCacheRefreshSeconds <= 0) {
+          throw new IllegalArgumentException("userDictCacheRefreshSeconds must be > 0: " + userDictCacheRefreshSeconds);
+        }
         prometheusMonitoring = Boolean.valueOf(getOptionalProperty(props, "prometheusMonitoring", "false").trim());
         prometheusPort = Integer.parseInt(getOptionalProperty(props, "prometheusPort", "9301"));
+        timingHeader = Boolean.valueOf(getOptionalProperty(props, "timingHeader", "false").trim());
+        checkCoalescing = Boolean.valueOf(getOptionalProperty(props, "checkCoalescing", "true").trim());
         skipLoggingRuleMatches = Boolean.valueOf(getOptionalProperty(props, "skipLoggingRuleMatches", "false").trim());
         skipLoggingChecks = Boolean.valueOf(getOptionalProperty(props, "skipLoggingChecks", "false").trim());
         if (dbLogging && (dbDriver == null || dbUrl == null || dbUsername == null || dbPassword == null)) {
@@ -392,14 +449,17 @@ public class HTTPServerConfig {
     }
   }
 
-  private void setFasttextPaths(String fasttextModelPath, String fasttextBinaryPath) {
+  private void setFasttextPaths(String fasttextModelPath, @Nullable String fasttextBinaryPath) {
     fasttextModel = new File(fasttextModelPath);
-    fasttextBinary = new File(fasttextBinaryPath);
     if (!fasttextModel.exists() || fasttextModel.isDirectory()) {
       throw new RuntimeException("Fasttext model path not valid (file doesn't exist or is a directory): " + fasttextModelPath);
     }
-    if (!fasttextBinary.exists() || fasttextBinary.isDirectory() || !fasttextBinary.canExecute()) {
-      throw new RuntimeException("Fasttext binary path not valid (file doesn't exist, is a directory or not executable): " + fasttextBinaryPath);
+    if (fasttextBinaryPath != null) {
+      // deprecated since 5.1, the model can be loaded into this JVM:
+      fasttextBinary = new File(fasttextBinaryPath);
+      if (!fasttextBinary.exists() || fasttextBinary.isDirectory() || !fasttextBinary.canExecute()) {
+        throw new RuntimeException("Fasttext binary path not valid (file doesn't exist, is a directory or not executable): " + fasttextBinaryPath);
+      }
     }
   }
 
@@ -603,18 +663,22 @@ public class HTTPServerConfig {
   }
 
   /**
-   * Get binary path for fasttext language detection
+   * Get binary path for fasttext language detection, if set fasttext runs as a separate process
    * @since 4.3
+   * @deprecated without the binary, the model is loaded into this JVM (deprecated since 5.1)
    */
   @Nullable
+  @Deprecated
   public File getFasttextBinary() {
     return fasttextBinary;
   }
 
   /**
-   * Set binary path for fasttext language detection
+   * Set binary path for fasttext language detection, if set fasttext runs as a separate process
    * @since 4.4
+   * @deprecated without the binary, the model is loaded into this JVM (deprecated since 5.1)
    */
+  @Deprecated
   public void setFasttextBinary(File binary) {
     fasttextBinary = Objects.requireNonNull(binary);
   }
@@ -658,6 +722,102 @@ public class HTTPServerConfig {
     return maxWorkQueueSize;
   }
 
+  /**
+   * Whether to use the non-blocking HTTP server that reads requests completely before
+   * they are handed to the check threads (see {@link NioHttpServer}).
+   * @since 5.1
+   */
+  boolean isNioServer() {
+    return nioServer;
+  }
+
+  /** @since 5.1 */
+  void setNioServer(boolean nioServer) {
+    this.nioServer = nioServer;
+  }
+
+  /**
+   * Maximum time in milliseconds a request may wait for a check thread before it
+   * gets rejected with 503, {@code 0} means no limit.
+   * @since 5.1
+   */
+  int getMaxQueueDelayMillis() {
+    return maxQueueDelayMillis;
+  }
+
+  /** @since 5.1 */
+  void setMaxQueueDelayMillis(int maxQueueDelayMillis) {
+    this.maxQueueDelayMillis = maxQueueDelayMillis;
+  }
+
+  /**
+   * Acceptable standing queueing delay in milliseconds: if requests have waited longer than this
+   * for a whole {@link #getQueueDelayIntervalMillis() interval}, requests that waited longer get
+   * rejected with 503 (see {@link LoadShedder}). {@code 0} means no adaptive load shedding.
+   * @since 5.1
+   */
+  int getQueueDelayTargetMillis() {
+    return queueDelayTargetMillis;
+  }
+
+  /** @since 5.1 */
+  void setQueueDelayTargetMillis(int queueDelayTargetMillis) {
+    this.queueDelayTargetMillis = queueDelayTargetMillis;
+  }
+
+  /**
+   * Interval in milliseconds over which the queueing delay is observed for load shedding.
+   * @since 5.1
+   */
+  int getQueueDelayIntervalMillis() {
+    return queueDelayIntervalMillis;
+  }
+
+  /** @since 5.1 */
+  void setQueueDelayIntervalMillis(int queueDelayIntervalMillis) {
+    this.queueDelayIntervalMillis = queueDelayIntervalMillis;
+  }
+
+  /**
+   * Whether requests wait for a check thread in weighted fair order by client class and
+   * text size instead of first-come, first-served (see {@link FairWorkQueue}).
+   * @since 5.1
+   */
+  boolean isFairScheduling() {
+    return fairScheduling;
+  }
+
+  /** @since 5.1 */
+  void setFairScheduling(boolean fairScheduling) {
+    this.fairScheduling = fairScheduling;
+  }
+
+  /**
+   * Maximum number of texts in a request to {@code /v2/check/batch}.
+   * @since 5.1
+   */
+  int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /** @since 5.1 */
+  void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Number of threads that check the texts of one request to {@code /v2/check/batch} in parallel.
+   * @since 5.1
+   */
+  int getBatchCheckThreads() {
+    return batchCheckThreads;
+  }
+
+  /** @since 5.1 */
+  void setBatchCheckThreads(int batchCheckThreads) {
+    this.batchCheckThreads = batchCheckThreads;
+  }
+
 
   /**
    * @since 4.4
@@ -747,6 +907,39 @@ public class HTTPServerConfig {
     this.cacheTTLSeconds = cacheTTLSeconds;
   }
 
+  /**
+   * Size of the per-language tagger cache in number of words, a negative value means the default is used.
+   * Applied by the server's {@code main()} before any language is loaded.
+   * @since 5.1
+   */
+  int getTaggerCacheSize() {
+    return taggerCacheSize;
+  }
+
+  /**
+   * Set size of the per-language tagger cache in number of words, {@code 0} disables the cache.
+   * @since 5.1
+   */
+  void setTaggerCacheSize(int taggerCacheSize) {
+    this.taggerCacheSize = taggerCacheSize;
+  }
+
+  /**
+   * Size of the cache of language detection results for {@code language=auto}, {@code 0} means no caching.
+   * @since 5.1
+   */
+  int getLanguageDetectionCacheSize() {
+    return languageDetectionCacheSize;
+  }
+
+  /**
+   * Set size of the cache of language detection results, {@code 0} disables the cache.
+   * @since 5.1
+   */
+  void setLanguageDetectionCacheSize(int languageDetectionCacheSize) {
+    this.languageDetectionCacheSize = languageDetectionCacheSize;
+  }
+
   /**
    * Maximum errors per word rate, checking will stop if the rate is higher.
    * For example, with a rate of 0.33, the checking would stop if the user's
@@ -825,6 +1018,31 @@ public class HTTPServerConfig {
     return hiddenMatchesServerFall;
   }
 
+  /**
+   * Maximum number of queries to {@link #getHiddenMatchesServer()} running at the same time.
+   * The query runs while the text is checked locally, so this limits the number of requests
+   * that can use the hidden matches server in parallel.
+   * @since 5.1
+   */
+  int getHiddenMatchesServerThreads() {
+    return hiddenMatchesServerThreads;
+  }
+
+  /** @since 5.1 */
+  void setHiddenMatchesServer(String hiddenMatchesServer) {
+    this.hiddenMatchesServer = hiddenMatchesServer;
+  }
+
+  /** @since 5.1 */
+  void setHiddenMatchesServerTimeout(int hiddenMatchesServerTimeout) {
+    this.hiddenMatchesServerTimeout = hiddenMatchesServerTimeout;
+  }
+
+  /** @since 5.1 */
+  void setHiddenMatchesLanguages(List<Language> hiddenMatchesLanguages) {
+    this.hiddenMatchesLanguages = hiddenMatchesLanguages;
+  }
+
   /**
    * @return the file from which server rules configuration should be loaded, or {@code null}
    * @since 3.0
@@ -922,6 +1140,34 @@ public class HTTPServerConfig {
     return this.dbLogging;
   }
 
+  /**
+   * Maximum size of the cache of user dictionaries in bytes (approximately), {@code 0} disables the cache.
+   * A single dictionary larger than a quarter of this size is never cached.
+   * @since 5.1
+   */
+  long getUserDictCacheMaxBytes() {
+    return userDictCacheMaxBytes;
+  }
+
+  /** @since 5.1 */
+  void setUserDictCacheMaxBytes(long userDictCacheMaxBytes) {
+    this.userDictCacheMaxBytes = userDictCacheMaxBytes;
+  }
+
+  /**
+   * Seconds after which a cached user dictionary gets reloaded from the database in the background
+   * on its next use, to pick up changes made by other servers that use the same database.
+   * @since 5.1
+   */
+  int getUserDictCacheRefreshSeconds() {
+    return userDictCacheRefreshSeconds;
+  }
+
+  /** @since 5.1 */
+  void setUserDictCacheRefreshSeconds(int userDictCacheRefreshSeconds) {
+    this.userDictCacheRefreshSeconds = userDictCacheRefreshSeconds;
+  }
+
 
   /**
    * @since 4.6
@@ -937,6 +1183,33 @@ public class HTTPServerConfig {
     return prometheusPort;
   }
 
+  /**
+   * Whether the response to a check has an {@code X-LT-Timing} header with the milliseconds
+   * spent in each stage of the check, for debugging.
+   * @since 5.1
+   */
+  boolean isTimingHeader() {
+    return timingHeader;
+  }
+
+  /** @since 5.1 */
+  void setTimingHeader(boolean timingHeader) {
+    this.timingHeader = timingHeader;
+  }
+
+  /**
+   * Whether identical check requests that are checked at the same time share one check.
+   * @since 5.1
+   */
+  boolean isCheckCoalescing() {
+    return checkCoalescing;
+  }
+
+  /** @since 5.1 */
+  void setCheckCoalescing(boolean checkCoalescing) {
+    this.checkCoalescing = checkCoalescing;
+  }
+
   /**
    * @since 4.5
    * @return threshold for rule computation time until a warning gets logged, in milliseconds
@@ -29,18 +29,19 @@ import org.languagetool.tools.StringTools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeoutException;
 
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
@@ -58,13 +59,15 @@ class LanguageToolHttpHandler implements HttpHandler {
   private final Set<String> allowedIps;  
   private final RequestLimiter requestLimiter;
   private final ErrorRequestLimiter errorRequestLimiter;
-  private final LinkedBlockingQueue<Runnable> workQueue;
+  private final BlockingQueue<Runnable> workQueue;
   private final Server httpServer;
   private final TextChecker textCheckerV2;
   private final HTTPServerConfig config;
   private final RequestCounter reqCounter = new RequestCounter();
+  @Nullable
+  private final LoadShedder loadShedder;
   
-  LanguageToolHttpHandler(HTTPServerConfig config, Set<String> allowedIps, boolean internal, RequestLimiter requestLimiter, ErrorRequestLimiter errorLimiter, LinkedBlockingQueue<Runnable> workQueue, Server httpServer) {
+  LanguageToolHttpHandler(HTTPServerConfig config, Set<String> allowedIps, boolean internal, RequestLimiter requestLimiter, ErrorRequestLimiter errorLimiter, BlockingQueue<Runnable> workQueue, Server httpServer) {
     this.config = config;
     this.allowedIps = allowedIps;
     this.requestLimiter = requestLimiter;
@@ -72,6 +75,11 @@ class LanguageToolHttpHandler implements HttpHandler {
     this.workQueue = workQueue;
     this.httpServer = httpServer;
     this.textCheckerV2 = new V2TextChecker(config, internal, workQueue, reqCounter);
+    if (config.getQueueDelayTargetMillis() > 0 || config.getMaxQueueDelayMillis() > 0) {
+      this.loadShedder = new LoadShedder(config.getQueueDelayTargetMillis(), config.getQueueDelayIntervalMillis(), config.getMaxQueueDelayMillis());
+    } else {
+      this.loadShedder = null;
+    }
   }
 
   /** @since 2.6 */
@@ -118,6 +126,16 @@ class LanguageToolHttpHandler implements HttpHandler {
           }
         }
       }
+      // the time the request waited for this thread, -1 if unknown:
+      long queueDelayMillis = Server.StoppingThreadPoolExecutor.getQueueDelayMillis();
+      if (loadShedder != null && queueDelayMillis >= 0 && loadShedder.shouldShed(queueDelayMillis)) {
+        String errorMessage = "Error: There are currently too many parallel requests. Please try again later.";
+        logError(errorMessage + " Queue delay: " + queueDelayMillis + "ms", HTTP_UNAVAILABLE, parameters, httpExchange);
+        httpExchange.getResponseHeaders().set("Retry-After", String.valueOf(loadShedder.getRetryAfterSeconds()));
+        sendError(httpExchange, HTTP_UNAVAILABLE, errorMessage);
+        ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.QUEUE_DELAY);
+        return;
+      }
       String referrer = httpExchange.getRequestHeaders().getFirst("Referer");
       String origin = httpExchange.getRequestHeaders().getFirst("Origin");   // Referer can be turned off with meta tags, so also check this
       for (String ref : config.getBlockedReferrers()) {
@@ -145,6 +163,15 @@ class LanguageToolHttpHandler implements HttpHandler {
       // not an error but may make the underlying TCP connection unusable for following exchanges.",
       // so we consume the request now, even before checking for request limits:
       parameters = getRequestQuery(httpExchange, requestedUri);
+      long clientTimeoutMillis = getClientTimeoutMillis(httpExchange, parameters);
+      if (clientTimeoutMillis > 0 && queueDelayMillis > clientTimeoutMillis) {
+        // the client has most likely given up already, so don't waste a check on it:
+        String errorMessage = "Error: Request waited " + queueDelayMillis + "ms, longer than the client timeout of " + clientTimeoutMillis + "ms";
+        logError(errorMessage, HTTP_UNAVAILABLE, parameters, httpExchange, false);
+        sendError(httpExchange, HTTP_UNAVAILABLE, errorMessage);
+        ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.CLIENT_DEADLINE);
+        return;
+      }
       if (requestLimiter != null) {
         try {
           UserLimits userLimits = ServerTools.getUserLimits(parameters, config);
@@ -264,6 +291,27 @@ class LanguageToolHttpHandler implements HttpHandler {
     return false;
   }
 
+  /**
+   * The time in milliseconds after which the client gives up, as sent by the client in the
+   * {@code X-Client-Timeout} header or the {@code clientTimeoutMillis} parameter, or {@code 0}.
+   */
+  private long getClientTimeoutMillis(HttpExchange httpExchange, Map<String, String> parameters) {
+    String timeout = parameters.get("clientTimeoutMillis");
+    if (timeout == null) {
+      timeout = httpExchange.getRequestHeaders().getFirst("X-Client-Timeout");
+    }
+    if (timeout == null) {
+      return 0;
+    }
+    try {
+      long millis = Long.parseLong(timeout.trim());
+      if (millis >= 0) {
+        return millis;
+      }
+    } catch (NumberFormatException ignored) {}
+    throw new IllegalArgumentException("Invalid client timeout, must be a number of milliseconds >= 0: '" + timeout + "'");
+  }
+
   @NotNull
   private String getTextOrDataSizeMessage(Map<String, String> parameters) {
     String text = parameters.get("text");
@@ -274,6 +322,10 @@ class LanguageToolHttpHandler implements HttpHandler {
       if (data != null) {
         return "Data size: " + data.length() + ".";
       }
+      String texts = parameters.get("texts");
+      if (texts != null) {
+        return "Texts size: " + texts.length() + ".";
+      }
     }
     return "";
   }
@@ -386,16 +438,28 @@ class LanguageToolHttpHandler implements HttpHandler {
   private Map<String, String> getRequestQuery(HttpExchange httpExchange, URI requestedUri) throws IOException {
     Map<String, String> params = new HashMap<>();
     if ("post".equalsIgnoreCase(httpExchange.getRequestMethod())) {
-      try (InputStreamReader isr = new InputStreamReader(httpExchange.getRequestBody(), ENCODING)) {
-        params.putAll(parseQuery(readerToString(isr, config.getMaxTextHardLength()), httpExchange));
-        params.putAll(parseQuery(requestedUri.getRawQuery(), httpExchange));  // POST requests can have query parameters, too
-        return params;
+      if (requestedUri.getRawPath().endsWith("/check/batch") && isJsonContentType(httpExchange)) {
+        try (InputStreamReader isr = new InputStreamReader(httpExchange.getRequestBody(), ENCODING)) {
+          params.put("texts", readerToString(isr, config.getMaxTextHardLength()));
+        }
+      } else {
+        try (InputStream in = httpExchange.getRequestBody()) {
+          params.putAll(decodeParameters(in, httpExchange));
+        }
       }
+      params.putAll(parseQuery(requestedUri.getRawQuery(), httpExchange));  // POST requests can have query parameters, too
+      return params;
     } else {
       return parseQuery(requestedUri.getRawQuery(), httpExchange);
     }
   }
 
+  private boolean isJsonContentType(HttpExchange httpExchange) {
+    String contentType = httpExchange.getRequestHeaders().getFirst("Content-Type");
+    return contentType != null &&
+      (contentType.startsWith("application/json") || contentType.startsWith("application/x-ndjson"));
+  }
+
   private String readerToString(Reader reader, int maxTextLength) throws IOException {
     StringBuilder sb = new StringBuilder();
     char[] chars = new char[4000];
@@ -419,32 +483,21 @@ class LanguageToolHttpHandler implements HttpHandler {
   }
 
 
-  private Map<String, String> parseQuery(String query, HttpExchange httpExchange) throws UnsupportedEncodingException {
-    Map<String, String> parameters = new HashMap<>();
-    if (query != null) {
-      parameters.putAll(getParameterMap(query, httpExchange));
+  private Map<String, String> parseQuery(String query, HttpExchange httpExchange) throws IOException {
+    if (query == null) {
+      return new HashMap<>();
     }
-    return parameters;
+    return decodeParameters(new ByteArrayInputStream(query.getBytes(StandardCharsets.UTF_8)), httpExchange);
   }
 
-  private Map<String, String> getParameterMap(String query, HttpExchange httpExchange) throws UnsupportedEncodingException {
-    String[] pairs = query.split("[&]");
-    Map<String, String> parameters = new HashMap<>();
-    for (String pair : pairs) {
-      int delimPos = pair.indexOf('=');
-      if (delimPos != -1) {
-        String param = pair.substring(0, delimPos);
-        String key = URLDecoder.decode(param, ENCODING);
-        try {
-          String value = URLDecoder.decode(pair.substring(delimPos + 1), ENCODING);
-          parameters.put(key, value);
-        } catch (IllegalArgumentException e) {
-          throw new RuntimeException("Could not decode query. Query length: " + query.length() +
-                                     " Request method: " + httpExchange.getRequestMethod(), e);
-        }
-      }
+  private Map<String, String> decodeParameters(InputStream in, HttpExchange httpExchange) throws IOException {
+    // generous, as one character can be encoded as e.g. "%D8", plus other parameters:
+    FormDecoder decoder = new FormDecoder(config.getMaxTextHardLength() * 10L, config.getMaxTextHardLength());
+    try {
+      return decoder.decode(in);
+    } catch (IllegalArgumentException e) {
+      throw new RuntimeException("Could not decode query. Request method: " + httpExchange.getRequestMethod(), e);
     }
-    return parameters;
   }
 
 }
@@ -0,0 +1,87 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+/**
+ * Decides whether a request should be rejected because it has waited too long for a
+ * check thread, similar to CoDel ("Controlled Delay"): as long as the queue gets empty
+ * now and then (i.e. the minimum queueing delay of an interval stays below the target),
+ * bursts are absorbed and a request may wait up to one interval. Once the queue has
+ * been standing for a whole interval, only requests that waited less than the target
+ * are checked, so the server works on fresh requests instead of on those whose clients
+ * may have given up already.
+ * @since 5.1
+ */
+class LoadShedder {
+
+  private final long targetMillis;
+  private final long intervalMillis;
+  private final long maxDelayMillis;
+
+  private long intervalEnd;
+  private long minDelayInInterval = Long.MAX_VALUE;
+  private boolean overloaded;
+
+  /**
+   * @param targetMillis acceptable standing queueing delay, {@code 0} to disable the adaptive shedding
+   * @param intervalMillis interval over which the minimum queueing delay is observed
+   * @param maxDelayMillis requests that waited longer than this are always shed, {@code 0} for no limit
+   */
+  LoadShedder(long targetMillis, long intervalMillis, long maxDelayMillis) {
+    if (targetMillis < 0 || intervalMillis <= 0 || maxDelayMillis < 0) {
+      throw new IllegalArgumentException("Invalid settings: target " + targetMillis + "ms, interval " +
+        intervalMillis + "ms, maximum delay " + maxDelayMillis + "ms");
+    }
+    this.targetMillis = targetMillis;
+    this.intervalMillis = intervalMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * @param queueDelayMillis the time the request has waited for a check thread
+   * @return true if the request should be rejected without being checked
+   */
+  boolean shouldShed(long queueDelayMillis) {
+    return shouldShed(queueDelayMillis, System.currentTimeMillis());
+  }
+
+  synchronized boolean shouldShed(long queueDelayMillis, long now) {
+    if (maxDelayMillis > 0 && queueDelayMillis > maxDelayMillis) {
+      return true;
+    }
+    if (targetMillis == 0) {
+      return false;
+    }
+    if (now >= intervalEnd) {
+      overloaded = minDelayInInterval != Long.MAX_VALUE && minDelayInInterval > targetMillis;
+      minDelayInInterval = Long.MAX_VALUE;
+      intervalEnd = now + intervalMillis;
+    }
+    minDelayInInterval = Math.min(minDelayInInterval, queueDelayMillis);
+    return queueDelayMillis > (overloaded ? targetMillis : intervalMillis);
+  }
+
+  /**
+   * A hint for the {@code Retry-After} header of rejected requests.
+   */
+  int getRetryAfterSeconds() {
+    return (int) Math.max(1, (intervalMillis + 999) / 1000);
+  }
+
+}
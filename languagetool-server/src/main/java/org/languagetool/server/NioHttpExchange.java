@@ -0,0 +1,388 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A request of {@link NioHttpServer}. The request body has been read completely when the
+ * exchange is created. A response with a known length is buffered and handed to the server's
+ * event loop on {@link #close()}. A response of unknown length (i.e. {@code responseLength} 0)
+ * is sent with chunked transfer encoding whenever {@value #CHUNK_SIZE} bytes have been written
+ * or the response body is flushed. If the client doesn't read fast enough, the handler's thread
+ * waits as soon as more than {@value #MAX_PENDING_BYTES} bytes haven't been sent yet.
+ * @since 5.1
+ */
+class NioHttpExchange extends HttpExchange {
+
+  static final int CHUNK_SIZE = 16 * 1024;
+  static final int MAX_PENDING_BYTES = 256 * 1024;
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+
+  private final NioHttpServer server;
+  private final NioHttpServer.Connection connection;
+  private final HttpContext context;
+  private final String method;
+  private final URI uri;
+  private final String protocol;
+  private final Headers requestHeaders;
+  private final Headers responseHeaders = new Headers();
+  private final ResponseBody responseBuffer = new ResponseBody();
+  private final Map<String, Object> attributes = new HashMap<>();
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  private final byte[] requestBodyBytes;
+  private InputStream requestBody;
+  private OutputStream responseBody = responseBuffer;
+  private int responseCode = -1;
+  private boolean withoutBody;
+  // bytes handed to the event loop that haven't been sent yet, guarded by this:
+  private long pendingBytes;
+  private boolean connectionClosed;  // guarded by this
+
+  NioHttpExchange(NioHttpServer server, NioHttpServer.Connection connection, HttpContext context, String method,
+                  URI uri, String protocol, Headers requestHeaders, byte[] body) {
+    this.server = server;
+    this.connection = connection;
+    this.context = context;
+    this.method = method;
+    this.uri = uri;
+    this.protocol = protocol;
+    this.requestHeaders = requestHeaders;
+    this.requestBodyBytes = body;
+    this.requestBody = new ByteArrayInputStream(body);
+  }
+
+  /**
+   * The complete request body, independent of how much of {@link #getRequestBody()} has been read.
+   */
+  byte[] getRequestBodyBytes() {
+    return requestBodyBytes;
+  }
+
+  @Override
+  public Headers getRequestHeaders() {
+    return requestHeaders;
+  }
+
+  @Override
+  public Headers getResponseHeaders() {
+    return responseHeaders;
+  }
+
+  @Override
+  public URI getRequestURI() {
+    return uri;
+  }
+
+  @Override
+  public String getRequestMethod() {
+    return method;
+  }
+
+  @Override
+  public HttpContext getHttpContext() {
+    return context;
+  }
+
+  @Override
+  public InputStream getRequestBody() {
+    return requestBody;
+  }
+
+  @Override
+  public OutputStream getResponseBody() {
+    return responseBody;
+  }
+
+  /**
+   * Like the JDK implementation, a {@code responseLength} of {@code -1} means there's no response body
+   * and {@code 0} means the length is unknown, so the response is sent with chunked transfer encoding.
+   * HTTP/1.0 clients don't support that, their responses are buffered and sent with their actual
+   * {@code Content-Length}, like all responses with a known length.
+   */
+  @Override
+  public void sendResponseHeaders(int code, long responseLength) throws IOException {
+    if (responseCode != -1) {
+      throw new IOException("Response headers already sent");
+    }
+    responseCode = code;
+    withoutBody = responseLength == -1 || "HEAD".equalsIgnoreCase(method);
+    if (responseLength == 0 && !withoutBody && protocol.equals("HTTP/1.1")) {
+      responseBuffer.chunked = true;
+      send(ByteBuffer.wrap(toResponseHead(code, responseHeaders, -1, isKeepAlive())));
+    }
+  }
+
+  @Override
+  public InetSocketAddress getRemoteAddress() {
+    return connection.getRemoteAddress();
+  }
+
+  @Override
+  public int getResponseCode() {
+    return responseCode;
+  }
+
+  @Override
+  public InetSocketAddress getLocalAddress() {
+    return connection.getLocalAddress();
+  }
+
+  @Override
+  public String getProtocol() {
+    return protocol;
+  }
+
+  @Override
+  public Object getAttribute(String name) {
+    return attributes.get(name);
+  }
+
+  @Override
+  public void setAttribute(String name, Object value) {
+    attributes.put(name, value);
+  }
+
+  @Override
+  public void setStreams(InputStream in, OutputStream out) {
+    if (in != null) {
+      requestBody = in;
+    }
+    if (out != null) {
+      responseBody = out;
+    }
+  }
+
+  @Override
+  public HttpPrincipal getPrincipal() {
+    return null;
+  }
+
+  /**
+   * Sends the buffered response or the last chunk. If no response headers have been sent, the
+   * connection gets closed without a response.
+   */
+  @Override
+  public void close() {
+    if (closed.getAndSet(true)) {
+      return;
+    }
+    boolean complete = true;
+    try {
+      responseBody.flush();
+      responseBuffer.flush();
+    } catch (IOException e) {
+      // a stream set via setStreams() failed, or the client is gone while streaming
+      complete = false;
+    }
+    if (responseCode == -1) {
+      handOver(ByteBuffer.allocate(0), true, false);
+      return;
+    }
+    if (responseBuffer.chunked) {
+      // an incomplete chunked response can only be ended by closing the connection:
+      boolean keepAlive = complete && isKeepAlive();
+      handOver(ByteBuffer.wrap(complete ? LAST_CHUNK : new byte[0]), true, keepAlive);
+      return;
+    }
+    boolean keepAlive = isKeepAlive();
+    byte[] body = withoutBody ? new byte[0] : responseBuffer.toByteArray();
+    handOver(toResponse(responseCode, responseHeaders, body, keepAlive), true, keepAlive);
+  }
+
+  /**
+   * Called by the event loop when a part of the response has been sent.
+   */
+  synchronized void sent(int bytes) {
+    pendingBytes -= bytes;
+    notifyAll();
+  }
+
+  /**
+   * Called by the event loop when the connection has been closed.
+   */
+  synchronized void connectionClosed() {
+    connectionClosed = true;
+    notifyAll();
+  }
+
+  private boolean isKeepAlive() {
+    return !"close".equalsIgnoreCase(responseHeaders.getFirst("Connection")) &&
+           !"close".equalsIgnoreCase(requestHeaders.getFirst("Connection")) &&
+           (protocol.equals("HTTP/1.1") || "keep-alive".equalsIgnoreCase(requestHeaders.getFirst("Connection")));
+  }
+
+  /**
+   * Hand a part of a streamed response to the event loop, after waiting for the client to
+   * receive enough of the previous parts.
+   */
+  private void send(ByteBuffer part) throws IOException {
+    synchronized (this) {
+      try {
+        while (pendingBytes > 0 && pendingBytes + part.limit() > MAX_PENDING_BYTES && !connectionClosed) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while sending the response");
+      }
+      if (connectionClosed) {
+        throw new IOException("Connection closed by client");
+      }
+    }
+    handOver(part, false, false);
+  }
+
+  private void handOver(ByteBuffer part, boolean last, boolean keepAlive) {
+    synchronized (this) {
+      pendingBytes += part.limit();
+    }
+    server.sendResponse(connection, part, last, keepAlive);
+  }
+
+  void sendErrorAndClose(int code, String message) {
+    try {
+      byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+      responseHeaders.set("Content-Type", "text/plain; charset=utf-8");
+      sendResponseHeaders(code, bytes.length);
+      responseBody.write(bytes);
+      ServerMetricsCollector.getInstance().logResponse(code);
+    } catch (IOException ignored) {
+      // headers already sent, just close
+    } finally {
+      close();
+    }
+  }
+
+  static ByteBuffer toResponse(int code, Headers headers, byte[] body, boolean keepAlive) {
+    byte[] head = toResponseHead(code, headers, body.length, keepAlive);
+    ByteBuffer buffer = ByteBuffer.allocate(head.length + body.length);
+    buffer.put(head).put(body);
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * @param contentLength the length of the body, or -1 for chunked transfer encoding
+   */
+  private static byte[] toResponseHead(int code, Headers headers, long contentLength, boolean keepAlive) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("HTTP/1.1 ").append(code).append(' ').append(getReasonPhrase(code)).append("\r\n");
+    for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+      String name = entry.getKey();
+      if (name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Connection") || name.equalsIgnoreCase("Transfer-Encoding")) {
+        continue;
+      }
+      for (String value : entry.getValue()) {
+        sb.append(name).append(": ").append(value).append("\r\n");
+      }
+    }
+    if (contentLength >= 0) {
+      sb.append("Content-Length: ").append(contentLength).append("\r\n");
+    } else {
+      sb.append("Transfer-Encoding: chunked\r\n");
+    }
+    sb.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+    sb.append("\r\n");
+    return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static String getReasonPhrase(int code) {
+    switch (code) {
+      case 200: return "OK";
+      case 204: return "No Content";
+      case 304: return "Not Modified";
+      case 400: return "Bad Request";
+      case 403: return "Forbidden";
+      case 404: return "Not Found";
+      case 408: return "Request Timeout";
+      case 411: return "Length Required";
+      case 413: return "Payload Too Large";
+      case 429: return "Too Many Requests";
+      case 431: return "Request Header Fields Too Large";
+      case 500: return "Internal Server Error";
+      case 503: return "Service Unavailable";
+      default: return "";
+    }
+  }
+
+  /**
+   * Buffers the response body. For a chunked response, the buffer is sent as a chunk
+   * whenever it's full or flushed.
+   */
+  private class ResponseBody extends OutputStream {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private boolean chunked;
+
+    @Override
+    public void write(int b) throws IOException {
+      buffer.write(b);
+      sendChunkIfFull();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      buffer.write(b, off, len);
+      sendChunkIfFull();
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (chunked && buffer.size() > 0) {
+        sendChunk();
+      }
+    }
+
+    byte[] toByteArray() {
+      return buffer.toByteArray();
+    }
+
+    private void sendChunkIfFull() throws IOException {
+      if (chunked && buffer.size() >= CHUNK_SIZE) {
+        sendChunk();
+      }
+    }
+
+    private void sendChunk() throws IOException {
+      byte[] size = (Integer.toHexString(buffer.size()) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+      ByteBuffer chunk = ByteBuffer.allocate(size.length + buffer.size() + CRLF.length);
+      chunk.put(size).put(buffer.toByteArray()).put(CRLF);
+      chunk.flip();
+      buffer.reset();
+      send(chunk);
+    }
+  }
+
+}
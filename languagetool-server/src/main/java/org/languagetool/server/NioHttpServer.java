@@ -0,0 +1,689 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.sun.net.httpserver.*;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal HTTP/1.1 server based on non-blocking I/O that can be used instead of the
+ * JDK's {@link HttpServer} implementation. Requests are read and parsed by a single
+ * event loop thread, only complete requests are handed to the executor (i.e. the check
+ * threads), so slow clients don't block a check thread. The request body size is checked
+ * (using the {@code Content-Length} header) before anything gets buffered, and the body buffer
+ * only grows as the body actually arrives. The number of connections and the total size of the
+ * buffered request bodies are limited, so clients that announce large bodies and then stall
+ * can't exhaust the heap. Responses of unknown length are sent with chunked transfer encoding
+ * while the handler is still writing them, see {@link NioHttpExchange}.
+ * Supports a single context and no filters, authenticators, chunked request bodies, or HTTPS.
+ * @since 5.1
+ */
+class NioHttpServer extends HttpServer {
+
+  private static final Logger logger = LoggerFactory.getLogger(NioHttpServer.class);
+
+  private static final int MAX_HEADER_SIZE = 64 * 1024;
+  // time a client may take to send a request, to receive a response, or to keep an idle connection open:
+  private static final long IO_TIMEOUT_MILLIS = 60_000;
+  private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+  private static final int INITIAL_BODY_BUFFER_SIZE = 8192;
+  static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+  static final long DEFAULT_MAX_BUFFERED_BYTES = 512L * 1024 * 1024;
+
+  private final int maxBodySize;
+  private final int maxConnections;
+  private final long maxBufferedBytes;
+  private final Queue<Runnable> eventLoopTasks = new ConcurrentLinkedQueue<>();
+
+  private ServerSocketChannel serverChannel;
+  private Selector selector;
+  private Executor executor;
+  private NioHttpContext context;
+  private Thread eventLoop;
+  private volatile boolean running;
+  // only accessed by the event loop thread:
+  private int connectionCount;
+  private long bufferedBytes;
+
+  /**
+   * @param maxBodySize requests with a larger body get rejected with 413
+   */
+  NioHttpServer(InetSocketAddress address, int maxBodySize) throws IOException {
+    this(address, maxBodySize, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_BUFFERED_BYTES);
+  }
+
+  /**
+   * @param maxBodySize requests with a larger body get rejected with 413
+   * @param maxConnections further connections are closed right after they've been accepted
+   * @param maxBufferedBytes maximum size of all request bodies that are being read or processed,
+   *                         requests that would need more get rejected with 503
+   */
+  NioHttpServer(InetSocketAddress address, int maxBodySize, int maxConnections, long maxBufferedBytes) throws IOException {
+    this.maxBodySize = maxBodySize;
+    this.maxConnections = maxConnections;
+    this.maxBufferedBytes = maxBufferedBytes;
+    bind(address, 0);
+  }
+
+  @Override
+  public void bind(InetSocketAddress address, int backlog) throws IOException {
+    if (serverChannel != null) {
+      throw new IllegalStateException("Server already bound to " + serverChannel.getLocalAddress());
+    }
+    selector = Selector.open();
+    serverChannel = ServerSocketChannel.open();
+    serverChannel.bind(address, backlog);
+    serverChannel.configureBlocking(false);
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+  }
+
+  @Override
+  public void start() {
+    if (executor == null) {
+      throw new IllegalStateException("No executor set");
+    }
+    running = true;
+    eventLoop = new Thread(this::runEventLoop, "lt-server-event-loop");
+    eventLoop.setDaemon(true);
+    eventLoop.start();
+  }
+
+  @Override
+  public void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  @Override
+  public void stop(int delaySeconds) {
+    running = false;
+    selector.wakeup();
+    if (eventLoop != null) {
+      try {
+        eventLoop.join(TimeUnit.SECONDS.toMillis(delaySeconds));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    } else {
+      closeQuietly(selector);
+      closeQuietly(serverChannel);
+    }
+  }
+
+  @Override
+  public HttpContext createContext(String path, HttpHandler handler) {
+    if (context != null) {
+      throw new IllegalArgumentException("Only one context supported, already created: " + context.getPath());
+    }
+    context = new NioHttpContext(this, path, handler);
+    return context;
+  }
+
+  @Override
+  public HttpContext createContext(String path) {
+    return createContext(path, null);
+  }
+
+  @Override
+  public void removeContext(String path) {
+    if (context == null || !context.getPath().equals(path)) {
+      throw new IllegalArgumentException("No context for path: " + path);
+    }
+    context = null;
+  }
+
+  @Override
+  public void removeContext(HttpContext context) {
+    removeContext(context.getPath());
+  }
+
+  @Override
+  public InetSocketAddress getAddress() {
+    try {
+      return (InetSocketAddress) serverChannel.getLocalAddress();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void runEventLoop() {
+    long lastTimeoutCheck = System.currentTimeMillis();
+    try {
+      while (running) {
+        selector.select(1000);
+        Runnable task;
+        while ((task = eventLoopTasks.poll()) != null) {
+          try {
+            task.run();
+          } catch (RuntimeException e) {
+            logger.warn("Event loop task failed", e);
+          }
+        }
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            try {
+              accept();
+            } catch (IOException e) {
+              logger.warn("Could not accept connection", e);
+            }
+          } else {
+            Connection connection = (Connection) key.attachment();
+            try {
+              if (key.isReadable()) {
+                connection.read();
+              } else if (key.isWritable()) {
+                connection.write();
+              }
+            } catch (IOException | CancelledKeyException e) {
+              connection.close();
+            } catch (RuntimeException e) {
+              // only affects this connection, the event loop needs to keep serving the others:
+              logger.warn("Processing connection from " + connection.getRemoteAddress() + " failed, closing it", e);
+              connection.close();
+            }
+          }
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastTimeoutCheck > 1000) {
+          closeTimedOutConnections(now);
+          lastTimeoutCheck = now;
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Event loop of HTTP server failed", e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof Connection) {
+          ((Connection) key.attachment()).close();
+        }
+      }
+      closeQuietly(selector);
+      closeQuietly(serverChannel);
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = serverChannel.accept()) != null) {
+      if (connectionCount >= maxConnections) {
+        logger.warn("Closing new connection, already " + connectionCount + " connections open");
+        closeQuietly(channel);
+        continue;
+      }
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+      key.attach(new Connection(channel, key));
+      connectionCount++;
+    }
+  }
+
+  private void closeTimedOutConnections(long now) {
+    for (SelectionKey key : selector.keys()) {
+      if (key.attachment() instanceof Connection) {
+        Connection connection = (Connection) key.attachment();
+        if (!connection.isProcessing() && now - connection.ioStartTime > IO_TIMEOUT_MILLIS) {
+          connection.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Called from a check thread to send (a part of) the response.
+   * @param last whether this completes the response
+   * @param keepAlive whether to keep the connection open after the last part
+   */
+  void sendResponse(Connection connection, ByteBuffer response, boolean last, boolean keepAlive) {
+    eventLoopTasks.add(() -> connection.startWriting(response, last, keepAlive));
+    selector.wakeup();
+  }
+
+  private void dispatch(NioHttpExchange exchange) {
+    try {
+      executor.execute(new RequestTask(exchange));
+    } catch (RejectedExecutionException e) {
+      exchange.sendErrorAndClose(HttpURLConnection.HTTP_UNAVAILABLE, "Error: Server is shutting down or overloaded. Please try again later.");
+    }
+  }
+
+  /**
+   * Runs the handler for a completely read request.
+   */
+  static class RequestTask implements Runnable {
+
+    private final NioHttpExchange exchange;
+
+    RequestTask(NioHttpExchange exchange) {
+      this.exchange = exchange;
+    }
+
+    NioHttpExchange getExchange() {
+      return exchange;
+    }
+
+    @Override
+    public void run() {
+      try {
+        exchange.getHttpContext().getHandler().handle(exchange);
+      } catch (IOException | RuntimeException e) {
+        logger.error("Handling request failed", e);
+      } finally {
+        exchange.close();
+      }
+    }
+  }
+
+  private static void closeQuietly(@Nullable java.io.Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException ignored) {}
+    }
+  }
+
+  /**
+   * The state of one client connection, only accessed by the event loop thread.
+   */
+  class Connection {
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    private boolean closed;
+    private ByteBuffer headerBuffer = ByteBuffer.allocate(4096);
+    private ByteBuffer bodyBuffer;
+    private int contentLength;
+    // bytes counted in bufferedBytes for the current request's body:
+    private long reservedBytes;
+    private Headers requestHeaders;
+    private String requestLine;
+    // parts of the response that haven't been written yet:
+    private final Deque<ByteBuffer> responseBuffers = new ArrayDeque<>();
+    // whether the last part of the response has been handed over:
+    private boolean responseComplete;
+    private boolean keepAlive;
+    // start of reading the current request or writing the current response:
+    private long ioStartTime = System.currentTimeMillis();
+    // the exchange of the current request, if any:
+    private NioHttpExchange exchange;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+      this.channel = channel;
+      this.key = key;
+    }
+
+    private boolean isProcessing() {
+      return exchange != null && responseBuffers.isEmpty() && !responseComplete;
+    }
+
+    InetSocketAddress getRemoteAddress() {
+      return (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+    }
+
+    InetSocketAddress getLocalAddress() {
+      return (InetSocketAddress) channel.socket().getLocalSocketAddress();
+    }
+
+    private void read() throws IOException {
+      ByteBuffer target = bodyBuffer != null ? bodyBuffer : headerBuffer;
+      int count = channel.read(target);
+      if (count < 0) {
+        close();
+        return;
+      }
+      processInput();
+    }
+
+    private void processInput() throws IOException {
+      if (bodyBuffer == null) {
+        int headerEnd = indexOf(headerBuffer, HEADER_END);
+        if (headerEnd < 0) {
+          if (!headerBuffer.hasRemaining()) {
+            if (headerBuffer.capacity() >= MAX_HEADER_SIZE) {
+              sendErrorAndClose(431, "Error: Request header too large");
+              return;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(headerBuffer.capacity() * 2, MAX_HEADER_SIZE));
+            headerBuffer.flip();
+            larger.put(headerBuffer);
+            headerBuffer = larger;
+          }
+          return;
+        }
+        String header = new String(headerBuffer.array(), 0, headerEnd, StandardCharsets.ISO_8859_1);
+        if (!parseHeader(header)) {
+          return;
+        }
+        long contentLength = getContentLength();
+        if (contentLength < 0) {
+          return;
+        }
+        if (contentLength > maxBodySize) {
+          sendErrorAndClose(HttpURLConnection.HTTP_ENTITY_TOO_LARGE,
+            "Error: Your text's length exceeds this server's hard limit of " + maxBodySize + " characters.");
+          return;
+        }
+        if ("100-continue".equalsIgnoreCase(requestHeaders.getFirst("Expect"))) {
+          channel.write(ByteBuffer.wrap("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1)));
+        }
+        this.contentLength = (int) contentLength;
+        // move what has already been read beyond the header into the body:
+        int bodyStart = headerEnd + HEADER_END.length;
+        int bodyBytesRead = headerBuffer.position() - bodyStart;
+        int bodyBytes = Math.min(bodyBytesRead, this.contentLength);
+        if (!growBodyBuffer(Math.max(bodyBytes, Math.min(this.contentLength, INITIAL_BODY_BUFFER_SIZE)))) {
+          return;
+        }
+        bodyBuffer.put(headerBuffer.array(), bodyStart, bodyBytes);
+        headerBuffer.limit(headerBuffer.position());
+        headerBuffer.position(bodyStart + bodyBytes);
+        headerBuffer.compact();  // keep pipelined data for the next request
+      }
+      if (bodyBuffer.position() == contentLength) {
+        dispatchRequest();
+      } else if (!bodyBuffer.hasRemaining()) {
+        growBodyBuffer((int) Math.min((long) bodyBuffer.capacity() * 2, contentLength));
+      }
+    }
+
+    /**
+     * Replace the body buffer by one of the given capacity, unless that would exceed the limit of buffered bytes.
+     * @return false if the request has been rejected
+     */
+    private boolean growBodyBuffer(int capacity) {
+      int oldCapacity = bodyBuffer != null ? bodyBuffer.capacity() : 0;
+      if (bufferedBytes + capacity - oldCapacity > maxBufferedBytes) {
+        bodyBuffer = null;
+        releaseBody();
+        sendErrorAndClose(HttpURLConnection.HTTP_UNAVAILABLE, "Error: Server is overloaded. Please try again later.");
+        return false;
+      }
+      ByteBuffer larger = ByteBuffer.allocate(capacity);
+      if (bodyBuffer != null) {
+        bodyBuffer.flip();
+        larger.put(bodyBuffer);
+      }
+      bodyBuffer = larger;
+      bufferedBytes += capacity - oldCapacity;
+      reservedBytes += capacity - oldCapacity;
+      return true;
+    }
+
+    private void releaseBody() {
+      bufferedBytes -= reservedBytes;
+      reservedBytes = 0;
+    }
+
+    private boolean parseHeader(String header) {
+      String[] lines = header.split("\r\n");
+      requestLine = lines[0];
+      requestHeaders = new Headers();
+      for (int i = 1; i < lines.length; i++) {
+        int colon = lines[i].indexOf(':');
+        if (colon <= 0) {
+          sendErrorAndClose(HttpURLConnection.HTTP_BAD_REQUEST, "Error: Invalid request header");
+          return false;
+        }
+        requestHeaders.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+      }
+      if (requestLine.split(" ").length != 3) {
+        sendErrorAndClose(HttpURLConnection.HTTP_BAD_REQUEST, "Error: Invalid request line");
+        return false;
+      }
+      return true;
+    }
+
+    private long getContentLength() {
+      if (requestHeaders.containsKey("Transfer-Encoding")) {
+        sendErrorAndClose(HttpURLConnection.HTTP_LENGTH_REQUIRED, "Error: Chunked requests are not supported, please set Content-Length");
+        return -1;
+      }
+      String contentLength = requestHeaders.getFirst("Content-Length");
+      if (contentLength == null) {
+        return 0;
+      }
+      try {
+        long length = Long.parseLong(contentLength.trim());
+        if (length >= 0) {
+          return length;
+        }
+      } catch (NumberFormatException ignored) {}
+      sendErrorAndClose(HttpURLConnection.HTTP_BAD_REQUEST, "Error: Invalid Content-Length: " + contentLength);
+      return -1;
+    }
+
+    private void dispatchRequest() {
+      String[] parts = requestLine.split(" ");
+      String method = parts[0];
+      String protocol = parts[2];
+      keepAlive = isKeepAlive(protocol, requestHeaders.getFirst("Connection"));
+      URI uri;
+      try {
+        uri = new URI(parts[1]);
+      } catch (URISyntaxException e) {
+        sendErrorAndClose(HttpURLConnection.HTTP_BAD_REQUEST, "Error: Invalid request URI");
+        return;
+      }
+      byte[] body = bodyBuffer.array();
+      bodyBuffer = null;
+      // e.g. 'mailto:a' is a valid, but opaque URI without a path:
+      String path = uri.getPath();
+      if (path == null || !path.startsWith("/")) {
+        releaseBody();
+        sendErrorAndClose(HttpURLConnection.HTTP_BAD_REQUEST, "Error: Invalid request URI");
+        return;
+      }
+      NioHttpContext ctx = context;
+      if (ctx == null || ctx.getHandler() == null || !path.startsWith(ctx.getPath())) {
+        releaseBody();
+        sendErrorAndClose(HttpURLConnection.HTTP_NOT_FOUND, "Not found");
+        return;
+      }
+      // no reading until the response has been sent:
+      key.interestOps(0);
+      exchange = new NioHttpExchange(NioHttpServer.this, this, ctx, method, uri, protocol, requestHeaders, body);
+      dispatch(exchange);
+    }
+
+    private boolean isKeepAlive(String protocol, @Nullable String connectionHeader) {
+      if ("HTTP/1.1".equals(protocol)) {
+        return !"close".equalsIgnoreCase(connectionHeader);
+      }
+      return "keep-alive".equalsIgnoreCase(connectionHeader);
+    }
+
+    private void sendErrorAndClose(int code, String message) {
+      byte[] body = message.getBytes(StandardCharsets.UTF_8);
+      Headers headers = new Headers();
+      headers.set("Content-Type", "text/plain; charset=utf-8");
+      startWriting(NioHttpExchange.toResponse(code, headers, body, false), true, false);
+      ServerMetricsCollector.getInstance().logResponse(code);
+    }
+
+    private void startWriting(ByteBuffer response, boolean last, boolean keepAlive) {
+      if (!channel.isOpen()) {
+        return;
+      }
+      if (responseBuffers.isEmpty()) {
+        ioStartTime = System.currentTimeMillis();
+      }
+      responseBuffers.add(response);
+      if (last) {
+        responseComplete = true;
+        this.keepAlive = keepAlive;
+      }
+      try {
+        key.interestOps(SelectionKey.OP_WRITE);
+        write();
+      } catch (IOException | CancelledKeyException e) {
+        close();
+      }
+    }
+
+    private void write() throws IOException {
+      while (!responseBuffers.isEmpty()) {
+        ByteBuffer buffer = responseBuffers.peek();
+        channel.write(buffer);
+        if (buffer.hasRemaining()) {
+          return;
+        }
+        responseBuffers.poll();
+        ioStartTime = System.currentTimeMillis();
+        if (exchange != null) {
+          exchange.sent(buffer.limit());
+        }
+      }
+      if (!responseComplete) {
+        key.interestOps(0);  // wait for the next part of a streamed response
+        return;
+      }
+      responseComplete = false;
+      exchange = null;
+      releaseBody();
+      if (!keepAlive) {
+        close();
+        return;
+      }
+      ioStartTime = System.currentTimeMillis();
+      requestHeaders = null;
+      requestLine = null;
+      key.interestOps(SelectionKey.OP_READ);
+      if (headerBuffer.position() > 0) {
+        processInput();  // a pipelined request
+      }
+    }
+
+    void close() {
+      key.cancel();
+      closeQuietly(channel);
+      if (!closed) {
+        closed = true;
+        connectionCount--;
+        if (exchange != null) {
+          exchange.connectionClosed();  // don't let a check thread wait for a streamed response to be sent
+        }
+        // a body that's still being processed is only counted until the connection is gone,
+        // as the check thread won't be able to send its response anyway:
+        bodyBuffer = null;
+        releaseBody();
+      }
+    }
+  }
+
+  private static int indexOf(ByteBuffer buffer, byte[] pattern) {
+    byte[] array = buffer.array();
+    int end = buffer.position() - pattern.length;
+    outer:
+    for (int i = 0; i <= end; i++) {
+      for (int j = 0; j < pattern.length; j++) {
+        if (array[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private static class NioHttpContext extends HttpContext {
+
+    private final HttpServer server;
+    private final String path;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final List<Filter> filters = new ArrayList<>();
+    private HttpHandler handler;
+    private Authenticator authenticator;
+
+    NioHttpContext(HttpServer server, String path, HttpHandler handler) {
+      this.server = server;
+      this.path = path;
+      this.handler = handler;
+    }
+
+    @Override
+    public HttpHandler getHandler() {
+      return handler;
+    }
+
+    @Override
+    public void setHandler(HttpHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public String getPath() {
+      return path;
+    }
+
+    @Override
+    public HttpServer getServer() {
+      return server;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+      return attributes;
+    }
+
+    @Override
+    public List<Filter> getFilters() {
+      return filters;
+    }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator authenticator) {
+      Authenticator old = this.authenticator;
+      this.authenticator = authenticator;
+      return old;
+    }
+
+    @Override
+    public Authenticator getAuthenticator() {
+      return authenticator;
+    }
+  }
+
+}
@@ -30,11 +30,15 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.languagetool.*;
 import org.languagetool.gui.Configuration;
 import org.languagetool.rules.DictionaryMatchFilter;
+import org.languagetool.rules.bitext.BitextRule;
+import org.languagetool.tagging.BaseTagger;
+import org.languagetool.tagging.Tagger;
 import org.languagetool.tools.Tools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -106,9 +110,95 @@ class PipelinePool {
     }
   }
 
+  /**
+   * Settings of a {@link BitextPipeline}.
+   * @since 5.1
+   */
+  static class BitextPipelineSettings {
+    private final Language sourceLang;
+    private final Language targetLang;
+    private final UserConfig user;
+
+    BitextPipelineSettings(Language sourceLang, Language targetLang, UserConfig userConfig) {
+      this.sourceLang = sourceLang;
+      this.targetLang = targetLang;
+      this.user = userConfig;
+    }
+
+    @Override
+    public int hashCode() {
+      return new HashCodeBuilder(17, 31)
+        .append(sourceLang)
+        .append(targetLang)
+        .append(user)
+        .toHashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) return true;
+      if (obj == null || getClass() != obj.getClass()) {
+        return false;
+      }
+      BitextPipelineSettings other = (BitextPipelineSettings) obj;
+      return new EqualsBuilder()
+        .append(sourceLang, other.sourceLang)
+        .append(targetLang, other.targetLang)
+        .append(user, other.user)
+        .isEquals();
+    }
+
+    @Override
+    public String toString() {
+      return new ToStringBuilder(this)
+        .append("sourceLang", sourceLang)
+        .append("targetLang", targetLang)
+        .append("user", user)
+        .build();
+    }
+  }
+
+  /**
+   * JLanguageTool instances for the source and target language of a bitext check. Like
+   * a {@link Pipeline}, a BitextPipeline must only be used by one thread at a time.
+   * @since 5.1
+   */
+  static class BitextPipeline {
+    private final JLanguageTool sourceLt;
+    private final JLanguageTool targetLt;
+    private final List<BitextRule> bitextRules;
+
+    BitextPipeline(JLanguageTool sourceLt, JLanguageTool targetLt, List<BitextRule> bitextRules) {
+      this.sourceLt = sourceLt;
+      this.targetLt = targetLt;
+      this.bitextRules = bitextRules;
+    }
+
+    JLanguageTool getSourceLt() {
+      return sourceLt;
+    }
+
+    JLanguageTool getTargetLt() {
+      return targetLt;
+    }
+
+    List<BitextRule> getBitextRules() {
+      return bitextRules;
+    }
+  }
+
   private final HTTPServerConfig config;
   private final ResultCache cache;
   private final LoadingCache<PipelineSettings, ConcurrentLinkedQueue<Pipeline>> pool;
+  private final LoadingCache<BitextPipelineSettings, ConcurrentLinkedQueue<BitextPipeline>> bitextPool;
+  // bitext rules don't keep state, so they are loaded once per language pair and shared by all bitext pipelines:
+  private final LoadingCache<List<Language>, List<BitextRule>> bitextRules = CacheBuilder.newBuilder()
+    .build(new CacheLoader<List<Language>, List<BitextRule>>() {
+      @Override
+      public List<BitextRule> load(List<Language> sourceAndTarget) throws Exception {
+        return Tools.getBitextRules(sourceAndTarget.get(0), sourceAndTarget.get(1));
+      }
+    });
   private final boolean internalServer;
 
   private long pipelineExpireCheckTimestamp;
@@ -133,8 +223,18 @@ class PipelinePool {
             return new ConcurrentLinkedQueue<>();
           }
         });
+      this.bitextPool = CacheBuilder.newBuilder()
+        .maximumSize(maxPoolSize)
+        .expireAfterAccess(expireTime, TimeUnit.SECONDS)
+        .build(new CacheLoader<BitextPipelineSettings, ConcurrentLinkedQueue<BitextPipeline>>() {
+          @Override
+          public ConcurrentLinkedQueue<BitextPipeline> load(BitextPipelineSettings key) {
+            return new ConcurrentLinkedQueue<>();
+          }
+        });
     } else {
       this.pool = null;
+      this.bitextPool = null;
     }
   }
 
@@ -183,6 +283,35 @@ class PipelinePool {
     pipelines.add(pipeline);
   }
 
+  /**
+   * Get a pipeline for a bitext check, return it with {@link #returnBitextPipeline} after use.
+   * @since 5.1
+   */
+  BitextPipeline getBitextPipeline(BitextPipelineSettings settings) throws Exception {
+    if (bitextPool != null) {
+      BitextPipeline pipeline = bitextPool.get(settings).poll();
+      if (pipeline != null) {
+        return pipeline;
+      }
+    }
+    return createBitextPipeline(settings);
+  }
+
+  /** @since 5.1 */
+  void returnBitextPipeline(BitextPipelineSettings settings, BitextPipeline pipeline) throws ExecutionException {
+    if (bitextPool == null) return;
+    bitextPool.get(settings).add(pipeline);
+  }
+
+  BitextPipeline createBitextPipeline(BitextPipelineSettings settings) throws Exception {  // package-private for mocking
+    JLanguageTool sourceLt = new JLanguageTool(settings.sourceLang);
+    JLanguageTool targetLt = new JLanguageTool(settings.targetLang);
+    if (settings.user.filterDictionaryMatches()) {
+      targetLt.addMatchFilter(new DictionaryMatchFilter(settings.user));
+    }
+    return new BitextPipeline(sourceLt, targetLt, bitextRules.get(Arrays.asList(settings.sourceLang, settings.targetLang)));
+  }
+
   /**
    * Create a JLanguageTool instance for a specific language, mother tongue, and rule configuration.
    * Uses Pipeline wrapper to safely share objects
@@ -217,9 +346,19 @@ class PipelinePool {
     if (pool != null) {
       lt.setupFinished();
     }
+    monitorTaggerCache(lang);
     return lt;
   }
 
+  private void monitorTaggerCache(Language lang) {
+    Tagger tagger = lang.getTagger();
+    if (tagger instanceof BaseTagger && ((BaseTagger) tagger).getCache() != null) {
+      // re-adding the same cache is harmless, so there's no need to track what's already monitored:
+      ServerMetricsCollector.getInstance().monitorCache("languagetool_tagger_cache_" + lang.getShortCodeWithCountryAndVariant(),
+        ((BaseTagger) tagger).getCache());
+    }
+  }
+
   private void configureFromRulesFile(JLanguageTool langTool, Language lang) throws IOException {
     ServerTools.print("Using options configured in " + config.getRulesConfigFile());
     // If we are explicitly configuring from rules, ignore the useGUIConfig flag
@@ -18,26 +18,38 @@
  */
 package org.languagetool.server;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.jetbrains.annotations.NotNull;
 import org.languagetool.JLanguageTool;
 
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Limit the maximum number of request per IP address for a given time range.
+ * Requests are counted in sliding windows per IP address and per IP address and
+ * fingerprint, so a check takes constant time no matter how many requests are
+ * being served.
  */
 class RequestLimiter {
 
-  // TODO: this only works if the period covered is larger than requestLimitPeriodInSeconds -
-  // we should add a sanity check that warns if that's not the case
-  static final int REQUEST_QUEUE_SIZE = 1000;
+  // number of buckets the period is divided into - the window slides in steps of one bucket,
+  // i.e. requests are forgotten between requestLimitPeriodInSeconds * (1 - 1/BUCKET_COUNT)
+  // and requestLimitPeriodInSeconds seconds after they were made:
+  static final int BUCKET_COUNT = 20;
 
-  final List<RequestEvent> requestEvents = new CopyOnWriteArrayList<>();
-  
   private final int ipFingerprintFactor;
   private final int requestLimit;
   private final int requestLimitInBytes;
   private final int requestLimitPeriodInSeconds;
+  private final long bucketMillis;
+  // windows of keys without requests for a whole period are empty and get evicted:
+  private final LoadingCache<String, SlidingWindow> windowsByIp;
+  private final LoadingCache<String, SlidingWindow> windowsByFingerprint;
   private final Long server;
   private final DatabaseLogger logger;
 
@@ -52,6 +64,9 @@ class RequestLimiter {
     this.requestLimitInBytes = requestLimitInBytes;
     this.requestLimitPeriodInSeconds = requestLimitPeriodInSeconds;
     this.ipFingerprintFactor = ipFingerprintFactor;
+    this.bucketMillis = Math.max(1, requestLimitPeriodInSeconds * 1000L / BUCKET_COUNT);
+    this.windowsByIp = createWindowCache();
+    this.windowsByFingerprint = createWindowCache();
     this.logger = DatabaseLogger.getInstance();
     if (this.logger.isLogging()) {
       DatabaseAccess db = DatabaseAccess.getInstance();
@@ -65,6 +80,17 @@ class RequestLimiter {
     this(requestLimit, requestLimitInBytes, requestLimitPeriodInSeconds, 1);
   }
 
+  private LoadingCache<String, SlidingWindow> createWindowCache() {
+    return CacheBuilder.newBuilder()
+      .expireAfterAccess(bucketMillis * (BUCKET_COUNT + 1), TimeUnit.MILLISECONDS)
+      .build(new CacheLoader<String, SlidingWindow>() {
+        @Override
+        public SlidingWindow load(@NotNull String key) {
+          return new SlidingWindow();
+        }
+      });
+  }
+
   /**
    * The maximum number of request per {@link #getRequestLimitPeriodInSeconds()}.
    */
@@ -107,14 +133,26 @@ class RequestLimiter {
       // internal special case for e.g. nightly tests
       return;
     }
-    int reqSize = getRequestSize(params);
-    while (requestEvents.size() > REQUEST_QUEUE_SIZE) {
-      requestEvents.remove(0);
-    }
-    requestEvents.add(new RequestEvent(ipAddress, new Date(), reqSize, computeFingerprint(httpHeader, params), ServerTools.getMode(params)));
+    addRequest(ipAddress, computeFingerprint(httpHeader, params), getRequestSize(params), ServerTools.getMode(params));
     checkLimit(ipAddress, params, httpHeader);
   }
 
+  /**
+   * Count a request in the windows of its IP address and fingerprint.
+   */
+  void addRequest(String ipAddress, String fingerprint, int sizeInBytes, JLanguageTool.Mode mode) {
+    long bucket = System.currentTimeMillis() / bucketMillis;
+    // text level rules cause much less load, so count them accordingly
+    float modeFactor = mode == JLanguageTool.Mode.TEXTLEVEL_ONLY ? 0.1f : 1f;
+    long weightedSize = (long) (sizeInBytes * modeFactor);
+    windowsByIp.getUnchecked(ipAddress).add(bucket, weightedSize);
+    windowsByFingerprint.getUnchecked(getFingerprintKey(ipAddress, fingerprint)).add(bucket, weightedSize);
+  }
+
+  private String getFingerprintKey(String ipAddress, String fingerprint) {
+    return ipAddress + "|" + fingerprint;
+  }
+
   private int getRequestSize(Map<String, String> params) {
     String text = params.get("text");
     if (text != null) {
@@ -124,6 +162,10 @@ class RequestLimiter {
       if (data != null) {
         return data.length();
       }
+      String texts = params.get("texts");
+      if (texts != null) {
+        return texts.length();
+      }
     }
     return 0;
   }
@@ -158,92 +200,105 @@ class RequestLimiter {
   }
 
   void checkLimit(String ipAddress, Map<String, String> parameters, Map<String, List<String>> httpHeader) {
-    int requestsByIp = 0;
-    int requestSizeByIp = 0;
-    int requestsByFingerprint = 0;
-    int requestSizeByFingerprint = 0;
-    // all requests before this date are considered old:
-    Date thresholdDate = new Date(System.currentTimeMillis() - requestLimitPeriodInSeconds * 1000L);
+    long bucket = System.currentTimeMillis() / bucketMillis;
     String fingerprint = computeFingerprint(httpHeader, parameters);
-    String referer = getReferer(httpHeader);
-    String userAgent = getUserAgent(httpHeader);
-    Long clientId = getClientId(parameters);
-    for (RequestEvent event : requestEvents) {
-      if (event.ip.equals(ipAddress) && event.date.after(thresholdDate)) {
-        // text level rules cause much less load, so count them accordingly
-        float modeFactor = event.mode == JLanguageTool.Mode.TEXTLEVEL_ONLY ? 0.1f : 1f;
-        requestsByIp++;
-        requestSizeByIp += event.getSizeInBytes() * modeFactor;
-        if (event.fingerprint.equals(fingerprint)) {
-          requestsByFingerprint++;
-          requestSizeByFingerprint += event.getSizeInBytes() * modeFactor;
-        }
-        if (requestLimit > 0 && requestsByFingerprint > requestLimit) {
-          String msg = "limit: " + requestLimit + " / " + requestLimitPeriodInSeconds + ", requests: "  + requestsByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
-          logger.log(new DatabaseAccessLimitLogEntry("MaxRequestPerPeriodFingerprint", server, clientId, null, msg, referer, userAgent));
-          throw new TooManyRequestsException("Client request limit of " + requestLimit + " requests per " +
-            requestLimitPeriodInSeconds + " seconds exceeded"); }
-        if (requestLimit > 0 && requestsByIp > requestLimit * ipFingerprintFactor) {
-          String msg = "limit: " + requestLimit * ipFingerprintFactor + " / " + requestLimitPeriodInSeconds + ", requests: "  + requestsByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
-          logger.log(new DatabaseAccessLimitLogEntry("MaxRequestPerPeriodIp", server, clientId, null, msg, referer, userAgent));
-          throw new TooManyRequestsException("IP request limit of " + requestLimit * ipFingerprintFactor + " requests per " +
-            requestLimitPeriodInSeconds + " seconds exceeded");
-        }
-        if (event.mode == JLanguageTool.Mode.TEXTLEVEL_ONLY) {
-          if (requestLimitInBytes > 0 && requestSizeByFingerprint > requestLimitInBytes) {
-            String msg = "limit in Mode.TEXTLEVEL_ONLY: " + requestLimitInBytes + " / " + requestLimitPeriodInSeconds + ", request size: "  + requestSizeByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
-            logger.log(new DatabaseAccessLimitLogEntry("MaxRequestSizePerPeriodFingerprint", server, clientId, null, msg, referer, userAgent));
-            throw new TooManyRequestsException("Client request size limit of " + requestLimitInBytes + " bytes per " +
-              requestLimitPeriodInSeconds + " seconds exceeded in text-level checks");
-          }
-          if (requestLimitInBytes > 0 && requestSizeByIp > requestLimitInBytes * ipFingerprintFactor) {
-            String msg = "limit in Mode.TEXTLEVEL_ONLY: " + requestLimitInBytes * ipFingerprintFactor + " / " + requestLimitPeriodInSeconds + ", request size: "  + requestSizeByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
-            logger.log(new DatabaseAccessLimitLogEntry("MaxRequestSizePerPeriodIp", server, clientId, null, msg, referer, userAgent));
-            throw new TooManyRequestsException("IP request size limit of " + requestLimitInBytes * ipFingerprintFactor + " bytes per " +
-              requestLimitPeriodInSeconds + " seconds exceeded in text-level checks");
-          }
+    SlidingWindow ipWindow = windowsByIp.getIfPresent(ipAddress);
+    SlidingWindow fingerprintWindow = windowsByFingerprint.getIfPresent(getFingerprintKey(ipAddress, fingerprint));
+    long requestsByIp = ipWindow != null ? ipWindow.getRequests(bucket) : 0;
+    long requestSizeByIp = ipWindow != null ? ipWindow.getSizeInBytes(bucket) : 0;
+    long requestsByFingerprint = fingerprintWindow != null ? fingerprintWindow.getRequests(bucket) : 0;
+    long requestSizeByFingerprint = fingerprintWindow != null ? fingerprintWindow.getSizeInBytes(bucket) : 0;
+    if (requestLimit > 0 && requestsByFingerprint > requestLimit) {
+      String msg = "limit: " + requestLimit + " / " + requestLimitPeriodInSeconds + ", requests: "  + requestsByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
+      logLimitReached("MaxRequestPerPeriodFingerprint", msg, parameters, httpHeader);
+      throw new TooManyRequestsException("Client request limit of " + requestLimit + " requests per " +
+        requestLimitPeriodInSeconds + " seconds exceeded");
+    }
+    if (requestLimit > 0 && requestsByIp > requestLimit * ipFingerprintFactor) {
+      String msg = "limit: " + requestLimit * ipFingerprintFactor + " / " + requestLimitPeriodInSeconds + ", requests: "  + requestsByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
+      logLimitReached("MaxRequestPerPeriodIp", msg, parameters, httpHeader);
+      throw new TooManyRequestsException("IP request limit of " + requestLimit * ipFingerprintFactor + " requests per " +
+        requestLimitPeriodInSeconds + " seconds exceeded");
+    }
+    boolean textLevelOnly = ServerTools.getMode(parameters) == JLanguageTool.Mode.TEXTLEVEL_ONLY;
+    String msgPrefix = textLevelOnly ? "limit in Mode.TEXTLEVEL_ONLY: " : "limit: ";
+    String exceptionSuffix = textLevelOnly ? " seconds exceeded in text-level checks" : " seconds exceeded";
+    if (requestLimitInBytes > 0 && requestSizeByFingerprint > requestLimitInBytes) {
+      String msg = msgPrefix + requestLimitInBytes + " / " + requestLimitPeriodInSeconds + ", request size: "  + requestSizeByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
+      logLimitReached("MaxRequestSizePerPeriodFingerprint", msg, parameters, httpHeader);
+      throw new TooManyRequestsException("Client request size limit of " + requestLimitInBytes + " bytes per " +
+        requestLimitPeriodInSeconds + exceptionSuffix);
+    }
+    if (requestLimitInBytes > 0 && requestSizeByIp > requestLimitInBytes * ipFingerprintFactor) {
+      String msg = msgPrefix + requestLimitInBytes * ipFingerprintFactor + " / " + requestLimitPeriodInSeconds + ", request size: "  + requestSizeByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
+      logLimitReached("MaxRequestSizePerPeriodIp", msg, parameters, httpHeader);
+      throw new TooManyRequestsException("IP request size limit of " + requestLimitInBytes * ipFingerprintFactor + " bytes per " +
+        requestLimitPeriodInSeconds + exceptionSuffix);
+    }
+  }
+
+  private void logLimitReached(String type, String msg, Map<String, String> parameters, Map<String, List<String>> httpHeader) {
+    logger.log(new DatabaseAccessLimitLogEntry(type, server, getClientId(parameters), null, msg, getReferer(httpHeader), getUserAgent(httpHeader)));
+  }
+
+  /**
+   * Number of requests and their size over the last {@link #BUCKET_COUNT} time buckets,
+   * kept in a ring buffer. Lock-free: a bucket that has fallen out of the window is
+   * replaced by a fresh one with compare-and-set.
+   */
+  private static class SlidingWindow {
+
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+
+    void add(long bucketNumber, long sizeInBytes) {
+      int idx = (int) (bucketNumber % BUCKET_COUNT);
+      Bucket bucket = buckets.get(idx);
+      while (bucket == null || bucket.number != bucketNumber) {
+        Bucket newBucket = new Bucket(bucketNumber);
+        if (buckets.compareAndSet(idx, bucket, newBucket)) {
+          bucket = newBucket;
         } else {
-          if (requestLimitInBytes > 0 && requestSizeByFingerprint > requestLimitInBytes) {
-            String msg = "limit: " + requestLimitInBytes + " / " + requestLimitPeriodInSeconds + ", request size: "  + requestSizeByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
-            logger.log(new DatabaseAccessLimitLogEntry("MaxRequestSizePerPeriodFingerprint", server, clientId, null, msg, referer, userAgent));
-            throw new TooManyRequestsException("Client request size limit of " + requestLimitInBytes + " bytes per " +
-              requestLimitPeriodInSeconds + " seconds exceeded");
-          }
-          if (requestLimitInBytes > 0 && requestSizeByIp > requestLimitInBytes * ipFingerprintFactor) {
-            String msg = "limit: " + requestLimitInBytes * ipFingerprintFactor + " / " + requestLimitPeriodInSeconds + ", request size: "  + requestSizeByIp + ", ip: " + ipAddress + ", fingerprint: " + fingerprint;
-            logger.log(new DatabaseAccessLimitLogEntry("MaxRequestSizePerPeriodIp", server, clientId, null, msg, referer, userAgent));
-            throw new TooManyRequestsException("IP request size limit of " + requestLimitInBytes * ipFingerprintFactor + " bytes per " +
-              requestLimitPeriodInSeconds + " seconds exceeded");
-          }
+          bucket = buckets.get(idx);
         }
       }
+      bucket.requests.incrementAndGet();
+      bucket.sizeInBytes.addAndGet(sizeInBytes);
     }
-  }
-  
-  protected static class RequestEvent {
-
-    private final String ip;
-    private final Date date;
-    private final int sizeInBytes;
-    private final String fingerprint;
-    private final JLanguageTool.Mode mode;
-
-    RequestEvent(String ip, Date date, int sizeInBytes, String fingerprint, JLanguageTool.Mode mode) {
-      this.ip = ip;
-      this.date = new Date(date.getTime());
-      this.sizeInBytes = sizeInBytes;
-      this.fingerprint = fingerprint;
-      this.mode = mode;
+
+    long getRequests(long currentBucketNumber) {
+      long sum = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        Bucket bucket = buckets.get(i);
+        if (isInWindow(bucket, currentBucketNumber)) {
+          sum += bucket.requests.get();
+        }
+      }
+      return sum;
     }
 
-    protected Date getDate() {
-      return date;
+    long getSizeInBytes(long currentBucketNumber) {
+      long sum = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        Bucket bucket = buckets.get(i);
+        if (isInWindow(bucket, currentBucketNumber)) {
+          sum += bucket.sizeInBytes.get();
+        }
+      }
+      return sum;
     }
-    
-    int getSizeInBytes() {
-      return sizeInBytes;
+
+    private boolean isInWindow(Bucket bucket, long currentBucketNumber) {
+      return bucket != null && bucket.number > currentBucketNumber - BUCKET_COUNT && bucket.number <= currentBucketNumber;
     }
+  }
 
+  private static class Bucket {
+    private final long number;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong sizeInBytes = new AtomicLong();
+    Bucket(long number) {
+      this.number = number;
+    }
   }
 
 }
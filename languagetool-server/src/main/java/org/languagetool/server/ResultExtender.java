@@ -84,13 +84,7 @@ class ResultExtender {
     HttpURLConnection huc = (HttpURLConnection) url.openConnection();
     HttpURLConnection.setFollowRedirects(false);
     huc.setConnectTimeout(connectTimeoutMillis);
-    huc.setReadTimeout(connectTimeoutMillis*2);
-    // longer texts take longer to check, so increase the timeout:
-    float factor = plainText.length() / 1000.0f;
-    if (factor > 1) {
-      int increasedTimeout = (int)(connectTimeoutMillis * 2 * Math.min(factor, 5));
-      huc.setReadTimeout(increasedTimeout);
-    }
+    huc.setReadTimeout(getReadTimeoutMillis(plainText.length()));
     huc.setRequestMethod("POST");
     huc.setDoOutput(true);
     try {
@@ -125,6 +119,24 @@ class ResultExtender {
     }
   }
 
+  /**
+   * The maximum time a call to {@link #getExtensionMatches(String, Map)} can take for a text
+   * of the given length, not considering the time needed to send the request.
+   * @since 5.1
+   */
+  long getTimeoutMillis(int textLength) {
+    return connectTimeoutMillis + getReadTimeoutMillis(textLength);
+  }
+
+  private int getReadTimeoutMillis(int textLength) {
+    // longer texts take longer to check, so increase the timeout:
+    float factor = textLength / 1000.0f;
+    if (factor > 1) {
+      return (int)(connectTimeoutMillis * 2 * Math.min(factor, 5));
+    }
+    return connectTimeoutMillis*2;
+  }
+
   private String encode(String plainText) throws UnsupportedEncodingException {
     return URLEncoder.encode(plainText, StandardCharsets.UTF_8.name());
   }
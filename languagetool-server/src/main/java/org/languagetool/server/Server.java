@@ -22,8 +22,10 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sun.net.httpserver.HttpServer;
 import org.jetbrains.annotations.Nullable;
 import org.languagetool.JLanguageTool;
+import org.languagetool.tagging.BaseTagger;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +47,9 @@ abstract class Server {
             "127.0.0.1"
     ));
 
+  // request body limit if there's no maxTextHardLength, as that defaults to Integer.MAX_VALUE:
+  protected static final int DEFAULT_MAX_REQUEST_BODY_SIZE = 50 * 1024 * 1024;
+
   protected int port;
   protected String host;
   protected HttpServer server;
@@ -109,6 +114,18 @@ abstract class Server {
     return null;
   }
 
+  /**
+   * The maximum size of a request body, generous as one character can be encoded as e.g. "%D8",
+   * plus other parameters (same limit as the one used by {@link LanguageToolHttpHandler} when reading a request).
+   * If {@code maxTextHardLength} isn't set, {@link #DEFAULT_MAX_REQUEST_BODY_SIZE} is used.
+   */
+  protected int getMaxRequestBodySize(HTTPServerConfig config) {
+    if (config.getMaxTextHardLength() == Integer.MAX_VALUE) {
+      return DEFAULT_MAX_REQUEST_BODY_SIZE;
+    }
+    return (int) Math.min((long) config.getMaxTextHardLength() * 10, Integer.MAX_VALUE - 8);
+  }
+
   protected static boolean usageRequested(String[] args) {
     return args.length == 1 && (args[0].equals("-h") || args[0].equals("--help"));
   }
@@ -125,6 +142,12 @@ abstract class Server {
                        "                                            affects Hunspell-based languages only)");
     System.out.println("                 'maxCheckThreads' - maximum number of threads working in parallel (optional)");
     System.out.println("                 'cacheSize' - size of internal cache in number of sentences (optional, default: 0)");
+    System.out.println("                 'taggerCacheSize' - size of the per-language part-of-speech tagger cache in number of words (optional, 0 to deactivate)");
+    System.out.println("                 'userDictCacheMaxBytes' - maximum size of the cache of user dictionaries in bytes, a single dictionary larger than a quarter of this isn't cached (optional, default: 100000000)");
+    System.out.println("                 'userDictCacheRefreshSeconds' - reload a cached user dictionary in the background after this many seconds (optional, default: 10)");
+    System.out.println("                 'checkCoalescing' - set to 'false' to check identical requests that arrive while the first one is still checked");
+    System.out.println("                                     again instead of letting them share that check's result (optional, default: true)");
+    System.out.println("                 'languageDetectionCacheSize' - number of language detection results to cache for language=auto (optional, default: 0)");
     System.out.println("                 'requestLimit' - maximum number of requests per requestLimitPeriodInSeconds (optional)");
     System.out.println("                 'requestLimitInBytes' - maximum aggregated size of requests per requestLimitPeriodInSeconds (optional)");
     System.out.println("                 'timeoutRequestLimit' - maximum number of timeout request (optional)");
@@ -135,13 +158,23 @@ abstract class Server {
     System.out.println("                  https://github.com/languagetool-org/languagetool/blob/master/languagetool-standalone/CHANGES.md#word2vec");
     System.out.println("                 'fasttextModel' - a model file for better language detection (optional), see");
     System.out.println("                  https://fasttext.cc/docs/en/language-identification.html");
-    System.out.println("                 'fasttextBinary' - compiled fasttext executable for language detection (optional), see");
-    System.out.println("                  https://fasttext.cc/docs/en/support.html");
+    System.out.println("                 'fasttextBinary' - compiled fasttext executable for language detection (optional, deprecated:");
+    System.out.println("                  without it, the fasttext model is loaded into the server's JVM), see https://fasttext.cc/docs/en/support.html");
     System.out.println("                 'maxWorkQueueSize' - reject request if request queue gets larger than this (optional)");
+    System.out.println("                 'nioServer' - set to 'true' to read requests with non-blocking I/O before they use a check thread (optional, HTTP only)");
+    System.out.println("                 'maxQueueDelayMillis' - reject request with 503 if it waited longer than this for a check thread (optional)");
+    System.out.println("                 'queueDelayTargetMillis' - if requests wait longer than this for a check thread during a whole queueDelayIntervalMillis,");
+    System.out.println("                                            reject those that waited longer with 503 (optional, default: 0 = off)");
+    System.out.println("                 'queueDelayIntervalMillis' - interval for queueDelayTargetMillis (optional, default: 1000)");
+    System.out.println("                 'fairScheduling' - set to 'true' to share check threads between anonymous, API key, and premium requests");
+    System.out.println("                                    by weight and text size instead of first-come, first-served (optional, requires nioServer)");
+    System.out.println("                 'maxBatchSize' - maximum number of texts per request to /v2/check/batch (optional, default: 100)");
+    System.out.println("                 'batchCheckThreads' - number of threads checking the texts of one batch request in parallel (optional, default: 1)");
     System.out.println("                 'rulesFile' - a file containing rules configuration, such as .langugagetool.cfg (optional)");
     System.out.println("                 'warmUp' - set to 'true' to warm up server at start, i.e. run a short check with all languages (optional)");
     System.out.println("                 'blockedReferrers' - a comma-separated list of HTTP referrers (and 'Origin' headers) that are blocked and will not be served (optional)");
     System.out.println("                 'disabledRuleIds' - a comma-separated list of rule ids that are turned off for this server (optional)");
+    System.out.println("                 'timingHeader' - set to 'true' to add an 'X-LT-Timing' header with the milliseconds per check stage to check responses (optional)");
     System.out.println("                 Spellcheck-only languages: You can add simple spellcheck-only support for languages that LT doesn't");
     System.out.println("                 support by defining two optional properties:");
     System.out.println("                   'lang-xx' - set name of the language, use language code instead of 'xx', e.g. lang-tr=Turkish");
@@ -165,6 +198,16 @@ abstract class Server {
     System.out.println("                   https://github.com/languagetool-org/languagetool/blob/master/languagetool-standalone/CHANGES.md#word2vec");
   }
 
+  /**
+   * Configure the part-of-speech tagger cache. Must be called before any language is loaded,
+   * as the taggers get their cache size when they're created.
+   */
+  protected static void configureTaggerCache(HTTPServerConfig config) {
+    if (config.getTaggerCacheSize() >= 0) {
+      BaseTagger.setCacheSize(config.getTaggerCacheSize());
+    }
+  }
+
   protected static void checkForNonRootUser() {
     if ("root".equals(System.getProperty("user.name"))) {
       ServerTools.print("****************************************************************************************************");
@@ -173,19 +216,43 @@ abstract class Server {
     }
   }
   
-  protected ThreadPoolExecutor getExecutorService(LinkedBlockingQueue<Runnable> workQueue, HTTPServerConfig config) {
+  protected BlockingQueue<Runnable> createWorkQueue(HTTPServerConfig config) {
+    if (config.isFairScheduling()) {
+      return new FairWorkQueue();
+    }
+    return new LinkedBlockingQueue<>();
+  }
+
+  protected ThreadPoolExecutor getExecutorService(BlockingQueue<Runnable> workQueue, HTTPServerConfig config) {
     int threadPoolSize = config.getMaxCheckThreads();
     ServerTools.print("Setting up thread pool with " + threadPoolSize + " threads");
     return new StoppingThreadPoolExecutor(threadPoolSize, workQueue);
   }
 
   static class StoppingThreadPoolExecutor extends ThreadPoolExecutor {
-  
-    StoppingThreadPoolExecutor(int threadPoolSize, LinkedBlockingQueue<Runnable> workQueue) {
+
+    private static final ThreadLocal<Long> queueDelayMillis = new ThreadLocal<>();
+
+    StoppingThreadPoolExecutor(int threadPoolSize, BlockingQueue<Runnable> workQueue) {
       super(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, workQueue,
             new ThreadFactoryBuilder().setNameFormat("lt-server-thread-%d").build());
     }
 
+    /**
+     * The time the task that is running in the current thread has waited in the queue,
+     * or {@code -1} if the current thread isn't running a task of this executor.
+     * @since 5.1
+     */
+    static long getQueueDelayMillis() {
+      Long delay = queueDelayMillis.get();
+      return delay != null ? delay : -1;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      super.execute(new QueuedTask(command));
+    }
+
     @Override
     protected void afterExecute(Runnable r, Throwable t) {
       super.afterExecute(r, t);
@@ -198,4 +265,31 @@ abstract class Server {
     }
   }
 
+  /**
+   * A task of the {@link StoppingThreadPoolExecutor} that knows how long it has been queued.
+   */
+  static class QueuedTask implements Runnable {
+
+    private final Runnable command;
+    private final long queuedAt = System.nanoTime();
+
+    QueuedTask(Runnable command) {
+      this.command = command;
+    }
+
+    Runnable getCommand() {
+      return command;
+    }
+
+    @Override
+    public void run() {
+      StoppingThreadPoolExecutor.queueDelayMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt));
+      try {
+        command.run();
+      } finally {
+        StoppingThreadPoolExecutor.queueDelayMillis.remove();
+      }
+    }
+  }
+
 }
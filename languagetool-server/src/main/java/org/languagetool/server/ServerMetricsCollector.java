@@ -45,7 +45,9 @@ public class ServerMetricsCollector {
     TOO_MANY_ERRORS,
     MAX_CHECK_TIME,
     MAX_TEXT_SIZE,
-    INVALID_REQUEST
+    INVALID_REQUEST,
+    QUEUE_DELAY,
+    CLIENT_DEADLINE
   }
 
   private static final double[] LATENCY_BUCKETS = {
@@ -53,6 +55,15 @@ public class ServerMetricsCollector {
     1.25, 1.5, 1.75, 2., 2.5, 3., 4., 5., 7.5, 10., 15.
   };
 
+  private static final double[] DETECTION_CPU_BUCKETS = {
+    .0001, .00025, .0005, .00075, .001, .0025, .005, .0075, .01, .025, .05, .1, .25
+  };
+
+  // fewer buckets than for the whole check, as there's a time series per stage, language and mode:
+  private static final double[] STAGE_BUCKETS = {
+    .0005, .001, .0025, .005, .01, .025, .05, .1, .25, .5, 1., 2.5, 5., 10.
+  };
+
   private static final double[] SIZE_BUCKETS = {
     25, 50, 100, 150, 200, 250, 300, 400, 500, 750, 1000, 2500, 5000, 7500, 10000, 15000, 20000, 30000, 40000
   };
@@ -126,6 +137,15 @@ public class ServerMetricsCollector {
     .build("languagetool_check_speed_chars_per_second", "Histogram of relative check speed")
     .buckets(SPEED_BUCKETS).labelNames("language", "mode").register();
 
+  private final Histogram checkStageLatency = Histogram
+    .build("languagetool_check_stage_latency_seconds", "Histogram of the time spent in each stage of a check")
+    .buckets(STAGE_BUCKETS)
+    .labelNames("stage", "language", "mode").register();
+
+  private final Counter checkCoalescingCounter = Counter
+    .build("languagetool_check_coalescing_total", "Checks that were started or shared with an identical request in progress")
+    .labelNames("result").register();
+
   private final Counter ruleMatchCounter = Counter
     .build("languagetool_rule_matches_total", "Total amount of matches of a given rule")
     .labelNames("language", "rule_id").register();
@@ -142,6 +162,18 @@ public class ServerMetricsCollector {
     .build("languagetool_http_responses_total", "HTTP responses by code")
     .labelNames("code").register();
 
+  private final Gauge workQueueSize = Gauge
+    .build("languagetool_work_queue_size", "Requests waiting for a check thread by client class")
+    .labelNames("class").register();
+  private final Histogram workQueueWait = Histogram
+    .build("languagetool_work_queue_wait_seconds", "Histogram of the time requests waited for a check thread by client class")
+    .buckets(LATENCY_BUCKETS)
+    .labelNames("class").register();
+
+  private final Histogram languageDetectionCpuTime = Histogram
+    .build("languagetool_language_detection_cpu_seconds", "Histogram of CPU time used for language detection per request")
+    .buckets(DETECTION_CPU_BUCKETS).register();
+
   private final Counter failedHealthcheckCounter = Counter
     .build("languagetool_failed_healthchecks_total", "Failed healthchecks").register();
 
@@ -213,6 +245,16 @@ public class ServerMetricsCollector {
     ruleMatches.forEach((ruleId, ruleMatchCount) -> ruleMatchCounter.labels(langLabel, ruleId).inc(ruleMatchCount));
   }
 
+  void logCheckStage(CheckTimings.Stage stage, Language language, JLanguageTool.Mode mode, long nanos) {
+    String langLabel = language != null ? language.getShortCode() : UNKNOWN;
+    String modeLabel = mode != null ? mode.name() : UNKNOWN;
+    checkStageLatency.labels(stage.name().toLowerCase(), langLabel, modeLabel).observe(nanos / 1_000_000_000.0);
+  }
+
+  void logCheckCoalescing(boolean shared) {
+    checkCoalescingCounter.labels(shared ? "shared" : "started").inc();
+  }
+
   @NotNull
   private String cleanClientLabel(@Nullable String client) {
     String clientLabel;
@@ -240,6 +282,18 @@ public class ServerMetricsCollector {
     httpResponseCounter.labels(String.valueOf(httpCode)).inc();
   }
 
+  public void logQueueSize(String requestClass, int size) {
+    workQueueSize.labels(requestClass.toLowerCase()).set(size);
+  }
+
+  public void logQueueWait(String requestClass, long milliseconds) {
+    workQueueWait.labels(requestClass.toLowerCase()).observe(milliseconds / 1000.0);
+  }
+
+  public void logLanguageDetectionCpuTime(long nanos) {
+    languageDetectionCpuTime.observe(nanos / 1_000_000_000.0);
+  }
+
   public void logFailedHealthcheck() {
     failedHealthcheckCounter.inc();
   }
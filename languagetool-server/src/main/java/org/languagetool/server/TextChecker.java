@@ -18,6 +18,8 @@
  */
 package org.languagetool.server;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.sun.net.httpserver.HttpExchange;
 import org.apache.commons.lang3.builder.EqualsBuilder;
@@ -31,24 +33,30 @@ import org.languagetool.language.LanguageIdentifier;
 import org.languagetool.markup.AnnotatedText;
 import org.languagetool.markup.AnnotatedTextBuilder;
 import org.languagetool.rules.CategoryId;
-import org.languagetool.rules.DictionaryMatchFilter;
 import org.languagetool.rules.RemoteRule;
 import org.languagetool.rules.RuleMatch;
-import org.languagetool.rules.bitext.BitextRule;
 import org.languagetool.rules.spelling.morfologik.suggestions_ordering.SuggestionsOrdererConfig;
 import org.languagetool.tools.Tools;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @since 3.4
@@ -58,9 +66,10 @@ abstract class TextChecker {
   private static final int PINGS_CLEAN_MILLIS = 60 * 1000;  // internal pings database will be cleaned this often
   private static final int PINGS_MAX_SIZE = 5000;
 
-  protected abstract void setHeaders(HttpExchange httpExchange);
-  protected abstract String getResponse(AnnotatedText text, Language language, DetectedLanguage lang, Language motherTongue, List<RuleMatch> matches,
-                                        List<RuleMatch> hiddenMatches, String incompleteResultReason, int compactMode);
+  protected abstract void setHeaders(HttpExchange httpExchange, boolean ruleDictionary);
+  protected abstract void writeResponse(OutputStream out, AnnotatedText text, Language language, DetectedLanguage lang, Language motherTongue,
+                                        List<RuleMatch> matches, List<RuleMatch> hiddenMatches, String incompleteResultReason, int compactMode,
+                                        boolean ruleDictionary) throws IOException;
   @NotNull
   protected abstract List<String> getPreferredVariants(Map<String, String> parameters);
   protected abstract DetectedLanguage getLanguage(String text, Map<String, String> parameters, List<String> preferredVariants,
@@ -72,13 +81,19 @@ abstract class TextChecker {
   protected abstract List<String> getDisabledRuleIds(Map<String, String> parameters);
     
   protected static final int CONTEXT_SIZE = 40; // characters
+  /** JSON with each rule only once per result, see {@link org.languagetool.tools.RuleMatchesAsJsonSerializer} */
+  protected static final String COMPACT_JSON_CONTENT_TYPE = "application/vnd.languagetool.compact+json";
   protected static final int NUM_PIPELINES_PER_SETTING = 3; // for prewarming
 
   protected final HTTPServerConfig config;
   private static final Logger logger = LoggerFactory.getLogger(TextChecker.class);
 
   private static final String ENCODING = "UTF-8";
+  // "gzip" not followed by "q=0":
+  private static final Pattern GZIP_ACCEPTED = Pattern.compile("\\bgzip\\b(?!\\s*;\\s*q\\s*=\\s*0(\\.0*)?\\s*(,|$))");
+  private static final int GZIP_BUFFER_SIZE = 8192;
   private static final int CACHE_STATS_PRINT = 500; // print cache stats every n cache requests
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
   
   private final Map<String,Integer> languageCheckCounts = new HashMap<>();
   private Queue<Runnable> workQueue;
@@ -90,6 +105,13 @@ abstract class TextChecker {
   private long hiddenMatchesServerFailures = 0;
   private final LanguageIdentifier identifier;
   private final ExecutorService executorService;
+  // lets identical requests that are checked at the same time share one check:
+  private final CheckCoalescer checkCoalescer;
+  // queries the hidden matches server while the text is checked locally, null if there's no such server:
+  private final ExecutorService hiddenMatchesExecutor;
+  // checks the parts of a multilingual text in parallel, limited to maxCheckThreads threads:
+  private final ExecutorService multiLanguageExecutor;
+  private final ResultExtender resultExtender;
   private final ResultCache cache;
   private final DatabaseLogger databaseLogger;
   private final Long logServerId;
@@ -104,7 +126,21 @@ abstract class TextChecker {
     this.reqCounter = reqCounter;
     this.identifier = new LanguageIdentifier();
     this.identifier.enableFasttext(config.getFasttextBinary(), config.getFasttextModel());
+    this.identifier.enableCache(config.getLanguageDetectionCacheSize());
     this.executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("lt-textchecker-thread-%d").build());
+    this.checkCoalescer = new CheckCoalescer(executorService);
+    // no queue: if all threads are busy, a part is checked on the request's own thread:
+    this.multiLanguageExecutor = new ThreadPoolExecutor(0, config.getMaxCheckThreads(), 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+      new ThreadFactoryBuilder().setNameFormat("lt-multi-language-thread-%d").build(), (task, executor) -> task.run());
+    if (config.getHiddenMatchesServer() != null) {
+      int threads = config.getHiddenMatchesServerThreads();
+      this.hiddenMatchesExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads),
+        new ThreadFactoryBuilder().setNameFormat("lt-hidden-matches-thread-%d").build());
+      this.resultExtender = new ResultExtender(config.getHiddenMatchesServer(), config.getHiddenMatchesServerTimeout());
+    } else {
+      this.hiddenMatchesExecutor = null;
+      this.resultExtender = null;
+    }
     this.cache = config.getCacheSize() > 0 ? new ResultCache(
       config.getCacheSize(), config.getCacheTTLSeconds(), TimeUnit.SECONDS) : null;
     this.databaseLogger = DatabaseLogger.getInstance();
@@ -122,6 +158,9 @@ abstract class TextChecker {
       ServerMetricsCollector.getInstance().monitorCache("languagetool_sentences_cache", cache.getSentenceCache());
       ServerMetricsCollector.getInstance().monitorCache("languagetool_remote_matches_cache", cache.getRemoteMatchesCache());
     }
+    if (identifier.getCache() != null) {
+      ServerMetricsCollector.getInstance().monitorCache("languagetool_language_detection_cache", identifier.getCache());
+    }
 
     pipelinePool = new PipelinePool(config, cache, internalServer);
     if (config.isPipelinePrewarmingEnabled()) {
@@ -187,6 +226,10 @@ abstract class TextChecker {
 
   void shutdownNow() {
     executorService.shutdownNow();
+    multiLanguageExecutor.shutdownNow();
+    if (hiddenMatchesExecutor != null) {
+      hiddenMatchesExecutor.shutdownNow();
+    }
     RemoteRule.shutdown();
   }
 
@@ -194,7 +237,16 @@ abstract class TextChecker {
                  String remoteAddress) throws Exception {
     checkParams(parameters);
     long timeStart = System.currentTimeMillis();
+    CheckTimings timings = new CheckTimings();
+    long queueDelayMillis = Server.StoppingThreadPoolExecutor.getQueueDelayMillis();
+    if (queueDelayMillis >= 0) {
+      timings.add(CheckTimings.Stage.QUEUE, TimeUnit.MILLISECONDS.toNanos(queueDelayMillis));
+    }
     UserLimits limits = ServerTools.getUserLimits(parameters, config);
+    if (workQueue instanceof FairWorkQueue) {
+      // the credentials are valid, so the client's further requests can be scheduled by its class:
+      ((FairWorkQueue) workQueue).clientValidated(parameters, limits);
+    }
 
     // logging information
     String agent = parameters.get("useragent") != null ? parameters.get("useragent") : "-";
@@ -216,52 +268,18 @@ abstract class TextChecker {
     }
 
     boolean filterDictionaryMatches = "true".equals(parameters.get("filterDictionaryMatches"));
+    int maxSuggestions = getNonNegativeIntParameter(parameters, "maxSuggestions");
+    int suggestionsTimeBudget = getNonNegativeIntParameter(parameters, "suggestionsTimeBudget");
+    UserConfig.SuggestionsMode suggestionsMode = getSuggestionsMode(parameters, suggestionsTimeBudget);
 
-    Long textSessionId = null;
-    try {
-      if (parameters.containsKey("textSessionId")) {
-        String textSessionIdStr = parameters.get("textSessionId");
-        if (textSessionIdStr.contains(":")) { // transitioning to new format used in chrome addon
-          // format: "{random number in 0..99999}:{unix time}"
-          long random, timestamp;
-          int sepPos = textSessionIdStr.indexOf(':');
-          random = Long.valueOf(textSessionIdStr.substring(0, sepPos));
-          timestamp = Long.valueOf(textSessionIdStr.substring(sepPos + 1));
-          // use random number to choose a slice in possible range of values
-          // then choose position in slice by timestamp
-          long maxRandom = 100000;
-          long randomSegmentSize = (Long.MAX_VALUE - maxRandom) / maxRandom;
-          long segmentOffset = random * randomSegmentSize;
-          if (timestamp > randomSegmentSize) {
-            logger.warn(String.format("Could not transform textSessionId '%s'", textSessionIdStr));
-          }
-          textSessionId = segmentOffset + timestamp;
-        } else {
-          textSessionId = Long.valueOf(textSessionIdStr);
-        }
-      }
-    } catch (NumberFormatException ex) {
-      logger.warn("Could not parse textSessionId '" + parameters.get("textSessionId") + "' as long: " + ex.getMessage());
-    }
-
-    String abTest = null;
-    if (agent != null && config.getAbTestClients() != null && config.getAbTestClients().matcher(agent).matches()) {
-      boolean testRolledOut;
-      // partial rollout; deterministic if textSessionId given to make testing easier
-      if (textSessionId != null) {
-        testRolledOut = textSessionId % 100 < config.getAbTestRollout();
-      } else {
-        testRolledOut = random.nextInt(100) < config.getAbTestRollout();
-      }
-      if (testRolledOut) {
-        abTest = config.getAbTest();
-      }
-    }
+    Long textSessionId = getTextSessionId(parameters);
+    String abTest = getAbTest(agent, textSessionId);
 
-    UserConfig userConfig = new UserConfig(
-            limits.getPremiumUid() != null ? getUserDictWords(limits.getPremiumUid()) : Collections.emptyList(),
-            getRuleValues(parameters), config.getMaxSpellingSuggestions(), null, null, filterDictionaryMatches,
-      abTest, textSessionId);
+    // the user's dictionary is usually cached, but if not, load it while the language gets detected:
+    Long premiumUid = limits.getPremiumUid();
+    List<String> cachedUserDictWords = premiumUid != null ? DatabaseAccess.getInstance().getCachedUserDictWords(premiumUid) : null;
+    Future<List<String>> userDictWords = premiumUid != null && cachedUserDictWords == null ?
+      executorService.submit(() -> getUserDictWords(premiumUid)) : null;
 
     //print("Check start: " + text.length() + " chars, " + langParam);
     boolean autoDetectLanguage = getLanguageAutoDetect(parameters);
@@ -274,9 +292,18 @@ abstract class TextChecker {
             Arrays.asList(parameters.get("noopLanguages").split(",")) : Collections.emptyList();
     List<String> preferredLangs = parameters.get("preferredLanguages") != null ?
             Arrays.asList(parameters.get("preferredLanguages").split(",")) : Collections.emptyList();
+    long detectionStart = System.nanoTime();
     DetectedLanguage detLang = getLanguage(aText.getPlainText(), parameters, preferredVariants, noopLangs, preferredLangs);
+    timings.add(CheckTimings.Stage.LANGUAGE_DETECTION, System.nanoTime() - detectionStart);
     Language lang = detLang.getGivenLanguage();
 
+    List<String> userDict = cachedUserDictWords != null ? cachedUserDictWords :
+      userDictWords != null ? userDictWords.get() : Collections.emptyList();
+    UserConfig userConfig = new UserConfig(
+            userDict,
+            getRuleValues(parameters), config.getMaxSpellingSuggestions(), null, null, filterDictionaryMatches,
+      abTest, textSessionId, suggestionsMode, maxSuggestions);
+
     // == temporary counting code ======================================
     /*
     if (httpExchange.getRequestHeaders() != null && httpExchange.getRequestHeaders().get("Accept-Language") != null) {
@@ -303,168 +330,121 @@ abstract class TextChecker {
     //print("Starting check: " + aText.getPlainText().length() + " chars, #" + count);
     String motherTongueParam = parameters.get("motherTongue");
     Language motherTongue = motherTongueParam != null ? Languages.getLanguageForShortCode(motherTongueParam) : null;
-    boolean useEnabledOnly = "yes".equals(parameters.get("enabledOnly")) || "true".equals(parameters.get("enabledOnly"));
-    List<Language> altLanguages = new ArrayList<>();
-    if (parameters.get("altLanguages") != null) {
-      String[] altLangParams = parameters.get("altLanguages").split(",\\s*");
-      for (String langCode : altLangParams) {
-        Language altLang = Languages.getLanguageForShortCode(langCode);
-        altLanguages.add(altLang);
-        if (altLang.hasVariant() && !altLang.isVariant()) {
-          ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
-          throw new IllegalArgumentException("You specified altLanguage '" + langCode + "', but for this language you need to specify a variant, e.g. 'en-GB' instead of just 'en'");
-        }
-      }
-    }
-    List<String> enabledRules = getEnabledRuleIds(parameters);
-
-    List<String> disabledRules = getDisabledRuleIds(parameters);
-    List<CategoryId> enabledCategories = getCategoryIds("enabledCategories", parameters);
-    List<CategoryId> disabledCategories = getCategoryIds("disabledCategories", parameters);
-
-    if ((disabledRules.size() > 0 || disabledCategories.size() > 0) && useEnabledOnly) {
-      ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
-      throw new IllegalArgumentException("You cannot specify disabled rules or categories using enabledOnly=true");
-    }
-    if (enabledRules.isEmpty() && enabledCategories.isEmpty() && useEnabledOnly) {
-      ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
-      throw new IllegalArgumentException("You must specify enabled rules or categories when using enabledOnly=true");
-    }
-
-    boolean enableTempOffRules = "true".equals(parameters.get("enableTempOffRules"));
-    boolean useQuerySettings = enabledRules.size() > 0 || disabledRules.size() > 0 ||
-            enabledCategories.size() > 0 || disabledCategories.size() > 0 || enableTempOffRules;
-    boolean allowIncompleteResults = "true".equals(parameters.get("allowIncompleteResults"));
-    boolean enableHiddenRules = "true".equals(parameters.get("enableHiddenRules"));
-    JLanguageTool.Mode mode = ServerTools.getMode(parameters);
-    JLanguageTool.Level level = ServerTools.getLevel(parameters);
-    String callback = parameters.get("callback");
-    // allowed to log input on errors?
-    boolean inputLogging = !parameters.getOrDefault("inputLogging", "").equals("no");
-    QueryParams params = new QueryParams(altLanguages, enabledRules, disabledRules,
-      enabledCategories, disabledCategories, useEnabledOnly,
-      useQuerySettings, allowIncompleteResults, enableHiddenRules, enableTempOffRules, mode, level, callback, inputLogging);
+    QueryParams params = getQueryParams(parameters);
+    JLanguageTool.Mode mode = params.mode;
 
     int textSize = aText.getPlainText().length();
 
-    List<RuleMatch> ruleMatchesSoFar = Collections.synchronizedList(new ArrayList<>());
-
-    Future<List<RuleMatch>> future = executorService.submit(new Callable<List<RuleMatch>>() {
-      @Override
-      public List<RuleMatch> call() throws Exception {
+    // the hidden matches server only needs the text, so query it while we check the text locally. If the
+    // local check fails, the query gets cancelled:
+    long hiddenMatchesStart = System.currentTimeMillis();
+    Future<List<RemoteRuleMatch>> hiddenMatchesFuture = startHiddenMatchesQuery(aText, parameters, params, lang);
+    CheckCoalescer.Check check;
+    String incompleteResultReason = null;
+    List<RuleMatch> matches;
+    boolean checked = false;
+    try {
+      String coalescingKey = config.isCheckCoalescing() ?
+        getCoalescingKey(parameters, lang, motherTongue, params, userConfig, preferredLangs, preferredVariants, suggestionsTimeBudget) : null;
+      check = checkCoalescer.submit(coalescingKey, listener -> {
         // use to fake OOM in thread for testing:
         /*if (Math.random() < 0.1) {
           throw new OutOfMemoryError();
         }*/
-        return getRuleMatches(aText, lang, motherTongue, parameters, params, userConfig, detLang, preferredLangs, preferredVariants, f -> ruleMatchesSoFar.add(f));
-      }
-    });
-    String incompleteResultReason = null;
-    List<RuleMatch> matches;
-    try {
-      if (limits.getMaxCheckTimeMillis() < 0) {
-        matches = future.get();
-      } else {
-        matches = future.get(limits.getMaxCheckTimeMillis(), TimeUnit.MILLISECONDS);
+        return getRuleMatches(aText, lang, motherTongue, parameters, params, userConfig, detLang, preferredLangs, preferredVariants,
+          suggestionsTimeBudget, listener, timings);
+      });
+      // the request's own view of the (maybe shared) check, cancelling it doesn't affect other requests:
+      Future<List<RuleMatch>> future = check.getFuture();
+      try {
+        if (limits.getMaxCheckTimeMillis() < 0) {
+          matches = future.get();
+        } else {
+          matches = future.get(limits.getMaxCheckTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+      } catch (ExecutionException e) {
+        future.cancel(true);
+        if (ExceptionUtils.getRootCause(e) instanceof ErrorRateTooHighException) {
+          ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.TOO_MANY_ERRORS);
+          databaseLogger.log(new DatabaseCheckErrorLogEntry("ErrorRateTooHigh", logServerId, agentId, userId, lang, detLang.getDetectedLanguage(), textSize, "matches: " + check.getMatchesSoFar().size()));
+        }
+        if (params.allowIncompleteResults && ExceptionUtils.getRootCause(e) instanceof ErrorRateTooHighException) {
+          matches = check.getMatchesSoFar();  // threads might still be running, so this is a copy
+          logger.warn(e.getMessage() + " - returning " + matches.size() + " matches found so far. " +
+            "Detected language: " + detLang + ", " + ServerTools.getLoggingInfo(remoteAddress, null, -1, httpExchange,
+            parameters, System.currentTimeMillis()-timeStart, reqCounter));
+          incompleteResultReason = "Results are incomplete: " + ExceptionUtils.getRootCause(e).getMessage();
+        } else if (e.getCause() != null && e.getCause() instanceof OutOfMemoryError) {
+          throw (OutOfMemoryError)e.getCause();
+        } else {
+          throw new RuntimeException(ServerTools.cleanUserTextFromMessage(e.getMessage(), parameters) + ", detected: " + detLang, e);
+        }
+      } catch (TimeoutException e) {
+        boolean cancelled = future.cancel(true);
+        Path loadFile = Paths.get("/proc/loadavg");  // works in Linux only(?)
+        String loadInfo = loadFile.toFile().exists() ? Files.readAllLines(loadFile).toString() : "(unknown)";
+        if (errorRequestLimiter != null) {
+          errorRequestLimiter.logAccess(remoteAddress, httpExchange.getRequestHeaders(), parameters);
+        }
+        String message = "Text checking took longer than allowed maximum of " + limits.getMaxCheckTimeMillis() +
+                         " milliseconds (cancelled: " + cancelled +
+                         ", lang: " + lang.getShortCodeWithCountryAndVariant() +
+                         ", detected: " + detLang +
+                         ", #" + count +
+                         ", " + aText.getPlainText().length() + " characters of text" +
+                         ", mode: " + mode.toString().toLowerCase() +
+                         ", h: " + reqCounter.getHandleCount() + ", r: " + reqCounter.getRequestCount() + ", system load: " + loadInfo + ")";
+        if (params.allowIncompleteResults) {
+          matches = check.getMatchesSoFar();  // threads might still be running, so this is a copy
+          logger.info(message + " - returning " + matches.size() + " matches found so far");
+          incompleteResultReason = "Results are incomplete: text checking took longer than allowed maximum of " +
+                  String.format(Locale.ENGLISH, "%.2f", limits.getMaxCheckTimeMillis()/1000.0) + " seconds";
+        } else {
+          ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.MAX_CHECK_TIME);
+          databaseLogger.log(new DatabaseCheckErrorLogEntry("MaxCheckTimeExceeded",
+            logServerId, agentId, limits.getPremiumUid(), lang, detLang.getDetectedLanguage(), textSize, "load: "+ loadInfo));
+          throw new RuntimeException(message, e);
+        }
       }
-    } catch (ExecutionException e) {
-      future.cancel(true);
-      if (ExceptionUtils.getRootCause(e) instanceof ErrorRateTooHighException) {
-        ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.TOO_MANY_ERRORS);
-        databaseLogger.log(new DatabaseCheckErrorLogEntry("ErrorRateTooHigh", logServerId, agentId, userId, lang, detLang.getDetectedLanguage(), textSize, "matches: " + ruleMatchesSoFar.size()));
-      }
-      if (params.allowIncompleteResults && ExceptionUtils.getRootCause(e) instanceof ErrorRateTooHighException) {
-        logger.warn(e.getMessage() + " - returning " + ruleMatchesSoFar.size() + " matches found so far. " +
-          "Detected language: " + detLang + ", " + ServerTools.getLoggingInfo(remoteAddress, null, -1, httpExchange,
-          parameters, System.currentTimeMillis()-timeStart, reqCounter));
-        matches = new ArrayList<>(ruleMatchesSoFar);  // threads might still be running, so make a copy
-        incompleteResultReason = "Results are incomplete: " + ExceptionUtils.getRootCause(e).getMessage();
-      } else if (e.getCause() != null && e.getCause() instanceof OutOfMemoryError) {
-        throw (OutOfMemoryError)e.getCause();
-      } else {
-        throw new RuntimeException(ServerTools.cleanUserTextFromMessage(e.getMessage(), parameters) + ", detected: " + detLang, e);
-      }
-    } catch (TimeoutException e) {
-      boolean cancelled = future.cancel(true);
-      Path loadFile = Paths.get("/proc/loadavg");  // works in Linux only(?)
-      String loadInfo = loadFile.toFile().exists() ? Files.readAllLines(loadFile).toString() : "(unknown)";
-      if (errorRequestLimiter != null) {
-        errorRequestLimiter.logAccess(remoteAddress, httpExchange.getRequestHeaders(), parameters);
-      }
-      String message = "Text checking took longer than allowed maximum of " + limits.getMaxCheckTimeMillis() +
-                       " milliseconds (cancelled: " + cancelled +
-                       ", lang: " + lang.getShortCodeWithCountryAndVariant() +
-                       ", detected: " + detLang +
-                       ", #" + count +
-                       ", " + aText.getPlainText().length() + " characters of text" +
-                       ", mode: " + mode.toString().toLowerCase() +
-                       ", h: " + reqCounter.getHandleCount() + ", r: " + reqCounter.getRequestCount() + ", system load: " + loadInfo + ")";
-      if (params.allowIncompleteResults) {
-        logger.info(message + " - returning " + ruleMatchesSoFar.size() + " matches found so far");
-        matches = new ArrayList<>(ruleMatchesSoFar);  // threads might still be running, so make a copy
-        incompleteResultReason = "Results are incomplete: text checking took longer than allowed maximum of " +
-                String.format(Locale.ENGLISH, "%.2f", limits.getMaxCheckTimeMillis()/1000.0) + " seconds";
-      } else {
-        ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.MAX_CHECK_TIME);
-        databaseLogger.log(new DatabaseCheckErrorLogEntry("MaxCheckTimeExceeded",
-          logServerId, agentId, limits.getPremiumUid(), lang, detLang.getDetectedLanguage(), textSize, "load: "+ loadInfo));
-        throw new RuntimeException(message, e);
+      checked = true;
+    } finally {
+      if (!checked && hiddenMatchesFuture != null) {
+        hiddenMatchesFuture.cancel(true);
       }
     }
 
-    setHeaders(httpExchange);
+    boolean ruleDictionary = acceptsRuleDictionary(httpExchange);
+    setHeaders(httpExchange, ruleDictionary);
+    limitSuggestions(matches, maxSuggestions);
 
-    List<RuleMatch> hiddenMatches = new ArrayList<>();
-    if (config.getHiddenMatchesServer() != null && params.enableHiddenRules &&
-      config.getHiddenMatchesLanguages().contains(lang)) {
-      if(config.getHiddenMatchesServerFailTimeout() > 0 && lastHiddenMatchesServerTimeout != -1 &&
-        System.currentTimeMillis() - lastHiddenMatchesServerTimeout < config.getHiddenMatchesServerFailTimeout()) {
-        ServerMetricsCollector.getInstance().logHiddenServerStatus(false);
-        ServerMetricsCollector.getInstance().logHiddenServerRequest(false);
-        logger.warn("Warn: Skipped querying hidden matches server at " +
-          config.getHiddenMatchesServer() + " because of recent error/timeout (timeout=" + config.getHiddenMatchesServerFailTimeout() + "ms).");
-      } else {
-        ResultExtender resultExtender = new ResultExtender(config.getHiddenMatchesServer(), config.getHiddenMatchesServerTimeout());
-        try {
-          long start = System.currentTimeMillis();
-          List<RemoteRuleMatch> extensionMatches = resultExtender.getExtensionMatches(aText.getPlainText(), parameters);
-          hiddenMatches = resultExtender.getFilteredExtensionMatches(matches, extensionMatches);
-          long end = System.currentTimeMillis();
-          logger.info("Hidden matches: " + extensionMatches.size() + " -> " + hiddenMatches.size() + " in " + (end - start) + "ms for " + lang.getShortCodeWithCountryAndVariant());
-          ServerMetricsCollector.getInstance().logHiddenServerStatus(true);
-          lastHiddenMatchesServerTimeout = -1;
-          hiddenMatchesServerFailures = 0;
-          ServerMetricsCollector.getInstance().logHiddenServerRequest(true);
-        } catch (Exception e) {
-          ServerMetricsCollector.getInstance().logHiddenServerRequest(false);
-          hiddenMatchesServerFailures++;
-          if (hiddenMatchesServerFailures >= config.getHiddenMatchesServerFall()) {
-            ServerMetricsCollector.getInstance().logHiddenServerStatus(false);
-            logger.warn("Failed to query hidden matches server at " + config.getHiddenMatchesServer() + ": " + e.getClass() + ": " + e.getMessage() + ", input was " + aText.getPlainText().length() + " characters - marked as down now");
-            lastHiddenMatchesServerTimeout = System.currentTimeMillis();
-          } else {
-            logger.warn("Failed to query hidden matches server at " + config.getHiddenMatchesServer() + ": " + e.getClass() + ": " + e.getMessage() + ", input was " + aText.getPlainText().length() + " characters - " + (config.getHiddenMatchesServerFall() - hiddenMatchesServerFailures) + " errors until marked as down");
-          }
-        }
-      }
-    }
+    List<RuleMatch> hiddenMatches = getHiddenMatches(hiddenMatchesFuture, hiddenMatchesStart, matches, aText, lang);
     int compactMode = Integer.parseInt(parameters.getOrDefault("c", "0"));
-    String response = getResponse(aText, lang, detLang, motherTongue, matches, hiddenMatches, incompleteResultReason, compactMode);
-    if (params.callback != null) {
-      // JSONP - still needed today for the special case of hosting your own on-premise LT without SSL
-      // and using it from a local MS Word (not Online Word) - issue #89 in the add-in repo:
-      response = params.callback + "(" + response + ");";
-    }
     String messageSent = "sent";
     String languageMessage = lang.getShortCodeWithCountryAndVariant();
+    if (config.isTimingHeader()) {
+      // the response is streamed, so the serialization can't be part of the header:
+      httpExchange.getResponseHeaders().set("X-LT-Timing", timings.toHeaderValue());
+    }
+    long serializationStart = System.nanoTime();
     try {
-      httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.getBytes(ENCODING).length);
-      httpExchange.getResponseBody().write(response.getBytes(ENCODING));
+      OutputStream out = startResponse(httpExchange);
+      if (params.callback != null) {
+        // JSONP - still needed today for the special case of hosting your own on-premise LT without SSL
+        // and using it from a local MS Word (not Online Word) - issue #89 in the add-in repo:
+        out.write((params.callback + "(").getBytes(ENCODING));
+      }
+      writeResponse(out, aText, lang, detLang, motherTongue, matches, hiddenMatches, incompleteResultReason, compactMode, ruleDictionary);
+      if (params.callback != null) {
+        out.write(");".getBytes(ENCODING));
+      }
+      finishResponse(out);
       ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
     } catch (IOException exception) {
       // the client is disconnected
       messageSent = "notSent: " + exception.getMessage();
     }
+    timings.add(CheckTimings.Stage.SERIALIZATION, System.nanoTime() - serializationStart);
+    timings.log(lang, mode);
     if (motherTongue != null) {
       languageMessage += " (mother tongue: " + motherTongue.getShortCodeWithCountryAndVariant() + ")";
     }
@@ -480,7 +460,7 @@ abstract class TextChecker {
             + computationTime + "ms, agent:" + agent + version
             + ", " + messageSent + ", q:" + (workQueue != null ? workQueue.size() : "?")
             + ", h:" + reqCounter.getHandleCount() + ", dH:" + reqCounter.getDistinctIps()
-            + ", m:" + mode.toString().toLowerCase() + skipLimits);
+            + ", m:" + mode.toString().toLowerCase() + skipLimits + (check.isShared() ? ", shared" : ""));
 
     int matchCount = matches.size();
     Map<String, Integer> ruleMatchCount = new HashMap<>();
@@ -521,7 +501,348 @@ abstract class TextChecker {
     }
 
   }
-  
+
+  /**
+   * Check several texts with the same settings (see {@code /v2/check/batch}). Up to
+   * {@link HTTPServerConfig#getBatchCheckThreads()} threads take the texts in order, each of them
+   * borrows one pipeline per language for the whole batch instead of one per text. The result of
+   * each text is written as soon as it and all results before it are available. Once the first
+   * result has been sent, texts that couldn't be checked in time or failed get an empty result
+   * marked as incomplete, as the response status cannot be changed anymore.
+   * @param ndjson whether to respond with one JSON object per line instead of a JSON array
+   * @since 5.1
+   */
+  void checkTexts(List<AnnotatedText> texts, boolean ndjson, HttpExchange httpExchange, Map<String, String> parameters,
+                  ErrorRequestLimiter errorRequestLimiter, String remoteAddress) throws Exception {
+    checkParams(parameters);
+    if (parameters.get("sourceText") != null || parameters.get("callback") != null ||
+        (parameters.get("multilingual") != null && !parameters.get("multilingual").equals("false"))) {
+      throw new IllegalArgumentException("'sourceText', 'callback', and 'multilingual' are not supported for batch checks");
+    }
+    long timeStart = System.currentTimeMillis();
+    UserLimits limits = ServerTools.getUserLimits(parameters, config);
+    String agent = parameters.get("useragent") != null ? parameters.get("useragent") : "-";
+    Long agentId = null, userId = null;
+    if (databaseLogger.isLogging()) {
+      DatabaseAccess db = DatabaseAccess.getInstance();
+      agentId = db.getOrCreateClientId(parameters.get("useragent"));
+      userId = limits.getPremiumUid();
+    }
+    int totalSize = 0;
+    for (AnnotatedText aText : texts) {
+      totalSize += aText.getPlainText().length();
+    }
+    // the texts share the limit, so splitting a text into a batch doesn't get around it:
+    if (totalSize > limits.getMaxTextLength()) {
+      String msg = "limit: " + limits.getMaxTextLength() + ", size: " + totalSize + ", texts: " + texts.size();
+      databaseLogger.log(new DatabaseAccessLimitLogEntry("MaxCharacterSizeExceeded", logServerId, agentId, userId, msg,
+        httpExchange.getRequestHeaders().getFirst("Referer"), httpExchange.getRequestHeaders().getFirst("User-Agent")));
+      ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.MAX_TEXT_SIZE);
+      throw new TextTooLongException("Your texts exceed the limit of " + limits.getMaxTextLength() +
+              " characters (they're " + totalSize + " characters). Please submit shorter texts.");
+    }
+
+    boolean filterDictionaryMatches = "true".equals(parameters.get("filterDictionaryMatches"));
+    int maxSuggestions = getNonNegativeIntParameter(parameters, "maxSuggestions");
+    int suggestionsTimeBudget = getNonNegativeIntParameter(parameters, "suggestionsTimeBudget");
+    UserConfig.SuggestionsMode suggestionsMode = getSuggestionsMode(parameters, suggestionsTimeBudget);
+    Long textSessionId = getTextSessionId(parameters);
+    UserConfig userConfig = new UserConfig(
+      limits.getPremiumUid() != null ? getUserDictWords(limits.getPremiumUid()) : Collections.emptyList(),
+      getRuleValues(parameters), config.getMaxSpellingSuggestions(), null, null, filterDictionaryMatches,
+      getAbTest(agent, textSessionId), textSessionId, suggestionsMode, maxSuggestions);
+    List<String> preferredVariants = getPreferredVariants(parameters);
+    if (parameters.get("noopLanguages") != null && !getLanguageAutoDetect(parameters)) {
+      ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
+      throw new IllegalArgumentException("You can specify 'noopLanguages' only when also using 'language=auto'");
+    }
+    List<String> noopLangs = getCommaSeparatedStrings("noopLanguages", parameters);
+    List<String> preferredLangs = getCommaSeparatedStrings("preferredLanguages", parameters);
+    String motherTongueParam = parameters.get("motherTongue");
+    Language motherTongue = motherTongueParam != null ? Languages.getLanguageForShortCode(motherTongueParam) : null;
+    QueryParams params = getQueryParams(parameters);
+    int compactMode = Integer.parseInt(parameters.getOrDefault("c", "0"));
+    boolean ruleDictionary = acceptsRuleDictionary(httpExchange);
+
+    List<CompletableFuture<BatchResult>> results = new ArrayList<>();
+    for (int i = 0; i < texts.size(); i++) {
+      results.add(new CompletableFuture<>());
+    }
+    AtomicInteger nextText = new AtomicInteger();
+    List<Future<?>> workers = new ArrayList<>();
+    for (int i = 0; i < Math.min(config.getBatchCheckThreads(), texts.size()); i++) {
+      workers.add(executorService.submit(() -> {
+        Map<PipelinePool.PipelineSettings, Pipeline> pipelines = new HashMap<>();
+        try {
+          int idx;
+          while ((idx = nextText.getAndIncrement()) < texts.size() && !Thread.currentThread().isInterrupted()) {
+            try {
+              long start = System.currentTimeMillis();
+              AnnotatedText aText = texts.get(idx);
+              DetectedLanguage detLang = getLanguage(aText.getPlainText(), parameters, preferredVariants, noopLangs, preferredLangs);
+              PipelinePool.PipelineSettings settings = new PipelinePool.PipelineSettings(detLang.getGivenLanguage(), motherTongue,
+                params, config.globalConfig, userConfig);
+              Pipeline lt = pipelines.get(settings);
+              if (lt == null) {
+                lt = pipelinePool.getPipeline(settings);
+                pipelines.put(settings, lt);
+              }
+              List<RuleMatch> matches = lt.check(aText, true, JLanguageTool.ParagraphHandling.NORMAL, null, params.mode, params.level, executorService);
+              computeSuggestions(matches, suggestionsTimeBudget);
+              results.get(idx).complete(new BatchResult(detLang, matches, (int) (System.currentTimeMillis() - start)));
+            } catch (Throwable t) {
+              results.get(idx).completeExceptionally(t);
+              if (t instanceof Error) {
+                throw (Error) t;
+              }
+            }
+          }
+        } finally {
+          for (Map.Entry<PipelinePool.PipelineSettings, Pipeline> entry : pipelines.entrySet()) {
+            try {
+              pipelinePool.returnPipeline(entry.getKey(), entry.getValue());
+            } catch (ExecutionException e) {
+              logger.warn("Could not return pipeline", e);
+            }
+          }
+        }
+      }));
+    }
+
+    long deadline = limits.getMaxCheckTimeMillis() < 0 ? Long.MAX_VALUE : timeStart + limits.getMaxCheckTimeMillis();
+    OutputStream out = null;
+    String messageSent = "sent";
+    int incompleteCount = 0;
+    int matchCount = 0;
+    try {
+      for (int i = 0; i < texts.size(); i++) {
+        AnnotatedText aText = texts.get(i);
+        BatchResult result = null;
+        String incompleteResultReason = null;
+        try {
+          long waitMillis = Math.max(0, deadline - System.currentTimeMillis());
+          result = results.get(i).get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          if (out == null && !params.allowIncompleteResults) {
+            ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.MAX_CHECK_TIME);
+            if (errorRequestLimiter != null) {
+              errorRequestLimiter.logAccess(remoteAddress, httpExchange.getRequestHeaders(), parameters);
+            }
+            throw new RuntimeException("Text checking took longer than allowed maximum of " + limits.getMaxCheckTimeMillis() +
+              " milliseconds (" + i + " of " + texts.size() + " texts checked, " + totalSize + " characters of text)", e);
+          }
+          incompleteResultReason = "Results are incomplete: text checking took longer than allowed maximum of " +
+            String.format(Locale.ENGLISH, "%.2f", limits.getMaxCheckTimeMillis()/1000.0) + " seconds";
+        } catch (ExecutionException e) {
+          if (out == null) {
+            if (e.getCause() instanceof OutOfMemoryError) {
+              throw (OutOfMemoryError) e.getCause();
+            }
+            throw new RuntimeException(ServerTools.cleanUserTextFromMessage(e.getMessage(), parameters), e);
+          }
+          logger.warn("Batch check of text " + i + " of " + texts.size() + " failed: " + ServerTools.cleanUserTextFromMessage(e.getMessage(), parameters));
+          incompleteResultReason = "Results are incomplete: checking this text failed";
+        }
+        DetectedLanguage detLang;
+        List<RuleMatch> matches;
+        if (result != null) {
+          detLang = result.detectedLanguage;
+          matches = result.matches;
+          limitSuggestions(matches, maxSuggestions);
+        } else {
+          detLang = getLanguage(aText.getPlainText(), parameters, preferredVariants, noopLangs, preferredLangs);
+          matches = Collections.emptyList();
+          incompleteCount++;
+        }
+        if (out == null) {
+          setHeaders(httpExchange, ruleDictionary);
+          if (ndjson) {
+            httpExchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+          }
+          out = startResponse(httpExchange);
+          ServerMetricsCollector.getInstance().logResponse(HttpURLConnection.HTTP_OK);
+          if (!ndjson) {
+            out.write('[');
+          }
+        } else if (!ndjson) {
+          out.write(',');
+        }
+        writeResponse(out, aText, detLang.getGivenLanguage(), detLang, motherTongue, matches,
+          Collections.emptyList(), incompleteResultReason, compactMode, ruleDictionary);
+        out.write('\n');
+        out.flush();
+        if (result != null) {
+          matchCount += matches.size();
+          logBatchTextCheck(aText, result, params.mode, agent, agentId, userId, textSessionId);
+        }
+      }
+      if (!ndjson) {
+        out.write(']');
+      }
+      finishResponse(out);
+    } catch (IOException exception) {
+      // the client is disconnected
+      messageSent = "notSent: " + exception.getMessage();
+    } finally {
+      for (Future<?> worker : workers) {
+        worker.cancel(true);
+      }
+    }
+    logger.info("Batch check done: " + texts.size() + " texts, " + totalSize + " chars, " +
+      (incompleteCount > 0 ? incompleteCount + " incomplete, " : "") + matchCount + " matches, " +
+      (System.currentTimeMillis() - timeStart) + "ms, agent:" + agent + ", " + messageSent +
+      ", q:" + (workQueue != null ? workQueue.size() : "?") + ", h:" + reqCounter.getHandleCount() +
+      ", m:" + params.mode.toString().toLowerCase());
+  }
+
+  private boolean acceptsRuleDictionary(HttpExchange httpExchange) {
+    String accept = httpExchange.getRequestHeaders().getFirst("Accept");
+    return accept != null && accept.contains(COMPACT_JSON_CONTENT_TYPE);
+  }
+
+  /**
+   * Send the headers of a successful response. As the size of the response isn't known yet, it's
+   * sent with chunked transfer encoding. It's compressed if the client accepts gzip.
+   * @return the stream to write the response to, to be finished with {@link #finishResponse(OutputStream)}
+   */
+  private OutputStream startResponse(HttpExchange httpExchange) throws IOException {
+    httpExchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+    String acceptEncoding = httpExchange.getRequestHeaders().getFirst("Accept-Encoding");
+    boolean gzip = acceptEncoding != null && GZIP_ACCEPTED.matcher(acceptEncoding).find();
+    if (gzip) {
+      httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    httpExchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+    if (gzip) {
+      return new GZIPOutputStream(httpExchange.getResponseBody(), GZIP_BUFFER_SIZE) {
+        {
+          def.setLevel(Deflater.BEST_SPEED);
+        }
+      };
+    }
+    return httpExchange.getResponseBody();
+  }
+
+  private void finishResponse(OutputStream out) throws IOException {
+    if (out instanceof GZIPOutputStream) {
+      ((GZIPOutputStream) out).finish();
+    }
+    out.flush();
+  }
+
+  private void logBatchTextCheck(AnnotatedText aText, BatchResult result, JLanguageTool.Mode mode, String agent,
+                                 Long agentId, Long userId, Long textSessionId) {
+    Language lang = result.detectedLanguage.getGivenLanguage();
+    int textSize = aText.getPlainText().length();
+    Map<String, Integer> ruleMatchCount = new HashMap<>();
+    for (RuleMatch match : result.matches) {
+      String ruleId = match.getRule().getId();
+      ruleMatchCount.put(ruleId, ruleMatchCount.getOrDefault(ruleId, 0) + 1);
+    }
+    ServerMetricsCollector.getInstance().logCheck(
+      lang, result.computationTime, textSize, result.matches.size(), mode, agent, ruleMatchCount);
+    if (!config.isSkipLoggingChecks()) {
+      DatabaseCheckLogEntry logEntry = new DatabaseCheckLogEntry(userId, agentId, logServerId, textSize, result.matches.size(),
+        lang, result.detectedLanguage.getDetectedLanguage(), result.computationTime, textSessionId, mode.toString());
+      logEntry.setRuleMatches(new DatabaseRuleMatchLogEntry(
+        config.isSkipLoggingRuleMatches() ? Collections.emptyMap() : ruleMatchCount));
+      databaseLogger.log(logEntry);
+    }
+  }
+
+  @Nullable
+  private Long getTextSessionId(Map<String, String> parameters) {
+    Long textSessionId = null;
+    try {
+      if (parameters.containsKey("textSessionId")) {
+        String textSessionIdStr = parameters.get("textSessionId");
+        if (textSessionIdStr.contains(":")) { // transitioning to new format used in chrome addon
+          // format: "{random number in 0..99999}:{unix time}"
+          long random, timestamp;
+          int sepPos = textSessionIdStr.indexOf(':');
+          random = Long.valueOf(textSessionIdStr.substring(0, sepPos));
+          timestamp = Long.valueOf(textSessionIdStr.substring(sepPos + 1));
+          // use random number to choose a slice in possible range of values
+          // then choose position in slice by timestamp
+          long maxRandom = 100000;
+          long randomSegmentSize = (Long.MAX_VALUE - maxRandom) / maxRandom;
+          long segmentOffset = random * randomSegmentSize;
+          if (timestamp > randomSegmentSize) {
+            logger.warn(String.format("Could not transform textSessionId '%s'", textSessionIdStr));
+          }
+          textSessionId = segmentOffset + timestamp;
+        } else {
+          textSessionId = Long.valueOf(textSessionIdStr);
+        }
+      }
+    } catch (NumberFormatException ex) {
+      logger.warn("Could not parse textSessionId '" + parameters.get("textSessionId") + "' as long: " + ex.getMessage());
+    }
+    return textSessionId;
+  }
+
+  @Nullable
+  private String getAbTest(String agent, @Nullable Long textSessionId) {
+    String abTest = null;
+    if (agent != null && config.getAbTestClients() != null && config.getAbTestClients().matcher(agent).matches()) {
+      boolean testRolledOut;
+      // partial rollout; deterministic if textSessionId given to make testing easier
+      if (textSessionId != null) {
+        testRolledOut = textSessionId % 100 < config.getAbTestRollout();
+      } else {
+        testRolledOut = random.nextInt(100) < config.getAbTestRollout();
+      }
+      if (testRolledOut) {
+        abTest = config.getAbTest();
+      }
+    }
+    return abTest;
+  }
+
+  private QueryParams getQueryParams(Map<String, String> parameters) {
+    boolean useEnabledOnly = "yes".equals(parameters.get("enabledOnly")) || "true".equals(parameters.get("enabledOnly"));
+    List<Language> altLanguages = new ArrayList<>();
+    if (parameters.get("altLanguages") != null) {
+      String[] altLangParams = parameters.get("altLanguages").split(",\\s*");
+      for (String langCode : altLangParams) {
+        Language altLang = Languages.getLanguageForShortCode(langCode);
+        altLanguages.add(altLang);
+        if (altLang.hasVariant() && !altLang.isVariant()) {
+          ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
+          throw new IllegalArgumentException("You specified altLanguage '" + langCode + "', but for this language you need to specify a variant, e.g. 'en-GB' instead of just 'en'");
+        }
+      }
+    }
+    List<String> enabledRules = getEnabledRuleIds(parameters);
+
+    List<String> disabledRules = getDisabledRuleIds(parameters);
+    List<CategoryId> enabledCategories = getCategoryIds("enabledCategories", parameters);
+    List<CategoryId> disabledCategories = getCategoryIds("disabledCategories", parameters);
+
+    if ((disabledRules.size() > 0 || disabledCategories.size() > 0) && useEnabledOnly) {
+      ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
+      throw new IllegalArgumentException("You cannot specify disabled rules or categories using enabledOnly=true");
+    }
+    if (enabledRules.isEmpty() && enabledCategories.isEmpty() && useEnabledOnly) {
+      ServerMetricsCollector.getInstance().logRequestError(ServerMetricsCollector.RequestErrorType.INVALID_REQUEST);
+      throw new IllegalArgumentException("You must specify enabled rules or categories when using enabledOnly=true");
+    }
+
+    boolean enableTempOffRules = "true".equals(parameters.get("enableTempOffRules"));
+    boolean useQuerySettings = enabledRules.size() > 0 || disabledRules.size() > 0 ||
+            enabledCategories.size() > 0 || disabledCategories.size() > 0 || enableTempOffRules;
+    boolean allowIncompleteResults = "true".equals(parameters.get("allowIncompleteResults"));
+    boolean enableHiddenRules = "true".equals(parameters.get("enableHiddenRules"));
+    JLanguageTool.Mode mode = ServerTools.getMode(parameters);
+    JLanguageTool.Level level = ServerTools.getLevel(parameters);
+    String callback = parameters.get("callback");
+    // allowed to log input on errors?
+    boolean inputLogging = !parameters.getOrDefault("inputLogging", "").equals("no");
+    return new QueryParams(altLanguages, enabledRules, disabledRules,
+      enabledCategories, disabledCategories, useEnabledOnly,
+      useQuerySettings, allowIncompleteResults, enableHiddenRules, enableTempOffRules, mode, level, callback, inputLogging);
+  }
+
   private Map<String, Integer> getRuleValues(Map<String, String> parameters) {
     Map<String, Integer> ruleValues = new HashMap<>();
     String parameterString = parameters.get("ruleValues");
@@ -542,17 +863,67 @@ abstract class TextChecker {
   }
 
   protected void checkParams(Map<String, String> parameters) {
-    if (parameters.get("text") == null && parameters.get("data") == null) {
+    if (parameters.get("text") == null && parameters.get("data") == null && parameters.get("texts") == null) {
       throw new IllegalArgumentException("Missing 'text' or 'data' parameter");
     }
   }
 
+  /**
+   * A hash of everything the result of {@link #getRuleMatches} depends on, so that requests
+   * with the same hash can share one check.
+   */
+  private String getCoalescingKey(Map<String, String> parameters, Language lang, Language motherTongue, QueryParams params,
+                                  UserConfig userConfig, List<String> preferredLangs, List<String> preferredVariants,
+                                  int suggestionsTimeBudget) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    // 'data' and 'text' are both used, as the markup in 'data' affects the positions of the matches:
+    for (String key : Arrays.asList("text", "data", "sourceText", "sourceLanguage", "multilingual")) {
+      putField(hasher, parameters.get(key));
+    }
+    putField(hasher, lang.getShortCodeWithCountryAndVariant());
+    putField(hasher, motherTongue != null ? motherTongue.getShortCodeWithCountryAndVariant() : null);
+    putField(hasher, params.mode);
+    putField(hasher, params.level);
+    putField(hasher, params.altLanguages.stream().map(Language::getShortCodeWithCountryAndVariant).collect(Collectors.toList()));
+    putField(hasher, params.enabledRules);
+    putField(hasher, params.disabledRules);
+    putField(hasher, params.enabledCategories);
+    putField(hasher, params.disabledCategories);
+    putField(hasher, params.useEnabledOnly + "," + params.useQuerySettings + "," + params.allowIncompleteResults + "," +
+      params.enableHiddenRules + "," + params.enableTempOffRules);
+    putField(hasher, preferredLangs);
+    putField(hasher, preferredVariants);
+    putField(hasher, suggestionsTimeBudget);
+    // the same fields that UserConfig.equals() uses:
+    putField(hasher, userConfig.getMaxSpellingSuggestions());
+    putField(hasher, new TreeMap<>(userConfig.getConfigValues()));
+    putField(hasher, userConfig.getUserDictName());
+    putField(hasher, userConfig.filterDictionaryMatches());
+    putField(hasher, userConfig.getSuggestionsMode());
+    putField(hasher, userConfig.getMaxSuggestionsPerMatch());
+    putField(hasher, userConfig.getAbTest());
+    List<String> words = userConfig.getAcceptedWords();
+    hasher.putInt(words.size());
+    for (String word : words) {
+      putField(hasher, word);
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void putField(Hasher hasher, @Nullable Object value) {
+    if (value == null) {
+      hasher.putByte((byte) 0);
+    } else {
+      hasher.putByte((byte) 1).putString(value.toString(), StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+  }
+
   private List<RuleMatch> getRuleMatches(AnnotatedText aText, Language lang,
                                          Language motherTongue, Map<String, String> parameters, 
                                          QueryParams params, UserConfig userConfig,
                                          DetectedLanguage detLang,
                                          List<String> preferredLangs, List<String> preferredVariants,
-                                         RuleMatchListener listener) throws Exception {
+                                         int suggestionsTimeBudget, RuleMatchListener listener, CheckTimings timings) throws Exception {
     if (cache != null && cache.requestCount() > 0 && cache.requestCount() % CACHE_STATS_PRINT == 0) {
       double hitRate = cache.hitRate();
       String hitPercentage = String.format(Locale.ENGLISH, "%.2f", hitRate * 100.0f);
@@ -568,18 +939,19 @@ abstract class TextChecker {
         throw new IllegalArgumentException("'sourceLanguage' parameter missing - must be set when 'sourceText' is set");
       }
       Language sourceLanguage = Languages.getLanguageForShortCode(parameters.get("sourceLanguage"));
-      JLanguageTool sourceLt = new JLanguageTool(sourceLanguage);
-      JLanguageTool targetLt = new JLanguageTool(lang);
-      if (userConfig.filterDictionaryMatches()) {
-        targetLt.addMatchFilter(new DictionaryMatchFilter(userConfig));
+      PipelinePool.BitextPipelineSettings settings = new PipelinePool.BitextPipelineSettings(sourceLanguage, lang, userConfig);
+      PipelinePool.BitextPipeline pipeline = pipelinePool.getBitextPipeline(settings);
+      try {
+        return Tools.checkBitext(parameters.get("sourceText"), aText.getPlainText(),
+          pipeline.getSourceLt(), pipeline.getTargetLt(), pipeline.getBitextRules());
+      } finally {
+        pipelinePool.returnBitextPipeline(settings, pipeline);
       }
-      List<BitextRule> bitextRules = Tools.getBitextRules(sourceLanguage, lang);
-      return Tools.checkBitext(parameters.get("sourceText"), aText.getPlainText(), sourceLt, targetLt, bitextRules);
     } else {
       List<RuleMatch> matches = new ArrayList<>();
 
       if (preferredLangs.size() < 2 || parameters.get("multilingual") == null || parameters.get("multilingual").equals("false")) {
-        matches.addAll(getPipelineResults(aText, lang, motherTongue, params, userConfig, listener));
+        matches.addAll(getPipelineResults(aText, lang, motherTongue, params, userConfig, suggestionsTimeBudget, listener, timings));
       } else {
         // support for multilingual texts:
         try {
@@ -597,13 +969,13 @@ abstract class TextChecker {
           langs.add(mainLang);
           langs.addAll(secondLangs);
           Map<Language, AnnotatedTextBuilder> lang2builder = getBuilderMap(fragments, new HashSet<>(langs));
-          for (Map.Entry<Language, AnnotatedTextBuilder> entry : lang2builder.entrySet()) {
-            matches.addAll(getPipelineResults(entry.getValue().build(), entry.getKey(), motherTongue, params, userConfig, listener));
-          }
+          matches.addAll(getMultiLanguagePipelineResults(lang2builder, motherTongue, params, userConfig, suggestionsTimeBudget, listener, timings));
+        } catch (InterruptedException e) {
+          throw e;  // the check has been cancelled, e.g. because of a timeout
         } catch (Exception e) {
           logger.error("Problem with multilingual mode (preferredLangs=" + preferredLangs+ ", preferredVariants=" + preferredVariants + "), " +
             "falling back to single language.", e);
-          matches.addAll(getPipelineResults(aText, lang, motherTongue, params, userConfig, listener));
+          matches.addAll(getPipelineResults(aText, lang, motherTongue, params, userConfig, suggestionsTimeBudget, listener, timings));
         }
       }
       return matches;
@@ -619,22 +991,129 @@ abstract class TextChecker {
     return Languages.getLanguageForShortCode(langCode);
   }
 
-  private List<RuleMatch> getPipelineResults(AnnotatedText aText, Language lang, Language motherTongue, QueryParams params, UserConfig userConfig, RuleMatchListener listener) throws Exception {
+  /**
+   * Check the text of each language concurrently, each with its own pipeline. Every text covers the
+   * whole document, with the parts in other languages as markup, so the matches' positions refer to the
+   * document already and the matches only need to be sorted. One text is checked on the calling thread,
+   * the others on {@link #multiLanguageExecutor} or also on the calling thread if it has no idle thread.
+   * If the calling thread gets interrupted (i.e. the check got cancelled because it took too long), all
+   * checks are cancelled.
+   */
+  private List<RuleMatch> getMultiLanguagePipelineResults(Map<Language, AnnotatedTextBuilder> lang2builder, Language motherTongue,
+                                                          QueryParams params, UserConfig userConfig,
+                                                          int suggestionsTimeBudget, RuleMatchListener listener,
+                                                          CheckTimings timings) throws Exception {
+    List<Future<List<RuleMatch>>> futures = new ArrayList<>();
+    try {
+      List<RuleMatch> matches = new ArrayList<>();
+      Iterator<Map.Entry<Language, AnnotatedTextBuilder>> entries = lang2builder.entrySet().iterator();
+      while (entries.hasNext()) {
+        Map.Entry<Language, AnnotatedTextBuilder> entry = entries.next();
+        AnnotatedText text = entry.getValue().build();
+        if (entries.hasNext()) {
+          futures.add(multiLanguageExecutor.submit(() ->
+            getPipelineResults(text, entry.getKey(), motherTongue, params, userConfig, suggestionsTimeBudget, listener, timings)));
+        } else {
+          matches.addAll(getPipelineResults(text, entry.getKey(), motherTongue, params, userConfig, suggestionsTimeBudget, listener, timings));
+        }
+      }
+      for (Future<List<RuleMatch>> future : futures) {
+        matches.addAll(future.get());
+      }
+      Collections.sort(matches);
+      return matches;
+    } finally {
+      for (Future<List<RuleMatch>> future : futures) {
+        future.cancel(true);  // no effect on finished checks
+      }
+    }
+  }
+
+  private List<RuleMatch> getPipelineResults(AnnotatedText aText, Language lang, Language motherTongue, QueryParams params, UserConfig userConfig,
+                                             int suggestionsTimeBudget, RuleMatchListener listener, CheckTimings timings) throws Exception {
     PipelinePool.PipelineSettings settings = null;
     Pipeline lt = null;
     List<RuleMatch> matches = new ArrayList<>();
     try {
       settings = new PipelinePool.PipelineSettings(lang, motherTongue, params, config.globalConfig, userConfig);
+      long pipelineStart = System.nanoTime();
       lt = pipelinePool.getPipeline(settings);
+      timings.add(CheckTimings.Stage.PIPELINE, System.nanoTime() - pipelineStart);
+      lt.setCheckStageListener(timings);
       matches.addAll(lt.check(aText, true, JLanguageTool.ParagraphHandling.NORMAL, listener, params.mode, params.level, executorService));
+      // deferred suggestions need the pipeline's rules, so compute them before the pipeline is returned:
+      computeSuggestions(matches, suggestionsTimeBudget);
     } finally {
       if (lt != null) {
+        lt.setCheckStageListener(null);
         pipelinePool.returnPipeline(settings, lt);
       }
     }
     return matches;
   }
 
+  /**
+   * Compute the suggestions that haven't been computed yet (see {@link UserConfig.SuggestionsMode#DEFERRED}),
+   * in the order of the matches. Once the time budget is used up, the remaining matches don't get suggestions.
+   */
+  private void computeSuggestions(List<RuleMatch> matches, int timeBudgetMillis) {
+    long deadline = System.currentTimeMillis() + timeBudgetMillis;
+    for (RuleMatch match : matches) {
+      if (match.hasPendingSuggestions()) {
+        if (System.currentTimeMillis() < deadline) {
+          match.getSuggestedReplacementObjects();
+        } else {
+          match.setSuggestedReplacementObjects(new ArrayList<>());
+          match.setIncompleteSuggestions(true);
+        }
+      }
+    }
+  }
+
+  /**
+   * Drop suggestions that haven't been computed (e.g. because the check timed out), and limit the number
+   * of suggestions per match to {@code maxSuggestions} (0 = no limit). Spell checking rules already stop
+   * at that limit (see {@link UserConfig#getMaxSuggestionsPerMatch()}), this is for the other rules.
+   */
+  private void limitSuggestions(List<RuleMatch> matches, int maxSuggestions) {
+    for (RuleMatch match : matches) {
+      if (match.hasPendingSuggestions()) {
+        // the check may still be running, so don't use the pipeline's rules here:
+        match.setSuggestedReplacementObjects(new ArrayList<>());
+        match.setIncompleteSuggestions(true);
+      } else if (maxSuggestions > 0 && match.getSuggestedReplacementObjects().size() > maxSuggestions) {
+        match.setSuggestedReplacementObjects(new ArrayList<>(match.getSuggestedReplacementObjects().subList(0, maxSuggestions)));
+      }
+    }
+  }
+
+  private UserConfig.SuggestionsMode getSuggestionsMode(Map<String, String> parameters, int suggestionsTimeBudget) {
+    String suggestions = parameters.getOrDefault("suggestions", "all");
+    if (suggestions.equals("none")) {
+      return UserConfig.SuggestionsMode.NONE;
+    } else if (suggestions.equals("all")) {
+      return suggestionsTimeBudget > 0 ? UserConfig.SuggestionsMode.DEFERRED : UserConfig.SuggestionsMode.ALL;
+    } else {
+      throw new IllegalArgumentException("Unknown value for 'suggestions', use 'all' or 'none': '" + suggestions + "'");
+    }
+  }
+
+  private int getNonNegativeIntParameter(Map<String, String> parameters, String name) {
+    String value = parameters.get(name);
+    if (value == null) {
+      return 0;
+    }
+    try {
+      int intValue = Integer.parseInt(value);
+      if (intValue < 0) {
+        throw new IllegalArgumentException("'" + name + "' must not be negative: " + value);
+      }
+      return intValue;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("'" + name + "' must be a number: " + value);
+    }
+  }
+
   @NotNull
   private Map<Language, AnnotatedTextBuilder> getBuilderMap(List<FragmentWithLanguage> fragments, Set<Language> maybeUsedLangs) {
     Map<Language, AnnotatedTextBuilder> lang2builder = new HashMap<>();
@@ -676,7 +1155,11 @@ abstract class TextChecker {
 
   DetectedLanguage detectLanguageOfString(String text, String fallbackLanguage, List<String> preferredVariants,
                                           List<String> noopLangs, List<String> preferredLangs) {
+    long cpuTimeStart = getCurrentThreadCpuTime();
     DetectedLanguage detected = identifier.detectLanguage(text, noopLangs, preferredLangs);
+    if (cpuTimeStart != -1) {
+      ServerMetricsCollector.getInstance().logLanguageDetectionCpuTime(getCurrentThreadCpuTime() - cpuTimeStart);
+    }
     Language lang;
     if (detected == null) {
       lang = Languages.getLanguageForShortCode(fallbackLanguage != null ? fallbackLanguage : "en");
@@ -704,6 +1187,84 @@ abstract class TextChecker {
     return new DetectedLanguage(null, lang, detected != null ? detected.getDetectionConfidence() : 0f);
   }
 
+  /**
+   * Start querying the hidden matches server, if it's configured, enabled for the request, and not marked as down.
+   * @return the query's future or {@code null} if the server is not queried
+   */
+  @Nullable
+  private Future<List<RemoteRuleMatch>> startHiddenMatchesQuery(AnnotatedText aText, Map<String, String> parameters, QueryParams params, Language lang) {
+    if (hiddenMatchesExecutor == null || !params.enableHiddenRules || !config.getHiddenMatchesLanguages().contains(lang)) {
+      return null;
+    }
+    if (config.getHiddenMatchesServerFailTimeout() > 0 && lastHiddenMatchesServerTimeout != -1 &&
+      System.currentTimeMillis() - lastHiddenMatchesServerTimeout < config.getHiddenMatchesServerFailTimeout()) {
+      ServerMetricsCollector.getInstance().logHiddenServerStatus(false);
+      ServerMetricsCollector.getInstance().logHiddenServerRequest(false);
+      logger.warn("Warn: Skipped querying hidden matches server at " +
+        config.getHiddenMatchesServer() + " because of recent error/timeout (timeout=" + config.getHiddenMatchesServerFailTimeout() + "ms).");
+      return null;
+    }
+    try {
+      return hiddenMatchesExecutor.submit(() -> resultExtender.getExtensionMatches(aText.getPlainText(), parameters));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Warn: Skipped querying hidden matches server at " + config.getHiddenMatchesServer() +
+        " because " + config.getHiddenMatchesServerThreads() + " queries are already running or waiting");
+      return null;
+    }
+  }
+
+  /**
+   * Wait for the query started by {@link #startHiddenMatchesQuery} and filter its result.
+   * If the query doesn't finish within its timeout, it is cancelled and counts as a failure.
+   */
+  private List<RuleMatch> getHiddenMatches(@Nullable Future<List<RemoteRuleMatch>> future, long startMillis,
+                                           List<RuleMatch> matches, AnnotatedText aText, Language lang) {
+    if (future == null) {
+      return new ArrayList<>();
+    }
+    long timeoutMillis = resultExtender.getTimeoutMillis(aText.getPlainText().length()) - (System.currentTimeMillis() - startMillis);
+    try {
+      List<RemoteRuleMatch> extensionMatches = future.get(Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+      List<RuleMatch> hiddenMatches = resultExtender.getFilteredExtensionMatches(matches, extensionMatches);
+      long end = System.currentTimeMillis();
+      logger.info("Hidden matches: " + extensionMatches.size() + " -> " + hiddenMatches.size() + " in " + (end - startMillis) + "ms for " + lang.getShortCodeWithCountryAndVariant());
+      ServerMetricsCollector.getInstance().logHiddenServerStatus(true);
+      lastHiddenMatchesServerTimeout = -1;
+      hiddenMatchesServerFailures = 0;
+      ServerMetricsCollector.getInstance().logHiddenServerRequest(true);
+      return hiddenMatches;
+    } catch (Exception e) {
+      future.cancel(true);
+      Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+      ServerMetricsCollector.getInstance().logHiddenServerRequest(false);
+      hiddenMatchesServerFailures++;
+      if (hiddenMatchesServerFailures >= config.getHiddenMatchesServerFall()) {
+        ServerMetricsCollector.getInstance().logHiddenServerStatus(false);
+        logger.warn("Failed to query hidden matches server at " + config.getHiddenMatchesServer() + ": " + cause.getClass() + ": " + cause.getMessage() + ", input was " + aText.getPlainText().length() + " characters - marked as down now");
+        lastHiddenMatchesServerTimeout = System.currentTimeMillis();
+      } else {
+        logger.warn("Failed to query hidden matches server at " + config.getHiddenMatchesServer() + ": " + cause.getClass() + ": " + cause.getMessage() + ", input was " + aText.getPlainText().length() + " characters - " + (config.getHiddenMatchesServerFall() - hiddenMatchesServerFailures) + " errors until marked as down");
+      }
+      return new ArrayList<>();
+    }
+  }
+
+  // -1 if not supported by the JVM:
+  private static long getCurrentThreadCpuTime() {
+    return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+  }
+
+  private static class BatchResult {
+    private final DetectedLanguage detectedLanguage;
+    private final List<RuleMatch> matches;
+    private final int computationTime;
+    BatchResult(DetectedLanguage detectedLanguage, List<RuleMatch> matches, int computationTime) {
+      this.detectedLanguage = detectedLanguage;
+      this.matches = matches;
+      this.computationTime = computationTime;
+    }
+  }
+
   static class QueryParams {
     final List<Language> altLanguages;
     final List<String> enabledRules;
@@ -28,6 +28,8 @@ import org.languagetool.rules.RuleMatch;
 import org.languagetool.tools.StringTools;
 import org.languagetool.tools.RuleMatchesAsJsonSerializer;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 import static org.languagetool.server.ServerTools.setCommonHeaders;
@@ -45,15 +47,16 @@ class V2TextChecker extends TextChecker {
   }
 
   @Override
-  protected void setHeaders(HttpExchange httpExchange) {
-    setCommonHeaders(httpExchange, JSON_CONTENT_TYPE, config.allowOriginUrl);
+  protected void setHeaders(HttpExchange httpExchange, boolean ruleDictionary) {
+    setCommonHeaders(httpExchange, ruleDictionary ? COMPACT_JSON_CONTENT_TYPE : JSON_CONTENT_TYPE, config.allowOriginUrl);
   }
 
   @Override
-  protected String getResponse(AnnotatedText text, Language usedLang, DetectedLanguage lang, Language motherTongue, List<RuleMatch> matches,
-                               List<RuleMatch> hiddenMatches, String incompleteResultsReason, int compactMode) {
-    RuleMatchesAsJsonSerializer serializer = new RuleMatchesAsJsonSerializer(compactMode, usedLang);
-    return serializer.ruleMatchesToJson(matches, hiddenMatches, text, CONTEXT_SIZE, lang, incompleteResultsReason);
+  protected void writeResponse(OutputStream out, AnnotatedText text, Language usedLang, DetectedLanguage lang, Language motherTongue,
+                               List<RuleMatch> matches, List<RuleMatch> hiddenMatches, String incompleteResultsReason, int compactMode,
+                               boolean ruleDictionary) throws IOException {
+    RuleMatchesAsJsonSerializer serializer = new RuleMatchesAsJsonSerializer(compactMode, usedLang, ruleDictionary);
+    serializer.ruleMatchesToJson(matches, hiddenMatches, text, CONTEXT_SIZE, lang, incompleteResultsReason, out);
   }
 
   @NotNull
@@ -18,6 +18,8 @@
  */
 package org.languagetool.server;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
@@ -48,6 +50,49 @@ public class ApiV2Test {
     } catch (Exception ignored) {}
   }
   
+  @Test
+  public void testBatchCheck() throws Exception {
+    HTTPServerConfig config = new HTTPServerConfig();
+    ApiV2 apiV2 = new ApiV2(new V2TextChecker(config, false, new LinkedBlockingQueue<>(), new RequestCounter()), null);
+    FakeHttpExchange httpExchange = new FakeHttpExchange("post");
+    Map<String, String> params = new HashMap<>();
+    params.put("language", "fr");
+    params.put("texts", "[\"Ceci est une phrase.\", {\"text\": \"Ceci est une une phrase.\"}, \"Une autre phrase.\"]");
+    apiV2.handleRequest("check/batch", httpExchange, params, null, null, config);
+    JsonNode results = new ObjectMapper().readTree(httpExchange.getOutput());
+    assertEquals(3, results.size());
+    assertEquals(0, results.get(0).get("matches").size());
+    assertEquals(1, results.get(1).get("matches").size());
+    assertEquals(0, results.get(2).get("matches").size());
+    assertEquals("fr", results.get(0).get("language").get("code").asText());
+    FakeHttpExchange ndjsonExchange = new FakeHttpExchange("post");
+    params.put("texts", "\"Ceci est une une phrase.\"\n{\"text\": \"Ceci est une phrase.\"}\n");
+    apiV2.handleRequest("check/batch", ndjsonExchange, params, null, null, config);
+    String[] lines = ndjsonExchange.getOutput().split("\n");
+    assertEquals(2, lines.length);
+    assertEquals(1, new ObjectMapper().readTree(lines[0]).get("matches").size());
+    assertEquals(0, new ObjectMapper().readTree(lines[1]).get("matches").size());
+  }
+
+  @Test
+  public void testDataCheck() throws Exception {
+    HTTPServerConfig config = new HTTPServerConfig();
+    ApiV2 apiV2 = new ApiV2(new V2TextChecker(config, false, new LinkedBlockingQueue<>(), new RequestCounter()), null);
+    FakeHttpExchange httpExchange = new FakeHttpExchange("post");
+    Map<String, String> params = new HashMap<>();
+    params.put("language", "fr");
+    params.put("data", "{\"annotation\": [{\"text\": \"Ceci est une \"}, {\"markup\": \"<b>\"}, {\"text\": \"une phrase.\"}, " +
+      "{\"markup\": \"</b>\"}], \"metaData\": {\"foo\": \"bar\"}}");
+    apiV2.handleRequest("check", httpExchange, params, null, null, config);
+    JsonNode result = new ObjectMapper().readTree(httpExchange.getOutput());
+    assertEquals(1, result.get("matches").size());
+    params.put("data", "{\"annotation\": [{\"text\": \"Ceci est une phrase.\"}], \"text\": \"Ceci est une phrase.\"}");
+    try {
+      apiV2.handleRequest("check", new FakeHttpExchange("post"), params, null, null, config);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
   @Test
   public void testRuleExamples() throws Exception {
     HTTPServerConfig config = new HTTPServerConfig();
@@ -61,5 +106,28 @@ public class ApiV2Test {
     assertTrue(httpExchange.getOutput().contains("The train arrived <marker>an hour</marker> ago."));
     assertTrue(httpExchange.getOutput().contains("The train arrived <marker>a hour</marker> ago."));
   }
+
+  @Test
+  public void testStaticResponsesWithETag() throws Exception {
+    ApiV2 apiV2 = new ApiV2(null, null);
+    FakeHttpExchange httpExchange = new FakeHttpExchange();
+    apiV2.handleRequest("languages", httpExchange, new HashMap<>(), null, null, new HTTPServerConfig());
+    assertEquals(200, httpExchange.getResponseCode());
+    assertTrue(httpExchange.getOutput().contains("\"de-DE\""));
+    String etag = httpExchange.getResponseHeaders().getFirst("ETag");
+    assertNotNull(etag);
+    assertNotNull(httpExchange.getResponseHeaders().getFirst("Cache-Control"));
+    FakeHttpExchange revalidationExchange = new FakeHttpExchange();
+    revalidationExchange.getRequestHeaders().add("If-None-Match", etag);
+    apiV2.handleRequest("languages", revalidationExchange, new HashMap<>(), null, null, new HTTPServerConfig());
+    assertEquals(304, revalidationExchange.getResponseCode());
+    assertEquals("", revalidationExchange.getOutput());
+    assertEquals(etag, revalidationExchange.getResponseHeaders().getFirst("ETag"));
+    FakeHttpExchange otherETagExchange = new FakeHttpExchange();
+    otherETagExchange.getRequestHeaders().add("If-None-Match", "\"foo\"");
+    apiV2.handleRequest("languages", otherETagExchange, new HashMap<>(), null, null, new HTTPServerConfig());
+    assertEquals(200, otherETagExchange.getResponseCode());
+    assertEquals(httpExchange.getOutput(), otherETagExchange.getOutput());
+  }
   
 }
@@ -0,0 +1,86 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
+import org.languagetool.Languages;
+import org.languagetool.UserConfig;
+import org.languagetool.tools.Tools;
+
+/**
+ * Compares the throughput of bitext checks that set up their JLanguageTool instances
+ * and bitext rules for each check (as it used to be) with checks that use pooled
+ * bitext pipelines from {@link PipelinePool}.
+ * Not a unit test, for interactive use only.
+ */
+final class BitextPipelinePerformanceTest {
+
+  private static final int RUNS = 100;
+
+  private final Language sourceLang;
+  private final Language targetLang;
+  private final String sourceText;
+  private final String targetText;
+
+  private BitextPipelinePerformanceTest(String sourceLangCode, String targetLangCode, String sourceText, String targetText) {
+    this.sourceLang = Languages.getLanguageForShortCode(sourceLangCode);
+    this.targetLang = Languages.getLanguageForShortCode(targetLangCode);
+    this.sourceText = sourceText;
+    this.targetText = targetText;
+  }
+
+  private void run() throws Exception {
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < RUNS; i++) {
+      JLanguageTool sourceLt = new JLanguageTool(sourceLang);
+      JLanguageTool targetLt = new JLanguageTool(targetLang);
+      Tools.checkBitext(sourceText, targetText, sourceLt, targetLt, Tools.getBitextRules(sourceLang, targetLang));
+    }
+    long freshMillis = System.currentTimeMillis() - startTime;
+    HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort(), false);
+    config.setPipelineCaching(true);
+    config.setPipelineExpireTime(60);
+    config.setMaxPipelinePoolSize(10);
+    PipelinePool pool = new PipelinePool(config, null, false);
+    PipelinePool.BitextPipelineSettings settings = new PipelinePool.BitextPipelineSettings(sourceLang, targetLang, new UserConfig());
+    startTime = System.currentTimeMillis();
+    for (int i = 0; i < RUNS; i++) {
+      PipelinePool.BitextPipeline pipeline = pool.getBitextPipeline(settings);
+      Tools.checkBitext(sourceText, targetText, pipeline.getSourceLt(), pipeline.getTargetLt(), pipeline.getBitextRules());
+      pool.returnBitextPipeline(settings, pipeline);
+    }
+    long pooledMillis = System.currentTimeMillis() - startTime;
+    System.out.printf("%d bitext checks: new setup per check %.1f checks/s, pooled pipelines %.1f checks/s%n",
+      RUNS, RUNS * 1000f / freshMillis, RUNS * 1000f / pooledMillis);
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 4) {
+      System.out.println("Usage: " + BitextPipelinePerformanceTest.class.getSimpleName() +
+        " <sourceLanguageCode> <targetLanguageCode> <sourceText> <targetText>");
+      System.exit(1);
+    }
+    BitextPipelinePerformanceTest test = new BitextPipelinePerformanceTest(args[0], args[1], args[2], args[3]);
+    for (int i = 0; i < 2; i++) {  // the first iteration is warm-up
+      test.run();
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.junit.After;
+import org.junit.Test;
+import org.languagetool.rules.FakeRule;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CheckCoalescerTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final CheckCoalescer coalescer = new CheckCoalescer(executor);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testIdenticalChecksAreShared() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    CheckCoalescer.CheckTask task = listener -> {
+      runs.incrementAndGet();
+      release.await();
+      return Collections.singletonList(new RuleMatch(new FakeRule(), null, 0, 3, "msg"));
+    };
+    CheckCoalescer.Check check1 = coalescer.submit("key", task);
+    CheckCoalescer.Check check2 = coalescer.submit("key", task);
+    CheckCoalescer.Check check3 = coalescer.submit("other-key", task);
+    assertFalse(check1.isShared());
+    assertTrue(check2.isShared());
+    assertFalse(check3.isShared());
+    release.countDown();
+    List<RuleMatch> matches1 = check1.getFuture().get(5, TimeUnit.SECONDS);
+    List<RuleMatch> matches2 = check2.getFuture().get(5, TimeUnit.SECONDS);
+    check3.getFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(2, runs.get());
+    assertEquals(1, matches1.size());
+    assertEquals(1, matches2.size());
+    // each request gets its own copy of the matches:
+    assertNotSame(matches1.get(0), matches2.get(0));
+    assertEquals(0, coalescer.getInFlightCount());
+    // the check is done, so the next identical request runs a new one:
+    coalescer.submit("key", task).getFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(3, runs.get());
+  }
+
+  @Test
+  public void testWaitersTimeOutIndependently() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CheckCoalescer.CheckTask task = listener -> {
+      release.await();
+      return Collections.emptyList();
+    };
+    CheckCoalescer.Check check1 = coalescer.submit("key", task);
+    CheckCoalescer.Check check2 = coalescer.submit("key", task);
+    try {
+      check1.getFuture().get(10, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (TimeoutException expected) {
+      check1.getFuture().cancel(true);
+    }
+    // the check keeps running for the other request:
+    release.countDown();
+    assertEquals(0, check2.getFuture().get(5, TimeUnit.SECONDS).size());
+  }
+
+  @Test
+  public void testCheckIsCancelledWhenAllWaitersAreGone() throws Exception {
+    CountDownLatch interrupted = new CountDownLatch(1);
+    CheckCoalescer.CheckTask task = listener -> {
+      try {
+        Thread.sleep(10_000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        throw e;
+      }
+      return Collections.emptyList();
+    };
+    CheckCoalescer.Check check1 = coalescer.submit("key", task);
+    CheckCoalescer.Check check2 = coalescer.submit("key", task);
+    check1.getFuture().cancel(true);
+    assertFalse(interrupted.await(100, TimeUnit.MILLISECONDS));
+    check2.getFuture().cancel(true);
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    // a new request doesn't join the cancelled check:
+    assertFalse(coalescer.submit("key", listener -> Collections.emptyList()).isShared());
+  }
+
+  @Test
+  public void testErrorsAreShared() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CheckCoalescer.CheckTask task = listener -> {
+      release.await();
+      throw new IllegalStateException("test");
+    };
+    CheckCoalescer.Check check1 = coalescer.submit("key", task);
+    CheckCoalescer.Check check2 = coalescer.submit("key", task);
+    release.countDown();
+    for (CheckCoalescer.Check check : new CheckCoalescer.Check[]{check1, check2}) {
+      try {
+        check.getFuture().get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.sun.net.httpserver.Headers;
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class FairWorkQueueTest {
+
+  @Test
+  public void testWeightedOrder() {
+    FairWorkQueue queue = new FairWorkQueue();
+    queue.clientValidated(apiKeyParams(), UserLimits.getDefaultLimits(new HTTPServerConfig()));
+    for (int i = 0; i < 4; i++) {
+      queue.offer(task("language=en&text=a"));
+      queue.offer(task("language=en&text=a&username=foo&apiKey=bar"));
+    }
+    assertThat(queue.size(), is(8));
+    List<String> order = new ArrayList<>();
+    Runnable task;
+    while ((task = queue.poll()) != null) {
+      order.add(((NioHttpServer.RequestTask) task).getExchange().getRequestURI().getQuery().contains("apiKey") ? "K" : "A");
+    }
+    // API key requests have twice the weight, so they get two turns per turn of anonymous requests:
+    assertThat(String.join("", order), is("KAKKAKAA"));
+    assertThat(queue.size(), is(0));
+  }
+
+  @Test
+  public void testUnvalidatedApiKeyIsAnonymous() {
+    FairWorkQueue queue = new FairWorkQueue();
+    queue.offer(task("language=en&text=aaaaaaaaaa"));
+    queue.offer(task("language=en&text=a&username=foo&apiKey=bar"));
+    // same class, so first-come, first-served:
+    assertThat(((NioHttpServer.RequestTask) queue.poll()).getExchange().getRequestURI().getQuery().contains("apiKey"), is(false));
+  }
+
+  @Test
+  public void testUnknownTasks() {
+    FairWorkQueue queue = new FairWorkQueue();
+    Runnable task1 = () -> {};
+    Runnable task2 = () -> {};
+    queue.offer(task1);
+    queue.offer(new Server.QueuedTask(task2));
+    assertThat(queue.poll(), is(task1));
+    assertThat(((Server.QueuedTask) queue.poll()).getCommand(), is(task2));
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testClassify() {
+    FairWorkQueue queue = new FairWorkQueue();
+    Map<String, String> params = new HashMap<>();
+    assertThat(queue.classify(params), is(FairWorkQueue.RequestClass.ANONYMOUS));
+    params.put("username", "foo");
+    assertThat(queue.classify(params), is(FairWorkQueue.RequestClass.ANONYMOUS));
+    params.put("apiKey", "bar");
+    // not validated yet:
+    assertThat(queue.classify(params), is(FairWorkQueue.RequestClass.ANONYMOUS));
+    queue.clientValidated(params, UserLimits.getDefaultLimits(new HTTPServerConfig()));
+    assertThat(queue.classify(params), is(FairWorkQueue.RequestClass.API_KEY));
+    params.put("apiKey", "other");
+    assertThat(queue.classify(params), is(FairWorkQueue.RequestClass.ANONYMOUS));
+  }
+
+  @Test
+  public void testEstimateCost() {
+    assertThat(FairWorkQueue.estimateCost(0, null), is(500L));
+    assertThat(FairWorkQueue.estimateCost(10, null), is(510L));
+    assertThat(FairWorkQueue.estimateCost(10, "textLevelOnly"), is(501L));
+  }
+
+  private Map<String, String> apiKeyParams() {
+    Map<String, String> params = new HashMap<>();
+    params.put("username", "foo");
+    params.put("apiKey", "bar");
+    return params;
+  }
+
+  private Runnable task(String body) {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    URI uri = URI.create("/v2/check?" + body);
+    return new NioHttpServer.RequestTask(new NioHttpExchange(null, null, null, "POST", uri, "HTTP/1.1", new Headers(), bytes));
+  }
+
+}
@@ -31,14 +31,26 @@ import java.nio.charset.StandardCharsets;
 public class FakeHttpExchange extends HttpExchange {
   
   private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    
+  private final Headers requestHeaders = new Headers();
+  private final Headers responseHeaders = new Headers();
+  private final String method;
+  private int responseCode = 0;
+
+  public FakeHttpExchange() {
+    this("get");
+  }
+
+  public FakeHttpExchange(String method) {
+    this.method = method;
+  }
+
   @Override
   public Headers getRequestHeaders() {
-    return new Headers();
+    return requestHeaders;
   }
   @Override
   public Headers getResponseHeaders() {
-    return new Headers();
+    return responseHeaders;
   }
   @Override
   public URI getRequestURI() {
@@ -46,7 +58,7 @@ public class FakeHttpExchange extends HttpExchange {
   }
   @Override
   public String getRequestMethod() {
-    return "get";
+    return method;
   }
   @Override
   public HttpContext getHttpContext() {
@@ -65,6 +77,7 @@ public class FakeHttpExchange extends HttpExchange {
   }
   @Override
   public void sendResponseHeaders(int i, long l) throws IOException {
+    responseCode = i;
   }
   @Override
   public InetSocketAddress getRemoteAddress() {
@@ -72,7 +85,7 @@ public class FakeHttpExchange extends HttpExchange {
   }
   @Override
   public int getResponseCode() {
-    return 0;
+    return responseCode;
   }
   @Override
   public InetSocketAddress getLocalAddress() {
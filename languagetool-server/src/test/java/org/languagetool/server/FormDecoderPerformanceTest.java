@@ -0,0 +1,96 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the bytes allocated and the time for decoding a large form-encoded request body
+ * with {@link FormDecoder} and with the approach of reading the body into a string and
+ * calling {@link URLDecoder} for each parameter.
+ * Not a unit test, for interactive use only.
+ */
+final class FormDecoderPerformanceTest {
+
+  private static final int TEXT_LENGTH = 100_000;
+  private static final int RUNS = 200;
+
+  private static final com.sun.management.ThreadMXBean threadBean =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private interface Decoder {
+    Map<String, String> decode(byte[] body) throws IOException;
+  }
+
+  public static void main(String[] args) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < TEXT_LENGTH) {
+      sb.append("Das ist ein Beispieltext mit Umlauten wie ä, ö und ü. ");
+    }
+    byte[] body = ("language=de-DE&text=" + URLEncoder.encode(sb.toString(), "UTF-8") + "&enabledOnly=false")
+      .getBytes(StandardCharsets.UTF_8);
+    System.out.println(sb.length() + " chars, " + body.length + " bytes encoded");
+    for (int i = 0; i < 2; i++) {  // the first iteration is warm-up
+      run("String + URLDecoder", body, FormDecoderPerformanceTest::decodeViaString);
+      run("FormDecoder", body, b -> new FormDecoder(Integer.MAX_VALUE, Integer.MAX_VALUE).decode(new ByteArrayInputStream(b)));
+    }
+  }
+
+  private static void run(String name, byte[] body, Decoder decoder) throws IOException {
+    long threadId = Thread.currentThread().getId();
+    long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+    long startTime = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      decoder.decode(body);
+    }
+    long nanos = (System.nanoTime() - startTime) / RUNS;
+    long allocated = (threadBean.getThreadAllocatedBytes(threadId) - startBytes) / RUNS;
+    System.out.printf("%-20s %8d bytes allocated, %5.2fms per request%n", name, allocated, nanos / 1_000_000f);
+  }
+
+  // the approach used before FormDecoder:
+  private static Map<String, String> decodeViaString(byte[] body) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    try (Reader reader = new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8)) {
+      char[] chars = new char[4000];
+      int len;
+      while ((len = reader.read(chars, 0, chars.length)) > 0) {
+        sb.append(new String(chars, 0, len));
+      }
+    }
+    Map<String, String> params = new HashMap<>();
+    for (String pair : sb.toString().split("[&]")) {
+      int delimPos = pair.indexOf('=');
+      if (delimPos != -1) {
+        params.put(URLDecoder.decode(pair.substring(0, delimPos), "UTF-8"), URLDecoder.decode(pair.substring(delimPos + 1), "UTF-8"));
+      }
+    }
+    return params;
+  }
+
+}
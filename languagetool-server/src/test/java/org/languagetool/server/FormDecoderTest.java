@@ -0,0 +1,90 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class FormDecoderTest {
+
+  @Test
+  public void testDecode() throws IOException {
+    Map<String, String> params = decode("language=en&text=This+is%20a%20t%C3%A9st%21&empty=&noValue&a=b=c&a=d");
+    assertThat(params.size(), is(4));
+    assertThat(params.get("language"), is("en"));
+    assertThat(params.get("text"), is("This is a t\u00e9st!"));
+    assertThat(params.get("empty"), is(""));
+    assertThat(params.get("a"), is("d"));
+    assertThat(decode("a=b%3Dc").get("a"), is("b=c"));
+    assertThat(decode("").size(), is(0));
+  }
+
+  @Test
+  public void testLongText() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 100_000) {
+      sb.append("Gr\u00fc\u00dfe, \u4f60\u597d \ud83d\ude00 ");  // multi-byte characters across buffer boundaries
+    }
+    String text = sb.toString();
+    Map<String, String> params = decode("text=" + URLEncoder.encode(text, "UTF-8") + "&language=de");
+    assertThat(params.get("text"), is(text));
+    assertThat(params.get("language"), is("de"));
+  }
+
+  @Test
+  public void testLimits() throws IOException {
+    assertThat(new FormDecoder(100, 5).decode(stream("text=12345&other=123456")).get("text"), is("12345"));
+    try {
+      new FormDecoder(100, 5).decode(stream("text=123456"));
+      fail();
+    } catch (TextTooLongException expected) {}
+    try {
+      new FormDecoder(10, 5).decode(stream("other=123456"));
+      fail();
+    } catch (TextTooLongException expected) {}
+  }
+
+  @Test
+  public void testInvalidEscape() throws IOException {
+    for (String query : new String[] {"text=100%", "text=%zz", "text=%4"}) {
+      try {
+        decode(query);
+        fail("Exception expected for " + query);
+      } catch (IllegalArgumentException expected) {}
+    }
+  }
+
+  private Map<String, String> decode(String s) throws IOException {
+    return new FormDecoder(Integer.MAX_VALUE, Integer.MAX_VALUE).decode(stream(s));
+  }
+
+  private ByteArrayInputStream stream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
@@ -0,0 +1,95 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of checking many short texts one per request
+ * with checking them via {@code /v2/check/batch}.
+ * Not a unit test, for interactive use only.
+ */
+final class HTTPServerBatchTest {
+
+  private static final int TEXTS = 1000;
+  private static final int BATCH_SIZE = 100;
+
+  private final String langCode;
+  private final List<String> texts = new ArrayList<>();
+
+  private HTTPServerBatchTest(String langCode, String text) {
+    this.langCode = langCode;
+    for (int i = 0; i < TEXTS; i++) {
+      texts.add(text + " " + i);  // avoid the result cache
+    }
+  }
+
+  private void run(int batchCheckThreads) throws Exception {
+    DatabaseLogger.getInstance().disableLogging();
+    HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort(), false);
+    config.setBatchCheckThreads(batchCheckThreads);
+    config.setMaxBatchSize(BATCH_SIZE);
+    HTTPServer server = new HTTPServer(config);
+    server.run();
+    try {
+      checkSingle(texts.subList(0, 10));  // warm up
+      long startTime = System.currentTimeMillis();
+      checkSingle(texts);
+      long singleMillis = System.currentTimeMillis() - startTime;
+      startTime = System.currentTimeMillis();
+      for (int i = 0; i < texts.size(); i += BATCH_SIZE) {
+        checkBatch(texts.subList(i, Math.min(i + BATCH_SIZE, texts.size())));
+      }
+      long batchMillis = System.currentTimeMillis() - startTime;
+      System.out.printf("%d texts: single requests %.1f texts/s, batches of %d with %d thread(s) %.1f texts/s%n",
+        texts.size(), texts.size() * 1000f / singleMillis, BATCH_SIZE, batchCheckThreads, texts.size() * 1000f / batchMillis);
+    } finally {
+      server.stop();
+    }
+  }
+
+  private void checkSingle(List<String> texts) throws IOException {
+    URL url = new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check");
+    for (String text : texts) {
+      HTTPTools.checkAtUrlByPost(url, "language=" + langCode + "&text=" + URLEncoder.encode(text, "UTF-8"));
+    }
+  }
+
+  private void checkBatch(List<String> texts) throws IOException {
+    URL url = new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check/batch");
+    String json = new ObjectMapper().writeValueAsString(texts);
+    HTTPTools.checkAtUrlByPost(url, "language=" + langCode + "&texts=" + URLEncoder.encode(json, "UTF-8"));
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.out.println("Usage: " + HTTPServerBatchTest.class.getSimpleName() + " <languageCode> <text>");
+      System.exit(1);
+    }
+    new HTTPServerBatchTest(args[0], args[1]).run(1);
+    new HTTPServerBatchTest(args[0], args[1]).run(4);
+  }
+
+}
@@ -0,0 +1,109 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks a large text with many errors and prints the time to the first byte
+ * and the last byte of the response, and the peak heap usage of the check.
+ * Not a unit test, for interactive use only.
+ */
+final class HTTPServerLargeTextTest {
+
+  private static final int TEXT_LENGTH = 100_000;
+  private static final int RUNS = 5;
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.out.println("Usage: " + HTTPServerLargeTextTest.class.getSimpleName() + " <languageCode> <sentence>");
+      System.exit(1);
+    }
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < TEXT_LENGTH) {
+      sb.append(args[1]).append(' ');
+    }
+    DatabaseLogger.getInstance().disableLogging();
+    HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort(), false);
+    config.setMaxTextLength(TEXT_LENGTH * 2);
+    config.setMaxTextHardLength(TEXT_LENGTH * 2);
+    config.setMaxCheckTimeMillis(-1);
+    HTTPServer server = new HTTPServer(config);
+    server.run();
+    try {
+      String postData = "language=" + args[0] + "&text=" + URLEncoder.encode(sb.toString(), "UTF-8");
+      check(postData);  // warm up
+      for (int i = 0; i < RUNS; i++) {
+        System.gc();
+        long heapBefore = getHeapPeak(true);
+        long[] times = check(postData);
+        System.out.printf("%d chars: first byte after %dms, last byte after %dms, %d bytes, peak heap +%dMB%n",
+          sb.length(), times[0], times[1], times[2], (getHeapPeak(false) - heapBefore) / 1024 / 1024);
+      }
+    } finally {
+      server.stop();
+    }
+  }
+
+  private static long getHeapPeak(boolean reset) {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        if (reset) {
+          pool.resetPeakUsage();
+        }
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  private static long[] check(String postData) throws IOException {
+    URL url = new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check");
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setDoOutput(true);
+    try (OutputStream out = conn.getOutputStream()) {
+      out.write(postData.getBytes(StandardCharsets.UTF_8));
+    }
+    long startTime = System.currentTimeMillis();
+    long firstByte = -1;
+    long size = 0;
+    try (InputStream in = conn.getInputStream()) {
+      byte[] buffer = new byte[8192];
+      int len;
+      while ((len = in.read(buffer)) != -1) {
+        if (firstByte == -1) {
+          firstByte = System.currentTimeMillis() - startTime;
+        }
+        size += len;
+      }
+    }
+    return new long[] {firstByte, System.currentTimeMillis() - startTime, size};
+  }
+
+}
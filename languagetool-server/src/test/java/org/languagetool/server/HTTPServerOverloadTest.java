@@ -0,0 +1,128 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.languagetool.tools.StringTools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Overloads the server with more clients than it can serve, each of them giving up after
+ * {@link #CLIENT_TIMEOUT_MILLIS}, and compares the goodput (responses received in time)
+ * without and with load shedding.
+ * Not a unit test, for interactive use only.
+ */
+final class HTTPServerOverloadTest {
+
+  private static final int CHECK_THREADS = 2;
+  private static final int CLIENTS = 30;
+  private static final int CLIENT_TIMEOUT_MILLIS = 2000;
+  private static final int RUNTIME_MILLIS = 20_000;
+
+  private final String langCode;
+  private final String text;
+
+  private HTTPServerOverloadTest(String langCode, String text) {
+    this.langCode = langCode;
+    this.text = text;
+  }
+
+  private void run(boolean shedding) throws Exception {
+    DatabaseLogger.getInstance().disableLogging();
+    HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort(), false);
+    config.setMaxCheckThreads(CHECK_THREADS);
+    if (shedding) {
+      config.setQueueDelayTargetMillis(100);
+      config.setQueueDelayIntervalMillis(500);
+    }
+    HTTPServer server = new HTTPServer(config);
+    server.run();
+    AtomicInteger ok = new AtomicInteger();
+    AtomicInteger late = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+    try {
+      sendRequest(0);  // warm up, no timeout as loading the resources takes a while
+      long endTime = System.currentTimeMillis() + RUNTIME_MILLIS;
+      for (int i = 0; i < CLIENTS; i++) {
+        clients.execute(() -> {
+          while (System.currentTimeMillis() < endTime) {
+            try {
+              int code = sendRequest(CLIENT_TIMEOUT_MILLIS);
+              if (code == HttpURLConnection.HTTP_OK) {
+                ok.incrementAndGet();
+              } else {
+                rejected.incrementAndGet();
+                Thread.sleep(100);
+              }
+            } catch (SocketTimeoutException e) {
+              late.incrementAndGet();
+            } catch (IOException | InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+        });
+      }
+      clients.shutdown();
+      clients.awaitTermination(RUNTIME_MILLIS + CLIENT_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+      System.out.printf("shedding %s: goodput %.1f req/s, %d in time, %d timed out at the client, %d rejected%n",
+        shedding ? "on" : "off", ok.get() * 1000f / RUNTIME_MILLIS, ok.get(), late.get(), rejected.get());
+    } finally {
+      clients.shutdownNow();
+      server.stop();
+    }
+  }
+
+  private int sendRequest(int timeoutMillis) throws IOException {
+    URL url = new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check");
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setReadTimeout(timeoutMillis);
+    conn.setRequestProperty("X-Client-Timeout", String.valueOf(timeoutMillis));
+    conn.setDoOutput(true);
+    try (OutputStream out = conn.getOutputStream()) {
+      out.write(("language=" + langCode + "&text=" + URLEncoder.encode(text, "UTF-8")).getBytes(StandardCharsets.UTF_8));
+    }
+    int code = conn.getResponseCode();
+    if (code == HttpURLConnection.HTTP_OK) {
+      StringTools.streamToString(conn.getInputStream(), "UTF-8");
+    }
+    conn.disconnect();
+    return code;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.out.println("Usage: " + HTTPServerOverloadTest.class.getSimpleName() + " <languageCode> <text>");
+      System.exit(1);
+    }
+    new HTTPServerOverloadTest(args[0], args[1]).run(false);
+    new HTTPServerOverloadTest(args[0], args[1]).run(true);
+  }
+
+}
@@ -0,0 +1,104 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the default and the non-blocking HTTP server while many clients send their
+ * request body very slowly: measures the latency of normal requests sent at the same time.
+ * Not a unit test, for interactive use only.
+ */
+final class HTTPServerSlowClientsTest {
+
+  private static final int SLOW_CLIENTS = 50;
+  private static final int NORMAL_REQUESTS = 20;
+  private static final int BODY_LENGTH = 200;
+  private static final int MILLIS_PER_BYTE = 50;
+
+  private final String langCode;
+
+  private HTTPServerSlowClientsTest(String langCode) {
+    this.langCode = langCode;
+  }
+
+  private void run(boolean nio) throws Exception {
+    DatabaseLogger.getInstance().disableLogging();
+    HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort(), false);
+    config.setNioServer(nio);
+    config.setMaxCheckThreads(4);
+    HTTPServer server = new HTTPServer(config);
+    server.run();
+    ExecutorService slowClients = Executors.newFixedThreadPool(SLOW_CLIENTS);
+    try {
+      HTTPTools.checkAtUrl(new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check?language=" + langCode + "&text=warm+up"));
+      for (int i = 0; i < SLOW_CLIENTS; i++) {
+        slowClients.execute(this::sendSlowly);
+      }
+      Thread.sleep(500);
+      List<Long> latencies = new ArrayList<>();
+      for (int i = 0; i < NORMAL_REQUESTS; i++) {
+        long startTime = System.currentTimeMillis();
+        HTTPTools.checkAtUrl(new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check?language=" + langCode + "&text=A+test+" + i));
+        latencies.add(System.currentTimeMillis() - startTime);
+      }
+      latencies.sort(Long::compare);
+      System.out.println((nio ? "non-blocking" : "default") + " server with " + SLOW_CLIENTS + " slow clients: median latency " +
+        latencies.get(latencies.size() / 2) + "ms, max latency " + latencies.get(latencies.size() - 1) + "ms");
+    } finally {
+      slowClients.shutdownNow();
+      server.stop();
+    }
+  }
+
+  private void sendSlowly() {
+    try (Socket socket = new Socket("localhost", HTTPTools.getDefaultPort())) {
+      OutputStream out = socket.getOutputStream();
+      out.write(("POST /v2/check HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/x-www-form-urlencoded\r\n" +
+        "Content-Length: " + BODY_LENGTH + "\r\n\r\n" + getBodyStart()).getBytes(StandardCharsets.UTF_8));
+      for (int i = getBodyStart().length(); i < BODY_LENGTH; i++) {
+        out.write('x');
+        out.flush();
+        Thread.sleep(MILLIS_PER_BYTE);
+      }
+      socket.getInputStream().read();
+    } catch (IOException | InterruptedException ignored) {
+      // expected when the test ends
+    }
+  }
+
+  private String getBodyStart() {
+    return "language=" + langCode + "&text=";
+  }
+
+  public static void main(String[] args) throws Exception {
+    String langCode = args.length > 0 ? args[0] : "en";
+    new HTTPServerSlowClientsTest(langCode).run(false);
+    new HTTPServerSlowClientsTest(langCode).run(true);
+  }
+
+}
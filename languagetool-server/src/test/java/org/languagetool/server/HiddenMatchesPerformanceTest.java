@@ -0,0 +1,137 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.sun.net.httpserver.HttpServer;
+import org.languagetool.Languages;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the latency of checks with a hidden matches server that is queried while the
+ * text is checked locally with the latency of querying it after the local check, as
+ * it used to be. The hidden matches server is a local stub that answers after a delay.
+ * Not a unit test, for interactive use only.
+ */
+final class HiddenMatchesPerformanceTest {
+
+  private static final int RUNS = 200;
+  private static final int STUB_DELAY_MILLIS = 50;
+
+  private final String langCode;
+  private final String text;
+  private final int stubPort = HTTPTools.getDefaultPort() + 1;
+
+  private HiddenMatchesPerformanceTest(String langCode, String text) {
+    this.langCode = langCode;
+    this.text = text;
+  }
+
+  private void run() throws Exception {
+    DatabaseLogger.getInstance().disableLogging();
+    HttpServer stub = startStub();
+    try {
+      String stubUrl = "http://localhost:" + stubPort + "/v2/check";
+      ResultExtender resultExtender = new ResultExtender(stubUrl, 1000);
+      // sequential: local check without hidden matches server, then query the stub:
+      List<Long> sequential = new ArrayList<>();
+      HTTPServer server = new HTTPServer(new HTTPServerConfig(HTTPTools.getDefaultPort(), false));
+      server.run();
+      try {
+        for (int i = 0; i < RUNS; i++) {
+          String textToCheck = text + " " + i;  // avoid the result cache
+          long startTime = System.nanoTime();
+          check(textToCheck);
+          resultExtender.getExtensionMatches(textToCheck, Collections.singletonMap("text", textToCheck));
+          sequential.add(System.nanoTime() - startTime);
+        }
+      } finally {
+        server.stop();
+      }
+      // concurrent: the server queries the stub while it checks the text locally:
+      List<Long> concurrent = new ArrayList<>();
+      HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort(), false);
+      config.setHiddenMatchesServer(stubUrl);
+      config.setHiddenMatchesServerTimeout(1000);
+      config.setHiddenMatchesLanguages(Collections.singletonList(Languages.getLanguageForShortCode(langCode)));
+      server = new HTTPServer(config);
+      server.run();
+      try {
+        for (int i = 0; i < RUNS; i++) {
+          long startTime = System.nanoTime();
+          check(text + " " + i);
+          concurrent.add(System.nanoTime() - startTime);
+        }
+      } finally {
+        server.stop();
+      }
+      print("sequential", sequential);
+      print("concurrent", concurrent);
+    } finally {
+      stub.stop(0);
+    }
+  }
+
+  private HttpServer startStub() throws Exception {
+    HttpServer stub = HttpServer.create(new InetSocketAddress("localhost", stubPort), 0);
+    stub.createContext("/v2/check", httpExchange -> {
+      try {
+        Thread.sleep(STUB_DELAY_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      byte[] response = "{\"matches\": []}".getBytes(StandardCharsets.UTF_8);
+      httpExchange.sendResponseHeaders(200, response.length);
+      try (OutputStream out = httpExchange.getResponseBody()) {
+        out.write(response);
+      }
+    });
+    stub.start();
+    return stub;
+  }
+
+  private void check(String text) throws Exception {
+    URL url = new URL("http://localhost:" + HTTPTools.getDefaultPort() + "/v2/check");
+    HTTPTools.checkAtUrlByPost(url, "language=" + langCode + "&enableHiddenRules=true&text=" + URLEncoder.encode(text, "UTF-8"));
+  }
+
+  private void print(String name, List<Long> nanos) {
+    // the first 10% are warm-up:
+    List<Long> sorted = new ArrayList<>(nanos.subList(nanos.size() / 10, nanos.size()));
+    Collections.sort(sorted);
+    System.out.printf("%-10s (stub delay %dms): p50 %6.1fms, p99 %6.1fms%n", name, STUB_DELAY_MILLIS,
+      sorted.get(sorted.size() / 2) / 1_000_000f, sorted.get((int) (sorted.size() * 0.99)) / 1_000_000f);
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.out.println("Usage: " + HiddenMatchesPerformanceTest.class.getSimpleName() + " <languageCode> <text>");
+      System.exit(1);
+    }
+    new HiddenMatchesPerformanceTest(args[0], args[1]).run();
+  }
+
+}
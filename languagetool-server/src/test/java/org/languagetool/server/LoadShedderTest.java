@@ -0,0 +1,53 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadShedderTest {
+
+  @Test
+  public void testShedding() {
+    LoadShedder shedder = new LoadShedder(50, 1000, 0);
+    // a burst is absorbed as long as requests wait less than the interval:
+    assertFalse(shedder.shouldShed(0, 0));
+    assertFalse(shedder.shouldShed(300, 100));
+    assertFalse(shedder.shouldShed(900, 500));
+    assertTrue(shedder.shouldShed(1100, 600));
+    // the queue drained in the first interval, so still not overloaded:
+    assertFalse(shedder.shouldShed(200, 1000));
+    assertFalse(shedder.shouldShed(100, 1500));
+    // the queue has been standing (minimum delay 100ms > 50ms) for a whole interval:
+    assertTrue(shedder.shouldShed(100, 2000));
+    assertFalse(shedder.shouldShed(40, 2100));
+    // ...and it drained again:
+    assertFalse(shedder.shouldShed(200, 3000));
+  }
+
+  @Test
+  public void testMaxDelay() {
+    LoadShedder shedder = new LoadShedder(0, 1000, 500);
+    assertFalse(shedder.shouldShed(500, 0));
+    assertTrue(shedder.shouldShed(501, 0));
+  }
+
+}
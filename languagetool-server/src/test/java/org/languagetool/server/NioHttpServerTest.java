@@ -0,0 +1,249 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.After;
+import org.junit.Test;
+import org.languagetool.tools.StringTools;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+public class NioHttpServerTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final CountDownLatch streamLatch = new CountDownLatch(1);
+  private NioHttpServer server;
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.stop(1);
+    }
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testRequests() throws Exception {
+    startServer(1000);
+    try (Socket socket = connect()) {
+      // two requests on the same connection:
+      send(socket, "GET /v2/echo?foo=bar HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      String response1 = readResponse(socket);
+      assertThat(response1, startsWith("HTTP/1.1 200 OK\r\n"));
+      assertThat(response1, containsString("Connection: keep-alive"));
+      assertThat(response1, containsString("GET /v2/echo?foo=bar: "));
+      send(socket, "POST /v2/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\ntext=hello!");
+      assertThat(readResponse(socket), containsString("POST /v2/echo: text=hello!"));
+    }
+  }
+
+  @Test
+  public void testBodyTooLarge() throws Exception {
+    startServer(10);
+    try (Socket socket = connect()) {
+      // rejected before the body has been sent:
+      send(socket, "POST /v2/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 11\r\n\r\n");
+      String response = readResponse(socket);
+      assertThat(response, startsWith("HTTP/1.1 413 "));
+      assertThat(response, containsString("Connection: close"));
+    }
+  }
+
+  @Test
+  public void testOpaqueRequestUri() throws Exception {
+    startServer(1000);
+    try (Socket socket = connect()) {
+      send(socket, "GET mailto:a HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      assertThat(readResponse(socket), startsWith("HTTP/1.1 400 "));
+    }
+    // the event loop is still running:
+    try (Socket socket = connect()) {
+      send(socket, "GET /v2/echo HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      assertThat(readResponse(socket), startsWith("HTTP/1.1 200 OK\r\n"));
+    }
+  }
+
+  @Test
+  public void testBufferedBytesLimit() throws Exception {
+    startServer(1_000_000, 10, 100_000);
+    try (Socket stalled = connect(); Socket socket = connect()) {
+      // only a part of the body is sent, the rest of the announced 60,000 bytes would still fit into the limit:
+      send(stalled, "POST /v2/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 60000\r\n\r\n" + repeat('x', 50_000));
+      Thread.sleep(200);
+      // ... but this body doesn't (rejected when its buffer needs to grow from 32,768 to 60,000 bytes):
+      send(socket, "POST /v2/echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 60000\r\n\r\n" + repeat('x', 32_768));
+      assertThat(readResponse(socket), startsWith("HTTP/1.1 503 "));
+      // the stalled request can still complete:
+      send(stalled, repeat('x', 10_000));
+      assertThat(readResponse(stalled), startsWith("HTTP/1.1 200 OK\r\n"));
+    }
+  }
+
+  @Test
+  public void testMaxConnections() throws Exception {
+    startServer(1000, 1, NioHttpServer.DEFAULT_MAX_BUFFERED_BYTES);
+    try (Socket socket1 = connect(); Socket socket2 = connect()) {
+      send(socket1, "GET /v2/echo HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      assertThat(readResponse(socket1), startsWith("HTTP/1.1 200 OK\r\n"));
+      // closed right after being accepted:
+      assertEquals(-1, socket2.getInputStream().read());
+    }
+    // the connection can be used once the other one has been closed:
+    Thread.sleep(200);
+    try (Socket socket = connect()) {
+      send(socket, "GET /v2/echo HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      assertThat(readResponse(socket), startsWith("HTTP/1.1 200 OK\r\n"));
+    }
+  }
+
+  @Test
+  public void testStreamedResponse() throws Exception {
+    startServer(1000);
+    try (Socket socket = connect()) {
+      send(socket, "GET /v2/stream HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      // the flushed part arrives while the handler is still busy:
+      String head = readUntil(socket, "first");
+      assertThat(head, startsWith("HTTP/1.1 200 OK\r\n"));
+      assertThat(head, containsString("Transfer-Encoding: chunked\r\n"));
+      assertThat(head, not(containsString("Content-Length")));
+      streamLatch.countDown();
+      assertThat(readUntil(socket, "\r\n0\r\n\r\n"), containsString(Integer.toHexString(NioHttpExchange.CHUNK_SIZE + 1) + "\r\nsecond"));
+      // the connection can be reused:
+      send(socket, "GET /v2/echo HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      assertThat(readResponse(socket), startsWith("HTTP/1.1 200 OK\r\n"));
+    }
+  }
+
+  @Test
+  public void testStreamedResponseToHttp10Client() throws Exception {
+    startServer(1000);
+    streamLatch.countDown();
+    try (Socket socket = connect()) {
+      // no chunked transfer encoding for HTTP/1.0:
+      send(socket, "GET /v2/stream HTTP/1.0\r\nHost: localhost\r\n\r\n");
+      String response = readResponse(socket);
+      assertThat(response, containsString("Content-Length: " + (5 + NioHttpExchange.CHUNK_SIZE + 1)));
+      assertThat(response, containsString("\r\n\r\nfirstsecond"));
+    }
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  private void startServer(int maxBodySize) throws IOException {
+    startServer(maxBodySize, NioHttpServer.DEFAULT_MAX_CONNECTIONS, NioHttpServer.DEFAULT_MAX_BUFFERED_BYTES);
+  }
+
+  private void startServer(int maxBodySize, int maxConnections, long maxBufferedBytes) throws IOException {
+    server = new NioHttpServer(new InetSocketAddress("localhost", 0), maxBodySize, maxConnections, maxBufferedBytes);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if (exchange.getRequestURI().getPath().equals("/v2/stream")) {
+      handleStreaming(exchange);
+      return;
+    }
+    String body = StringTools.streamToString(exchange.getRequestBody(), "UTF-8");
+    byte[] response = (exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + body).getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(200, response.length);
+    exchange.getResponseBody().write(response);
+    exchange.close();
+  }
+
+  private void handleStreaming(HttpExchange exchange) throws IOException {
+    exchange.sendResponseHeaders(200, 0);
+    OutputStream out = exchange.getResponseBody();
+    out.write("first".getBytes(StandardCharsets.UTF_8));
+    out.flush();
+    try {
+      streamLatch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+    // larger than a chunk, so it gets sent as a chunk of its own right away:
+    out.write(("second" + repeat('x', NioHttpExchange.CHUNK_SIZE - 5)).getBytes(StandardCharsets.UTF_8));
+    exchange.close();
+  }
+
+  private Socket connect() throws IOException {
+    Socket socket = new Socket("localhost", server.getAddress().getPort());
+    socket.setSoTimeout(5000);
+    return socket;
+  }
+
+  private void send(Socket socket, String request) throws IOException {
+    OutputStream out = socket.getOutputStream();
+    out.write(request.getBytes(StandardCharsets.UTF_8));
+    out.flush();
+  }
+
+  private String readResponse(Socket socket) throws IOException {
+    InputStream in = socket.getInputStream();
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    int contentLength = -1;
+    int headerLength = -1;
+    while (headerLength == -1 || response.size() < headerLength + contentLength) {
+      int b = in.read();
+      if (b == -1) {
+        break;
+      }
+      response.write(b);
+      String soFar = response.toString("ISO-8859-1");
+      if (headerLength == -1 && soFar.endsWith("\r\n\r\n")) {
+        headerLength = soFar.length();
+        int pos = soFar.indexOf("Content-Length: ");
+        contentLength = Integer.parseInt(soFar.substring(pos + 16, soFar.indexOf("\r\n", pos)));
+      }
+    }
+    return response.toString("UTF-8");
+  }
+
+  private String readUntil(Socket socket, String end) throws IOException {
+    InputStream in = socket.getInputStream();
+    ByteArrayOutputStream response = new ByteArrayOutputStream();
+    while (!response.toString("ISO-8859-1").endsWith(end)) {
+      int b = in.read();
+      if (b == -1) {
+        break;
+      }
+      response.write(b);
+    }
+    return response.toString("UTF-8");
+  }
+
+}
@@ -64,6 +64,32 @@ public class PipelinePoolTest {
     verify(pool, times(2)).returnPipeline(eq(settings1), notNull());
   }
 
+  @Test
+  public void testBitextPipelineCreatedAndUsed() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("text", "not used");
+    params.put("language", "de-DE");
+    params.put("sourceLanguage", "en-US");
+    params.put("sourceText", "This is a test.");
+    HTTPServerConfig config1 = new HTTPServerConfig(HTTPTools.getDefaultPort());
+    config1.setPipelineCaching(true);
+    config1.setPipelineExpireTime(10);
+    config1.setMaxPipelinePoolSize(10);
+    TextChecker checker = new V2TextChecker(config1, false, null, new RequestCounter());
+    PipelinePool pool = spy(checker.pipelinePool);
+    checker.pipelinePool = pool;
+    checker.checkText(new AnnotatedTextBuilder().addText("Das ist ein Test.").build(), new FakeHttpExchange(), params, null, null);
+    PipelinePool.BitextPipelineSettings settings = new PipelinePool.BitextPipelineSettings(
+      Languages.getLanguageForShortCode("en-US"), Languages.getLanguageForShortCode("de-DE"), new UserConfig());
+    verify(pool).getBitextPipeline(settings);
+    verify(pool).createBitextPipeline(settings);
+    verify(pool).returnBitextPipeline(eq(settings), notNull());
+    checker.checkText(new AnnotatedTextBuilder().addText("Das ist noch ein Test.").build(), new FakeHttpExchange(), params, null, null);
+    verify(pool, times(2)).getBitextPipeline(settings);
+    verify(pool, times(1)).createBitextPipeline(settings);
+    verify(pool, times(2)).returnBitextPipeline(eq(settings), notNull());
+  }
+
   @Test
   public void testDifferentPipelineSettings() throws Exception {
     Map<String, String> params1 = new HashMap<>();
@@ -101,6 +101,19 @@ public class RequestLimiterTest {
     assertOkayWithSkippingLimits(limiter, firstIp, params, firstHeader);
   }
 
+  @Test
+  public void testLimitAboveThousandRequests() {
+    // the limiter used to only remember the last 1000 requests
+    RequestLimiter limiter = new RequestLimiter(1500, 0, 100, 1);
+    String ip = "192.168.10.1";
+    Map<String, List<String>> header = new HashMap<>();
+    Map<String, String> params = new HashMap<>();
+    for (int i = 0; i < 1500; i++) {
+      assertOkay(limiter, ip, params, header);
+    }
+    assertException(limiter, ip, params, header);
+  }
+
   private void assertOkay(RequestLimiter limiter, String ip, Map<String, String> params, Map<String, List<String>> header) {
     try {
       limiter.checkAccess(ip, params, header, UserLimits.getDefaultLimits(config));
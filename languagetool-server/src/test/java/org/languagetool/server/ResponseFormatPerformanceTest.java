@@ -0,0 +1,131 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.languagetool.DetectedLanguage;
+import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
+import org.languagetool.Languages;
+import org.languagetool.markup.AnnotatedText;
+import org.languagetool.markup.AnnotatedTextBuilder;
+import org.languagetool.rules.RuleMatch;
+import org.languagetool.tools.RuleMatchesAsJsonSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares size and CPU time of encoding (on the server) and decoding (on the client)
+ * the check result of a text with many errors in plain JSON and in the compact JSON
+ * format, each without and with gzip.
+ * Not a unit test, for interactive use only.
+ */
+final class ResponseFormatPerformanceTest {
+
+  private static final int TEXT_LENGTH = 20_000;
+  private static final int RUNS = 200;
+
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Language lang;
+  private final AnnotatedText text;
+  private final List<RuleMatch> matches;
+
+  private ResponseFormatPerformanceTest(Language lang, String sentence) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < TEXT_LENGTH) {
+      sb.append(sentence).append(' ');
+    }
+    this.lang = lang;
+    this.text = new AnnotatedTextBuilder().addText(sb.toString()).build();
+    this.matches = new JLanguageTool(lang).check(text);
+  }
+
+  private void run(String name, boolean ruleDictionary, int gzipLevel) throws IOException {
+    byte[] response = null;
+    long startCpu = threadBean.getCurrentThreadCpuTime();
+    for (int i = 0; i < RUNS; i++) {
+      response = encode(ruleDictionary, gzipLevel);
+    }
+    long encodeNanos = (threadBean.getCurrentThreadCpuTime() - startCpu) / RUNS;
+    startCpu = threadBean.getCurrentThreadCpuTime();
+    for (int i = 0; i < RUNS; i++) {
+      decode(response, gzipLevel);
+    }
+    long decodeNanos = (threadBean.getCurrentThreadCpuTime() - startCpu) / RUNS;
+    System.out.printf("%-20s %8d bytes, encoding %6.2fms, decoding %6.2fms CPU per response%n",
+      name, response.length, encodeNanos / 1_000_000f, decodeNanos / 1_000_000f);
+  }
+
+  private byte[] encode(boolean ruleDictionary, int gzipLevel) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out = bytes;
+    if (gzipLevel != Deflater.NO_COMPRESSION) {
+      out = new GZIPOutputStream(bytes) {
+        {
+          def.setLevel(gzipLevel);
+        }
+      };
+    }
+    RuleMatchesAsJsonSerializer serializer = new RuleMatchesAsJsonSerializer(0, lang, ruleDictionary);
+    serializer.ruleMatchesToJson(matches, Collections.emptyList(), text, 40,
+      new DetectedLanguage(lang, lang), null, out);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private void decode(byte[] response, int gzipLevel) throws IOException {
+    InputStream in = new ByteArrayInputStream(response);
+    if (gzipLevel != Deflater.NO_COMPRESSION) {
+      in = new GZIPInputStream(in);
+    }
+    mapper.readValue(in, Map.class);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.out.println("Usage: " + ResponseFormatPerformanceTest.class.getSimpleName() + " <languageCode> <sentence>");
+      System.exit(1);
+    }
+    ResponseFormatPerformanceTest test = new ResponseFormatPerformanceTest(Languages.getLanguageForShortCode(args[0]), args[1]);
+    System.out.println(test.matches.size() + " matches in " + test.text.getPlainText().length() + " chars");
+    for (int i = 0; i < 2; i++) {  // the first iteration is warm-up
+      test.run("JSON", false, Deflater.NO_COMPRESSION);
+      test.run("JSON+gzip(1)", false, Deflater.BEST_SPEED);
+      test.run("JSON+gzip(6)", false, Deflater.DEFAULT_COMPRESSION);
+      test.run("compact", true, Deflater.NO_COMPRESSION);
+      test.run("compact+gzip(1)", true, Deflater.BEST_SPEED);
+      test.run("compact+gzip(6)", true, Deflater.DEFAULT_COMPRESSION);
+      System.out.println();
+    }
+  }
+
+}
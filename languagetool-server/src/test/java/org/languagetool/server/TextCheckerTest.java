@@ -27,6 +27,7 @@ import org.languagetool.markup.AnnotatedTextBuilder;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
@@ -51,6 +52,73 @@ public class TextCheckerTest {
     assertTrue(httpExchange.getOutput().endsWith(");"));
   }
   
+  @Test
+  public void testTimingHeader() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("text", "not used");
+    params.put("language", "en");
+    HTTPServerConfig config1 = new HTTPServerConfig(HTTPTools.getDefaultPort());
+    TextChecker checker1 = new V2TextChecker(config1, false, null, new RequestCounter());
+    FakeHttpExchange httpExchange1 = new FakeHttpExchange();
+    checker1.checkText(new AnnotatedTextBuilder().addText("This is a test.").build(), httpExchange1, params, null, null);
+    assertNull(httpExchange1.getResponseHeaders().getFirst("X-LT-Timing"));
+
+    HTTPServerConfig config2 = new HTTPServerConfig(HTTPTools.getDefaultPort());
+    config2.setTimingHeader(true);
+    TextChecker checker2 = new V2TextChecker(config2, false, null, new RequestCounter());
+    FakeHttpExchange httpExchange2 = new FakeHttpExchange();
+    checker2.checkText(new AnnotatedTextBuilder().addText("This is a test.").build(), httpExchange2, params, null, null);
+    String timing = httpExchange2.getResponseHeaders().getFirst("X-LT-Timing");
+    assertNotNull(timing);
+    assertTrue(timing, timing.contains("language_detection="));
+    assertTrue(timing, timing.contains("pipeline="));
+    assertTrue(timing, timing.contains("sentence_analysis="));
+    assertTrue(timing, timing.contains("local_rules="));
+    assertTrue(timing, timing.contains("text_level_rules="));
+    assertTrue(timing, timing.contains("filtering="));
+    assertFalse(timing, timing.contains("serialization="));
+  }
+
+  @Test
+  public void testRequestsWithDifferentMaxSuggestionsAreNotCoalesced() throws Exception {
+    HTTPServerConfig config = new HTTPServerConfig(HTTPTools.getDefaultPort());
+    config.setCheckCoalescing(true);
+    TextChecker checker = new V2TextChecker(config, false, null, new RequestCounter());
+    String text = "This is a tset of the speling checker.";
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      for (int i = 0; i < 10; i++) {
+        CountDownLatch start = new CountDownLatch(1);
+        Future<String> limited = executor.submit(() -> check(checker, text, "1", start));
+        Future<String> unlimited = executor.submit(() -> check(checker, text, null, start));
+        start.countDown();
+        String limitedOutput = limited.get(30, TimeUnit.SECONDS);
+        String unlimitedOutput = unlimited.get(30, TimeUnit.SECONDS);
+        // the request without a limit must not get the results of the concurrent request with a limit:
+        assertTrue(limitedOutput, countSuggestions(limitedOutput) < countSuggestions(unlimitedOutput));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private String check(TextChecker checker, String text, String maxSuggestions, CountDownLatch start) throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("text", text);
+    params.put("language", "en-US");
+    if (maxSuggestions != null) {
+      params.put("maxSuggestions", maxSuggestions);
+    }
+    FakeHttpExchange httpExchange = new FakeHttpExchange();
+    start.await();
+    checker.checkText(new AnnotatedTextBuilder().addText(text).build(), httpExchange, params, null, null);
+    return httpExchange.getOutput();
+  }
+
+  private int countSuggestions(String json) {
+    return json.split("\\{\"value\":", -1).length - 1;
+  }
+
   @Test
   public void testMaxTextLength() throws Exception {
     Map<String, String> params = new HashMap<>();
@@ -174,12 +242,10 @@ public class TextCheckerTest {
   }
 
   @Test
-  @Ignore("requires fastText (binary and model) installed locally")
+  @Ignore("requires fastText model installed locally")
   public void testDetectLanguageOfStringWithFastText() {
     HTTPServerConfig config = new HTTPServerConfig();
-    config.setFasttextBinary(new File("/prg/fastText-0.1.0/fasttext"));
     config.setFasttextModel(new File("/prg/fastText-0.1.0/data/lid.176.bin"));
-    //config.setFasttextBinary(new File("/home/fabian/Documents/fastText/fasttext"));
     //config.setFasttextModel(new File("/home/fabian/Documents/fastText/lid.176.bin"));
     TextChecker checker = new V2TextChecker(config, false, null, new RequestCounter());
     assertThat(checker.detectLanguageOfString(unsupportedCzech, "en", Arrays.asList(), Arrays.asList("foo", "cs"), Collections.emptyList()).
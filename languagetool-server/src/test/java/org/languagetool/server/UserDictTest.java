@@ -62,6 +62,35 @@ public class UserDictTest {
     }
   }
 
+  @Test
+  public void testUserDictCache() {
+    HTTPServerConfig config = getServerConfig();
+    DatabaseAccess.init(config);
+    DatabaseLogger.getInstance().disableLogging();
+    try {
+      DatabaseAccess.createAndFillTestTables();
+      DatabaseAccess db = DatabaseAccess.getInstance();
+      Long userId = db.getUserId(USERNAME1, API_KEY1);
+      assertThat(db.getUserDictWords(userId).size(), is(0));
+      for (int i = 0; i < 1500; i++) {
+        db.addWord("word" + i, userId);
+      }
+      // large dictionaries are cached, too:
+      assertThat(db.getUserDictWords(userId).size(), is(1500));
+      long hits = db.getUserDictCache().stats().hitCount();
+      assertThat(db.getUserDictWords(userId).size(), is(1500));
+      assertThat(db.getUserDictCache().stats().hitCount(), is(hits + 1));
+      // adding and deleting words invalidates the cache:
+      db.addWord("Mysurname", userId);
+      assertTrue(db.getUserDictWords(userId).contains("Mysurname"));
+      db.deleteWord("Mysurname", userId);
+      assertFalse(db.getUserDictWords(userId).contains("Mysurname"));
+      assertThat(db.getUserDictWords(db.getUserId(USERNAME2, API_KEY2)).size(), is(0));
+    } finally {
+      DatabaseAccess.deleteTestTables();
+    }
+  }
+
   protected void run() throws Exception {
     Language enUS = Languages.getLanguageForShortCode("en-US");
     runTests(enUS, "This is Mysurname.", "This is Mxsurname.", "Mysurname", "MORFOLOGIK_RULE_EN_US");
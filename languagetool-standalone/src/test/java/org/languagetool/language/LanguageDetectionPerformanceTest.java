@@ -0,0 +1,78 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.language;
+
+import org.languagetool.tools.StringTools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+
+/**
+ * Measure the CPU time of language detection for prefixes of different length of a text,
+ * with and without the cache of {@link LanguageIdentifier}. With the cache, the same
+ * text is detected again, as it happens when a user keeps editing a document.
+ * Not a unit test, for interactive use only.
+ */
+final class LanguageDetectionPerformanceTest {
+
+  private static final int RUNS = 100;
+  private static final int[] LENGTHS = {100, 1000, 10_000, 50_000};
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1 && args.length != 2) {
+      System.out.println("Usage: " + LanguageDetectionPerformanceTest.class.getSimpleName() + " <textFile> [fasttextModel]");
+      System.exit(1);
+    }
+    String text = StringTools.readStream(new FileInputStream(args[0]), "utf-8");
+    LanguageIdentifier identifier = new LanguageIdentifier();
+    LanguageIdentifier cachingIdentifier = new LanguageIdentifier();
+    cachingIdentifier.enableCache(1000);
+    if (args.length == 2) {
+      identifier.enableFasttext(new File(args[1]));
+      cachingIdentifier.enableFasttext(new File(args[1]));
+    }
+    for (int i = 0; i < 2; i++) {  // the first iteration is warm-up
+      for (int length : LENGTHS) {
+        if (length > text.length()) {
+          continue;
+        }
+        String prefix = text.substring(0, length);
+        run("no cache", identifier, prefix);
+        run("cache", cachingIdentifier, prefix);
+      }
+    }
+  }
+
+  private static void run(String name, LanguageIdentifier identifier, String text) {
+    long startTime = threadBean.getCurrentThreadCpuTime();
+    String detected = null;
+    for (int i = 0; i < RUNS; i++) {
+      detected = String.valueOf(identifier.detectLanguage(text, Collections.emptyList(), Collections.emptyList()));
+    }
+    long nanos = (threadBean.getCurrentThreadCpuTime() - startTime) / RUNS;
+    System.out.printf("%6d chars, %-8s: %7.3fms CPU per detection, %s%n", text.length(), name, nanos / 1_000_000f, detected);
+  }
+
+}
@@ -29,8 +29,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.fail;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
 
 public class LanguageIdentifierTest {
 
@@ -113,6 +113,53 @@ public class LanguageIdentifierTest {
     langAssert("en", "This is an English text.\n-- \nDas ist ein\ndeutscher Text in der Signatur, der länger ist als der Haupttext.");
   }
 
+  @Test
+  public void testLongText() {
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 5000) {
+      sb.append("This is an English text that is long enough to be sampled in several windows. ");
+    }
+    langAssert("en", sb.toString());
+    langAssert("en", sb + "\n-- \nDas ist ein\ndeutscher Text in der Signatur.");
+  }
+
+  @Test
+  public void testSampleWindows() {
+    String shortText = "This is a short text.";
+    assertThat(LanguageIdentifier.getSampleWindows(shortText, 100), is(Collections.singletonList(shortText)));
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; sb.length() < 2000; i++) {
+      sb.append("word").append(i).append(' ');
+    }
+    String text = sb.toString().trim();
+    List<String> windows = LanguageIdentifier.getSampleWindows(text, 100);
+    assertThat(windows.size(), is(4));
+    assertTrue(windows.get(0).startsWith("word0 "));
+    assertTrue(text.endsWith(windows.get(3)));
+    for (String window : windows) {
+      assertTrue(window.length() <= 25);
+      assertTrue(window.matches("(word\\d+ )*word\\d+"));
+    }
+    // the signature is not part of the sample:
+    List<String> windowsWithSignature = LanguageIdentifier.getSampleWindows(text + "\n-- \nSignature", 100);
+    assertThat(windowsWithSignature, is(windows));
+  }
+
+  @Test
+  public void testCache() {
+    LanguageIdentifier cachingIdent = new LanguageIdentifier();
+    cachingIdent.enableCache(10);
+    langAssert("de", "Das ist ein deutscher Text", cachingIdent);
+    langAssert("de", "Das ist ein deutscher Text", cachingIdent);
+    assertThat(cachingIdent.getCache().size(), is(1L));
+    assertThat(cachingIdent.getCache().stats().hitCount(), is(1L));
+    langAssert("de", "Das ist ein deutscher Text", cachingIdent, Collections.emptyList(), Arrays.asList("de", "en"));
+    assertThat(cachingIdent.getCache().size(), is(2L));
+    langAssert(null, "", cachingIdent);
+    langAssert(null, "", cachingIdent);
+    assertThat(cachingIdent.getCache().stats().hitCount(), is(2L));
+  }
+
   @Test
   @Ignore("Only works with locally installed fastText")
   public void testAdditionalLanguagesFasttext() {
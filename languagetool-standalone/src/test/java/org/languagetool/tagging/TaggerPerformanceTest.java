@@ -0,0 +1,79 @@
+/* LanguageTool, a natural language style checker
+ * Copyright (C) 2020 Daniel Naber (http://www.danielnaber.de)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ */
+package org.languagetool.tagging;
+
+import com.google.common.cache.CacheStats;
+import org.languagetool.Language;
+import org.languagetool.Languages;
+import org.languagetool.tools.StringTools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare tagging speed (tokens/second) with and without the word cache of {@link BaseTagger}.
+ * Not a unit test, for interactive use only.
+ */
+final class TaggerPerformanceTest {
+
+  private static final int RUNS = 5;
+
+  private void run(String languageCode, File textFile) throws IOException {
+    String text = StringTools.readStream(new FileInputStream(textFile), "utf-8");
+    Language language = Languages.getLanguageForShortCode(languageCode);
+    List<List<String>> sentences = new ArrayList<>();
+    long tokenCount = 0;
+    for (String sentence : language.getSentenceTokenizer().tokenize(text)) {
+      List<String> tokens = language.getWordTokenizer().tokenize(sentence);
+      sentences.add(tokens);
+      tokenCount += tokens.size();
+    }
+    System.out.println("Sentences: " + sentences.size() + ", tokens: " + tokenCount);
+    for (int cacheSize : new int[]{0, 10_000, 100_000}) {
+      BaseTagger.setCacheSize(cacheSize);
+      Tagger tagger = language.createDefaultTagger();
+      for (int i = 0; i < RUNS; i++) {
+        long startTime = System.nanoTime();
+        for (List<String> sentence : sentences) {
+          tagger.tag(sentence);
+        }
+        long runTime = System.nanoTime() - startTime;
+        float tokensPerSecond = tokenCount / (runTime / 1_000_000_000f);
+        String hitRate = "-";
+        if (tagger instanceof BaseTagger && ((BaseTagger) tagger).getCache() != null) {
+          CacheStats stats = ((BaseTagger) tagger).getCache().stats();
+          hitRate = stats.requestCount() > 0 ? String.format("%.2f", stats.hitRate()) : "- (cache not used by this tagger)";
+        }
+        System.out.printf("cache size %d, run %d: %.0f tokens/s, hit rate: %s%n", cacheSize, i, tokensPerSecond, hitRate);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.out.println("Usage: " + TaggerPerformanceTest.class.getSimpleName() + " <languageCode> <text_file>");
+      System.exit(1);
+    }
+    new TaggerPerformanceTest().run(args[0], new File(args[1]));
+  }
+
+}